@@ -0,0 +1,71 @@
+package com.catshop.catshop.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Primary từ spring.datasource.*, replica (tùy chọn) từ datasource.replica.urls (phân tách bằng dấu phẩy).
+// Không cấu hình replica thì mọi truy vấn đi primary như trước.
+@Slf4j
+@Configuration
+public class DataSourceConfig {
+
+    @Value("${datasource.replica.urls:}")
+    private List<String> replicaUrls;
+
+    @Value("${datasource.replica.username:${spring.datasource.username}}")
+    private String replicaUsername;
+
+    @Value("${datasource.replica.password:${spring.datasource.password}}")
+    private String replicaPassword;
+
+    @Value("${datasource.replica.max-lag-seconds:10}")
+    private double maxLagSeconds;
+
+    @Bean
+    public ReplicaRoutingDataSource routingDataSource(DataSourceProperties properties) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+
+        Map<String, HikariDataSource> replicas = new LinkedHashMap<>();
+        for (String url : replicaUrls) {
+            if (url.isBlank()) continue;
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(replicaUsername);
+            replica.setPassword(replicaPassword);
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setReadOnly(true);
+            // Replica chưa lên không được làm app khởi động thất bại
+            replica.setInitializationFailTimeout(-1);
+            replicas.put(replica.getPoolName(), replica);
+        }
+        log.info("🔧 [DB] Read replica: {}", replicas.isEmpty() ? "không có, mọi truy vấn đi primary" : replicas.keySet());
+        return new ReplicaRoutingDataSource(primary, replicas, maxLagSeconds);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    // Boot gắn TaskDecorator duy nhất vào applicationTaskExecutor (dùng cho MVC async và @Async)
+    // để task trên luồng executor vẫn đi primary như request đã gửi nó
+    @Bean
+    public TaskDecorator dataSourceRoutingTaskDecorator() {
+        return DataSourceRouting::wrap;
+    }
+}
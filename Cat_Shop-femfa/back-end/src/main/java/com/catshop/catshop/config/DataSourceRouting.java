@@ -0,0 +1,45 @@
+package com.catshop.catshop.config;
+
+// Ép mọi truy vấn của luồng hiện tại về primary (read-your-writes), kể cả trong transaction readOnly
+public final class DataSourceRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+    private DataSourceRouting() {
+    }
+
+    public static void forcePrimary() {
+        PRIMARY_FORCED.set(Boolean.TRUE);
+    }
+
+    public static boolean isPrimaryForced() {
+        return PRIMARY_FORCED.get() != null;
+    }
+
+    public static void clear() {
+        PRIMARY_FORCED.remove();
+    }
+
+    // ThreadLocal không tự sang luồng khác: chụp cờ của luồng gửi và áp lại trong task
+    // (StreamingResponseBody, @Async... chạy trên executor của Spring)
+    public static Runnable wrap(Runnable task) {
+        boolean forced = isPrimaryForced();
+        return () -> {
+            Boolean previous = PRIMARY_FORCED.get();
+            if (forced) {
+                forcePrimary();
+            } else {
+                clear();
+            }
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    PRIMARY_FORCED.set(previous);
+                } else {
+                    clear();
+                }
+            }
+        };
+    }
+}
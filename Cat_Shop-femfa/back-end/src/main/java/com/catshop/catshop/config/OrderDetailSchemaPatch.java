@@ -0,0 +1,23 @@
+package com.catshop.catshop.config;
+
+import com.catshop.catshop.repository.jdbc.OrderDetailJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+// ddl-auto=update chỉ thêm bảng / cột, không bỏ NOT NULL của cột có sẵn: sửa order_details.product_id
+// cho DB cũ để xóa sản phẩm không phải xóa theo lịch sử đơn hàng
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderDetailSchemaPatch implements CommandLineRunner {
+    private final OrderDetailJdbcRepository orderDetailJdbcRepository;
+
+    @Override
+    public void run(String... args) {
+        if (orderDetailJdbcRepository.allowNullProduct()) {
+            log.info("✅ [SCHEMA] order_details.product_id đã cho phép NULL");
+        }
+    }
+}
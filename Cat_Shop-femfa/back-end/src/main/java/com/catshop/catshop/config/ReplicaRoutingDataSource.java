@@ -0,0 +1,110 @@
+package com.catshop.catshop.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chọn primary hoặc một replica cho mỗi connection.
+ *
+ * Chỉ transaction readOnly khai báo ở tầng service (hoặc TransactionTemplate readOnly) mới đi replica;
+ * transaction readOnly mà Spring Data tự mở cho từng repository vẫn đi primary để các luồng như
+ * đăng nhập / xác thực JWT không đọc phải dữ liệu trễ. Replica lỗi hoặc trễ quá max-lag bị bỏ qua tới
+ * lần kiểm tra sau; không còn replica nào khỏe thì mọi thứ đi primary.
+ * Phải được bọc trong LazyConnectionDataSourceProxy: connection chỉ được lấy ở câu lệnh đầu tiên,
+ * lúc cờ readOnly của transaction đã được set.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    static final String PRIMARY = "primary";
+    private static final String SPRING_DATA_PREFIX = "org.springframework.data.";
+    private static final int CHECK_TIMEOUT_SECONDS = 2;
+
+    // Replica đã bắt kịp WAL nhận được thì coi như không trễ (replay timestamp đứng yên khi primary rảnh)
+    private static final String LAG_SQL = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+            END
+            """;
+
+    private final HikariDataSource primary;
+    private final Map<String, HikariDataSource> replicas;
+    private final double maxLagSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile List<String> healthy = List.of();
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, Map<String, HikariDataSource> replicas, double maxLagSeconds) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.maxLagSeconds = maxLagSeconds;
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (DataSourceRouting.isPrimaryForced() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        String name = TransactionSynchronizationManager.getCurrentTransactionName();
+        if (name != null && name.startsWith(SPRING_DATA_PREFIX)) return PRIMARY;
+
+        List<String> up = healthy;
+        if (up.isEmpty()) return PRIMARY;
+        return up.get(Math.floorMod(next.getAndIncrement(), up.size()));
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.health-check-ms:5000}")
+    public void checkHealth() {
+        if (replicas.isEmpty()) return;
+        List<String> up = new ArrayList<>();
+        for (Map.Entry<String, HikariDataSource> replica : replicas.entrySet()) {
+            String problem = probe(replica.getValue());
+            if (problem == null) {
+                up.add(replica.getKey());
+                if (!healthy.contains(replica.getKey())) log.info("✅ [DB] Replica {} sẵn sàng nhận truy vấn đọc", replica.getKey());
+            } else if (healthy.contains(replica.getKey())) {
+                log.warn("⚠️ [DB] Tạm ngừng dùng replica {}: {}", replica.getKey(), problem);
+            }
+        }
+        Collections.sort(up);
+        healthy = List.copyOf(up);
+    }
+
+    // null nếu replica dùng được, ngược lại là lý do
+    private String probe(HikariDataSource replica) {
+        try (Connection con = replica.getConnection(); Statement st = con.createStatement()) {
+            st.setQueryTimeout(CHECK_TIMEOUT_SECONDS);
+            try (ResultSet rs = st.executeQuery(LAG_SQL)) {
+                double lag = rs.next() ? rs.getDouble(1) : 0;
+                return lag > maxLagSeconds ? "trễ " + lag + "s" : null;
+            }
+        } catch (Exception e) {
+            return e.getMessage();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        replicas.values().forEach(HikariDataSource::close);
+        primary.close();
+    }
+}
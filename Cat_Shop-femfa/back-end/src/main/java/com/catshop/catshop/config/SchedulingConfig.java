@@ -0,0 +1,12 @@
+package com.catshop.catshop.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Bật @Scheduled cho các tác vụ nền (refresh index tìm kiếm, outbox, trừ kho...).
+// Pool scheduler cấu hình bằng spring.task.scheduling.pool.size: một job chậm không làm trễ outbox / giữ hàng;
+// job chạy lâu (archive, đối soát payment) tự chuyển sang executor riêng.
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -3,6 +3,7 @@ package com.catshop.catshop.config;
 import com.catshop.catshop.security.CustomOAuth2SuccessHandler;
 import com.catshop.catshop.security.JwtAuthEntryPoint;
 import com.catshop.catshop.security.JwtAuthFilter;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -80,12 +81,19 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         // ✅ Cho phép OPTIONS requests (CORS preflight)
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                        // ✅ Async dispatch (SSE, StreamingResponseBody) đã được kiểm tra quyền ở request gốc
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // ✅ Cho phép tất cả các endpoint auth và public (ưu tiên cao nhất)
                         .requestMatchers("/auth/**", "/api/auth/**", "/public/**", "/oauth2/**").permitAll()
                         // ✅ Cho phép GET categories cho customer (không cần auth)
                         .requestMatchers(HttpMethod.GET, "/api/categories/customer").permitAll()
                         // ✅ Cho phép GET products cho customer (không cần auth)
                         .requestMatchers(HttpMethod.GET, "/api/customer/products/**").permitAll()
+                        // ✅ Ảnh sản phẩm public (không cần auth)
+                        .requestMatchers(HttpMethod.GET, "/api/images/**").permitAll()
+                        .requestMatchers(HttpMethod.HEAD, "/api/images/**").permitAll()
+                        // Webhook cổng thanh toán: xác thực bằng chữ ký HMAC thay cho JWT
+                        .requestMatchers(HttpMethod.POST, "/api/webhooks/**").permitAll()
                         // ✅ Admin endpoints
                         .requestMatchers(
                                 "/api/users/**",
@@ -0,0 +1,28 @@
+package com.catshop.catshop.controller;
+
+import com.catshop.catshop.service.ImageDeliveryService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/images")
+@RequiredArgsConstructor
+public class ImageController {
+
+    private final ImageDeliveryService imageDeliveryService;
+
+    // Ảnh gốc "<hash>.<ext>" hoặc thumbnail "<hash>_w<width>.jpg" (GET và HEAD)
+    @GetMapping("/{fileName:.+}")
+    public void getImage(@PathVariable String fileName,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        imageDeliveryService.serve(fileName, request, response);
+    }
+}
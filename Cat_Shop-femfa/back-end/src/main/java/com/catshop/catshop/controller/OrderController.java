@@ -1,13 +1,33 @@
 package com.catshop.catshop.controller;
 
+import com.catshop.catshop.dto.request.BulkOrderStatusRequest;
+import com.catshop.catshop.dto.request.CheckoutRequest;
 import com.catshop.catshop.dto.request.OrderRequest;
 import com.catshop.catshop.dto.response.ApiResponse;
+import com.catshop.catshop.dto.response.BulkOrderStatusResponse;
+import com.catshop.catshop.dto.response.CheckoutResponse;
+import com.catshop.catshop.dto.response.OrderArchiveResponse;
 import com.catshop.catshop.dto.response.OrderResponse;
+import com.catshop.catshop.entity.User;
+import com.catshop.catshop.exception.BadRequestException;
+import com.catshop.catshop.exception.ResourceNotFoundException;
+import com.catshop.catshop.service.OrderArchiveService;
+import com.catshop.catshop.service.OrderExportService;
 import com.catshop.catshop.service.OrderService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 @RestController
@@ -16,6 +36,8 @@ import java.util.List;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderExportService orderExportService;
+    private final OrderArchiveService orderArchiveService;
 
     // ------------------ CUSTOMER APIs ------------------
 
@@ -53,6 +75,65 @@ public class OrderController {
                 "Lấy danh sách toàn bộ đơn hàng thành công");
     }
 
+    // Export toàn bộ đơn hàng (csv | ndjson), ghi theo luồng; from bao gồm, to không bao gồm
+    @GetMapping("/admin/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = OrderExportService.FORMAT_CSV) String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String status) {
+        String fmt = format.toLowerCase();
+        if (!OrderExportService.FORMAT_CSV.equals(fmt) && !OrderExportService.FORMAT_NDJSON.equals(fmt)) {
+            throw new BadRequestException("format chỉ hỗ trợ csv hoặc ndjson");
+        }
+        String normalizedStatus = status != null && !status.isBlank() ? status.trim().toLowerCase() : null;
+        boolean csv = OrderExportService.FORMAT_CSV.equals(fmt);
+
+        StreamingResponseBody body = out -> orderExportService.export(fmt, from, to, normalizedStatus, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders." + fmt + "\"")
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8))
+                .body(body);
+    }
+
+    @GetMapping("/admin/archives")
+    public ApiResponse<List<OrderArchiveResponse>> listArchives() {
+        return ApiResponse.success(orderArchiveService.listArchives(), "Lấy danh sách archive đơn hàng thành công");
+    }
+
+    // Đọc lại đơn hàng đã archive của một tháng (yyyy-MM), lọc theo orderId / userId nếu có
+    @GetMapping("/admin/archives/{month}")
+    public ResponseEntity<StreamingResponseBody> readArchive(
+            @PathVariable String month,
+            @RequestParam(required = false) Long orderId,
+            @RequestParam(required = false) Long userId) {
+        YearMonth yearMonth;
+        try {
+            yearMonth = YearMonth.parse(month);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("month phải có dạng yyyy-MM");
+        }
+        if (!orderArchiveService.hasArchive(yearMonth)) {
+            throw new ResourceNotFoundException("Không có archive cho tháng " + month);
+        }
+        StreamingResponseBody body = out -> orderArchiveService.readArchive(yearMonth, orderId, userId, out);
+        return ResponseEntity.ok()
+                .contentType(new MediaType("application", "x-ndjson", StandardCharsets.UTF_8))
+                .body(body);
+    }
+
+    @PostMapping("/admin/archives/run")
+    public ApiResponse<List<OrderArchiveResponse>> runArchive() {
+        return ApiResponse.success(orderArchiveService.archiveColdMonths(), "Archive đơn hàng cũ thành công");
+    }
+
+    // Chuyển trạng thái hàng loạt (vd. confirmed -> shipping) và tạo shipment cho từng đơn, kết quả theo từng đơn
+    @PostMapping("/admin/bulk-status")
+    public ApiResponse<BulkOrderStatusResponse> bulkUpdateStatus(@RequestBody @Valid BulkOrderStatusRequest request) {
+        return ApiResponse.success(orderService.bulkUpdateStatus(request), "Cập nhật trạng thái đơn hàng hàng loạt");
+    }
+
     @GetMapping("/admin/status-count")
     public ApiResponse<List<Object[]>> countOrdersByStatus() {
         return ApiResponse.success(orderService.countOrdersByStatus(),
@@ -71,6 +152,13 @@ public class OrderController {
         return ApiResponse.success(orderService.createOrder(request), "Tạo đơn hàng thành công");
     }
 
+    // POST: checkout cả giỏ hàng cho user đang đăng nhập (giá do server tính, trừ kho ngay)
+    @PostMapping("/checkout")
+    public ApiResponse<CheckoutResponse> checkout(@AuthenticationPrincipal User user,
+                                                  @RequestBody @Valid CheckoutRequest request) {
+        return ApiResponse.success(orderService.checkout(user.getUserId(), request), "Đặt hàng thành công");
+    }
+
     // PUT: cập nhật order
     @PutMapping("/{orderId}")
     public ApiResponse<OrderResponse> updateOrder(@PathVariable Long orderId,
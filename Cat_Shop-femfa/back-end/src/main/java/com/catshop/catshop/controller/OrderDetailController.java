@@ -5,8 +5,11 @@ import com.catshop.catshop.dto.response.*;
 import com.catshop.catshop.service.OrderDetailService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -65,6 +68,24 @@ public class OrderDetailController {
         return ResponseEntity.ok(ApiResponse.success(revenue, "Tổng doanh thu toàn hệ thống"));
     }
 
+    // ✅ Admin: doanh thu theo sản phẩm trong [from, to)
+    @GetMapping("/admin/revenue/by-product")
+    public ResponseEntity<ApiResponse<List<Object[]>>> getRevenueByProduct(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        List<Object[]> rows = orderDetailService.getRevenueByProduct(from, to);
+        return ResponseEntity.ok(ApiResponse.success(rows, "Doanh thu theo sản phẩm"));
+    }
+
+    // ✅ Admin: doanh thu theo danh mục trong [from, to)
+    @GetMapping("/admin/revenue/by-category")
+    public ResponseEntity<ApiResponse<List<Object[]>>> getRevenueByCategory(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        List<Object[]> rows = orderDetailService.getRevenueByCategory(from, to);
+        return ResponseEntity.ok(ApiResponse.success(rows, "Doanh thu theo danh mục"));
+    }
+
     // ✅ Customer: tổng tiền của đơn hàng
     @GetMapping("/order/{orderId}/total")
     public ResponseEntity<ApiResponse<Double>> getOrderTotal(@PathVariable Long orderId) {
@@ -1,9 +1,15 @@
 package com.catshop.catshop.controller;
 
+import com.catshop.catshop.dto.request.PaymentPageRequest;
 import com.catshop.catshop.dto.request.PaymentRequest;
 import com.catshop.catshop.dto.response.ApiResponse;
+import com.catshop.catshop.dto.response.CursorPageResponse;
+import com.catshop.catshop.dto.response.PaymentDiscrepancyResponse;
 import com.catshop.catshop.dto.response.PaymentResponse;
+import com.catshop.catshop.dto.response.ReconciliationRunResponse;
+import com.catshop.catshop.service.PaymentReconciliationService;
 import com.catshop.catshop.service.PaymentService;
+import com.catshop.catshop.service.PaymentWebhookService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
@@ -18,6 +24,8 @@ import java.util.List;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentReconciliationService paymentReconciliationService;
+    private final PaymentWebhookService paymentWebhookService;
 
     // =================== ADMIN SECTION ===================
 
@@ -26,6 +34,38 @@ public class PaymentController {
         return ApiResponse.success(paymentService.getAllPayments(), "Lấy danh sách tất cả payment thành công");
     }
 
+    // Phân trang keyset: ?size=20&cursor=...&userId=&orderId=&method=&from=&to=&minAmount=
+    @GetMapping("/page")
+    public ApiResponse<CursorPageResponse<PaymentResponse>> getPaymentsPage(@Valid PaymentPageRequest request) {
+        return ApiResponse.success(paymentService.getPaymentsPage(request), "Lấy trang payment thành công");
+    }
+
+    // Đối soát payment / tổng đơn / chi tiết đơn: chạy ở nền, trả về lần chạy (mới hoặc đang dở)
+    @PostMapping("/admin/reconciliation")
+    public ApiResponse<ReconciliationRunResponse> startReconciliation() {
+        return ApiResponse.success(paymentReconciliationService.start(), "Đã bắt đầu đối soát payment");
+    }
+
+    @GetMapping("/admin/reconciliation")
+    public ApiResponse<List<ReconciliationRunResponse>> getReconciliationRuns() {
+        return ApiResponse.success(paymentReconciliationService.listRuns(), "Lấy danh sách lần đối soát thành công");
+    }
+
+    @GetMapping("/admin/reconciliation/{runId}/discrepancies")
+    public ApiResponse<CursorPageResponse<PaymentDiscrepancyResponse>> getDiscrepancies(
+            @PathVariable Long runId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        return ApiResponse.success(paymentReconciliationService.getDiscrepancies(runId, cursor, size),
+                "Lấy danh sách đơn lệch thành công");
+    }
+
+    // Đưa sự kiện webhook trong dead letter trở lại hàng đợi (cũ nhất trước), sau khi đã sửa nguyên nhân lỗi
+    @PostMapping("/admin/webhook-dead-letters/replay")
+    public ApiResponse<Integer> replayWebhookDeadLetters(@RequestParam(defaultValue = "100") int limit) {
+        return ApiResponse.success(paymentWebhookService.replayDeadLetters(limit), "Đã phát lại sự kiện webhook");
+    }
+
     @GetMapping("/order/{orderId}")
     public ApiResponse<List<PaymentResponse>> getByOrder(@PathVariable Long orderId) {
         return ApiResponse.success(paymentService.getPaymentsByOrderId(orderId), "Lấy payment theo orderId thành công");
@@ -92,6 +132,13 @@ public class PaymentController {
         return ApiResponse.success(paymentService.getUserPayments(userId), "Lấy tất cả payment của user");
     }
 
+    @GetMapping("/user/{userId}/page")
+    public ApiResponse<CursorPageResponse<PaymentResponse>> getUserPaymentsPage(@PathVariable Long userId,
+                                                                                @Valid PaymentPageRequest request) {
+        request.setUserId(userId);
+        return ApiResponse.success(paymentService.getPaymentsPage(request), "Lấy trang payment của user");
+    }
+
     @GetMapping("/user/{userId}/method/{method}")
     public ApiResponse<List<PaymentResponse>> getUserPaymentsByMethod(@PathVariable Long userId,
                                                                       @PathVariable String method) {
@@ -0,0 +1,111 @@
+package com.catshop.catshop.controller;
+
+import com.catshop.catshop.dto.request.PaymentWebhookRequest;
+import com.catshop.catshop.dto.response.ApiResponse;
+import com.catshop.catshop.exception.BadRequestException;
+import com.catshop.catshop.util.WebhookSignature;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Giả lập cổng thanh toán để thử pipeline webhook ở máy local (chỉ bật khi payment.webhook.stub.enabled=true).
+ * Mỗi lần gọi tạo `events` sự kiện payment.succeeded cho đơn, mỗi sự kiện gửi `deliveries` lần như cổng thật
+ * gửi lại khi timeout, tất cả song song.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/payment-gateway-stub")
+@ConditionalOnProperty(name = "payment.webhook.stub.enabled", havingValue = "true")
+public class PaymentGatewayStubController {
+
+    private static final int MAX_REQUESTS = 10_000;
+
+    private final ObjectMapper objectMapper;
+    private final RestTemplate restTemplate = new RestTemplate();
+    private final String secret;
+    private final String targetUrl;
+
+    public PaymentGatewayStubController(ObjectMapper objectMapper,
+                                        @Value("${payment.webhook.secret:}") String secret,
+                                        @Value("${payment.webhook.stub.target-url:http://localhost:8080/api/webhooks/payments}") String targetUrl) {
+        this.objectMapper = objectMapper;
+        this.secret = secret;
+        this.targetUrl = targetUrl;
+    }
+
+    // Trả về số response theo nhóm mã HTTP (2xx, 4xx, 5xx, ERROR)
+    @PostMapping("/charge")
+    public ResponseEntity<ApiResponse<Map<String, Integer>>> charge(
+            @RequestParam Long orderId,
+            @RequestParam BigDecimal amount,
+            @RequestParam(defaultValue = "CARD") String method,
+            @RequestParam(defaultValue = "1") int events,
+            @RequestParam(defaultValue = "1") int deliveries) throws Exception {
+        if (events < 1 || deliveries < 1 || (long) events * deliveries > MAX_REQUESTS) {
+            throw new BadRequestException("events * deliveries phải trong khoảng 1.." + MAX_REQUESTS);
+        }
+
+        List<byte[]> bodies = new ArrayList<>();
+        for (int i = 0; i < events; i++) {
+            bodies.add(toJson(PaymentWebhookRequest.builder()
+                    .eventId("stub_" + UUID.randomUUID())
+                    .type(PaymentWebhookRequest.TYPE_SUCCEEDED)
+                    .orderId(orderId)
+                    .amount(amount)
+                    .method(method)
+                    .paidAt(LocalDateTime.now())
+                    .build()));
+        }
+
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (byte[] body : bodies) {
+                for (int d = 0; d < deliveries; d++) {
+                    results.add(executor.submit(() -> send(body)));
+                }
+            }
+        }
+
+        Map<String, Integer> counts = new TreeMap<>();
+        for (Future<String> result : results) counts.merge(result.get(), 1, Integer::sum);
+        log.info("🧪 [WEBHOOK STUB] Gửi {} webhook cho đơn {}: {}", results.size(), orderId, counts);
+        return ResponseEntity.ok(ApiResponse.success(counts, "Đã gửi webhook giả lập"));
+    }
+
+    private byte[] toJson(PaymentWebhookRequest event) throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(event);
+    }
+
+    private String send(byte[] body) {
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(WebhookSignature.HEADER_TIMESTAMP, timestamp);
+        headers.set(WebhookSignature.HEADER_SIGNATURE, WebhookSignature.sign(secret, timestamp, body));
+        try {
+            ResponseEntity<String> response = restTemplate.postForEntity(targetUrl, new HttpEntity<>(body, headers), String.class);
+            return response.getStatusCode().value() / 100 + "xx";
+        } catch (HttpStatusCodeException e) {
+            return e.getStatusCode().value() / 100 + "xx";
+        } catch (Exception e) {
+            return "ERROR";
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.catshop.catshop.controller;
+
+import com.catshop.catshop.dto.response.ApiResponse;
+import com.catshop.catshop.service.PaymentWebhookService;
+import com.catshop.catshop.util.WebhookSignature;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/webhooks")
+@RequiredArgsConstructor
+public class PaymentWebhookController {
+
+    private final PaymentWebhookService paymentWebhookService;
+
+    // Cổng thanh toán gọi khi giao dịch xong; body giữ nguyên dạng byte để kiểm tra chữ ký
+    @PostMapping("/payments")
+    public ResponseEntity<ApiResponse<String>> receivePayment(
+            @RequestBody byte[] body,
+            @RequestHeader(value = WebhookSignature.HEADER_TIMESTAMP, required = false) String timestamp,
+            @RequestHeader(value = WebhookSignature.HEADER_SIGNATURE, required = false) String signature) {
+        String result = paymentWebhookService.receive(body, timestamp, signature);
+        return ResponseEntity.ok(ApiResponse.success(result, "Đã nhận webhook thanh toán"));
+    }
+}
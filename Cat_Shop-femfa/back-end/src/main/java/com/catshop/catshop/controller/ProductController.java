@@ -1,11 +1,22 @@
 package com.catshop.catshop.controller;
 
+import com.catshop.catshop.dto.request.BulkStockRequest;
+import com.catshop.catshop.dto.request.ProductFacetRequest;
+import com.catshop.catshop.dto.request.ProductPageRequest;
 import com.catshop.catshop.dto.request.ProductRequest;
 import com.catshop.catshop.dto.response.ApiResponse;
+import com.catshop.catshop.dto.response.AutocompleteResponse;
+import com.catshop.catshop.dto.response.BulkStockResponse;
+import com.catshop.catshop.dto.response.CursorPageResponse;
+import com.catshop.catshop.dto.response.ProductDetailResponse;
+import com.catshop.catshop.dto.response.ProductFacetResponse;
+import com.catshop.catshop.dto.response.ProductImportResponse;
 import com.catshop.catshop.dto.response.ProductResponse;
+import com.catshop.catshop.service.ProductImportService;
 import com.catshop.catshop.service.ProductService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -20,6 +31,7 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductImportService productImportService;
 
     // ==================== ADMIN ====================
     @PostMapping(
@@ -56,6 +68,25 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success(response, "Cập nhật sản phẩm thành công"));
     }
 
+    // Import hàng loạt từ CSV (dòng đầu là tên cột) hoặc NDJSON; format lấy theo tham số hoặc đuôi file
+    @PostMapping(
+            value = "/admin/products/import",
+            consumes = { MediaType.MULTIPART_FORM_DATA_VALUE }
+    )
+    public ResponseEntity<ApiResponse<ProductImportResponse>> importProducts(
+            @RequestPart("file") MultipartFile file,
+            @RequestParam(required = false) String format) {
+        ProductImportResponse report = productImportService.importProducts(file, format);
+        return ResponseEntity.ok(ApiResponse.success(report,
+                report.isStopped() ? "Import dừng giữa chừng do file hỏng" : "Import sản phẩm hoàn tất"));
+    }
+
+    // Điều chỉnh tồn kho hàng loạt (DELTA +n/-n hoặc SET), kết quả theo từng sản phẩm
+    @PatchMapping("/admin/products/stock")
+    public ResponseEntity<ApiResponse<BulkStockResponse>> adjustStock(@Valid @RequestBody BulkStockRequest request) {
+        return ResponseEntity.ok(ApiResponse.success(productService.adjustStock(request), "Cập nhật tồn kho hàng loạt"));
+    }
+
     @DeleteMapping("/admin/products/{id}")
     public ResponseEntity<ApiResponse<Void>> deleteProduct(@PathVariable Long id) {
         productService.deleteProduct(id);
@@ -68,11 +99,30 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success(productService.getAllProducts(), "Lấy danh sách sản phẩm thành công"));
     }
 
+    // Phân trang keyset: ?sort=PRICE_ASC&size=20&cursor=...&typeId=&categoryId=&keyword=&minPrice=&maxPrice=
+    @GetMapping("/customer/products/page")
+    public ResponseEntity<ApiResponse<CursorPageResponse<ProductResponse>>> getProductsPage(
+            @Valid ProductPageRequest request) {
+        return ResponseEntity.ok(ApiResponse.success(productService.getProductsPage(request), "Lấy trang sản phẩm thành công"));
+    }
+
+    // Tìm kiếm theo facet: ?typeId=&categoryId=&breed=&gender=&vaccinated=&minPrice=&maxPrice=&inStock=&page=&size=
+    @GetMapping("/customer/products/facets")
+    public ResponseEntity<ApiResponse<ProductFacetResponse>> searchWithFacets(@Valid ProductFacetRequest request) {
+        return ResponseEntity.ok(ApiResponse.success(productService.searchWithFacets(request), "Tìm kiếm sản phẩm theo facet"));
+    }
+
     @GetMapping("/customer/products/{id}")
     public ResponseEntity<ApiResponse<ProductResponse>> getProductById(@PathVariable Long id) {
         return ResponseEntity.ok(ApiResponse.success(productService.getProductById(id), "Chi tiết sản phẩm"));
     }
 
+    // Trang chi tiết: sản phẩm + chi tiết theo loại + tổng hợp đánh giá trong một lần gọi
+    @GetMapping("/customer/products/{id}/detail")
+    public ResponseEntity<ApiResponse<ProductDetailResponse>> getProductDetail(@PathVariable Long id) {
+        return ResponseEntity.ok(ApiResponse.success(productService.getProductDetail(id), "Chi tiết đầy đủ sản phẩm"));
+    }
+
     @GetMapping("/customer/products/type/{typeId}")
     public ResponseEntity<ApiResponse<List<ProductResponse>>> getProductsByType(@PathVariable Long typeId) {
         return ResponseEntity.ok(ApiResponse.success(productService.getProductsByType(typeId), "Lọc sản phẩm theo loại"));
@@ -84,8 +134,20 @@ public class ProductController {
     }
 
     @GetMapping("/customer/products/search")
-    public ResponseEntity<ApiResponse<List<ProductResponse>>> searchProducts(@RequestParam String keyword) {
-        return ResponseEntity.ok(ApiResponse.success(productService.searchProductsByName(keyword), "Tìm kiếm sản phẩm"));
+    public ResponseEntity<ApiResponse<List<ProductResponse>>> searchProducts(
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "50") int limit) {
+        int safeLimit = Math.min(Math.max(limit, 1), 100);
+        return ResponseEntity.ok(ApiResponse.success(productService.searchProductsByName(keyword, safeLimit), "Tìm kiếm sản phẩm"));
+    }
+
+    // Gợi ý khi gõ: trả lời hoàn toàn từ index trong bộ nhớ
+    @GetMapping("/customer/products/autocomplete")
+    public ResponseEntity<ApiResponse<List<AutocompleteResponse>>> autocomplete(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        int safeLimit = Math.min(Math.max(limit, 1), 20);
+        return ResponseEntity.ok(ApiResponse.success(productService.autocomplete(q, safeLimit), "Gợi ý sản phẩm"));
     }
 
     @GetMapping("/customer/products/price-range")
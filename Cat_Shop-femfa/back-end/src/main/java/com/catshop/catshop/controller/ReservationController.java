@@ -0,0 +1,42 @@
+package com.catshop.catshop.controller;
+
+import com.catshop.catshop.dto.request.CheckoutRequest;
+import com.catshop.catshop.dto.response.ApiResponse;
+import com.catshop.catshop.dto.response.CheckoutResponse;
+import com.catshop.catshop.dto.response.ReservationResponse;
+import com.catshop.catshop.entity.User;
+import com.catshop.catshop.service.OrderService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+// Giữ hàng tạm thời cho các đợt mở bán (ví dụ một lứa mèo mới), sau đó xác nhận thành đơn hàng
+@RestController
+@RequestMapping("/api/reservations")
+@RequiredArgsConstructor
+public class ReservationController {
+
+    private final OrderService orderService;
+
+    @PostMapping
+    public ApiResponse<ReservationResponse> reserve(@AuthenticationPrincipal User user,
+                                                    @RequestBody @Valid CheckoutRequest request) {
+        return ApiResponse.success(orderService.reserve(user.getUserId(), request), "Giữ hàng thành công");
+    }
+
+    @PostMapping("/{reservationId}/confirm")
+    public ApiResponse<CheckoutResponse> confirm(@AuthenticationPrincipal User user,
+                                                 @PathVariable String reservationId) {
+        return ApiResponse.success(orderService.confirmReservation(user.getUserId(), reservationId),
+                "Đặt hàng thành công");
+    }
+
+    // Dùng POST vì DELETE trên /api/** chỉ dành cho ADMIN
+    @PostMapping("/{reservationId}/release")
+    public ApiResponse<Void> release(@AuthenticationPrincipal User user,
+                                     @PathVariable String reservationId) {
+        orderService.releaseReservation(user.getUserId(), reservationId);
+        return ApiResponse.success(null, "Đã hủy giữ hàng");
+    }
+}
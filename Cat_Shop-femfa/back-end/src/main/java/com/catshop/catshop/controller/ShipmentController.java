@@ -3,12 +3,16 @@ package com.catshop.catshop.controller;
 import com.catshop.catshop.dto.request.ShipmentRequest;
 import com.catshop.catshop.dto.response.ApiResponse;
 import com.catshop.catshop.dto.response.ShipmentResponse;
+import com.catshop.catshop.exception.BadRequestException;
 import com.catshop.catshop.service.ShipmentService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 @RestController
@@ -49,7 +53,7 @@ public class ShipmentController {
         );
     }
 
-    // 🟢 Lấy shipment trong khoảng ngày giao hàng
+    // 🟢 Lấy shipment trong khoảng ngày giao hàng (startDate bao gồm, endDate không bao gồm)
     @GetMapping("/admin/date-range")
     public ApiResponse<List<ShipmentResponse>> getShipmentsByDateRange(
             @RequestParam LocalDateTime startDate,
@@ -69,6 +73,20 @@ public class ShipmentController {
         );
     }
 
+    // 🟢 Thống kê shipment theo trạng thái trong một tháng (yyyy-MM) hoặc một ngày (yyyy-MM-dd)
+    @GetMapping("/admin/count-by-status/{period}")
+    public ApiResponse<List<Object[]>> countShipmentsByStatusInPeriod(@PathVariable String period) {
+        List<Object[]> counts;
+        try {
+            counts = period.length() == 7
+                    ? shipmentService.countShipmentsByStatus(YearMonth.parse(period))
+                    : shipmentService.countShipmentsByStatus(LocalDate.parse(period));
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("period phải có dạng yyyy-MM hoặc yyyy-MM-dd");
+        }
+        return ApiResponse.success(counts, "Thống kê shipment theo trạng thái thành công");
+    }
+
     // 🟢 Lấy shipment theo orderId
     @GetMapping("/admin/order/{orderId}")
     public ApiResponse<List<ShipmentResponse>> getShipmentsByOrderId(@PathVariable Long orderId) {
@@ -150,7 +168,7 @@ public class ShipmentController {
         );
     }
 
-    // 🟢 Lọc shipment theo khoảng thời gian của user
+    // 🟢 Lọc shipment theo khoảng thời gian của user (startDate bao gồm, endDate không bao gồm)
     @GetMapping("/user/{userId}/date-range")
     public ApiResponse<List<ShipmentResponse>> getUserShipmentsByDateRange(
             @PathVariable Long userId,
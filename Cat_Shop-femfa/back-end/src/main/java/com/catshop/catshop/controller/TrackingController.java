@@ -0,0 +1,29 @@
+package com.catshop.catshop.controller;
+
+import com.catshop.catshop.entity.User;
+import com.catshop.catshop.service.OrderTrackingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/tracking")
+@RequiredArgsConstructor
+public class TrackingController {
+
+    private final OrderTrackingService orderTrackingService;
+
+    // SSE: nhận event "status" (TrackingEvent dạng JSON) khi đơn hàng / shipment của user đổi trạng thái
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(@AuthenticationPrincipal User user) {
+        return ResponseEntity.ok()
+                // Tắt buffer của reverse proxy (nginx) để event tới client ngay
+                .header("X-Accel-Buffering", "no")
+                .body(orderTrackingService.connect(user.getUserId()));
+    }
+}
@@ -0,0 +1,18 @@
+package com.catshop.catshop.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkOrderStatusItem {
+
+    @NotNull(message = "orderId không được để trống")
+    private Long orderId;
+
+    // Bắt buộc khi request có shipmentStatus
+    private String shippingAddress;
+}
@@ -0,0 +1,30 @@
+package com.catshop.catshop.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkOrderStatusRequest {
+
+    @NotBlank(message = "Trạng thái mới không được để trống")
+    private String status;
+
+    // Chỉ chuyển các đơn đang ở trạng thái này (vd. confirmed -> shipping); null = không kiểm tra
+    private String fromStatus;
+
+    // Có giá trị thì tạo shipment với trạng thái này cho mỗi đơn được chuyển; null = không tạo shipment
+    private String shipmentStatus;
+
+    @NotEmpty(message = "Danh sách đơn hàng không được để trống")
+    @Size(max = 1000, message = "Tối đa 1000 đơn hàng mỗi lần")
+    private List<@Valid BulkOrderStatusItem> items;
+}
@@ -0,0 +1,20 @@
+package com.catshop.catshop.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkStockRequest {
+
+    @NotEmpty(message = "Danh sách điều chỉnh tồn kho không được để trống")
+    @Size(max = 1000, message = "Tối đa 1000 sản phẩm mỗi lần")
+    private List<@Valid StockAdjustmentItem> items;
+}
@@ -0,0 +1,22 @@
+package com.catshop.catshop.dto.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CheckoutItemRequest {
+
+    @NotNull(message = "productId không được để trống")
+    private Long productId;
+
+    @NotNull(message = "Số lượng không được để trống")
+    @Min(value = 1, message = "Số lượng tối thiểu là 1")
+    @Max(value = 1000, message = "Số lượng tối đa là 1000")
+    private Integer quantity;
+}
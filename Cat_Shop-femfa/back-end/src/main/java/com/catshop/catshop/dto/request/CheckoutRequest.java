@@ -0,0 +1,21 @@
+package com.catshop.catshop.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+// Giỏ hàng gửi lên khi thanh toán: chỉ productId + số lượng, giá do server tính
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CheckoutRequest {
+
+    @NotEmpty(message = "Giỏ hàng không được để trống")
+    @Size(max = 100, message = "Giỏ hàng tối đa 100 sản phẩm")
+    private List<@Valid CheckoutItemRequest> items;
+}
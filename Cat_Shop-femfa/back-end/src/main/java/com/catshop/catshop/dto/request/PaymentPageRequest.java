@@ -0,0 +1,38 @@
+package com.catshop.catshop.dto.request;
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentPageRequest {
+
+    // Token tiếp tục (opaque) lấy từ nextCursor của trang trước, bỏ trống cho trang đầu
+    private String cursor;
+
+    @Min(value = 1, message = "size phải >= 1")
+    @Max(value = 100, message = "size tối đa là 100")
+    @Builder.Default
+    private Integer size = 20;
+
+    // Bộ lọc (tùy chọn, kết hợp bằng AND)
+    private Long userId;
+    private Long orderId;
+    private String method;
+
+    // [from, to): from tính, to không tính
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+
+    private BigDecimal minAmount;
+}
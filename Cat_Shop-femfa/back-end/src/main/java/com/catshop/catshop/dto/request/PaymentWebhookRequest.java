@@ -0,0 +1,26 @@
+package com.catshop.catshop.dto.request;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Body webhook từ cổng thanh toán (cũng là nội dung message trên Redis Stream payments:webhook)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentWebhookRequest {
+
+    public static final String TYPE_SUCCEEDED = "payment.succeeded";
+
+    // Id sự kiện phía cổng thanh toán; cổng gửi lại cùng id khi retry
+    private String eventId;
+    private String type;
+    private Long orderId;
+    private BigDecimal amount;
+    private String method;
+    // Thời điểm cổng ghi nhận thanh toán; null = lúc lưu
+    private LocalDateTime paidAt;
+}
@@ -0,0 +1,32 @@
+package com.catshop.catshop.dto.request;
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductFacetRequest {
+
+    // Bộ lọc (tùy chọn) - giá trị lấy từ chính các facet trả về
+    private Long typeId;
+    private Long categoryId;
+    private String breed;
+    private String gender;
+    private Boolean vaccinated;
+    private BigDecimal minPrice; // bao gồm
+    private BigDecimal maxPrice; // không bao gồm, khớp với biên của facet price
+    private Boolean inStock;
+
+    @Min(value = 0, message = "page phải >= 0")
+    @Builder.Default
+    private Integer page = 0;
+
+    @Min(value = 1, message = "size phải >= 1")
+    @Max(value = 100, message = "size tối đa là 100")
+    @Builder.Default
+    private Integer size = 20;
+}
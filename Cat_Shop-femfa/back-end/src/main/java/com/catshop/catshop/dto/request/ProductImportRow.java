@@ -0,0 +1,42 @@
+package com.catshop.catshop.dto.request;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Một dòng của file import sản phẩm (cột CSV hoặc key NDJSON trùng tên field)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductImportRow {
+
+    private String productName;
+    private String typeName;
+    private String categoryName;
+    private BigDecimal price;
+    private Integer stockQuantity;
+    private String description;
+    private String imageUrl;
+
+    // Cat
+    private String breed;
+    private Integer age;
+    private String gender;
+    private Boolean vaccinated;
+
+    // Food
+    private BigDecimal weightKg;
+    private String ingredients;
+    private LocalDate expiryDate;
+
+    // Cage
+    private String material;
+    private String dimensions;
+
+    // Cleaning
+    private Integer volumeMl;
+    private String usage;
+}
@@ -0,0 +1,31 @@
+package com.catshop.catshop.dto.request;
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductPageRequest {
+
+    // Token tiếp tục (opaque) lấy từ nextCursor của trang trước, bỏ trống cho trang đầu
+    private String cursor;
+
+    @Min(value = 1, message = "size phải >= 1")
+    @Max(value = 100, message = "size tối đa là 100")
+    @Builder.Default
+    private Integer size = 20;
+
+    @Builder.Default
+    private ProductSortKey sort = ProductSortKey.NEWEST;
+
+    // Bộ lọc (tùy chọn)
+    private Long typeId;
+    private Long categoryId;
+    private String keyword;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+}
@@ -0,0 +1,11 @@
+package com.catshop.catshop.dto.request;
+
+// Các khóa sắp xếp hỗ trợ phân trang keyset cho danh sách sản phẩm.
+// Mỗi khóa luôn kèm product_id làm tie-breaker để thứ tự ổn định giữa các trang.
+public enum ProductSortKey {
+    PRICE_ASC,
+    PRICE_DESC,
+    NAME_ASC,
+    NEWEST,
+    STOCK_DESC
+}
@@ -0,0 +1,22 @@
+package com.catshop.catshop.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockAdjustmentItem {
+
+    @NotNull(message = "productId không được để trống")
+    private Long productId;
+
+    @NotNull(message = "mode không được để trống (DELTA | SET)")
+    private StockAdjustmentMode mode;
+
+    // DELTA: có thể âm; SET: phải >= 0
+    @NotNull(message = "quantity không được để trống")
+    private Integer quantity;
+}
@@ -0,0 +1,7 @@
+package com.catshop.catshop.dto.request;
+
+// DELTA: cộng/trừ vào tồn kho hiện tại (+n / -n); SET: gán giá trị tuyệt đối (kiểm kê)
+public enum StockAdjustmentMode {
+    DELTA,
+    SET
+}
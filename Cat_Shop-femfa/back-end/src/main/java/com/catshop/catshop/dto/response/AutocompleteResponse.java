@@ -0,0 +1,16 @@
+package com.catshop.catshop.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AutocompleteResponse {
+    private String text;
+    // PRODUCT hoặc BREED
+    private String type;
+    // Chỉ có với gợi ý loại PRODUCT
+    private Long productId;
+}
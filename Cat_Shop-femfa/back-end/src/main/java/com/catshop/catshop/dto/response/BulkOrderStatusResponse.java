@@ -0,0 +1,20 @@
+package com.catshop.catshop.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkOrderStatusResponse {
+    private int updated;
+    // Đã ở trạng thái mới từ trước: không phải lỗi, không tính vào failed
+    private int unchanged;
+    // NOT_FOUND hoặc STATUS_MISMATCH
+    private int failed;
+    // Cùng thứ tự với items trong request
+    private List<OrderStatusResult> results;
+}
@@ -0,0 +1,17 @@
+package com.catshop.catshop.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkStockResponse {
+    private int updated;
+    private int failed;
+    // Cùng thứ tự với items trong request
+    private List<StockAdjustmentResult> results;
+}
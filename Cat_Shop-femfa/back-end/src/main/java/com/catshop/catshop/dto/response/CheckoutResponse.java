@@ -0,0 +1,20 @@
+package com.catshop.catshop.dto.response;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CheckoutResponse {
+    private Long orderId;
+    private String status;
+    private LocalDateTime orderDate;
+    private BigDecimal totalAmount;
+    private List<CheckoutLineResponse> items;
+}
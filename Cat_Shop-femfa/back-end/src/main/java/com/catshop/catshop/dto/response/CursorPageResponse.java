@@ -0,0 +1,16 @@
+package com.catshop.catshop.dto.response;
+
+import lombok.*;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorPageResponse<T> {
+    private List<T> items;
+    private String nextCursor; // null khi đã hết dữ liệu
+    private boolean hasMore;
+    private int size;
+}
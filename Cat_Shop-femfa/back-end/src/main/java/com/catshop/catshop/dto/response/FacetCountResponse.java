@@ -0,0 +1,13 @@
+package com.catshop.catshop.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FacetCountResponse {
+    private String value;
+    private long count;
+}
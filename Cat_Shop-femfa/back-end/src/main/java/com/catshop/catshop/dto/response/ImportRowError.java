@@ -0,0 +1,15 @@
+package com.catshop.catshop.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportRowError {
+    // Số dòng trong file (CSV: dòng bắt đầu bản ghi, tính cả header)
+    private int line;
+    private String productName;
+    private String message;
+}
@@ -0,0 +1,22 @@
+package com.catshop.catshop.dto.response;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderArchiveResponse {
+    // yyyy-MM
+    private String month;
+    private String fileName;
+    // WRITTEN | PURGED
+    private String status;
+    private Long orderCount;
+    private Long sizeBytes;
+    private LocalDateTime createdAt;
+    private LocalDateTime purgedAt;
+}
@@ -0,0 +1,24 @@
+package com.catshop.catshop.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderStatusResult {
+
+    public static final String UPDATED = "UPDATED";
+    public static final String UNCHANGED = "UNCHANGED";
+    public static final String NOT_FOUND = "NOT_FOUND";
+    public static final String STATUS_MISMATCH = "STATUS_MISMATCH";
+
+    private Long orderId;
+    // UPDATED | UNCHANGED (đã ở trạng thái mới) | NOT_FOUND | STATUS_MISMATCH (khác fromStatus)
+    private String status;
+    private String previousStatus;
+    private String newStatus;
+    // Shipment vừa tạo (nếu có)
+    private Long shipmentId;
+}
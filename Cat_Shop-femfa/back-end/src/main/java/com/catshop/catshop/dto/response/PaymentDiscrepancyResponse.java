@@ -0,0 +1,21 @@
+package com.catshop.catshop.dto.response;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentDiscrepancyResponse {
+    private Long orderId;
+    // LINE_TOTAL | PAYMENT_TOTAL
+    private String kind;
+    private BigDecimal orderTotal;
+    private BigDecimal lineTotal;
+    private BigDecimal paymentTotal;
+    private LocalDateTime detectedAt;
+}
@@ -10,6 +10,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 public class PaymentResponse {
+    private Long paymentId;
     private Long orderId;
     private LocalDateTime paymentDate;
     private String method;
@@ -0,0 +1,25 @@
+package com.catshop.catshop.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductDetailResponse {
+
+    private ProductResponse product;
+
+    // Chỉ một trong các chi tiết dưới đây có giá trị, tùy theo loại sản phẩm
+    private CatDetailResponse catDetail;
+    private FoodDetailResponse foodDetail;
+    private CageDetailResponse cageDetail;
+    private CleaningDetailResponse cleaningDetail;
+
+    // Tổng hợp đánh giá
+    private Double averageRating;
+    private Long reviewCount;
+}
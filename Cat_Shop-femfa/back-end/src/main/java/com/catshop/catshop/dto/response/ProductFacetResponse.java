@@ -0,0 +1,19 @@
+package com.catshop.catshop.dto.response;
+
+import lombok.*;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductFacetResponse {
+    private List<ProductResponse> items;
+    private long total;
+    private int page;
+    private int size;
+    // Tên facet (type, category, breed, gender, vaccinated, price, inStock) -> các giá trị kèm số lượng
+    private Map<String, List<FacetCountResponse>> facets;
+}
@@ -0,0 +1,23 @@
+package com.catshop.catshop.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductImportResponse {
+    private int totalRows;
+    private int inserted;
+    private int updated;
+    private int failed;
+    private List<ImportRowError> errors;
+    // true nếu số lỗi vượt giới hạn trả về, errors chỉ chứa phần đầu
+    private boolean errorsTruncated;
+    // true nếu file hỏng giữa chừng (CSV thiếu nháy đóng): các dòng trước đó đã được ghi, phần sau không được đọc
+    private boolean stopped;
+    private long elapsedMillis;
+}
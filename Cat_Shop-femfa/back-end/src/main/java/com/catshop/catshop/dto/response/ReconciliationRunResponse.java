@@ -0,0 +1,25 @@
+package com.catshop.catshop.dto.response;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationRunResponse {
+    private Long id;
+    // RUNNING | COMPLETED
+    private String status;
+    private Long maxOrderId;
+    // Checkpoint: đã đối soát các đơn có id <= giá trị này
+    private Long lastOrderId;
+    private Long ordersChecked;
+    private Long discrepancyCount;
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime finishedAt;
+    private String lastError;
+}
@@ -0,0 +1,19 @@
+package com.catshop.catshop.dto.response;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReservationResponse {
+    private String reservationId;
+    // Sau thời điểm này lượt giữ hàng tự hết hạn và số lượng được trả lại kho
+    private LocalDateTime expiresAt;
+    // Chỉ có productId + quantity
+    private List<CheckoutLineResponse> items;
+}
@@ -0,0 +1,21 @@
+package com.catshop.catshop.dto.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockAdjustmentResult {
+
+    public static final String UPDATED = "UPDATED";
+    public static final String NOT_FOUND = "NOT_FOUND";
+    public static final String NEGATIVE_STOCK = "NEGATIVE_STOCK";
+
+    private Long productId;
+    // UPDATED | NOT_FOUND | NEGATIVE_STOCK
+    private String status;
+    private Integer previousStock;
+    private Integer newStock;
+}
@@ -0,0 +1,25 @@
+package com.catshop.catshop.dto.response;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Thay đổi trạng thái đơn hàng / shipment đẩy cho user qua SSE (/api/tracking/stream)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TrackingEvent {
+
+    public static final String TYPE_ORDER = "ORDER";
+    public static final String TYPE_SHIPMENT = "SHIPMENT";
+
+    private String type;
+    private Long userId;
+    private Long orderId;
+    private Long shipmentId;
+    private String status;
+    private String previousStatus;
+    private LocalDateTime occurredAt;
+}
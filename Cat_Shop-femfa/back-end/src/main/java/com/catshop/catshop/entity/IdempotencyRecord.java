@@ -0,0 +1,46 @@
+package com.catshop.catshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Bản dự phòng trong DB của Idempotency-Key khi Redis không khả dụng
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_expires", columnList = "expires_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord {
+
+    // <userId>:<method> <path>:<Idempotency-Key>
+    @Id
+    @Column(name = "scope_key", length = 400)
+    private String scopeKey;
+
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    // IN_PROGRESS | COMPLETED
+    @Column(nullable = false, length = 20)
+    private String state;
+
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -7,7 +7,12 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Danh sách / export đơn hàng cho admin theo ngày đặt mới nhất
+        @Index(name = "idx_orders_date_id", columnList = "order_date, order_id"),
+        // Lọc đơn / payment theo user
+        @Index(name = "idx_orders_user", columnList = "user_id, order_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
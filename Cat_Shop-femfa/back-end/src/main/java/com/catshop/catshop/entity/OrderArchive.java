@@ -0,0 +1,48 @@
+package com.catshop.catshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Một tháng đơn hàng cũ đã được chuyển ra file nén (kèm chi tiết, payment, shipment của các đơn đó).
+// WRITTEN: file đã ghi xong, đang xóa khỏi bảng chính; PURGED: đã xóa xong.
+@Entity
+@Table(name = "order_archives")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderArchive {
+
+    public static final String STATUS_WRITTEN = "WRITTEN";
+    public static final String STATUS_PURGED = "PURGED";
+
+    // Ngày đầu tháng
+    @Id
+    private LocalDate month;
+
+    @Column(name = "file_name", nullable = false, length = 100)
+    private String fileName;
+
+    @Column(nullable = false, length = 10)
+    private String status;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    // Chỉ xóa các đơn có id <= giá trị này, đơn nào lọt vào tháng sau khi ghi file vẫn ở lại
+    @Column(name = "max_order_id", nullable = false)
+    private Long maxOrderId;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "purged_at")
+    private LocalDateTime purgedAt;
+}
@@ -2,10 +2,14 @@ package com.catshop.catshop.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "order_details")
+@Table(name = "order_details", indexes = {
+        @Index(name = "idx_order_details_order", columnList = "order_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -22,8 +26,10 @@ public class OrderDetail {
     @JoinColumn(name = "order_id", nullable = false)
     private Order order;
 
+    // NULL khi sản phẩm đã bị xóa; dòng hàng vẫn giữ tên (và danh mục) lúc đó
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "product_id", nullable = false)
+    @JoinColumn(name = "product_id")
+    @OnDelete(action = OnDeleteAction.SET_NULL)
     private Product product;
 
     @Column(nullable = false)
@@ -31,4 +37,12 @@ public class OrderDetail {
 
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal price;
+
+    // Tên sản phẩm lúc đặt hàng, để báo cáo vẫn có tên khi sản phẩm bị đổi tên / xóa
+    @Column(name = "product_name")
+    private String productName;
+
+    // Danh mục của sản phẩm, chỉ ghi lúc sản phẩm bị xóa (khi còn sản phẩm thì báo cáo lấy danh mục hiện tại)
+    @Column(name = "category_id")
+    private Long categoryId;
 }
@@ -0,0 +1,14 @@
+package com.catshop.catshop.entity;
+
+// Giá trị cột orders.status (frontend dùng chữ thường)
+public final class OrderStatus {
+
+    public static final String PENDING = "pending";
+    public static final String CONFIRMED = "confirmed";
+    public static final String SHIPPING = "shipping";
+    public static final String DELIVERED = "delivered";
+    public static final String CANCELLED = "cancelled";
+
+    private OrderStatus() {
+    }
+}
@@ -0,0 +1,63 @@
+package com.catshop.catshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Sự kiện ghi cùng transaction với thay đổi đơn hàng / payment / shipment, OutboxDispatcher giao sau commit.
+// Sự kiện của cùng một aggregate được giao đúng thứ tự id; sự kiện lỗi chặn các sự kiện sau nó tới khi thành công hoặc DEAD.
+@Entity
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_outbox_status_available", columnList = "status, available_at, id"),
+        @Index(name = "idx_outbox_aggregate", columnList = "aggregate_type, aggregate_id, id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_DONE = "DONE";
+    public static final String STATUS_DEAD = "DEAD";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "aggregate_type", nullable = false, length = 30)
+    private String aggregateType;
+
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+
+    @Column(name = "event_type", nullable = false, length = 50)
+    private String eventType;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    @Column(nullable = false, length = 10)
+    private String status;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    // Hạn "thuê" của worker đang giao; quá hạn (worker chết) thì worker khác nhận lại
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+}
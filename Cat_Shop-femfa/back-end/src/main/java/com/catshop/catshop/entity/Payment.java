@@ -6,7 +6,11 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payments")
+// Index theo ngày cho truy vấn khoảng thời gian / sắp xếp mới nhất, index order_id cho archive và join
+@Table(name = "payments", indexes = {
+        @Index(name = "idx_payments_date_id", columnList = "payment_date, payment_id"),
+        @Index(name = "idx_payments_order", columnList = "order_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -28,6 +32,10 @@ public class Payment {
 
     private BigDecimal amount;
 
+    // Id sự kiện của cổng thanh toán nếu payment đến từ webhook
+    @Column(name = "gateway_event_id", length = 100, unique = true)
+    private String gatewayEventId;
+
     @PrePersist
     public void prePersist() {
         if (paymentDate == null) paymentDate = LocalDateTime.now();
@@ -0,0 +1,53 @@
+package com.catshop.catshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Đơn hàng lệch số liệu tìm thấy trong một lần đối soát.
+ * kind:
+ * - LINE_TOTAL    : tổng quantity * price của chi tiết đơn khác orders.total_amount
+ * - PAYMENT_TOTAL : tổng payments.amount (đơn đã có payment) khác orders.total_amount
+ */
+@Entity
+@Table(name = "payment_discrepancies",
+        uniqueConstraints = @UniqueConstraint(name = "uk_payment_discrepancy_run_order_kind",
+                columnNames = {"run_id", "order_id", "kind"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentDiscrepancy {
+
+    public static final String KIND_LINE_TOTAL = "LINE_TOTAL";
+    public static final String KIND_PAYMENT_TOTAL = "PAYMENT_TOTAL";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(nullable = false, length = 20)
+    private String kind;
+
+    @Column(name = "order_total", precision = 12, scale = 2)
+    private BigDecimal orderTotal;
+
+    @Column(name = "line_total", precision = 14, scale = 2)
+    private BigDecimal lineTotal;
+
+    @Column(name = "payment_total", precision = 14, scale = 2)
+    private BigDecimal paymentTotal;
+
+    @Column(name = "detected_at", nullable = false)
+    private LocalDateTime detectedAt;
+}
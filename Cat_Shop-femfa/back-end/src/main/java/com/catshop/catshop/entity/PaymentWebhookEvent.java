@@ -0,0 +1,34 @@
+package com.catshop.catshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Sổ các sự kiện webhook cổng thanh toán đã xử lý; khóa chính event_id là chỗ chống trùng cuối cùng.
+// PROCESSED: đã tạo payment (payments.gateway_event_id = event_id); ORDER_NOT_FOUND: đơn không tồn tại, bỏ qua.
+@Entity
+@Table(name = "payment_webhook_events")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentWebhookEvent {
+
+    public static final String STATUS_PROCESSED = "PROCESSED";
+    public static final String STATUS_ORDER_NOT_FOUND = "ORDER_NOT_FOUND";
+
+    @Id
+    @Column(name = "event_id", length = 100)
+    private String eventId;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "processed_at", nullable = false)
+    private LocalDateTime processedAt;
+}
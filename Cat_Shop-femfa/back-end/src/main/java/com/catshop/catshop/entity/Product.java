@@ -6,7 +6,16 @@ import java.math.BigDecimal;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        // Index phục vụ phân trang keyset: (cột sắp xếp, product_id)
+        @Index(name = "idx_products_price_id", columnList = "price, product_id"),
+        @Index(name = "idx_products_name_id", columnList = "product_name, product_id"),
+        @Index(name = "idx_products_stock_id", columnList = "stock_quantity, product_id"),
+        @Index(name = "idx_products_type_id", columnList = "type_id, product_id"),
+        @Index(name = "idx_products_category_id", columnList = "category_id, product_id"),
+        // Kiểm tra ảnh (lưu theo nội dung) còn được sản phẩm nào dùng trước khi xóa file
+        @Index(name = "idx_products_image_url", columnList = "image_url")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -42,7 +51,8 @@ public class Product {
     @Column(name = "image_url", length = 255)
     private String imageUrl;
 
-    @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
+    // Không cascade: xóa sản phẩm chỉ tách khỏi lịch sử đơn hàng (product_id -> NULL), không xóa dòng hàng
+    @OneToMany(mappedBy = "product")
     private List<OrderDetail> orderDetails;
 
     // ✅ Một sản phẩm có thể có nhiều đánh giá
@@ -0,0 +1,53 @@
+package com.catshop.catshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Một lần đối soát payment / đơn hàng / chi tiết đơn. last_order_id là checkpoint: chạy lại thì đi tiếp từ đây.
+// RUNNING: đang chạy hoặc bị ngắt giữa chừng (sẽ được chạy tiếp); COMPLETED: đã duyệt hết đến max_order_id.
+@Entity
+@Table(name = "payment_reconciliation_runs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationRun {
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 10)
+    private String status;
+
+    // Đơn mới hơn lúc bắt đầu không thuộc lần chạy này
+    @Column(name = "max_order_id", nullable = false)
+    private Long maxOrderId;
+
+    @Column(name = "last_order_id", nullable = false)
+    private Long lastOrderId;
+
+    @Column(name = "orders_checked", nullable = false)
+    private Long ordersChecked;
+
+    @Column(name = "discrepancy_count", nullable = false)
+    private Long discrepancyCount;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+}
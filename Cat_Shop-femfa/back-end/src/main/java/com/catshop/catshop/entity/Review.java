@@ -5,7 +5,10 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "reviews")
+@Table(name = "reviews", indexes = {
+        // Gộp điểm đánh giá theo sản phẩm chỉ cần quét index (index-only scan)
+        @Index(name = "idx_reviews_product_rating", columnList = "product_id, rating")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,66 @@
+package com.catshop.catshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Số liệu bán hàng gộp theo ngày, do SalesRollupService tính lại từ orders / order_details / payments.
+ *
+ * dimension / dimKey:
+ * - ORDERS, ""          : số đơn, tổng total_amount
+ * - USER, userId        : số đơn, tổng chi tiêu của user
+ * - LINES, ""           : số đơn có dòng hàng, tổng số lượng, tổng quantity * price
+ * - PRODUCT, productId  : như LINES, theo sản phẩm; dimLabel là tên sản phẩm (trên dòng hàng) lúc tính.
+ *                         Dòng hàng của sản phẩm đã xóa gộp theo tên chụp lại: dimKey = "name:" + md5(tên)
+ * - CATEGORY, categoryId: như LINES, theo danh mục ("" nếu sản phẩm không có danh mục)
+ * - PAYMENT_METHOD, method: số payment, tổng amount
+ *
+ * Đơn không có order_date / payment không có payment_date không thuộc ngày nào nên không được tính
+ * (rebuild ghi cảnh báo kèm số dòng bị bỏ qua).
+ */
+@Entity
+@Table(name = "sales_rollup_daily",
+        uniqueConstraints = @UniqueConstraint(name = "uk_sales_rollup_dim_day", columnNames = {"dimension", "dim_key", "day"}),
+        indexes = @Index(name = "idx_sales_rollup_day", columnList = "day"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesRollup {
+
+    public static final String DIM_ORDERS = "ORDERS";
+    public static final String DIM_USER = "USER";
+    public static final String DIM_LINES = "LINES";
+    public static final String DIM_PRODUCT = "PRODUCT";
+    public static final String DIM_CATEGORY = "CATEGORY";
+    public static final String DIM_PAYMENT_METHOD = "PAYMENT_METHOD";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Column(nullable = false, length = 20)
+    private String dimension;
+
+    @Column(name = "dim_key", nullable = false, length = 100)
+    private String dimKey;
+
+    @Column(name = "record_count", nullable = false)
+    private Long recordCount;
+
+    @Column(nullable = false)
+    private Long quantity;
+
+    @Column(nullable = false, precision = 16, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "dim_label")
+    private String dimLabel;
+}
@@ -0,0 +1,19 @@
+package com.catshop.catshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+// Ngày có đơn hàng / payment bị sửa hoặc xóa, chờ SalesRollupService tính lại
+@Entity
+@Table(name = "sales_rollup_dirty")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesRollupDirtyDay {
+
+    @Id
+    private LocalDate day;
+}
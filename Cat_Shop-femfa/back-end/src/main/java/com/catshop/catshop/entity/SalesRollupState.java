@@ -0,0 +1,27 @@
+package com.catshop.catshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Id lớn nhất đã được gộp của từng bảng nguồn (orders, order_details, payments)
+@Entity
+@Table(name = "sales_rollup_state")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesRollupState {
+
+    @Id
+    @Column(length = 50)
+    private String source;
+
+    @Column(name = "last_id", nullable = false)
+    private Long lastId;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -5,7 +5,11 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "shipments")
+// Index theo ngày cho truy vấn khoảng thời gian / sắp xếp mới nhất, index order_id cho archive và join
+@Table(name = "shipments", indexes = {
+        @Index(name = "idx_shipments_date_id", columnList = "shipped_date, shipment_id"),
+        @Index(name = "idx_shipments_order", columnList = "order_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
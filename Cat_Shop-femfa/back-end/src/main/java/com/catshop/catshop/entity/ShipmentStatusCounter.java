@@ -0,0 +1,40 @@
+package com.catshop.catshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Bộ đếm shipment theo trạng thái, do ShipmentCounterService cộng / trừ trong cùng transaction
+ * với thao tác tạo / sửa / xóa shipment và đối soát định kỳ với bảng shipments.
+ *
+ * bucket:
+ * - "all"        : toàn bộ shipment
+ * - "yyyy-MM"    : shipment có shipped_date trong tháng
+ * - "yyyy-MM-dd" : shipment có shipped_date trong ngày
+ * status: trạng thái shipment ("" nếu null)
+ */
+@Entity
+@Table(name = "shipment_status_counters",
+        uniqueConstraints = @UniqueConstraint(name = "uk_shipment_counter_bucket_status", columnNames = {"bucket", "status"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ShipmentStatusCounter {
+
+    public static final String BUCKET_ALL = "all";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 10)
+    private String bucket;
+
+    @Column(nullable = false)
+    private String status;
+
+    @Column(name = "shipment_count", nullable = false)
+    private Long shipmentCount;
+}
@@ -0,0 +1,47 @@
+package com.catshop.catshop.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Số lượng đã bán qua lượt giữ hàng (Redis), chờ worker trừ vào products.stock_quantity.
+// Dòng của checkout trừ kho đồng bộ được ghi với applied_at có sẵn, chỉ để khôi phục khi node chết giữa chừng.
+// rejected_at: worker không trừ được vì tồn kho không đủ (counter Redis từng lệch) - đơn cần xử lý tay.
+@Entity
+@Table(name = "stock_commits", indexes = {
+        @Index(name = "idx_stock_commits_applied_id", columnList = "applied_at, id"),
+        @Index(name = "idx_stock_commits_reservation", columnList = "reservation_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockCommit {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "reservation_id", nullable = false, length = 36)
+    private String reservationId;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "applied_at")
+    private LocalDateTime appliedAt;
+
+    @Column(name = "rejected_at")
+    private LocalDateTime rejectedAt;
+}
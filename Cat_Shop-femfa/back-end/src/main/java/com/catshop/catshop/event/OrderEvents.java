@@ -0,0 +1,24 @@
+package com.catshop.catshop.event;
+
+// Loại sự kiện trong outbox. Mọi sự kiện dùng aggregate ORDER + orderId để payment / shipment
+// của một đơn được giao theo đúng thứ tự với thay đổi của chính đơn đó.
+public final class OrderEvents {
+
+    public static final String AGGREGATE_ORDER = "ORDER";
+
+    public static final String ORDER_CREATED = "ORDER_CREATED";
+    public static final String ORDER_UPDATED = "ORDER_UPDATED";
+    public static final String ORDER_DELETED = "ORDER_DELETED";
+    public static final String ORDER_LINES_CHANGED = "ORDER_LINES_CHANGED";
+
+    public static final String PAYMENT_CREATED = "PAYMENT_CREATED";
+    public static final String PAYMENT_UPDATED = "PAYMENT_UPDATED";
+    public static final String PAYMENT_DELETED = "PAYMENT_DELETED";
+
+    public static final String SHIPMENT_CREATED = "SHIPMENT_CREATED";
+    public static final String SHIPMENT_UPDATED = "SHIPMENT_UPDATED";
+    public static final String SHIPMENT_DELETED = "SHIPMENT_DELETED";
+
+    private OrderEvents() {
+    }
+}
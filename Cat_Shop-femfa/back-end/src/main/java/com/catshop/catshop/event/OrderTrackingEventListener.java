@@ -0,0 +1,43 @@
+package com.catshop.catshop.event;
+
+import com.catshop.catshop.dto.response.TrackingEvent;
+import com.catshop.catshop.service.OrderTrackingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+// Đẩy thay đổi trạng thái đơn hàng / shipment đã commit tới user đang mở SSE
+@Component
+@RequiredArgsConstructor
+public class OrderTrackingEventListener {
+
+    private final OrderTrackingService orderTrackingService;
+
+    @EventListener(condition = "#message.aggregateType == 'ORDER'")
+    public void onOrderEvent(OutboxMessage message) {
+        String type = switch (message.eventType()) {
+            case OrderEvents.ORDER_UPDATED -> TrackingEvent.TYPE_ORDER;
+            case OrderEvents.SHIPMENT_CREATED, OrderEvents.SHIPMENT_UPDATED -> TrackingEvent.TYPE_SHIPMENT;
+            default -> null;
+        };
+        Long userId = message.longValue("userId");
+        if (type == null || userId == null) return;
+
+        String status = message.textValue("status");
+        String previousStatus = message.textValue("previousStatus");
+        // Cập nhật không đổi trạng thái (địa chỉ, tổng tiền...) thì không cần báo
+        if (!OrderEvents.SHIPMENT_CREATED.equals(message.eventType()) && Objects.equals(status, previousStatus)) return;
+
+        orderTrackingService.publish(TrackingEvent.builder()
+                .type(type)
+                .userId(userId)
+                .orderId(message.aggregateId())
+                .shipmentId(message.longValue("shipmentId"))
+                .status(status)
+                .previousStatus(previousStatus)
+                .occurredAt(message.createdAt())
+                .build());
+    }
+}
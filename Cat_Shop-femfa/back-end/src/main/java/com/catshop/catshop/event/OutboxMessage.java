@@ -0,0 +1,50 @@
+package com.catshop.catshop.event;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sự kiện outbox được phát tới các @EventListener trong ứng dụng.
+ * Giao ít nhất một lần: listener ném exception thì cả sự kiện được giao lại (cho mọi listener),
+ * nên listener phải idempotent.
+ */
+public record OutboxMessage(long id,
+                            String aggregateType,
+                            long aggregateId,
+                            String eventType,
+                            JsonNode payload,
+                            LocalDateTime createdAt,
+                            int attempt) {
+
+    public boolean is(String type) {
+        return eventType.equals(type);
+    }
+
+    public Long longValue(String field) {
+        JsonNode node = payload.get(field);
+        return node == null || node.isNull() ? null : node.asLong();
+    }
+
+    public String textValue(String field) {
+        JsonNode node = payload.get(field);
+        return node == null || node.isNull() ? null : node.asText();
+    }
+
+    // Ngày giờ được ObjectMapper ghi dạng ISO-8601
+    public LocalDateTime dateTime(String field) {
+        JsonNode node = payload.get(field);
+        return node == null || node.isNull() ? null : LocalDateTime.parse(node.asText());
+    }
+
+    public List<LocalDateTime> dateTimes(String field) {
+        List<LocalDateTime> values = new ArrayList<>();
+        JsonNode node = payload.get(field);
+        if (node != null && node.isArray()) {
+            node.forEach(n -> values.add(LocalDateTime.parse(n.asText())));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,34 @@
+package com.catshop.catshop.event;
+
+import com.catshop.catshop.service.SalesRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Đánh dấu ngày cần tính lại rollup doanh thu khi đơn hàng / chi tiết / payment thay đổi
+@Component
+@RequiredArgsConstructor
+public class SalesRollupEventListener {
+
+    private final SalesRollupService salesRollupService;
+
+    @EventListener(condition = "#message.aggregateType == 'ORDER'")
+    public void onOrderEvent(OutboxMessage message) {
+        switch (message.eventType()) {
+            case OrderEvents.ORDER_CREATED, OrderEvents.ORDER_UPDATED, OrderEvents.ORDER_LINES_CHANGED ->
+                    salesRollupService.markDirty(message.dateTime("orderDate"));
+            case OrderEvents.ORDER_DELETED -> {
+                List<LocalDateTime> dates = message.dateTimes("paymentDates");
+                dates.add(message.dateTime("orderDate"));
+                salesRollupService.markDirty(dates.toArray(LocalDateTime[]::new));
+            }
+            case OrderEvents.PAYMENT_CREATED, OrderEvents.PAYMENT_UPDATED, OrderEvents.PAYMENT_DELETED ->
+                    salesRollupService.markDirty(message.dateTime("paymentDate"));
+            default -> {
+            }
+        }
+    }
+}
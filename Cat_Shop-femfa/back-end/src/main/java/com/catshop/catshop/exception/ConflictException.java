@@ -1,4 +1,7 @@
 package com.catshop.catshop.exception;
 
-public class ConflictException {
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message);
+    }
 }
@@ -1,4 +1,7 @@
 package com.catshop.catshop.exception;
 
-public class UnauthorizedException {
+public class UnauthorizedException extends RuntimeException {
+    public UnauthorizedException(String message) {
+        super(message);
+    }
 }
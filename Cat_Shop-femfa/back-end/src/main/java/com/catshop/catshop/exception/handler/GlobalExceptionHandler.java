@@ -2,7 +2,9 @@ package com.catshop.catshop.exception.handler;
 
 import com.catshop.catshop.dto.response.ApiResponse;
 import com.catshop.catshop.exception.BadRequestException;
+import com.catshop.catshop.exception.ConflictException;
 import com.catshop.catshop.exception.ResourceNotFoundException;
+import com.catshop.catshop.exception.UnauthorizedException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -58,6 +60,20 @@ public class GlobalExceptionHandler {
                 );
     }
 
+    @ExceptionHandler(UnauthorizedException.class)
+    public ResponseEntity<ApiResponse<Void>> handleUnauthorized(UnauthorizedException ex) {
+        return ResponseEntity
+                .status(HttpStatus.UNAUTHORIZED)
+                .body(ApiResponse.error(401, ex.getMessage()));
+    }
+
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<ApiResponse<Void>> handleConflict(ConflictException ex) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error(409, ex.getMessage()));
+    }
+
     @ExceptionHandler(org.springframework.web.method.annotation.MethodArgumentTypeMismatchException.class)
     public ResponseEntity<ApiResponse<Void>> handleTypeMismatch(MethodArgumentTypeMismatchException ex){
         String param = ex.getName();
@@ -0,0 +1,241 @@
+package com.catshop.catshop.filter;
+
+import com.catshop.catshop.dto.response.ApiResponse;
+import com.catshop.catshop.entity.User;
+import com.catshop.catshop.service.IdempotencyService;
+import com.catshop.catshop.service.IdempotencyService.Decision;
+import com.catshop.catshop.service.IdempotencyService.Outcome;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Header Idempotency-Key cho các endpoint tạo đơn hàng / thanh toán / vận chuyển.
+ *
+ * - Request đầu tiên với một key được xử lý bình thường; response (2xx/4xx) được lưu lại.
+ * - Gửi lại cùng key + cùng body: trả response đã lưu, không chạy lại service.
+ * - Request trùng đến khi request đầu còn đang chạy: chờ kết quả thay vì chạy song song.
+ * - Cùng key nhưng body khác: 422.
+ * Key được tách theo user và endpoint nên hai user dùng trùng key không ảnh hưởng nhau.
+ * Filter chạy sau Spring Security để biết user hiện tại.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_BODY_BYTES = 1024 * 1024;
+    private static final long POLL_MILLIS = 100;
+
+    private static final List<String> PROTECTED_PATHS = List.of(
+            "/api/orders",
+            "/api/orders/checkout",
+            "/api/orders/admin/bulk-status",
+            "/api/reservations/*/confirm",
+            "/api/payments",
+            "/api/shipments/admin/create"
+    );
+
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Value("${idempotency.wait-timeout-ms:10000}")
+    private long waitTimeoutMillis;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod()) || request.getHeader(HEADER) == null) return true;
+        String uri = request.getRequestURI();
+        return PROTECTED_PATHS.stream().noneMatch(p -> pathMatcher.match(p, uri));
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String key = request.getHeader(HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpServletResponse.SC_BAD_REQUEST, HEADER + " phải có từ 1 đến " + MAX_KEY_LENGTH + " ký tự");
+            return;
+        }
+        byte[] body = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            writeError(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Request quá lớn");
+            return;
+        }
+
+        String scopeKey = currentUser() + ":POST " + request.getRequestURI() + ":" + key;
+        String fingerprint = sha256(body);
+
+        Decision decision = idempotencyService.begin(scopeKey, fingerprint);
+        long deadline = System.currentTimeMillis() + waitTimeoutMillis;
+        while (decision.outcome() == Outcome.IN_PROGRESS && System.currentTimeMillis() < deadline) {
+            if (!sleep()) break;
+            decision = idempotencyService.begin(scopeKey, fingerprint);
+        }
+
+        switch (decision.outcome()) {
+            case REPLAY -> replay(response, decision);
+            case MISMATCH -> writeError(response, 422, HEADER + " đã được dùng cho một request khác");
+            case IN_PROGRESS -> writeError(response, HttpServletResponse.SC_CONFLICT,
+                    "Request với " + HEADER + " này đang được xử lý, vui lòng thử lại sau");
+            case ACQUIRED -> execute(new CachedBodyRequest(request, body), response, filterChain, scopeKey, fingerprint);
+        }
+    }
+
+    private void execute(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+                         String scopeKey, String fingerprint) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapped = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, wrapped);
+        } catch (ServletException | IOException | RuntimeException e) {
+            idempotencyService.abandon(scopeKey, fingerprint);
+            throw e;
+        }
+
+        int status = wrapped.getStatus();
+        try {
+            if (status >= 500) {
+                idempotencyService.abandon(scopeKey, fingerprint);
+            } else {
+                idempotencyService.complete(scopeKey, fingerprint, status, wrapped.getContentType(),
+                        new String(wrapped.getContentAsByteArray(), StandardCharsets.UTF_8));
+            }
+        } catch (RuntimeException e) {
+            // Service đã chạy xong: vẫn trả kết quả cho client, chỉ mất khả năng replay
+            log.warn("⚠️ [IDEMPOTENCY] Không lưu được kết quả cho {}: {}", scopeKey, e.getMessage());
+        }
+        wrapped.copyBodyToResponse();
+    }
+
+    private void replay(HttpServletResponse response, Decision decision) throws IOException {
+        response.setStatus(decision.response().status());
+        if (decision.response().contentType() != null) {
+            response.setContentType(decision.response().contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        byte[] body = decision.response().body() != null
+                ? decision.response().body().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private void writeError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(objectMapper.writeValueAsString(ApiResponse.error(status, message)));
+    }
+
+    private static String currentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof User user) {
+            return String.valueOf(user.getUserId());
+        }
+        return "anonymous";
+    }
+
+    private static boolean sleep() {
+        try {
+            Thread.sleep(POLL_MILLIS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static String sha256(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Body đã được đọc để tính fingerprint: cho controller đọc lại từ bộ nhớ
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+            return new BufferedReader(new InputStreamReader(getInputStream(), Charset.forName(encoding)));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
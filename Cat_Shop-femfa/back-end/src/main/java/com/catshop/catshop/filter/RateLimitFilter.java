@@ -25,7 +25,11 @@ public class RateLimitFilter implements Filter {
             "/auth/",
             "/api/categories/customer",
             "/oauth2/",
-            "/public/"
+            "/public/",
+            // Ảnh sản phẩm: một trang catalog tải hàng chục ảnh cùng lúc
+            "/api/images/",
+            // Webhook: cổng thanh toán gửi dồn dập từ vài IP cố định, đã có chữ ký + dedup
+            "/api/webhooks/"
     );
 
     public RateLimitFilter(StringRedisTemplate redisTemplate) {
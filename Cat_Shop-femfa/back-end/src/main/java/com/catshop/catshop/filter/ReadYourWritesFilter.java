@@ -0,0 +1,63 @@
+package com.catshop.catshop.filter;
+
+import com.catshop.catshop.config.DataSourceRouting;
+import com.catshop.catshop.config.ReplicaRoutingDataSource;
+import com.catshop.catshop.entity.User;
+import com.catshop.catshop.service.ReadYourWritesService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Read-your-writes khi có read replica: request ghi chạy hoàn toàn trên primary và sau khi thành công
+ * thì "ghim" user vào primary một lúc; request đọc của user đang bị ghim cũng đi primary.
+ * Filter chạy sau Spring Security để biết user hiện tại.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final ReplicaRoutingDataSource routingDataSource;
+    private final ReadYourWritesService readYourWritesService;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !routingDataSource.hasReplicas();
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        boolean write = !SAFE_METHODS.contains(request.getMethod());
+        Long userId = currentUserId();
+        if (write || (userId != null && readYourWritesService.isPinned(userId))) {
+            DataSourceRouting.forcePrimary();
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            DataSourceRouting.clear();
+            if (write && userId != null && response.getStatus() < 400) {
+                readYourWritesService.pin(userId);
+            }
+        }
+    }
+
+    private static Long currentUserId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.getPrincipal() instanceof User user ? user.getUserId() : null;
+    }
+}
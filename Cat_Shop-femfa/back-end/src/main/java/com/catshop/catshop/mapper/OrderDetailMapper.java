@@ -11,7 +11,7 @@ public interface OrderDetailMapper {
 
     @Mapping(source = "order.orderId", target = "orderId")
     @Mapping(source = "product.productId", target = "productId")
-    @Mapping(source = "product.productName", target = "productName")
+    @Mapping(target = "productName", expression = "java(orderDetail.getProduct() != null ? orderDetail.getProduct().getProductName() : orderDetail.getProductName())")
     OrderDetailResponse toResponse(OrderDetail orderDetail);
 
     List<OrderDetailResponse> toResponseList(List<OrderDetail> orderDetails);
@@ -19,5 +19,7 @@ public interface OrderDetailMapper {
     // Map từ request sang entity
     @Mapping(target = "order", ignore = true)
     @Mapping(target = "product", ignore = true)
+    @Mapping(target = "productName", ignore = true)
+    @Mapping(target = "categoryId", ignore = true)
     OrderDetail toEntity(OrderDetailRequest request);
 }
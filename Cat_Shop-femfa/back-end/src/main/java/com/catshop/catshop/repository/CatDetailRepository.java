@@ -4,6 +4,7 @@ import com.catshop.catshop.entity.CatDetails;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
@@ -17,4 +18,8 @@ public interface CatDetailRepository extends JpaRepository<CatDetails, Long> {
     List<CatDetails> findByVaccinated(Boolean vaccinated);
 
     Page<CatDetails> findAll(Pageable pageable);
+
+    // [catId, breed] cho index autocomplete, không nạp entity Product đi kèm
+    @Query("SELECT c.catId, c.breed FROM CatDetails c WHERE c.breed IS NOT NULL")
+    List<Object[]> findAllBreeds();
 }
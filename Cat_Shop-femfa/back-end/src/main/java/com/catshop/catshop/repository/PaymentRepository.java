@@ -2,6 +2,7 @@ package com.catshop.catshop.repository;
 
 import com.catshop.catshop.entity.Payment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -10,7 +11,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface PaymentRepository extends JpaRepository<Payment, Long> {
+public interface PaymentRepository extends JpaRepository<Payment, Long>, JpaSpecificationExecutor<Payment> {
 
     // Lấy tất cả
     @Query("SELECT p FROM Payment p ORDER BY p.paymentDate DESC")
@@ -24,6 +25,14 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     @Query("SELECT p FROM Payment p WHERE p.order.user.userId = :userId ORDER BY p.paymentDate DESC")
     List<Payment> findByUserId(Long userId);
 
+    // Theo user + phương thức
+    @Query("SELECT p FROM Payment p WHERE p.order.user.userId = :userId AND LOWER(p.method) = LOWER(:method) ORDER BY p.paymentDate DESC")
+    List<Payment> findByUserIdAndMethod(Long userId, String method);
+
+    // Theo user + khoảng thời gian
+    @Query("SELECT p FROM Payment p WHERE p.order.user.userId = :userId AND p.paymentDate BETWEEN :start AND :end ORDER BY p.paymentDate DESC")
+    List<Payment> findByUserIdAndPaymentDateBetween(Long userId, LocalDateTime start, LocalDateTime end);
+
     // Theo phương thức
     List<Payment> findByMethodIgnoreCase(String method);
 
@@ -1,16 +1,22 @@
 package com.catshop.catshop.repository;
 
+import com.catshop.catshop.dto.response.ProductResponse;
 import com.catshop.catshop.entity.Product;
 import com.catshop.catshop.entity.ProductType;
 import com.catshop.catshop.entity.Category;
+import com.catshop.catshop.repository.projection.ProductDetailView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
 
     // ✅ Kiểm tra trùng tên sản phẩm
     boolean existsByProductName(String productName);
@@ -33,23 +39,145 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     // ✅ ADMIN - tìm sản phẩm theo tên gần đúng
     List<Product> findByProductNameContainingIgnoreCase(String keyword);
 
+    // ===== CUSTOMER: projection thẳng sang ProductResponse =====
+    // JOIN sẵn productType/category trong MỘT câu SQL, tránh N+1 khi map các quan hệ LAZY
+    String RESPONSE_SELECT = """
+            SELECT new com.catshop.catshop.dto.response.ProductResponse(
+                p.productId, p.productName, p.price, p.stockQuantity, p.description, p.imageUrl,
+                t.typeId, t.typeName, c.categoryId, c.categoryName)
+            FROM Product p
+            JOIN p.productType t
+            LEFT JOIN p.category c
+            """;
+
     // ✅ CUSTOMER - lấy sản phẩm còn hàng
-    @Query("SELECT p FROM Product p WHERE p.stockQuantity > 0")
-    List<Product> findAllAvailableProducts();
+    @Query(RESPONSE_SELECT + "WHERE p.stockQuantity > 0")
+    List<ProductResponse> findAllAvailableProducts();
 
     // ✅ CUSTOMER - lấy sản phẩm theo loại (chỉ sản phẩm còn hàng)
-    @Query("SELECT p FROM Product p WHERE p.productType.typeId = :typeId AND p.stockQuantity > 0")
-    List<Product> findAvailableProductsByTypeId(Long typeId);
+    @Query(RESPONSE_SELECT + "WHERE t.typeId = :typeId AND p.stockQuantity > 0")
+    List<ProductResponse> findAvailableProductsByTypeId(Long typeId);
 
     // ✅ CUSTOMER - lấy sản phẩm theo category (chỉ còn hàng)
-    @Query("SELECT p FROM Product p WHERE p.category.categoryId = :categoryId AND p.stockQuantity > 0")
-    List<Product> findAvailableProductsByCategoryId(Long categoryId);
+    @Query(RESPONSE_SELECT + "WHERE c.categoryId = :categoryId AND p.stockQuantity > 0")
+    List<ProductResponse> findAvailableProductsByCategoryId(Long categoryId);
 
     // ✅ CUSTOMER - tìm sản phẩm có giá nhỏ hơn X
     @Query("SELECT p FROM Product p WHERE p.stockQuantity > 0 AND p.price <= :priceLimit")
     List<Product> findAvailableProductsCheaperThan(BigDecimal priceLimit);
 
     // ✅ CUSTOMER - tìm sản phẩm có từ khóa (chỉ lấy còn hàng)
-    @Query("SELECT p FROM Product p WHERE LOWER(p.productName) LIKE LOWER(CONCAT('%', :keyword, '%')) AND p.stockQuantity > 0")
-    List<Product> searchAvailableProductsByKeyword(String keyword);
+    @Query(RESPONSE_SELECT + "WHERE LOWER(p.productName) LIKE LOWER(CONCAT('%', :keyword, '%')) AND p.stockQuantity > 0")
+    List<ProductResponse> searchAvailableProductsByKeyword(String keyword);
+
+    // ✅ CUSTOMER - chi tiết 1 sản phẩm
+    @Query(RESPONSE_SELECT + "WHERE p.productId = :id")
+    Optional<ProductResponse> findResponseById(@Param("id") Long id);
+
+    // ✅ CUSTOMER - trang chi tiết: sản phẩm + bảng chi tiết theo loại + tổng hợp đánh giá trong MỘT câu SQL.
+    // Các bảng chi tiết dùng chung khóa chính với products nên mỗi LEFT JOIN chỉ là một lần tra index PK;
+    // đánh giá được gộp bằng LATERAL nên không nhân bản dòng sản phẩm.
+    @Query(value = """
+            SELECT p.product_id AS productId, p.product_name AS productName, p.price AS price,
+                   p.stock_quantity AS stockQuantity, p.description AS description, p.image_url AS imageUrl,
+                   t.type_id AS typeId, t.type_name AS typeName,
+                   c.category_id AS categoryId, c.category_name AS categoryName,
+                   cd.cat_id AS catId, cd.breed AS breed, cd.age AS age, cd.gender AS gender, cd.vaccinated AS vaccinated,
+                   fd.food_id AS foodId, fd.weight_kg AS weightKg, fd.ingredients AS ingredients, fd.expiry_date AS expiryDate,
+                   cg.cage_id AS cageId, cg.material AS material, cg.dimensions AS dimensions,
+                   cl.cleaning_id AS cleaningId, cl.volume_ml AS volumeMl, cl.usage AS usage,
+                   r.average_rating AS averageRating, r.review_count AS reviewCount
+            FROM products p
+            JOIN product_types t ON t.type_id = p.type_id
+            LEFT JOIN categories c ON c.category_id = p.category_id
+            LEFT JOIN catdetails cd ON cd.cat_id = p.product_id
+            LEFT JOIN food_details fd ON fd.food_id = p.product_id
+            LEFT JOIN cage_details cg ON cg.cage_id = p.product_id
+            LEFT JOIN cleaning_details cl ON cl.cleaning_id = p.product_id
+            CROSS JOIN LATERAL (
+                SELECT CAST(AVG(rv.rating) AS DOUBLE PRECISION) AS average_rating, COUNT(*) AS review_count
+                FROM reviews rv
+                WHERE rv.product_id = p.product_id
+            ) r
+            WHERE p.product_id = :id
+            """, nativeQuery = true)
+    Optional<ProductDetailView> findDetailViewById(@Param("id") Long id);
+
+    // ✅ CUSTOMER - lọc theo khoảng giá
+    @Query(RESPONSE_SELECT + "WHERE p.price BETWEEN :minPrice AND :maxPrice")
+    List<ProductResponse> findResponsesByPriceBetween(@Param("minPrice") BigDecimal minPrice,
+                                                      @Param("maxPrice") BigDecimal maxPrice);
+
+    // ✅ Nạp theo danh sách id (kết quả search/facet), thứ tự do service sắp lại
+    @Query(RESPONSE_SELECT + "WHERE p.productId IN :ids")
+    List<ProductResponse> findResponsesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // ✅ CUSTOMER - faceted search: điều kiện lọc dùng chung cho danh sách và bảng đếm facet
+    String FACET_FILTER = """
+            (CAST(:typeId AS BIGINT) IS NULL OR p.type_id = :typeId)
+            AND (CAST(:categoryId AS BIGINT) IS NULL OR p.category_id = :categoryId)
+            AND (CAST(:breed AS TEXT) IS NULL OR LOWER(cd.breed) = LOWER(CAST(:breed AS TEXT)))
+            AND (CAST(:gender AS TEXT) IS NULL OR cd.gender = CAST(:gender AS TEXT))
+            AND (CAST(:vaccinated AS BOOLEAN) IS NULL OR cd.vaccinated = :vaccinated)
+            AND (CAST(:minPrice AS NUMERIC) IS NULL OR p.price >= :minPrice)
+            AND (CAST(:maxPrice AS NUMERIC) IS NULL OR p.price < :maxPrice)
+            AND (CAST(:inStock AS BOOLEAN) IS NULL OR (p.stock_quantity > 0) = :inStock)
+            """;
+
+    @Query(value = """
+            SELECT p.product_id FROM products p
+            LEFT JOIN catdetails cd ON cd.cat_id = p.product_id
+            WHERE """ + FACET_FILTER + """
+            ORDER BY p.product_id DESC
+            LIMIT :limit OFFSET :offset
+            """, nativeQuery = true)
+    List<Long> findIdsByFacets(@Param("typeId") Long typeId,
+                               @Param("categoryId") Long categoryId,
+                               @Param("breed") String breed,
+                               @Param("gender") String gender,
+                               @Param("vaccinated") Boolean vaccinated,
+                               @Param("minPrice") BigDecimal minPrice,
+                               @Param("maxPrice") BigDecimal maxPrice,
+                               @Param("inStock") Boolean inStock,
+                               @Param("limit") int limit,
+                               @Param("offset") int offset);
+
+    // Đếm tất cả facet trong MỘT lần quét bằng GROUPING SETS; tập () trả về tổng số dòng khớp.
+    // Mỗi dòng kết quả: [facet, value, count]
+    @Query(value = """
+            WITH filtered AS (
+                SELECT p.type_id, p.category_id, cd.breed, cd.gender, cd.vaccinated,
+                       CASE WHEN p.price < 500000 THEN '0-500000'
+                            WHEN p.price < 1000000 THEN '500000-1000000'
+                            WHEN p.price < 5000000 THEN '1000000-5000000'
+                            WHEN p.price < 10000000 THEN '5000000-10000000'
+                            ELSE '10000000+' END AS price_bucket,
+                       (p.stock_quantity > 0) AS in_stock
+                FROM products p
+                LEFT JOIN catdetails cd ON cd.cat_id = p.product_id
+                WHERE """ + FACET_FILTER + """
+            )
+            SELECT CASE WHEN GROUPING(type_id) = 0 THEN 'type'
+                        WHEN GROUPING(category_id) = 0 THEN 'category'
+                        WHEN GROUPING(breed) = 0 THEN 'breed'
+                        WHEN GROUPING(gender) = 0 THEN 'gender'
+                        WHEN GROUPING(vaccinated) = 0 THEN 'vaccinated'
+                        WHEN GROUPING(price_bucket) = 0 THEN 'price'
+                        WHEN GROUPING(in_stock) = 0 THEN 'inStock'
+                        ELSE 'total' END AS facet,
+                   COALESCE(CAST(type_id AS TEXT), CAST(category_id AS TEXT), breed, gender,
+                            CAST(vaccinated AS TEXT), price_bucket, CAST(in_stock AS TEXT)) AS value,
+                   COUNT(*) AS cnt
+            FROM filtered
+            GROUP BY GROUPING SETS ((type_id), (category_id), (breed), (gender), (vaccinated),
+                                    (price_bucket), (in_stock), ())
+            """, nativeQuery = true)
+    List<Object[]> countFacets(@Param("typeId") Long typeId,
+                               @Param("categoryId") Long categoryId,
+                               @Param("breed") String breed,
+                               @Param("gender") String gender,
+                               @Param("vaccinated") Boolean vaccinated,
+                               @Param("minPrice") BigDecimal minPrice,
+                               @Param("maxPrice") BigDecimal maxPrice,
+                               @Param("inStock") Boolean inStock);
 }
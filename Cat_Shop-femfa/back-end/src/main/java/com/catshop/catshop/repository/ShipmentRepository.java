@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface ShipmentRepository extends JpaRepository<Shipment, Long> {
 
@@ -27,26 +28,27 @@ public interface ShipmentRepository extends JpaRepository<Shipment, Long> {
     @Query("SELECT s FROM Shipment s WHERE LOWER(s.shippingAddress) LIKE LOWER(CONCAT('%', :address, '%'))")
     List<Shipment> searchByAddress(@Param("address") String address);
 
-    // 4️⃣ Lọc theo khoảng thời gian giao hàng
-    @Query("SELECT s FROM Shipment s WHERE s.shippedDate BETWEEN :startDate AND :endDate ORDER BY s.shippedDate DESC")
+    // 4️⃣ Lọc theo khoảng thời gian giao hàng [startDate, endDate) - dùng được idx_shipments_date_id
+    @Query("SELECT s FROM Shipment s WHERE s.shippedDate >= :startDate AND s.shippedDate < :endDate ORDER BY s.shippedDate DESC")
     List<Shipment> findByShippedDateBetween(@Param("startDate") LocalDateTime startDate,
                                             @Param("endDate") LocalDateTime endDate);
 
-    // 5️⃣ Thống kê: đếm số shipment theo trạng thái
-    @Query("SELECT s.status, COUNT(s) FROM Shipment s GROUP BY s.status")
-    List<Object[]> countShipmentsByStatus();
-
     // 6️⃣ Tìm shipment theo orderId
     @Query("SELECT s FROM Shipment s WHERE s.order.orderId = :orderId")
     List<Shipment> findByOrderId(@Param("orderId") Long orderId);
 
+    // Sửa / xóa cập nhật bộ đếm theo trạng thái cũ nên phải khóa dòng trước khi đọc trạng thái đó
+    @Query(value = "SELECT * FROM shipments WHERE shipment_id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Shipment> findByIdForUpdate(@Param("id") Long id);
+
+    @Query(value = "SELECT * FROM shipments WHERE order_id = :orderId ORDER BY shipment_id FOR UPDATE", nativeQuery = true)
+    List<Shipment> findByOrderIdForUpdate(@Param("orderId") Long orderId);
+
     // 7️⃣ Xem shipment theo userId (qua bảng Order)
     @Query("SELECT s FROM Shipment s WHERE s.order.user.userId = :userId ORDER BY s.shippedDate DESC")
     List<Shipment> findAllByUserId(@Param("userId") Long userId);
 
-    // 8️⃣ Thống kê tổng số shipment trong tháng hiện tại
-    @Query("SELECT COUNT(s) FROM Shipment s WHERE MONTH(s.shippedDate) = MONTH(CURRENT_DATE) AND YEAR(s.shippedDate) = YEAR(CURRENT_DATE)")
-    Long countShipmentsInCurrentMonth();
+    // Thống kê theo trạng thái / theo tháng đọc từ bộ đếm (ShipmentCounterService), không quét bảng này
 
     // ===============================
     // 👤  PHẦN DÀNH CHO USER
@@ -60,8 +62,8 @@ public interface ShipmentRepository extends JpaRepository<Shipment, Long> {
     @Query("SELECT s FROM Shipment s WHERE s.order.user.userId = :userId AND s.status = :status ORDER BY s.shippedDate DESC")
     List<Shipment> findUserShipmentsByStatus(@Param("userId") Long userId, @Param("status") String status);
 
-    // 11️⃣ Tìm shipment của user theo khoảng thời gian
-    @Query("SELECT s FROM Shipment s WHERE s.order.user.userId = :userId AND s.shippedDate BETWEEN :startDate AND :endDate")
+    // 11️⃣ Tìm shipment của user theo khoảng thời gian [startDate, endDate)
+    @Query("SELECT s FROM Shipment s WHERE s.order.user.userId = :userId AND s.shippedDate >= :startDate AND s.shippedDate < :endDate ORDER BY s.shippedDate DESC")
     List<Shipment> findUserShipmentsByDateRange(@Param("userId") Long userId,
                                                 @Param("startDate") LocalDateTime startDate,
                                                 @Param("endDate") LocalDateTime endDate);
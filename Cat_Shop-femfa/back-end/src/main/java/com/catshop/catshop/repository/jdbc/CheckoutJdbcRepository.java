@@ -0,0 +1,109 @@
+package com.catshop.catshop.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Các câu lệnh của checkout, viết bằng JDBC để cả giỏ hàng chỉ tốn vài round trip:
+ * trừ kho có điều kiện cho mọi dòng trong MỘT câu lệnh, insert order, batch insert order_details.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CheckoutJdbcRepository {
+
+    private static final String VALUES_ROW = "(CAST(? AS BIGINT), CAST(? AS INT))";
+
+    // Khóa các dòng sản phẩm theo thứ tự product_id trước (tránh deadlock giữa hai giỏ hàng chung sản phẩm),
+    // rồi chỉ trừ những dòng còn đủ hàng. Dòng thiếu hàng không xuất hiện trong RETURNING.
+    private static final String DECREMENT_SQL = """
+            WITH v(product_id, qty) AS (VALUES %s),
+            locked AS (
+                SELECT p.product_id FROM products p
+                JOIN v ON v.product_id = p.product_id
+                ORDER BY p.product_id
+                FOR UPDATE OF p
+            )
+            UPDATE products p
+            SET stock_quantity = p.stock_quantity - v.qty
+            FROM v JOIN locked l ON l.product_id = v.product_id
+            WHERE p.product_id = v.product_id AND p.stock_quantity >= v.qty
+            RETURNING p.product_id, p.product_name, p.price, v.qty, p.stock_quantity
+            """;
+
+    private static final String INSERT_ORDER_SQL = """
+            INSERT INTO orders (user_id, order_date, status, total_amount) VALUES (?, ?, ?, ?)
+            """;
+
+    private static final String INSERT_LINE_SQL = """
+            INSERT INTO order_details (order_id, product_id, quantity, price, product_name) VALUES (?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record ReservedLine(long productId, String productName, BigDecimal price, int quantity, int remainingStock) {
+    }
+
+    public List<ReservedLine> decrementStock(SortedMap<Long, Integer> quantities) {
+        String sql = DECREMENT_SQL.formatted(String.join(", ", Collections.nCopies(quantities.size(), VALUES_ROW)));
+        List<Object> args = new ArrayList<>(quantities.size() * 2);
+        quantities.forEach((productId, qty) -> {
+            args.add(productId);
+            args.add(qty);
+        });
+        return jdbcTemplate.query(sql, (rs, i) -> new ReservedLine(
+                rs.getLong(1), rs.getString(2), rs.getBigDecimal(3), rs.getInt(4), rs.getInt(5)), args.toArray());
+    }
+
+    // Giá hiện tại cho các dòng đã được giữ hàng trước (ở Redis): không khóa, không trừ kho.
+    // remainingStock là tồn kho trong DB trừ số lượng dòng này, chỉ mang tính tham khảo.
+    public List<ReservedLine> priceLines(SortedMap<Long, Integer> quantities) {
+        return jdbcTemplate.query(
+                "SELECT product_id, product_name, price, stock_quantity FROM products WHERE product_id = ANY(?) ORDER BY product_id",
+                (rs, i) -> {
+                    long productId = rs.getLong(1);
+                    int qty = quantities.get(productId);
+                    return new ReservedLine(productId, rs.getString(2), rs.getBigDecimal(3), qty, rs.getInt(4) - qty);
+                },
+                (Object) quantities.keySet().toArray(Long[]::new));
+    }
+
+    // productId -> tồn kho hiện tại, chỉ dùng để báo lỗi khi trừ kho thất bại
+    public Map<Long, Integer> findStock(Collection<Long> productIds) {
+        Map<Long, Integer> stock = new HashMap<>();
+        jdbcTemplate.query("SELECT product_id, stock_quantity FROM products WHERE product_id = ANY(?)",
+                rs -> { stock.put(rs.getLong(1), rs.getInt(2)); },
+                (Object) productIds.toArray(Long[]::new));
+        return stock;
+    }
+
+    public long insertOrder(long userId, LocalDateTime orderDate, String status, BigDecimal totalAmount) {
+        GeneratedKeyHolder key = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_ORDER_SQL, new String[]{"order_id"});
+            ps.setLong(1, userId);
+            ps.setTimestamp(2, Timestamp.valueOf(orderDate));
+            ps.setString(3, status);
+            ps.setBigDecimal(4, totalAmount);
+            return ps;
+        }, key);
+        return Objects.requireNonNull(key.getKey()).longValue();
+    }
+
+    public void insertOrderLines(long orderId, List<ReservedLine> lines) {
+        jdbcTemplate.batchUpdate(INSERT_LINE_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setLong(1, orderId);
+            ps.setLong(2, line.productId());
+            ps.setInt(3, line.quantity());
+            ps.setBigDecimal(4, line.price());
+            ps.setString(5, line.productName());
+        });
+    }
+}
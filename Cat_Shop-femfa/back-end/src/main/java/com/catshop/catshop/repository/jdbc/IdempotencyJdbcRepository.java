@@ -0,0 +1,79 @@
+package com.catshop.catshop.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyJdbcRepository {
+
+    // Giành quyền xử lý: key mới, hoặc key cũ đã hết hạn (kể cả IN_PROGRESS của node đã chết)
+    private static final String ACQUIRE_SQL = """
+            INSERT INTO idempotency_keys (scope_key, fingerprint, state, created_at, expires_at)
+            VALUES (?, ?, 'IN_PROGRESS', now(), ?)
+            ON CONFLICT (scope_key) DO UPDATE
+                SET fingerprint = EXCLUDED.fingerprint, state = 'IN_PROGRESS', response_status = NULL,
+                    content_type = NULL, response_body = NULL, created_at = now(), expires_at = EXCLUDED.expires_at
+                WHERE idempotency_keys.expires_at < now()
+            """;
+
+    // Upsert để vẫn ghi được kết quả khi bước giành quyền đã diễn ra trên Redis
+    private static final String COMPLETE_SQL = """
+            INSERT INTO idempotency_keys
+                (scope_key, fingerprint, state, response_status, content_type, response_body, created_at, expires_at)
+            VALUES (?, ?, 'COMPLETED', ?, ?, ?, now(), ?)
+            ON CONFLICT (scope_key) DO UPDATE
+                SET fingerprint = EXCLUDED.fingerprint, state = 'COMPLETED', response_status = EXCLUDED.response_status,
+                    content_type = EXCLUDED.content_type, response_body = EXCLUDED.response_body,
+                    expires_at = EXCLUDED.expires_at
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // state: IN_PROGRESS | COMPLETED; status/contentType/body chỉ có khi COMPLETED
+    public record StoredResponse(String state, String fingerprint, int status, String contentType, String body) {
+    }
+
+    public boolean acquire(String scopeKey, String fingerprint, LocalDateTime lockUntil) {
+        return jdbcTemplate.update(ACQUIRE_SQL, scopeKey, fingerprint, Timestamp.valueOf(lockUntil)) == 1;
+    }
+
+    public Optional<StoredResponse> find(String scopeKey) {
+        List<StoredResponse> rows = jdbcTemplate.query("""
+                        SELECT state, fingerprint, response_status, content_type, response_body
+                        FROM idempotency_keys WHERE scope_key = ? AND expires_at >= now()
+                        """,
+                (rs, i) -> new StoredResponse(rs.getString(1), rs.getString(2),
+                        rs.getInt(3), rs.getString(4), rs.getString(5)),
+                scopeKey);
+        return rows.stream().findFirst();
+    }
+
+    public void complete(String scopeKey, StoredResponse response, LocalDateTime expiresAt) {
+        jdbcTemplate.update(COMPLETE_SQL, scopeKey, response.fingerprint(), response.status(),
+                response.contentType(), response.body(), Timestamp.valueOf(expiresAt));
+    }
+
+    // Gia hạn khóa của request đang chạy; false nếu key không còn là IN_PROGRESS của request này
+    public boolean extend(String scopeKey, String fingerprint, LocalDateTime lockUntil) {
+        return jdbcTemplate.update("""
+                        UPDATE idempotency_keys SET expires_at = ?
+                        WHERE scope_key = ? AND fingerprint = ? AND state = 'IN_PROGRESS'
+                        """, Timestamp.valueOf(lockUntil), scopeKey, fingerprint) == 1;
+    }
+
+    public void delete(String scopeKey, String fingerprint) {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE scope_key = ? AND fingerprint = ? AND state = 'IN_PROGRESS'",
+                scopeKey, fingerprint);
+    }
+
+    public int purgeExpired() {
+        return jdbcTemplate.update("DELETE FROM idempotency_keys WHERE expires_at < now()");
+    }
+}
@@ -0,0 +1,58 @@
+package com.catshop.catshop.repository.jdbc;
+
+import com.catshop.catshop.service.FileStorageService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Khóa và tra cứu tham chiếu cho ảnh lưu theo nội dung (FileStorageService).
+ * Transaction ghi imageUrl giữ khóa advisory SHARED của hash tới khi commit; xóa file giữ khóa EXCLUSIVE rồi mới
+ * kiểm tra tham chiếu, nên không transaction nào kịp trỏ vào một file ngay trước khi nó bị xóa.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImageFileJdbcRepository {
+
+    // Khóa advisory dạng (int, int) không trùng không gian khóa một số bigint của các job (7_316_00x)
+    private static final int LOCK_CLASS = 7_316_004;
+    // Vị trí (tính từ 1) của hash trong "/api/images/<hash>.<ext>"
+    private static final int HASH_POSITION = FileStorageService.PUBLIC_PREFIX.length() + 1;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void lockShared(String hash) {
+        jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock_shared(?, ?)::text", String.class, LOCK_CLASS, lockId(hash));
+    }
+
+    public void lockExclusive(String hash) {
+        jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock(?, ?)::text", String.class, LOCK_CLASS, lockId(hash));
+    }
+
+    public boolean isReferenced(String hash) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM products WHERE image_url LIKE ?)", Boolean.class,
+                FileStorageService.PUBLIC_PREFIX + hash + ".%"));
+    }
+
+    // Lọc trước cho lần dọn orphan (không khóa): các hash trong danh sách còn được sản phẩm trỏ tới
+    public Set<String> findReferenced(Collection<String> hashes) {
+        Set<String> referenced = new HashSet<>();
+        jdbcTemplate.query("""
+                        SELECT DISTINCT substring(image_url, ?, 64) FROM products
+                        WHERE image_url LIKE ? AND substring(image_url, ?, 64) = ANY(?)
+                        """,
+                rs -> { referenced.add(rs.getString(1)); },
+                HASH_POSITION, FileStorageService.PUBLIC_PREFIX + "%", HASH_POSITION, hashes.toArray(String[]::new));
+        return referenced;
+    }
+
+    // Hai hash khác nhau trùng 32 bit đầu chỉ làm chúng chờ nhau, không sai
+    private static int lockId(String hash) {
+        return (int) Long.parseLong(hash.substring(0, 8), 16);
+    }
+}
@@ -0,0 +1,165 @@
+package com.catshop.catshop.repository.jdbc;
+
+import com.catshop.catshop.entity.OrderArchive;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.*;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Repository
+@RequiredArgsConstructor
+public class OrderArchiveJdbcRepository {
+
+    // Khóa advisory (mức session) để chỉ một node chạy archive
+    private static final long LOCK_KEY = 7_316_002L;
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO order_archives (month, file_name, status, order_count, max_order_id, size_bytes, created_at)
+            VALUES (?, ?, 'WRITTEN', ?, ?, ?, now())
+            ON CONFLICT (month) DO UPDATE SET file_name = EXCLUDED.file_name, status = 'WRITTEN',
+                order_count = EXCLUDED.order_count, max_order_id = EXCLUDED.max_order_id,
+                size_bytes = EXCLUDED.size_bytes, created_at = now(), purged_at = NULL
+            """;
+
+    // Timestamp -> LocalDateTime để file archive dùng ISO-8601 như export
+    private static final ColumnMapRowMapper ROW_MAPPER = new ColumnMapRowMapper() {
+        @Override
+        protected Object getColumnValue(ResultSet rs, int index) throws SQLException {
+            Object value = super.getColumnValue(rs, index);
+            return value instanceof Timestamp ts ? ts.toLocalDateTime() : value;
+        }
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Giữ một connection riêng cho khóa trong suốt task; connection chết thì khóa tự nhả
+    public boolean runExclusive(Runnable task) {
+        Boolean ran = jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> {
+            try (PreparedStatement ps = con.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+                ps.setLong(1, LOCK_KEY);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next() || !rs.getBoolean(1)) return false;
+                }
+            }
+            try {
+                task.run();
+            } finally {
+                try (PreparedStatement ps = con.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+                    ps.setLong(1, LOCK_KEY);
+                    ps.execute();
+                }
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(ran);
+    }
+
+    public Optional<LocalDate> findOldestOrderMonth(LocalDateTime before) {
+        Timestamp oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(order_date) FROM orders WHERE order_date < ?", Timestamp.class, Timestamp.valueOf(before));
+        return Optional.ofNullable(oldest).map(ts -> ts.toLocalDateTime().toLocalDate().withDayOfMonth(1));
+    }
+
+    // Keyset theo order_id trong [from, to)
+    public List<Long> findOrderIds(LocalDateTime from, LocalDateTime to, long afterId, long maxId, int limit) {
+        return jdbcTemplate.queryForList("""
+                        SELECT order_id FROM orders
+                        WHERE order_date >= ? AND order_date < ? AND order_id > ? AND order_id <= ?
+                        ORDER BY order_id LIMIT ?
+                        """, Long.class,
+                Timestamp.valueOf(from), Timestamp.valueOf(to), afterId, maxId, limit);
+    }
+
+    public long maxOrderId(LocalDateTime from, LocalDateTime to) {
+        Long max = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(order_id), 0) FROM orders WHERE order_date >= ? AND order_date < ?",
+                Long.class, Timestamp.valueOf(from), Timestamp.valueOf(to));
+        return max != null ? max : 0;
+    }
+
+    public List<Map<String, Object>> findOrders(List<Long> orderIds) {
+        return jdbcTemplate.query("SELECT * FROM orders WHERE order_id = ANY(?) ORDER BY order_id",
+                ROW_MAPPER, (Object) orderIds.toArray(Long[]::new));
+    }
+
+    // table: order_details | payments | shipments; kết quả gom theo order_id, thứ tự theo khóa chính
+    // (cố định để lần đọc lại trước khi xóa so khớp được với file)
+    public Map<Long, List<Map<String, Object>>> findChildren(String table, List<Long> orderIds) {
+        Map<Long, List<Map<String, Object>>> byOrder = new HashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.query(
+                "SELECT * FROM " + table + " WHERE order_id = ANY(?) ORDER BY " + childKey(table),
+                ROW_MAPPER, (Object) orderIds.toArray(Long[]::new))) {
+            byOrder.computeIfAbsent(((Number) row.get("order_id")).longValue(), k -> new ArrayList<>()).add(row);
+        }
+        return byOrder;
+    }
+
+    // Khóa một lô đơn cùng bảng con đến hết transaction: không ai sửa / thêm payment, shipment... vào các đơn này
+    // (insert bảng con phải lấy khóa FK trên dòng orders) trong lúc so khớp với file và xóa
+    public void lockOrders(List<Long> orderIds) {
+        Object ids = orderIds.toArray(Long[]::new);
+        jdbcTemplate.query("SELECT order_id FROM orders WHERE order_id = ANY(?) ORDER BY order_id FOR UPDATE",
+                rs -> { }, ids);
+        for (String table : List.of("order_details", "payments", "shipments")) {
+            jdbcTemplate.query("SELECT 1 FROM " + table + " WHERE order_id = ANY(?) ORDER BY " + childKey(table)
+                    + " FOR UPDATE", rs -> { }, ids);
+        }
+    }
+
+    // Xóa một lô đơn cùng bảng con; gọi trong transaction
+    public int deleteOrders(List<Long> orderIds) {
+        Object ids = orderIds.toArray(Long[]::new);
+        jdbcTemplate.update("DELETE FROM order_details WHERE order_id = ANY(?)", ids);
+        jdbcTemplate.update("DELETE FROM payments WHERE order_id = ANY(?)", ids);
+        jdbcTemplate.update("DELETE FROM shipments WHERE order_id = ANY(?)", ids);
+        return jdbcTemplate.update("DELETE FROM orders WHERE order_id = ANY(?)", ids);
+    }
+
+    public void saveWritten(LocalDate month, String fileName, long orderCount, long maxOrderId, long sizeBytes) {
+        jdbcTemplate.update(UPSERT_SQL, Date.valueOf(month), fileName, orderCount, maxOrderId, sizeBytes);
+    }
+
+    public void markPurged(LocalDate month) {
+        jdbcTemplate.update("UPDATE order_archives SET status = 'PURGED', purged_at = now() WHERE month = ?",
+                Date.valueOf(month));
+    }
+
+    public Optional<OrderArchive> find(LocalDate month) {
+        return jdbcTemplate.query("SELECT * FROM order_archives WHERE month = ?",
+                OrderArchiveJdbcRepository::toArchive, Date.valueOf(month)).stream().findFirst();
+    }
+
+    public List<OrderArchive> findAll() {
+        return jdbcTemplate.query("SELECT * FROM order_archives ORDER BY month DESC", OrderArchiveJdbcRepository::toArchive);
+    }
+
+    private static String childKey(String table) {
+        return switch (table) {
+            case "order_details" -> "order_detail_id";
+            case "payments" -> "payment_id";
+            case "shipments" -> "shipment_id";
+            default -> throw new IllegalArgumentException("Bảng không hỗ trợ: " + table);
+        };
+    }
+
+    private static OrderArchive toArchive(ResultSet rs, int rowNum) throws SQLException {
+        Timestamp purgedAt = rs.getTimestamp("purged_at");
+        return OrderArchive.builder()
+                .month(rs.getDate("month").toLocalDate())
+                .fileName(rs.getString("file_name"))
+                .status(rs.getString("status"))
+                .orderCount(rs.getLong("order_count"))
+                .maxOrderId(rs.getLong("max_order_id"))
+                .sizeBytes(rs.getLong("size_bytes"))
+                .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                .purgedAt(purgedAt != null ? purgedAt.toLocalDateTime() : null)
+                .build();
+    }
+}
@@ -0,0 +1,111 @@
+package com.catshop.catshop.repository.jdbc;
+
+import com.catshop.catshop.dto.request.BulkOrderStatusItem;
+import com.catshop.catshop.dto.response.OrderStatusResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Chuyển trạng thái nhiều đơn hàng và tạo shipment cho chúng bằng MỘT câu lệnh (CTE ghi dữ liệu).
+ *
+ * Khóa các đơn theo thứ tự order_id (FOR UPDATE) để hai lô chồng nhau không deadlock, và để
+ * trạng thái cũ đọc được là bản mới nhất. Đơn đã ở trạng thái mới hoặc khác fromStatus thì
+ * không cập nhật và không tạo shipment, nên gửi lại cùng một lô không tạo shipment trùng.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderBulkJdbcRepository {
+
+    private static final String VALUES_ROW = "(CAST(? AS INT), CAST(? AS BIGINT), CAST(? AS TEXT))";
+
+    private static final String UPDATE_STATUS_SQL = """
+            WITH input(idx, order_id, address) AS (VALUES %s),
+            params AS (
+                SELECT CAST(? AS TEXT) AS new_status, CAST(? AS TEXT) AS from_status,
+                       CAST(? AS TEXT) AS shipment_status, CAST(? AS timestamp) AS shipped_at
+            ),
+            locked AS (
+                SELECT o.order_id, o.status, o.user_id, o.order_date, o.total_amount
+                FROM orders o
+                WHERE o.order_id IN (SELECT order_id FROM input)
+                ORDER BY o.order_id
+                FOR UPDATE
+            ),
+            updated AS (
+                UPDATE orders o SET status = p.new_status
+                FROM locked l, params p
+                WHERE o.order_id = l.order_id
+                  AND l.status IS DISTINCT FROM p.new_status
+                  AND (p.from_status IS NULL OR l.status = p.from_status)
+                RETURNING o.order_id
+            ),
+            shipped AS (
+                INSERT INTO shipments (order_id, shipping_address, shipped_date, status)
+                SELECT i.order_id, i.address, p.shipped_at, p.shipment_status
+                FROM input i
+                JOIN updated u ON u.order_id = i.order_id
+                CROSS JOIN params p
+                WHERE p.shipment_status IS NOT NULL
+                RETURNING shipment_id, order_id
+            )
+            SELECT i.order_id, l.order_id IS NOT NULL AS found, l.status AS previous_status,
+                   l.user_id, l.order_date, l.total_amount,
+                   u.order_id IS NOT NULL AS updated, s.shipment_id
+            FROM input i
+            LEFT JOIN locked l ON l.order_id = i.order_id
+            LEFT JOIN updated u ON u.order_id = i.order_id
+            LEFT JOIN shipped s ON s.order_id = i.order_id
+            ORDER BY i.idx
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Thông tin thêm của đơn được cập nhật, dùng để ghi sự kiện outbox
+    public record StatusChange(OrderStatusResult result, Long userId, LocalDateTime orderDate, BigDecimal totalAmount) {
+    }
+
+    // Mỗi orderId chỉ được xuất hiện một lần; shipmentStatus null thì không tạo shipment
+    public List<StatusChange> updateStatus(List<BulkOrderStatusItem> items, String status, String fromStatus,
+                                           String shipmentStatus, LocalDateTime shippedAt) {
+        String sql = UPDATE_STATUS_SQL.formatted(String.join(", ", Collections.nCopies(items.size(), VALUES_ROW)));
+        List<Object> args = new ArrayList<>(items.size() * 3 + 4);
+        for (int i = 0; i < items.size(); i++) {
+            BulkOrderStatusItem item = items.get(i);
+            args.add(i);
+            args.add(item.getOrderId());
+            args.add(item.getShippingAddress());
+        }
+        args.add(status);
+        args.add(fromStatus);
+        args.add(shipmentStatus);
+        args.add(Timestamp.valueOf(shippedAt));
+
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            boolean found = rs.getBoolean("found");
+            boolean updated = rs.getBoolean("updated");
+            String previous = rs.getString("previous_status");
+            String outcome = !found ? OrderStatusResult.NOT_FOUND
+                    : updated ? OrderStatusResult.UPDATED
+                    : status.equals(previous) ? OrderStatusResult.UNCHANGED
+                    : OrderStatusResult.STATUS_MISMATCH;
+            Timestamp orderDate = rs.getTimestamp("order_date");
+            OrderStatusResult result = OrderStatusResult.builder()
+                    .orderId(rs.getLong("order_id"))
+                    .status(outcome)
+                    .previousStatus(previous)
+                    .newStatus(updated ? status : previous)
+                    .shipmentId((Long) rs.getObject("shipment_id"))
+                    .build();
+            return new StatusChange(result, (Long) rs.getObject("user_id"),
+                    orderDate != null ? orderDate.toLocalDateTime() : null, rs.getBigDecimal("total_amount"));
+        }, args.toArray());
+    }
+}
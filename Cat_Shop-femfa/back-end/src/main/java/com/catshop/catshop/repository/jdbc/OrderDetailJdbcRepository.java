@@ -0,0 +1,47 @@
+package com.catshop.catshop.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Tách dòng hàng khỏi sản phẩm sắp bị xóa: lịch sử đơn hàng và doanh thu phải còn nguyên.
+ *
+ * Chụp lại tên + danh mục của sản phẩm vào dòng hàng (tên đã có từ lúc đặt thì giữ nguyên) rồi đặt
+ * product_id = NULL. FK cũng là ON DELETE SET NULL, nhưng các DB dựng trước đó vẫn giữ FK cũ
+ * (ddl-auto=update không sửa ràng buộc có sẵn), nên service luôn tách tường minh trước khi xóa.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderDetailJdbcRepository {
+
+    private static final String DETACH_PRODUCT_SQL = """
+            UPDATE order_details d
+            SET product_id = NULL,
+                product_name = COALESCE(d.product_name, p.product_name),
+                category_id = p.category_id
+            FROM products p
+            WHERE p.product_id = d.product_id AND d.product_id = ?
+            """;
+
+    private static final String PRODUCT_NOT_NULL_SQL = """
+            SELECT EXISTS (SELECT 1 FROM information_schema.columns
+                           WHERE table_schema = current_schema() AND table_name = 'order_details'
+                             AND column_name = 'product_id' AND is_nullable = 'NO')
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Phải gọi trong transaction xóa sản phẩm; trả về số dòng hàng đã tách
+    public int detachProduct(long productId) {
+        return jdbcTemplate.update(DETACH_PRODUCT_SQL, productId);
+    }
+
+    // Bảng dựng từ trước khi product_id được phép NULL. Kiểm tra trước để không lấy khóa ACCESS EXCLUSIVE
+    // trên order_details ở mọi lần khởi động; trả về true nếu đã sửa cột
+    public boolean allowNullProduct() {
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(PRODUCT_NOT_NULL_SQL, Boolean.class))) return false;
+        jdbcTemplate.execute("ALTER TABLE order_details ALTER COLUMN product_id DROP NOT NULL");
+        return true;
+    }
+}
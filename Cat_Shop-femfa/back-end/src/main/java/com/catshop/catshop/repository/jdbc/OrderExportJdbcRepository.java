@@ -0,0 +1,71 @@
+package com.catshop.catshop.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Đọc đơn hàng cho export theo kiểu cursor: PostgreSQL chỉ trả từng lô FETCH_SIZE dòng
+ * (cần chạy trong transaction, vì driver chỉ dùng cursor khi autocommit tắt).
+ * Email user và tổng các dòng đơn được tính ngay trong SQL.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderExportJdbcRepository {
+
+    private static final int FETCH_SIZE = 500;
+
+    private static final String SELECT_SQL = """
+            SELECT o.order_id, o.order_date, o.status, o.total_amount,
+                   o.user_id, u.username, u.email, l.item_count, l.line_total
+            FROM orders o
+            JOIN users u ON u.user_id = o.user_id
+            CROSS JOIN LATERAL (
+                SELECT COALESCE(SUM(d.quantity), 0) AS item_count,
+                       COALESCE(SUM(d.quantity * d.price), 0) AS line_total
+                FROM order_details d
+                WHERE d.order_id = o.order_id
+            ) l
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // from: bao gồm, to: không bao gồm; tham số null thì bỏ điều kiện
+    public void stream(LocalDateTime from, LocalDateTime to, String status, RowCallbackHandler handler) {
+        StringBuilder sql = new StringBuilder(SELECT_SQL);
+        List<Object> args = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        if (from != null) {
+            conditions.add("o.order_date >= ?");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            conditions.add("o.order_date < ?");
+            args.add(Timestamp.valueOf(to));
+        }
+        if (status != null) {
+            conditions.add("o.status = ?");
+            args.add(status);
+        }
+        if (!conditions.isEmpty()) {
+            sql.append("WHERE ").append(String.join(" AND ", conditions)).append('\n');
+        }
+        sql.append("ORDER BY o.order_date DESC, o.order_id DESC");
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString());
+            ps.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            return ps;
+        }, handler);
+    }
+}
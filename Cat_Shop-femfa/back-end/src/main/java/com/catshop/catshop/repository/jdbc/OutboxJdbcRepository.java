@@ -0,0 +1,95 @@
+package com.catshop.catshop.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OutboxJdbcRepository {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO outbox_events (aggregate_type, aggregate_id, event_type, payload, status, attempts, available_at, created_at)
+            VALUES (?, ?, ?, ?, 'PENDING', 0, now(), now())
+            """;
+
+    // Chỉ nhận sự kiện đầu hàng đợi của mỗi aggregate (không còn sự kiện PENDING nào cũ hơn),
+    // nên một lô không bao giờ chứa hai sự kiện của cùng aggregate và có thể giao song song.
+    // SKIP LOCKED + locked_until cho nhiều worker / node cùng poll mà không nhận trùng.
+    private static final String CLAIM_SQL = """
+            WITH picked AS (
+                SELECT e.id FROM outbox_events e
+                WHERE e.status = 'PENDING' AND e.available_at <= now()
+                  AND (e.locked_until IS NULL OR e.locked_until < now())
+                  AND NOT EXISTS (
+                      SELECT 1 FROM outbox_events p
+                      WHERE p.aggregate_type = e.aggregate_type AND p.aggregate_id = e.aggregate_id
+                        AND p.status = 'PENDING' AND p.id < e.id)
+                ORDER BY e.id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            UPDATE outbox_events o
+            SET locked_until = now() + make_interval(secs => ?), attempts = o.attempts + 1
+            FROM picked WHERE o.id = picked.id
+            RETURNING o.id, o.aggregate_type, o.aggregate_id, o.event_type, o.payload, o.created_at, o.attempts
+            """;
+
+    private static final String FAIL_SQL = """
+            UPDATE outbox_events
+            SET status = CASE WHEN attempts >= ? THEN 'DEAD' ELSE 'PENDING' END,
+                available_at = now() + make_interval(secs => ?),
+                locked_until = NULL, last_error = ?
+            WHERE id = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record ClaimedEvent(long id, String aggregateType, long aggregateId, String eventType,
+                               String payload, LocalDateTime createdAt, int attempts) {
+    }
+
+    public void insert(String aggregateType, long aggregateId, String eventType, String payload) {
+        jdbcTemplate.update(INSERT_SQL, aggregateType, aggregateId, eventType, payload);
+    }
+
+    // args: {aggregateType, aggregateId, eventType, payload} mỗi sự kiện
+    public void insertBatch(List<Object[]> args) {
+        if (!args.isEmpty()) jdbcTemplate.batchUpdate(INSERT_SQL, args);
+    }
+
+    public List<ClaimedEvent> claim(int limit, int leaseSeconds) {
+        List<ClaimedEvent> events = jdbcTemplate.query(CLAIM_SQL, (rs, i) -> new ClaimedEvent(
+                rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getString(4), rs.getString(5),
+                rs.getTimestamp(6).toLocalDateTime(), rs.getInt(7)), limit, leaseSeconds);
+        // RETURNING không đảm bảo thứ tự
+        events.sort(Comparator.comparingLong(ClaimedEvent::id));
+        return events;
+    }
+
+    public void markDone(Collection<Long> ids) {
+        if (ids.isEmpty()) return;
+        jdbcTemplate.update("""
+                        UPDATE outbox_events SET status = 'DONE', processed_at = now(), locked_until = NULL, last_error = NULL
+                        WHERE id = ANY(?)
+                        """,
+                (Object) ids.toArray(Long[]::new));
+    }
+
+    // Hẹn giao lại sau retryDelaySeconds; hết lượt thử thì chuyển DEAD để không chặn aggregate mãi
+    public void markFailed(long id, String error, int maxAttempts, long retryDelaySeconds) {
+        String message = error == null ? "" : error.length() > 1000 ? error.substring(0, 1000) : error;
+        jdbcTemplate.update(FAIL_SQL, maxAttempts, retryDelaySeconds, message, id);
+    }
+
+    public int purgeDone(LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM outbox_events WHERE status = 'DONE' AND processed_at < ?",
+                Timestamp.valueOf(before));
+    }
+}
@@ -0,0 +1,181 @@
+package com.catshop.catshop.repository.jdbc;
+
+import com.catshop.catshop.entity.PaymentDiscrepancy;
+import com.catshop.catshop.entity.ReconciliationRun;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class PaymentReconciliationJdbcRepository {
+
+    // Khóa advisory khi tạo lần chạy mới để hai node không cùng tạo
+    private static final long LOCK_KEY = 7_316_003L;
+
+    // Một lô đơn theo keyset (order_id > checkpoint), tính tổng chi tiết / payment cho cả lô bằng GROUP BY
+    // và ghi các đơn lệch. ON CONFLICT để chạy lại một lô (sau khi bị ngắt) không ghi trùng.
+    private static final String CHUNK_SQL = """
+            WITH chunk AS (
+                SELECT order_id, total_amount FROM orders
+                WHERE order_id > ? AND order_id <= ?
+                ORDER BY order_id
+                LIMIT ?
+            ),
+            lines AS (
+                SELECT d.order_id, SUM(d.quantity * d.price) AS line_total
+                FROM order_details d JOIN chunk c ON c.order_id = d.order_id
+                GROUP BY d.order_id
+            ),
+            paid AS (
+                SELECT p.order_id, SUM(p.amount) AS payment_total
+                FROM payments p JOIN chunk c ON c.order_id = p.order_id
+                GROUP BY p.order_id
+            ),
+            checked AS (
+                SELECT c.order_id, COALESCE(c.total_amount, 0) AS order_total, l.line_total, pd.payment_total
+                FROM chunk c
+                LEFT JOIN lines l ON l.order_id = c.order_id
+                LEFT JOIN paid pd ON pd.order_id = c.order_id
+            ),
+            found AS (
+                SELECT order_id, 'LINE_TOTAL' AS kind, order_total, line_total, payment_total FROM checked
+                WHERE line_total IS NOT NULL AND ROUND(line_total, 2) <> order_total
+                UNION ALL
+                SELECT order_id, 'PAYMENT_TOTAL', order_total, line_total, payment_total FROM checked
+                WHERE payment_total IS NOT NULL AND ROUND(payment_total, 2) <> order_total
+            ),
+            inserted AS (
+                INSERT INTO payment_discrepancies (run_id, order_id, kind, order_total, line_total, payment_total, detected_at)
+                SELECT ?, order_id, kind, order_total, line_total, payment_total, ? FROM found
+                ON CONFLICT (run_id, order_id, kind) DO NOTHING
+                RETURNING 1
+            )
+            SELECT (SELECT COUNT(*) FROM chunk), (SELECT MAX(order_id) FROM chunk), (SELECT COUNT(*) FROM inserted)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record Chunk(int orders, Long lastOrderId, int discrepancies) {
+    }
+
+    // Phải gọi trong transaction; giữ đến khi commit
+    public void lockForCreate() {
+        jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock(?)::text", String.class, LOCK_KEY);
+    }
+
+    public long maxOrderId() {
+        Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(order_id), 0) FROM orders", Long.class);
+        return max != null ? max : 0L;
+    }
+
+    public Optional<ReconciliationRun> findUnfinished() {
+        return jdbcTemplate.query("""
+                        SELECT * FROM payment_reconciliation_runs WHERE status = 'RUNNING' ORDER BY id LIMIT 1
+                        """,
+                PaymentReconciliationJdbcRepository::toRun).stream().findFirst();
+    }
+
+    public ReconciliationRun createRun(long maxOrderId, LocalDateTime now) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                    INSERT INTO payment_reconciliation_runs
+                        (status, max_order_id, last_order_id, orders_checked, discrepancy_count, started_at, updated_at)
+                    VALUES ('RUNNING', ?, 0, 0, 0, ?, ?)
+                    """, new String[]{"id"});
+            ps.setLong(1, maxOrderId);
+            ps.setTimestamp(2, Timestamp.valueOf(now));
+            ps.setTimestamp(3, Timestamp.valueOf(now));
+            return ps;
+        }, keys);
+        return find(keys.getKey().longValue()).orElseThrow();
+    }
+
+    public Optional<ReconciliationRun> find(long runId) {
+        return jdbcTemplate.query("SELECT * FROM payment_reconciliation_runs WHERE id = ?",
+                PaymentReconciliationJdbcRepository::toRun, runId).stream().findFirst();
+    }
+
+    // Khóa dòng checkpoint: node khác chạy cùng lần đối soát phải chờ lô này commit rồi đi tiếp từ checkpoint mới
+    public Optional<ReconciliationRun> lock(long runId) {
+        return jdbcTemplate.query("SELECT * FROM payment_reconciliation_runs WHERE id = ? FOR UPDATE",
+                PaymentReconciliationJdbcRepository::toRun, runId).stream().findFirst();
+    }
+
+    public List<ReconciliationRun> findRecent(int limit) {
+        return jdbcTemplate.query("SELECT * FROM payment_reconciliation_runs ORDER BY id DESC LIMIT ?",
+                PaymentReconciliationJdbcRepository::toRun, limit);
+    }
+
+    public Chunk processChunk(long runId, long afterOrderId, long maxOrderId, int limit, LocalDateTime now) {
+        return jdbcTemplate.queryForObject(CHUNK_SQL, (rs, i) -> new Chunk(
+                        rs.getInt(1), (Long) rs.getObject(2), rs.getInt(3)),
+                afterOrderId, maxOrderId, limit, runId, Timestamp.valueOf(now));
+    }
+
+    public void checkpoint(long runId, long lastOrderId, int orders, int discrepancies, LocalDateTime now) {
+        jdbcTemplate.update("""
+                UPDATE payment_reconciliation_runs
+                SET last_order_id = ?, orders_checked = orders_checked + ?,
+                    discrepancy_count = discrepancy_count + ?, updated_at = ?, last_error = NULL
+                WHERE id = ?
+                """, lastOrderId, orders, discrepancies, Timestamp.valueOf(now), runId);
+    }
+
+    public void complete(long runId, LocalDateTime now) {
+        jdbcTemplate.update("""
+                UPDATE payment_reconciliation_runs SET status = 'COMPLETED', updated_at = ?, finished_at = ?
+                WHERE id = ?
+                """, Timestamp.valueOf(now), Timestamp.valueOf(now), runId);
+    }
+
+    public void recordError(long runId, String error, LocalDateTime now) {
+        jdbcTemplate.update("UPDATE payment_reconciliation_runs SET last_error = ?, updated_at = ? WHERE id = ?",
+                error, Timestamp.valueOf(now), runId);
+    }
+
+    // Keyset theo id trong một lần chạy
+    public List<PaymentDiscrepancy> findDiscrepancies(long runId, long afterId, int limit) {
+        return jdbcTemplate.query("""
+                        SELECT * FROM payment_discrepancies WHERE run_id = ? AND id > ? ORDER BY id LIMIT ?
+                        """,
+                PaymentReconciliationJdbcRepository::toDiscrepancy, runId, afterId, limit);
+    }
+
+    private static ReconciliationRun toRun(ResultSet rs, int rowNum) throws SQLException {
+        Timestamp finishedAt = rs.getTimestamp("finished_at");
+        return ReconciliationRun.builder()
+                .id(rs.getLong("id"))
+                .status(rs.getString("status"))
+                .maxOrderId(rs.getLong("max_order_id"))
+                .lastOrderId(rs.getLong("last_order_id"))
+                .ordersChecked(rs.getLong("orders_checked"))
+                .discrepancyCount(rs.getLong("discrepancy_count"))
+                .startedAt(rs.getTimestamp("started_at").toLocalDateTime())
+                .updatedAt(rs.getTimestamp("updated_at").toLocalDateTime())
+                .finishedAt(finishedAt != null ? finishedAt.toLocalDateTime() : null)
+                .lastError(rs.getString("last_error"))
+                .build();
+    }
+
+    private static PaymentDiscrepancy toDiscrepancy(ResultSet rs, int rowNum) throws SQLException {
+        return PaymentDiscrepancy.builder()
+                .id(rs.getLong("id"))
+                .runId(rs.getLong("run_id"))
+                .orderId(rs.getLong("order_id"))
+                .kind(rs.getString("kind"))
+                .orderTotal(rs.getBigDecimal("order_total"))
+                .lineTotal(rs.getBigDecimal("line_total"))
+                .paymentTotal(rs.getBigDecimal("payment_total"))
+                .detectedAt(rs.getTimestamp("detected_at").toLocalDateTime())
+                .build();
+    }
+}
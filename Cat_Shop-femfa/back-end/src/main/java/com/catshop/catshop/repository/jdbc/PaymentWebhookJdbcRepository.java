@@ -0,0 +1,115 @@
+package com.catshop.catshop.repository.jdbc;
+
+import com.catshop.catshop.dto.request.PaymentWebhookRequest;
+import com.catshop.catshop.entity.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lưu một lô sự kiện webhook thanh toán bằng MỘT câu lệnh (CTE ghi dữ liệu):
+ * ghi sổ payment_webhook_events (ON CONFLICT bỏ qua sự kiện đã xử lý), tạo payment cho sự kiện mới
+ * và chuyển đơn pending -> confirmed khi tổng payment đủ total_amount.
+ * Khóa các đơn theo thứ tự order_id như thao tác hàng loạt khác để hai lô không deadlock.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentWebhookJdbcRepository {
+
+    private static final String VALUES_ROW =
+            "(CAST(? AS TEXT), CAST(? AS BIGINT), CAST(? AS NUMERIC), CAST(? AS TEXT), CAST(? AS timestamp))";
+
+    private static final String PERSIST_SQL = """
+            WITH input(event_id, order_id, amount, method, paid_at) AS (VALUES %s),
+            locked AS (
+                SELECT o.order_id, o.status, o.user_id, o.order_date, o.total_amount
+                FROM orders o
+                WHERE o.order_id IN (SELECT order_id FROM input)
+                ORDER BY o.order_id
+                FOR UPDATE
+            ),
+            fresh AS (
+                INSERT INTO payment_webhook_events (event_id, order_id, status, processed_at)
+                SELECT i.event_id, i.order_id,
+                       CASE WHEN l.order_id IS NULL THEN 'ORDER_NOT_FOUND' ELSE 'PROCESSED' END, ?
+                FROM input i LEFT JOIN locked l ON l.order_id = i.order_id
+                ON CONFLICT (event_id) DO NOTHING
+                RETURNING event_id, status
+            ),
+            paid AS (
+                INSERT INTO payments (order_id, payment_date, method, amount, gateway_event_id)
+                SELECT i.order_id, COALESCE(i.paid_at, ?), i.method, i.amount, i.event_id
+                FROM input i JOIN fresh f ON f.event_id = i.event_id AND f.status = 'PROCESSED'
+                RETURNING payment_id, order_id, gateway_event_id, payment_date, method, amount
+            ),
+            new_paid AS (
+                SELECT order_id, SUM(amount) AS amount FROM paid GROUP BY order_id
+            ),
+            confirmed AS (
+                UPDATE orders o SET status = CAST(? AS TEXT)
+                FROM locked l JOIN new_paid n ON n.order_id = l.order_id
+                WHERE o.order_id = l.order_id AND l.status = ?
+                  AND n.amount + COALESCE((SELECT SUM(p.amount) FROM payments p WHERE p.order_id = l.order_id), 0)
+                      >= COALESCE(l.total_amount, 0)
+                RETURNING o.order_id
+            )
+            SELECT p.payment_id, p.order_id, p.gateway_event_id, p.payment_date, p.method, p.amount,
+                   l.user_id, l.order_date, l.total_amount, c.order_id IS NOT NULL AS confirmed
+            FROM paid p
+            JOIN locked l ON l.order_id = p.order_id
+            LEFT JOIN confirmed c ON c.order_id = p.order_id
+            ORDER BY p.payment_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Payment vừa tạo; confirmed = đơn vừa chuyển pending -> confirmed
+    public record PersistedPayment(long paymentId, long orderId, String eventId, LocalDateTime paymentDate,
+                                   String method, BigDecimal amount, Long userId, LocalDateTime orderDate,
+                                   BigDecimal totalAmount, boolean confirmed) {
+    }
+
+    // Kiểm tra DB đã trả lời lại sau khi mất kết nối
+    public void ping() {
+        jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+    }
+
+    // Mỗi eventId chỉ được xuất hiện một lần trong lô; trả về các payment được tạo (bỏ sự kiện trùng / đơn không tồn tại)
+    public List<PersistedPayment> persist(List<PaymentWebhookRequest> events, LocalDateTime now) {
+        String sql = PERSIST_SQL.formatted(String.join(", ", Collections.nCopies(events.size(), VALUES_ROW)));
+        List<Object> args = new ArrayList<>(events.size() * 5 + 2);
+        for (PaymentWebhookRequest event : events) {
+            args.add(event.getEventId());
+            args.add(event.getOrderId());
+            args.add(event.getAmount());
+            args.add(event.getMethod());
+            args.add(event.getPaidAt() != null ? Timestamp.valueOf(event.getPaidAt()) : null);
+        }
+        args.add(Timestamp.valueOf(now));
+        args.add(Timestamp.valueOf(now));
+        args.add(OrderStatus.CONFIRMED);
+        args.add(OrderStatus.PENDING);
+
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            Timestamp orderDate = rs.getTimestamp("order_date");
+            return new PersistedPayment(
+                    rs.getLong("payment_id"),
+                    rs.getLong("order_id"),
+                    rs.getString("gateway_event_id"),
+                    rs.getTimestamp("payment_date").toLocalDateTime(),
+                    rs.getString("method"),
+                    rs.getBigDecimal("amount"),
+                    (Long) rs.getObject("user_id"),
+                    orderDate != null ? orderDate.toLocalDateTime() : null,
+                    rs.getBigDecimal("total_amount"),
+                    rs.getBoolean("confirmed"));
+        }, args.toArray());
+    }
+}
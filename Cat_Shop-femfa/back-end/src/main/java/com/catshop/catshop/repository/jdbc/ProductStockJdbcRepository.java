@@ -0,0 +1,82 @@
+package com.catshop.catshop.repository.jdbc;
+
+import com.catshop.catshop.dto.request.StockAdjustmentItem;
+import com.catshop.catshop.dto.response.StockAdjustmentResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Điều chỉnh tồn kho nhiều sản phẩm bằng MỘT câu UPDATE ... FROM (VALUES ...).
+ *
+ * Không nạp entity, một round trip. Các dòng sản phẩm được khóa theo thứ tự product_id trước (như checkout,
+ * tránh deadlock), và cả tồn kho cũ lẫn giá trị mới đều tính từ dòng đã khóa: transaction khác commit trước
+ * thì ta đợi rồi đọc giá trị mới nhất, nên previous / new phản ánh đúng thay đổi của câu lệnh này.
+ * Dòng nào làm tồn kho âm thì không được cập nhật. Tồn kho NULL được coi là 0.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductStockJdbcRepository {
+
+    private static final String VALUES_ROW = "(CAST(? AS INT), CAST(? AS BIGINT), CAST(? AS TEXT), CAST(? AS INT))";
+
+    private static final String ADJUST_SQL = """
+            WITH input(idx, product_id, mode, qty) AS (VALUES %s),
+            locked AS (
+                SELECT p.product_id, COALESCE(p.stock_quantity, 0) AS stock_quantity FROM products p
+                WHERE p.product_id IN (SELECT product_id FROM input)
+                ORDER BY p.product_id
+                FOR UPDATE OF p
+            ),
+            target AS (
+                SELECT i.idx, i.product_id, l.stock_quantity AS previous_stock,
+                       CASE WHEN i.mode = 'SET' THEN i.qty ELSE l.stock_quantity + i.qty END AS new_stock
+                FROM input i JOIN locked l ON l.product_id = i.product_id
+            ),
+            updated AS (
+                UPDATE products p
+                SET stock_quantity = t.new_stock
+                FROM target t
+                WHERE p.product_id = t.product_id AND t.new_stock >= 0
+                RETURNING t.idx
+            )
+            SELECT i.idx, i.product_id, t.previous_stock, t.new_stock, u.idx IS NOT NULL AS applied
+            FROM input i
+            LEFT JOIN target t ON t.idx = i.idx
+            LEFT JOIN updated u ON u.idx = i.idx
+            ORDER BY i.idx
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Mỗi productId chỉ được xuất hiện một lần (UPDATE ... FROM chỉ áp dụng một dòng nguồn cho mỗi dòng đích)
+    public List<StockAdjustmentResult> adjust(List<StockAdjustmentItem> items) {
+        String sql = ADJUST_SQL.formatted(String.join(", ", Collections.nCopies(items.size(), VALUES_ROW)));
+        List<Object> args = new ArrayList<>(items.size() * 4);
+        for (int i = 0; i < items.size(); i++) {
+            StockAdjustmentItem item = items.get(i);
+            args.add(i);
+            args.add(item.getProductId());
+            args.add(item.getMode().name());
+            args.add(item.getQuantity());
+        }
+
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            Integer previous = (Integer) rs.getObject("previous_stock");
+            boolean applied = rs.getBoolean("applied");
+            String status = previous == null ? StockAdjustmentResult.NOT_FOUND
+                    : applied ? StockAdjustmentResult.UPDATED
+                    : StockAdjustmentResult.NEGATIVE_STOCK;
+            return StockAdjustmentResult.builder()
+                    .productId(rs.getLong("product_id"))
+                    .status(status)
+                    .previousStock(previous)
+                    .newStock(applied ? (Integer) rs.getObject("new_stock") : previous)
+                    .build();
+        }, args.toArray());
+    }
+}
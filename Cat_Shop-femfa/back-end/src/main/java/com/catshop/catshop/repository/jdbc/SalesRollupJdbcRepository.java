@@ -0,0 +1,216 @@
+package com.catshop.catshop.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.*;
+
+@Repository
+@RequiredArgsConstructor
+public class SalesRollupJdbcRepository {
+
+    public static final String SOURCE_ORDERS = "orders";
+    public static final String SOURCE_ORDER_DETAILS = "order_details";
+    public static final String SOURCE_PAYMENTS = "payments";
+
+    // Khóa advisory để chỉ một node tính rollup tại một thời điểm
+    private static final long LOCK_KEY = 7_316_001L;
+
+    // Tính lại mọi dimension cho các ngày trong [lo, hi) từ bảng nguồn
+    private static final String RECOMPUTE_SQL = """
+            WITH r AS (SELECT CAST(? AS timestamp) AS lo, CAST(? AS timestamp) AS hi),
+            lines AS (
+                SELECT CAST(o.order_date AS date) AS day, d.order_id,
+                       COALESCE(CAST(d.product_id AS varchar), 'name:' || md5(COALESCE(d.product_name, ''))) AS product_key,
+                       COALESCE(p.category_id, d.category_id) AS category_id,
+                       COALESCE(d.product_name, p.product_name) AS product_name,
+                       d.quantity, d.quantity * d.price AS revenue
+                FROM order_details d
+                JOIN orders o ON o.order_id = d.order_id
+                LEFT JOIN products p ON p.product_id = d.product_id
+                JOIN r ON o.order_date >= r.lo AND o.order_date < r.hi
+            )
+            INSERT INTO sales_rollup_daily (day, dimension, dim_key, record_count, quantity, amount, dim_label)
+            SELECT CAST(o.order_date AS date), 'ORDERS', '', COUNT(*), 0, COALESCE(SUM(o.total_amount), 0), NULL
+            FROM orders o JOIN r ON o.order_date >= r.lo AND o.order_date < r.hi
+            GROUP BY 1
+            UNION ALL
+            SELECT CAST(o.order_date AS date), 'USER', CAST(o.user_id AS varchar), COUNT(*), 0, COALESCE(SUM(o.total_amount), 0), NULL
+            FROM orders o JOIN r ON o.order_date >= r.lo AND o.order_date < r.hi
+            GROUP BY 1, o.user_id
+            UNION ALL
+            SELECT day, 'LINES', '', COUNT(DISTINCT order_id), SUM(quantity), SUM(revenue), NULL
+            FROM lines GROUP BY day
+            UNION ALL
+            SELECT day, 'PRODUCT', product_key, COUNT(DISTINCT order_id), SUM(quantity), SUM(revenue),
+                   MAX(product_name)
+            FROM lines GROUP BY day, product_key
+            UNION ALL
+            SELECT day, 'CATEGORY', COALESCE(CAST(category_id AS varchar), ''), COUNT(DISTINCT order_id), SUM(quantity), SUM(revenue), NULL
+            FROM lines GROUP BY day, category_id
+            UNION ALL
+            SELECT CAST(pm.payment_date AS date), 'PAYMENT_METHOD', COALESCE(pm.method, ''), COUNT(*), 0, COALESCE(SUM(pm.amount), 0), NULL
+            FROM payments pm JOIN r ON pm.payment_date >= r.lo AND pm.payment_date < r.hi
+            GROUP BY 1, pm.method
+            """;
+
+    private static final String MARK_DIRTY_SQL =
+            "INSERT INTO sales_rollup_dirty (day) VALUES (?) ON CONFLICT (day) DO NOTHING";
+
+    private static final String SAVE_WATERMARK_SQL = """
+            INSERT INTO sales_rollup_state (source, last_id, updated_at) VALUES (?, ?, now())
+            ON CONFLICT (source) DO UPDATE SET last_id = EXCLUDED.last_id, updated_at = now()
+            """;
+
+    private static final Map<String, String> NEW_DAYS_SQL = Map.of(
+            SOURCE_ORDERS, """
+                    SELECT DISTINCT CAST(order_date AS date) FROM orders
+                    WHERE order_id > ? AND order_id <= ? AND order_date IS NOT NULL
+                    """,
+            SOURCE_ORDER_DETAILS, """
+                    SELECT DISTINCT CAST(o.order_date AS date) FROM order_details d
+                    JOIN orders o ON o.order_id = d.order_id
+                    WHERE d.order_detail_id > ? AND d.order_detail_id <= ? AND o.order_date IS NOT NULL
+                    """,
+            SOURCE_PAYMENTS, """
+                    SELECT DISTINCT CAST(payment_date AS date) FROM payments
+                    WHERE payment_id > ? AND payment_id <= ? AND payment_date IS NOT NULL
+                    """);
+
+    private static final Map<String, String> MAX_ID_SQL = Map.of(
+            SOURCE_ORDERS, "SELECT COALESCE(MAX(order_id), 0) FROM orders",
+            SOURCE_ORDER_DETAILS, "SELECT COALESCE(MAX(order_detail_id), 0) FROM order_details",
+            SOURCE_PAYMENTS, "SELECT COALESCE(MAX(payment_id), 0) FROM payments");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Phải gọi trong transaction; khóa tự nhả khi transaction kết thúc
+    public boolean tryLock() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY));
+    }
+
+    // Ngày đầu tiên còn dữ liệu trong bảng chính (sau tháng archive mới nhất), null nếu chưa archive
+    public LocalDate archivedThrough() {
+        Date month = jdbcTemplate.queryForObject("SELECT MAX(month) FROM order_archives", Date.class);
+        return month != null ? month.toLocalDate().plusMonths(1) : null;
+    }
+
+    public void recompute(LocalDate from, LocalDate toExclusive) {
+        jdbcTemplate.update("DELETE FROM sales_rollup_daily WHERE day >= ? AND day < ?",
+                Date.valueOf(from), Date.valueOf(toExclusive));
+        jdbcTemplate.update(RECOMPUTE_SQL,
+                Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(toExclusive.atStartOfDay()));
+    }
+
+    // {số đơn không có order_date, số payment không có payment_date}: không thuộc ngày nào nên rollup bỏ qua
+    public long[] countUndated() {
+        return jdbcTemplate.queryForObject("""
+                        SELECT (SELECT COUNT(*) FROM orders WHERE order_date IS NULL),
+                               (SELECT COUNT(*) FROM payments WHERE payment_date IS NULL)
+                        """,
+                (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2)});
+    }
+
+    public void markDirty(Collection<LocalDate> days) {
+        if (days.isEmpty()) return;
+        jdbcTemplate.batchUpdate(MARK_DIRTY_SQL, new ArrayList<>(days), days.size(),
+                (ps, day) -> ps.setDate(1, Date.valueOf(day)));
+    }
+
+    public List<LocalDate> takeDirty() {
+        return jdbcTemplate.query("DELETE FROM sales_rollup_dirty RETURNING day",
+                (rs, i) -> rs.getDate(1).toLocalDate());
+    }
+
+    // source -> id đã gộp; rỗng nếu rollup chưa từng được dựng
+    public Map<String, Long> loadWatermarks() {
+        Map<String, Long> marks = new HashMap<>();
+        jdbcTemplate.query("SELECT source, last_id FROM sales_rollup_state",
+                rs -> { marks.put(rs.getString(1), rs.getLong(2)); });
+        return marks;
+    }
+
+    public void saveWatermark(String source, long lastId) {
+        jdbcTemplate.update(SAVE_WATERMARK_SQL, source, lastId);
+    }
+
+    public long maxId(String source) {
+        Long max = jdbcTemplate.queryForObject(MAX_ID_SQL.get(source), Long.class);
+        return max != null ? max : 0;
+    }
+
+    // Các ngày có dòng mới (id trong (afterId, upToId]) của một bảng nguồn
+    public List<LocalDate> newDays(String source, long afterId, long upToId) {
+        if (upToId <= afterId) return List.of();
+        return jdbcTemplate.query(NEW_DAYS_SQL.get(source), (rs, i) -> rs.getDate(1).toLocalDate(), afterId, upToId);
+    }
+
+    // ------------------ Đọc số liệu ------------------
+
+    public List<Object[]> monthlyAmount(String dimension, String dimKey) {
+        return jdbcTemplate.query("""
+                        SELECT CAST(DATE_TRUNC('month', day) AS timestamp) AS month, SUM(amount)
+                        FROM sales_rollup_daily WHERE dimension = ? AND dim_key = ?
+                        GROUP BY 1 ORDER BY 1
+                        """,
+                SalesRollupJdbcRepository::toArray, dimension, dimKey);
+    }
+
+    public BigDecimal totalAmount(String dimension) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(amount), 0) FROM sales_rollup_daily WHERE dimension = ?",
+                BigDecimal.class, dimension);
+    }
+
+    // {dim_key (null nếu rỗng), tổng record_count, tổng amount}
+    public List<Object[]> countAndSumByKey(String dimension) {
+        return jdbcTemplate.query("""
+                        SELECT NULLIF(dim_key, ''), SUM(record_count), SUM(amount)
+                        FROM sales_rollup_daily WHERE dimension = ?
+                        GROUP BY dim_key ORDER BY 3 DESC
+                        """,
+                SalesRollupJdbcRepository::toArray, dimension);
+    }
+
+    // {productId, productName, tổng số lượng, doanh thu} trong [from, to).
+    // Sản phẩm đã xóa: productId null, gộp theo tên trên dòng hàng (dim_label) - cả các ngày còn khóa theo id cũ
+    // lẫn các ngày đã tính lại theo tên, nên báo cáo không đổi trước / sau rebuild
+    public List<Object[]> revenueByProduct(LocalDate from, LocalDate to) {
+        return jdbcTemplate.query("""
+                        SELECT p.product_id, COALESCE(p.product_name, r.dim_label) AS product_name,
+                               SUM(r.quantity), SUM(r.amount)
+                        FROM sales_rollup_daily r
+                        LEFT JOIN products p ON p.product_id =
+                            CASE WHEN r.dim_key ~ '^[0-9]+$' THEN CAST(r.dim_key AS bigint) END
+                        WHERE r.dimension = 'PRODUCT' AND r.day >= ? AND r.day < ?
+                        GROUP BY p.product_id, COALESCE(p.product_name, r.dim_label) ORDER BY 4 DESC
+                        """,
+                SalesRollupJdbcRepository::toArray, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    // {categoryId, categoryName, tổng số lượng, doanh thu} trong [from, to)
+    public List<Object[]> revenueByCategory(LocalDate from, LocalDate to) {
+        return jdbcTemplate.query("""
+                        SELECT c.category_id, c.category_name, SUM(r.quantity), SUM(r.amount)
+                        FROM sales_rollup_daily r
+                        LEFT JOIN categories c ON c.category_id = CAST(NULLIF(r.dim_key, '') AS bigint)
+                        WHERE r.dimension = 'CATEGORY' AND r.day >= ? AND r.day < ?
+                        GROUP BY c.category_id, c.category_name ORDER BY 4 DESC
+                        """,
+                SalesRollupJdbcRepository::toArray, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    private static Object[] toArray(ResultSet rs, int rowNum) throws SQLException {
+        int n = rs.getMetaData().getColumnCount();
+        Object[] row = new Object[n];
+        for (int i = 0; i < n; i++) row[i] = rs.getObject(i + 1);
+        return row;
+    }
+}
@@ -0,0 +1,87 @@
+package com.catshop.catshop.repository.jdbc;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class ShipmentCounterJdbcRepository {
+
+    private static final String APPLY_SQL = """
+            INSERT INTO shipment_status_counters (bucket, status, shipment_count) VALUES (?, ?, ?)
+            ON CONFLICT (bucket, status)
+            DO UPDATE SET shipment_count = shipment_status_counters.shipment_count + EXCLUDED.shipment_count
+            """;
+
+    // Ghi đè bộ đếm bằng số đếm thật từ shipments, trả về số dòng bị lệch đã sửa
+    private static final String RECONCILE_SQL = """
+            WITH actual AS (
+                SELECT 'all' AS bucket, COALESCE(status, '') AS status, COUNT(*) AS cnt
+                FROM shipments GROUP BY 2
+                UNION ALL
+                SELECT to_char(shipped_date, 'YYYY-MM'), COALESCE(status, ''), COUNT(*)
+                FROM shipments WHERE shipped_date IS NOT NULL GROUP BY 1, 2
+                UNION ALL
+                SELECT to_char(shipped_date, 'YYYY-MM-DD'), COALESCE(status, ''), COUNT(*)
+                FROM shipments WHERE shipped_date IS NOT NULL GROUP BY 1, 2
+            ), upserted AS (
+                INSERT INTO shipment_status_counters (bucket, status, shipment_count)
+                SELECT bucket, status, cnt FROM actual
+                ON CONFLICT (bucket, status) DO UPDATE SET shipment_count = EXCLUDED.shipment_count
+                WHERE shipment_status_counters.shipment_count <> EXCLUDED.shipment_count
+                RETURNING 1
+            ), zeroed AS (
+                UPDATE shipment_status_counters c SET shipment_count = 0
+                WHERE c.shipment_count <> 0
+                  AND NOT EXISTS (SELECT 1 FROM actual a WHERE a.bucket = c.bucket AND a.status = c.status)
+                RETURNING 1
+            )
+            SELECT (SELECT COUNT(*) FROM upserted) + (SELECT COUNT(*) FROM zeroed)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // deltas: bucket -> (status -> delta); cập nhật theo thứ tự cố định để hai transaction không khóa chéo nhau
+    public void apply(Map<String, Map<String, Long>> deltas) {
+        List<Object[]> args = new ArrayList<>();
+        deltas.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(bucket -> bucket.getValue().entrySet().stream()
+                        .filter(e -> e.getValue() != 0)
+                        .sorted(Map.Entry.comparingByKey())
+                        .forEach(e -> args.add(new Object[]{bucket.getKey(), e.getKey(), e.getValue()})));
+        if (!args.isEmpty()) jdbcTemplate.batchUpdate(APPLY_SQL, args);
+    }
+
+    // [status, count] của một bucket, bỏ các trạng thái đã về 0
+    public List<Object[]> countByStatus(String bucket) {
+        return jdbcTemplate.query("""
+                        SELECT NULLIF(status, ''), shipment_count FROM shipment_status_counters
+                        WHERE bucket = ? AND shipment_count <> 0 ORDER BY status
+                        """,
+                (rs, i) -> new Object[]{rs.getString(1), rs.getLong(2)}, bucket);
+    }
+
+    public long total(String bucket) {
+        Long total = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(shipment_count), 0) FROM shipment_status_counters WHERE bucket = ?",
+                Long.class, bucket);
+        return total != null ? total : 0L;
+    }
+
+    /**
+     * Phải chạy trong transaction. Khóa EXCLUSIVE chặn các lần cộng / trừ đồng thời (vẫn cho đọc)
+     * đến khi đối soát commit: transaction shipment nào chưa commit sẽ cộng delta của nó sau đó,
+     * nên không bị tính hai lần hay mất.
+     */
+    public int reconcile() {
+        jdbcTemplate.execute("LOCK TABLE shipment_status_counters IN EXCLUSIVE MODE");
+        Integer fixed = jdbcTemplate.queryForObject(RECONCILE_SQL, Integer.class);
+        return fixed != null ? fixed : 0;
+    }
+}
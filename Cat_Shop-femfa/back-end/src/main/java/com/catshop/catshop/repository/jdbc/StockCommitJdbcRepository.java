@@ -0,0 +1,138 @@
+package com.catshop.catshop.repository.jdbc;
+
+import com.catshop.catshop.repository.jdbc.CheckoutJdbcRepository.ReservedLine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Repository
+@RequiredArgsConstructor
+public class StockCommitJdbcRepository {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO stock_commits (reservation_id, order_id, product_id, quantity, created_at, applied_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    // Lấy một lô chưa xử lý (SKIP LOCKED để nhiều node chạy song song không đụng nhau), khóa các dòng sản phẩm
+    // theo thứ tự product_id như checkout (tránh deadlock), rồi trừ kho trong cùng một câu lệnh.
+    // Dòng nào làm tồn kho âm (cộng dồn theo id trong lô) hoặc sản phẩm đã bị xóa thì bị từ chối (rejected_at),
+    // không trừ vào DB. Kết quả: 'A' = đã trừ theo sản phẩm, 'R' = từng dòng bị từ chối.
+    private static final String APPLY_SQL = """
+            WITH batch AS (
+                SELECT id, order_id, product_id, quantity FROM stock_commits
+                WHERE applied_at IS NULL AND rejected_at IS NULL
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            ), locked AS (
+                SELECT p.product_id, p.stock_quantity FROM products p
+                WHERE p.product_id IN (SELECT product_id FROM batch)
+                ORDER BY p.product_id
+                FOR UPDATE OF p
+            ), checked AS (
+                SELECT b.id, b.product_id, b.quantity,
+                       SUM(b.quantity) OVER (PARTITION BY b.product_id ORDER BY b.id) <= l.stock_quantity AS ok
+                FROM batch b JOIN locked l ON l.product_id = b.product_id
+            ), agg AS (
+                SELECT product_id, SUM(quantity) AS qty FROM checked WHERE ok GROUP BY product_id
+            ), applied AS (
+                UPDATE products p
+                SET stock_quantity = p.stock_quantity - agg.qty
+                FROM agg
+                WHERE p.product_id = agg.product_id
+                RETURNING p.product_id, agg.qty, p.stock_quantity
+            ), marked AS (
+                UPDATE stock_commits c
+                SET applied_at = CASE WHEN k.ok THEN now() END,
+                    rejected_at = CASE WHEN k.ok THEN NULL ELSE now() END
+                FROM batch b LEFT JOIN checked k ON k.id = b.id
+                WHERE c.id = b.id
+            )
+            SELECT 'A' AS kind, product_id, qty, stock_quantity, NULL::bigint AS order_id FROM applied
+            UNION ALL
+            SELECT 'R', b.product_id, b.quantity, NULL, b.order_id
+            FROM batch b LEFT JOIN checked k ON k.id = b.id
+            WHERE k.ok IS NOT TRUE
+            """;
+
+    // Tồn kho và tổng số lượng đang chờ trừ, đọc trong cùng một snapshot
+    private static final String STOCK_LEVEL_SQL = """
+            SELECT p.product_id, p.stock_quantity, COALESCE(c.qty, 0)
+            FROM products p
+            LEFT JOIN (
+                SELECT product_id, SUM(quantity) AS qty FROM stock_commits
+                WHERE applied_at IS NULL AND rejected_at IS NULL AND product_id = ANY(?)
+                GROUP BY product_id
+            ) c ON c.product_id = p.product_id
+            WHERE p.product_id = ANY(?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record AppliedStock(long productId, int quantity, int newStock) {
+    }
+
+    public record RejectedCommit(long orderId, long productId, int quantity) {
+    }
+
+    public record ApplyResult(List<AppliedStock> applied, List<RejectedCommit> rejected) {
+
+        public boolean isEmpty() {
+            return applied.isEmpty() && rejected.isEmpty();
+        }
+    }
+
+    public record StockLevel(long stock, long pending) {
+    }
+
+    public void insert(String reservationId, long orderId, List<ReservedLine> lines, boolean alreadyApplied) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setString(1, reservationId);
+            ps.setLong(2, orderId);
+            ps.setLong(3, line.productId());
+            ps.setInt(4, line.quantity());
+            ps.setTimestamp(5, now);
+            ps.setTimestamp(6, alreadyApplied ? now : null);
+        });
+    }
+
+    public ApplyResult applyPending(int limit) {
+        List<AppliedStock> applied = new ArrayList<>();
+        List<RejectedCommit> rejected = new ArrayList<>();
+        jdbcTemplate.query(APPLY_SQL, rs -> {
+            if ("A".equals(rs.getString("kind"))) {
+                applied.add(new AppliedStock(rs.getLong("product_id"), rs.getInt("qty"), rs.getInt("stock_quantity")));
+            } else {
+                rejected.add(new RejectedCommit(rs.getLong("order_id"), rs.getLong("product_id"), rs.getInt("qty")));
+            }
+        }, limit);
+        return new ApplyResult(applied, rejected);
+    }
+
+    // null: lượt giữ chưa từng được ghi xuống DB; true: còn dòng chưa trừ kho; false: đã xử lý hết
+    public Boolean findPendingState(String reservationId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT bool_or(applied_at IS NULL AND rejected_at IS NULL) FROM stock_commits WHERE reservation_id = ?",
+                Boolean.class, reservationId);
+    }
+
+    // productId -> tồn kho / đang chờ trừ; sản phẩm không tồn tại thì không có trong kết quả
+    public Map<Long, StockLevel> findStockLevels(Collection<Long> productIds) {
+        Long[] ids = productIds.toArray(Long[]::new);
+        Map<Long, StockLevel> levels = new HashMap<>();
+        jdbcTemplate.query(STOCK_LEVEL_SQL,
+                rs -> { levels.put(rs.getLong(1), new StockLevel(rs.getLong(2), rs.getLong(3))); },
+                ids, ids);
+        return levels;
+    }
+
+    public int purgeApplied(LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM stock_commits WHERE applied_at < ?", Timestamp.valueOf(before));
+    }
+}
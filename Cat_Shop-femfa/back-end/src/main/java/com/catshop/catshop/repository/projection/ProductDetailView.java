@@ -0,0 +1,49 @@
+package com.catshop.catshop.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Một dòng kết quả của ProductRepository.findDetailViewById: thông tin sản phẩm,
+ * cột của cả 4 bảng chi tiết (chỉ bảng đúng loại có dữ liệu) và tổng hợp đánh giá.
+ */
+public interface ProductDetailView {
+
+    Long getProductId();
+    String getProductName();
+    BigDecimal getPrice();
+    Integer getStockQuantity();
+    String getDescription();
+    String getImageUrl();
+    Long getTypeId();
+    String getTypeName();
+    Long getCategoryId();
+    String getCategoryName();
+
+    // CatDetails (catId != null khi sản phẩm có dòng chi tiết)
+    Long getCatId();
+    String getBreed();
+    Integer getAge();
+    String getGender();
+    Boolean getVaccinated();
+
+    // FoodDetail
+    Long getFoodId();
+    BigDecimal getWeightKg();
+    String getIngredients();
+    LocalDate getExpiryDate();
+
+    // CageDetail
+    Long getCageId();
+    String getMaterial();
+    String getDimensions();
+
+    // CleaningDetail
+    Long getCleaningId();
+    Integer getVolumeMl();
+    String getUsage();
+
+    // Reviews
+    Double getAverageRating();
+    Long getReviewCount();
+}
@@ -0,0 +1,57 @@
+package com.catshop.catshop.repository.specification;
+
+import com.catshop.catshop.dto.request.PaymentPageRequest;
+import com.catshop.catshop.entity.Payment;
+import com.catshop.catshop.util.PaymentCursor;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class PaymentSpecification {
+
+    // Khớp index idx_payments_date_id (payment_date, payment_id)
+    public static final Sort NEWEST = Sort.by(Sort.Order.desc("paymentDate"), Sort.Order.desc("paymentId"));
+
+    private PaymentSpecification() {
+    }
+
+    // ✅ Các bộ lọc tùy chọn, kết hợp bằng AND
+    public static Specification<Payment> withFilters(PaymentPageRequest request) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (request.getUserId() != null) {
+                predicates.add(cb.equal(root.get("order").get("user").get("userId"), request.getUserId()));
+            }
+            if (request.getOrderId() != null) {
+                predicates.add(cb.equal(root.get("order").get("orderId"), request.getOrderId()));
+            }
+            if (request.getMethod() != null && !request.getMethod().isBlank()) {
+                predicates.add(cb.equal(cb.lower(root.get("method")), request.getMethod().trim().toLowerCase()));
+            }
+            if (request.getFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("paymentDate"), request.getFrom()));
+            }
+            if (request.getTo() != null) {
+                predicates.add(cb.lessThan(root.get("paymentDate"), request.getTo()));
+            }
+            if (request.getMinAmount() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("amount"), request.getMinAmount()));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    // ✅ Điều kiện keyset: chỉ lấy các dòng đứng sau cursor theo (payment_date, payment_id) giảm dần
+    public static Specification<Payment> after(PaymentCursor cursor) {
+        return (root, query, cb) -> {
+            if (cursor == null) return cb.conjunction();
+            return cb.or(cb.lessThan(root.get("paymentDate"), cursor.getLastDate()),
+                    cb.and(cb.equal(root.get("paymentDate"), cursor.getLastDate()),
+                            cb.lessThan(root.get("paymentId"), cursor.getLastId())));
+        };
+    }
+}
@@ -0,0 +1,88 @@
+package com.catshop.catshop.repository.specification;
+
+import com.catshop.catshop.dto.request.ProductPageRequest;
+import com.catshop.catshop.dto.request.ProductSortKey;
+import com.catshop.catshop.entity.Product;
+import com.catshop.catshop.util.ProductCursor;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class ProductSpecification {
+
+    private ProductSpecification() {
+    }
+
+    // ✅ CUSTOMER - chỉ sản phẩm còn hàng + các bộ lọc tùy chọn
+    public static Specification<Product> availableWithFilters(ProductPageRequest request) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.greaterThan(root.get("stockQuantity"), 0));
+
+            if (request.getTypeId() != null) {
+                predicates.add(cb.equal(root.get("productType").get("typeId"), request.getTypeId()));
+            }
+            if (request.getCategoryId() != null) {
+                predicates.add(cb.equal(root.get("category").get("categoryId"), request.getCategoryId()));
+            }
+            if (request.getKeyword() != null && !request.getKeyword().isBlank()) {
+                predicates.add(cb.like(cb.lower(root.get("productName")),
+                        "%" + request.getKeyword().trim().toLowerCase() + "%"));
+            }
+            if (request.getMinPrice() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("price"), request.getMinPrice()));
+            }
+            if (request.getMaxPrice() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("price"), request.getMaxPrice()));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    // ✅ Điều kiện keyset: chỉ lấy các dòng đứng sau cursor theo (cột sắp xếp, product_id)
+    public static Specification<Product> after(ProductCursor cursor) {
+        return (root, query, cb) -> {
+            if (cursor == null) return cb.conjunction();
+
+            Long lastId = cursor.getLastId();
+            return switch (cursor.getSort()) {
+                case PRICE_ASC -> {
+                    BigDecimal price = new BigDecimal(cursor.getLastValue());
+                    yield cb.or(cb.greaterThan(root.get("price"), price),
+                            cb.and(cb.equal(root.get("price"), price), cb.greaterThan(root.get("productId"), lastId)));
+                }
+                case PRICE_DESC -> {
+                    BigDecimal price = new BigDecimal(cursor.getLastValue());
+                    yield cb.or(cb.lessThan(root.get("price"), price),
+                            cb.and(cb.equal(root.get("price"), price), cb.lessThan(root.get("productId"), lastId)));
+                }
+                case NAME_ASC -> {
+                    String name = cursor.getLastValue();
+                    yield cb.or(cb.greaterThan(root.get("productName"), name),
+                            cb.and(cb.equal(root.get("productName"), name), cb.greaterThan(root.get("productId"), lastId)));
+                }
+                case STOCK_DESC -> {
+                    Integer stock = Integer.valueOf(cursor.getLastValue());
+                    yield cb.or(cb.lessThan(root.get("stockQuantity"), stock),
+                            cb.and(cb.equal(root.get("stockQuantity"), stock), cb.lessThan(root.get("productId"), lastId)));
+                }
+                case NEWEST -> cb.lessThan(root.get("productId"), lastId);
+            };
+        };
+    }
+
+    // Thứ tự tương ứng với từng khóa, luôn kết thúc bằng productId để ổn định
+    public static Sort sortOf(ProductSortKey key) {
+        return switch (key) {
+            case PRICE_ASC -> Sort.by(Sort.Order.asc("price"), Sort.Order.asc("productId"));
+            case PRICE_DESC -> Sort.by(Sort.Order.desc("price"), Sort.Order.desc("productId"));
+            case NAME_ASC -> Sort.by(Sort.Order.asc("productName"), Sort.Order.asc("productId"));
+            case STOCK_DESC -> Sort.by(Sort.Order.desc("stockQuantity"), Sort.Order.desc("productId"));
+            case NEWEST -> Sort.by(Sort.Order.desc("productId"));
+        };
+    }
+}
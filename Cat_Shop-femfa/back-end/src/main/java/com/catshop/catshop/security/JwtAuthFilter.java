@@ -46,7 +46,8 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
 
         // ✅ Bỏ qua các endpoint public khác (categories cho customer, v.v.)
-        if (uri.startsWith("/api/categories/customer") || uri.startsWith("/public/")) {
+        if (uri.startsWith("/api/categories/customer") || uri.startsWith("/public/")
+                || uri.startsWith("/api/images/") || uri.startsWith("/api/webhooks/")) {
             log.debug("🔓 Bỏ qua JWT filter cho public endpoint: {} {}", method, uri);
             filterChain.doFilter(request, response);
             return;
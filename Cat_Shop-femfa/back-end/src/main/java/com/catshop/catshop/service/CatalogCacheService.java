@@ -0,0 +1,210 @@
+package com.catshop.catshop.service;
+
+import com.catshop.catshop.util.AfterCommit;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache read-through trên Redis cho dữ liệu catalog (sản phẩm, danh mục).
+ *
+ * - Mỗi entry có TTL "tươi" (fresh) và một khoảng "cũ" (stale) dài hơn; Redis chỉ xóa key khi hết cả hai.
+ * - Single-flight: trong một node chỉ một thread tải lại một key, các node khác bị chặn bằng lock SET NX.
+ * - Serve-stale-on-error: nếu DB lỗi khi tải lại mà vẫn còn bản cũ thì trả bản cũ.
+ * - Redis lỗi thì đọc thẳng DB, không làm hỏng request.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CatalogCacheService {
+
+    public static final String REGION_PRODUCTS = "products";
+    public static final String REGION_CATEGORIES = "categories";
+
+    private static final String KEY_PREFIX = "catalog:";
+    private static final String LOCK_SUFFIX = ":lock";
+    private static final String INDEX_SUFFIX = ":keys";
+    private static final Duration LOCK_TTL = Duration.ofSeconds(10);
+    private static final int LOCK_WAIT_ATTEMPTS = 20;
+    private static final long LOCK_WAIT_MILLIS = 50;
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    // Các lần tải đang chạy trong node này, theo key
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    @Value("${catalog.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${catalog.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${catalog.cache.stale-seconds:3600}")
+    private long staleSeconds;
+
+    public <T> T getOrLoad(String region, String key, TypeReference<T> type, Supplier<T> loader) {
+        if (!enabled) return loader.get();
+
+        String redisKey = KEY_PREFIX + region + ":" + key;
+        CachedValue<T> cached = read(redisKey, type);
+        if (cached != null && cached.fresh()) {
+            return cached.value();
+        }
+
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(redisKey, mine);
+        if (existing != null) {
+            // Đã có thread khác đang tải key này: trả bản cũ nếu có, không thì chờ kết quả
+            if (cached != null) return cached.value();
+            return awaitInFlight(existing);
+        }
+
+        try {
+            T value = loadWithLock(region, redisKey, type, loader, cached);
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(redisKey, mine);
+        }
+    }
+
+    // Xóa toàn bộ key của một region sau khi transaction hiện tại commit
+    public void evictAfterCommit(String... regions) {
+        AfterCommit.run(() -> evict(regions));
+    }
+
+    public void evict(String... regions) {
+        for (String region : regions) {
+            String indexKey = KEY_PREFIX + region + INDEX_SUFFIX;
+            try {
+                Set<String> keys = redisTemplate.opsForSet().members(indexKey);
+                if (keys != null && !keys.isEmpty()) {
+                    redisTemplate.delete(keys);
+                }
+                redisTemplate.delete(indexKey);
+                log.debug("🧹 [CATALOG-CACHE] Evicted region {} ({} keys)", region, keys != null ? keys.size() : 0);
+            } catch (Exception e) {
+                log.warn("⚠️ [CATALOG-CACHE] Không xóa được cache region {}: {}", region, e.getMessage());
+            }
+        }
+    }
+
+    private <T> T loadWithLock(String region, String redisKey, TypeReference<T> type,
+                               Supplier<T> loader, CachedValue<T> stale) {
+        String lockKey = redisKey + LOCK_SUFFIX;
+        boolean locked = tryLock(lockKey);
+
+        if (!locked) {
+            // Node khác đang tải: trả bản cũ nếu có, hoặc chờ một chút cho bản mới xuất hiện
+            if (stale != null) return stale.value();
+            for (int i = 0; i < LOCK_WAIT_ATTEMPTS; i++) {
+                sleepQuietly();
+                CachedValue<T> filled = read(redisKey, type);
+                if (filled != null) return filled.value();
+            }
+        }
+
+        try {
+            T value;
+            try {
+                value = loader.get();
+            } catch (RuntimeException e) {
+                if (stale != null) {
+                    log.warn("⚠️ [CATALOG-CACHE] Tải {} thất bại, trả dữ liệu cũ: {}", redisKey, e.getMessage());
+                    return stale.value();
+                }
+                throw e;
+            }
+            write(region, redisKey, value);
+            return value;
+        } finally {
+            if (locked) unlock(lockKey);
+        }
+    }
+
+    private <T> CachedValue<T> read(String redisKey, TypeReference<T> type) {
+        try {
+            String raw = redisTemplate.opsForValue().get(redisKey);
+            if (raw == null) return null;
+            JsonNode node = objectMapper.readTree(raw);
+            T value = objectMapper.convertValue(node.get("payload"), type);
+            boolean fresh = node.get("freshUntil").asLong() > System.currentTimeMillis();
+            return new CachedValue<>(value, fresh);
+        } catch (Exception e) {
+            log.warn("⚠️ [CATALOG-CACHE] Không đọc được {} từ Redis: {}", redisKey, e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(String region, String redisKey, Object value) {
+        try {
+            ObjectNode node = objectMapper.createObjectNode();
+            node.put("freshUntil", System.currentTimeMillis() + ttlSeconds * 1000);
+            node.set("payload", objectMapper.valueToTree(value));
+            Duration hardTtl = Duration.ofSeconds(ttlSeconds + staleSeconds);
+            redisTemplate.opsForValue().set(redisKey, objectMapper.writeValueAsString(node), hardTtl);
+
+            String indexKey = KEY_PREFIX + region + INDEX_SUFFIX;
+            redisTemplate.opsForSet().add(indexKey, redisKey);
+            redisTemplate.expire(indexKey, hardTtl);
+        } catch (Exception e) {
+            log.warn("⚠️ [CATALOG-CACHE] Không ghi được {} vào Redis: {}", redisKey, e.getMessage());
+        }
+    }
+
+    private boolean tryLock(String lockKey) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(lockKey, "1", LOCK_TTL));
+        } catch (Exception e) {
+            // Redis không khả dụng: chỉ còn single-flight trong node
+            return true;
+        }
+    }
+
+    private void unlock(String lockKey) {
+        try {
+            redisTemplate.delete(lockKey);
+        } catch (Exception e) {
+            log.debug("[CATALOG-CACHE] Không xóa được lock {}: {}", lockKey, e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T awaitInFlight(CompletableFuture<Object> future) {
+        try {
+            return (T) future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    private static void sleepQuietly() {
+        try {
+            Thread.sleep(LOCK_WAIT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record CachedValue<T>(T value, boolean fresh) {
+    }
+}
@@ -1,61 +1,303 @@
 package com.catshop.catshop.service;
 
+import com.catshop.catshop.exception.BadRequestException;
+import com.catshop.catshop.exception.ConflictException;
+import com.catshop.catshop.repository.jdbc.ImageFileJdbcRepository;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.coyote.BadRequestException;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * Lưu ảnh sản phẩm theo nội dung (content-addressed).
+ *
+ * Upload được đọc đúng MỘT lần: vừa ghi ra file tạm vừa tính SHA-256, sau đó đổi tên thành
+ * images/<2 ký tự đầu hash>/<hash>.<ext>. Ảnh trùng nội dung dùng chung một file.
+ * imageUrl lưu trong DB là đường dẫn public "/api/images/<hash>.<ext>", không phải đường dẫn trên server.
+ *
+ * File chỉ bị xóa dưới khóa advisory exclusive của hash, sau khi kiểm tra không còn sản phẩm nào trỏ tới;
+ * transaction ghi imageUrl gọi claim() để giữ khóa shared tới khi commit (xem ImageFileJdbcRepository).
+ * File bị bỏ lại (vừa dedup lúc xóa, ghi DB lỗi, import đổi ảnh...) được dọn định kỳ bởi sweepOrphans().
+ */
 @Slf4j
 @Service
 public class FileStorageService {
 
-    @Value("${file.upload-dir}")
-    private String uploadDir;
+    public static final String PUBLIC_PREFIX = "/api/images/";
+    private static final String IMAGE_DIR = "images";
+    private static final String TMP_DIR = "tmp";
+    // <hash>.<ext> hoặc <hash>_w<width>.<ext> (thumbnail)
+    private static final Pattern FILE_NAME = Pattern.compile("^([0-9a-f]{64})(_w\\d{2,4})?\\.(jpg|png|gif|webp)$");
+    // File vừa được upload/dedup trong khoảng này thì không xóa: request đang lưu sản phẩm có thể chưa vào transaction
+    private static final Duration DELETE_GRACE = Duration.ofMinutes(10);
 
-    public String saveFile(MultipartFile file, String product_Name) throws IOException {
+    private final ImageFileJdbcRepository imageFileRepository;
+    // Xóa file được gọi cả trong afterCommit của transaction khác nên luôn cần transaction riêng
+    private final TransactionTemplate newTransaction;
+    private final String uploadDir;
+    private final ExecutorService sweeper = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("image-orphan-sweep").daemon().factory());
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    // storedAt: mtime của file gốc ngay sau lần lưu này (dedup về sau sẽ đổi mtime)
+    public record StoredImage(String hash, String extension, Path path, String url, boolean deduplicated, FileTime storedAt) {
+    }
+
+    public FileStorageService(ImageFileJdbcRepository imageFileRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${file.upload-dir}") String uploadDir) {
+        this.imageFileRepository = imageFileRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.uploadDir = uploadDir;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    public StoredImage storeImage(MultipartFile file) throws IOException {
         if (file == null || file.isEmpty()) return null;
 
         String contentType = file.getContentType();
-
-        if(!contentType.startsWith("image/")){
+        if (contentType == null || !contentType.startsWith("image/")) {
             throw new BadRequestException("Chỉ cho phép upload hình ảnh!");
         }
-        // Lấy đường dẫn tuyệt đối đến thư mục upload
-        Path folderPath = Paths.get(uploadDir).toAbsolutePath().normalize();
 
-        // Kiểm tra nếu thư mục chưa tồn tại thì tạo mới
-        if (!Files.exists(folderPath)) {
-            Files.createDirectories(folderPath);
+        Path tmpDir = root().resolve(TMP_DIR);
+        Files.createDirectories(tmpDir);
+        Path tmp = Files.createTempFile(tmpDir, "upload-", ".part");
+
+        try {
+            MessageDigest digest = sha256();
+            String extension;
+            try (InputStream in = new BufferedInputStream(file.getInputStream());
+                 DigestInputStream hashing = new DigestInputStream(in, digest);
+                 OutputStream out = Files.newOutputStream(tmp, StandardOpenOption.TRUNCATE_EXISTING)) {
+                // Xác định định dạng từ magic bytes thay vì tin Content-Type / tên file
+                in.mark(16);
+                byte[] header = in.readNBytes(12);
+                in.reset();
+                extension = detectExtension(header);
+                hashing.transferTo(out);
+            }
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = originalPath(hash, extension);
+            Files.createDirectories(target.getParent());
+
+            // Cùng hash = cùng nội dung, nên nếu hai request đua nhau thì rename đè lên cũng vô hại
+            boolean deduplicated = false;
+            if (Files.exists(target)) {
+                try {
+                    Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                    deduplicated = true;
+                    log.info("🖼️ [FILE] Ảnh trùng nội dung, dùng lại {}", target.getFileName());
+                } catch (NoSuchFileException e) {
+                    // Vừa bị xóa giữa lúc kiểm tra và lúc cập nhật: lưu bản của chính request này
+                }
+            }
+            if (!deduplicated) {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new StoredImage(hash, extension, target, PUBLIC_PREFIX + hash + "." + extension, deduplicated,
+                    Files.getLastModifiedTime(target));
+        } finally {
+            Files.deleteIfExists(tmp);
         }
+    }
 
-        // Đặt tên file: thêm timestamp để tránh trùng tên file
-        String fileName = System.currentTimeMillis() + "_" + product_Name;
+    // Đường dẫn file trên đĩa cho một tên public (ảnh gốc hoặc thumbnail); rỗng nếu tên không hợp lệ
+    public Optional<Path> resolvePublicName(String fileName) {
+        Matcher m = FILE_NAME.matcher(fileName);
+        if (!m.matches()) return Optional.empty();
+        return Optional.of(root().resolve(IMAGE_DIR).resolve(m.group(1).substring(0, 2)).resolve(fileName));
+    }
 
-        // Xác định đường dẫn cuối cùng của file cần lưu ( đường dẫn tuyệt đối ở class Paths , cụ thể phương thức get -> có thể chuyển thành tương đối và tuyệt đối , trong bài này chuyển thành tuyệt đối + filename )
-        Path targetPath = folderPath.resolve(fileName);
+    public Path originalPath(String hash, String extension) {
+        return root().resolve(IMAGE_DIR).resolve(hash.substring(0, 2)).resolve(hash + "." + extension);
+    }
 
-        // InputStream là một file, nhưng được Spring Boot giữ ở dạng nhị phân (binary data).
-        InputStream multipartFile = file.getInputStream();
-        // Ghi file từ input stream vào thư mục (ghi đè nếu trùng tên)
-        // Sử dụng lớp tiện ích ( chứa các static methods ) để thao tác với file dựa vào đường dẫn
-        Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+    public Path thumbnailPath(String hash, int width, String extension) {
+        return root().resolve(IMAGE_DIR).resolve(hash.substring(0, 2)).resolve(hash + "_w" + width + "." + extension);
+    }
 
-        // Trả về đường dẫn file đã lưu (để controller trả về client)
-        return targetPath.toString();
+    // Hash của một imageUrl public; rỗng với ảnh cũ (đường dẫn tuyệt đối) hoặc url không hợp lệ
+    public static Optional<String> hashOf(String imageUrl) {
+        if (imageUrl == null || !imageUrl.startsWith(PUBLIC_PREFIX)) return Optional.empty();
+        Matcher m = FILE_NAME.matcher(imageUrl.substring(PUBLIC_PREFIX.length()));
+        return m.matches() ? Optional.of(m.group(1)) : Optional.empty();
     }
 
-    public void deleteFile(String filePath) {
+    // Gọi trong transaction ghi imageUrl = image.url(): giữ khóa shared tới khi commit để file không bị xóa,
+    // và chắc chắn file còn đó (có thể đã bị dọn giữa lúc upload dedup và lúc vào transaction)
+    public void claim(StoredImage image) {
+        if (image == null) return;
+        imageFileRepository.lockShared(image.hash());
+        if (!Files.exists(image.path())) {
+            throw new ConflictException("Ảnh vừa bị dọn dẹp trong lúc lưu, vui lòng upload lại");
+        }
+    }
+
+    // Như claim() cho các imageUrl ghi thẳng (import); khóa theo thứ tự hash
+    public void claimUrls(Collection<String> imageUrls) {
+        imageUrls.stream().map(FileStorageService::hashOf).flatMap(Optional::stream)
+                .distinct().sorted().forEach(imageFileRepository::lockShared);
+    }
+
+    // Xóa ảnh gốc + thumbnail của một imageUrl nếu không còn sản phẩm nào dùng. Ảnh cũ (đường dẫn tuyệt đối) được xóa như trước.
+    // Ảnh vừa upload/dedup trong DELETE_GRACE được để lại cho sweepOrphans().
+    public void deleteFile(String imageUrl) {
+        if (imageUrl == null) return;
+        if (!imageUrl.startsWith(PUBLIC_PREFIX)) {
+            try {
+                Files.deleteIfExists(Paths.get(imageUrl));
+            } catch (IOException | InvalidPathException e) {
+                log.warn("Không thể xóa file: " + imageUrl);
+            }
+            return;
+        }
+        hashOf(imageUrl).ifPresent(hash -> deleteIfUnused(hash, FileStorageService::pastGrace));
+    }
+
+    // Hoàn tác một lần lưu khi ghi DB thất bại: chỉ xóa file do chính lần lưu này tạo ra
+    // và chưa có upload nào dedup vào sau đó (dedup đổi mtime)
+    public void discard(StoredImage image) {
+        if (image == null || image.deduplicated()) return;
+        deleteIfUnused(image.hash(), modified -> modified.equals(image.storedAt()));
+    }
+
+    @Scheduled(fixedDelayString = "${file.orphan-sweep-interval-ms:21600000}",
+            initialDelayString = "${file.orphan-sweep-interval-ms:21600000}")
+    public void scheduledSweep() {
+        if (!sweeping.compareAndSet(false, true)) return;
+        sweeper.execute(() -> {
+            try {
+                sweepOrphans();
+            } catch (Exception e) {
+                log.error("❌ [FILE] Dọn ảnh orphan thất bại: {}", e.getMessage());
+            } finally {
+                sweeping.set(false);
+            }
+        });
+    }
+
+    // Xóa ảnh (kèm thumbnail) không còn sản phẩm nào trỏ tới và file tạm upload dở, đều đã quá DELETE_GRACE
+    public int sweepOrphans() throws IOException {
+        int deleted = 0;
+        Path images = root().resolve(IMAGE_DIR);
+        if (Files.isDirectory(images)) {
+            try (DirectoryStream<Path> shards = Files.newDirectoryStream(images, Files::isDirectory)) {
+                for (Path shard : shards) {
+                    Set<String> candidates = new TreeSet<>();
+                    try (DirectoryStream<Path> files = Files.newDirectoryStream(shard)) {
+                        for (Path p : files) {
+                            Matcher m = FILE_NAME.matcher(p.getFileName().toString());
+                            if (m.matches() && pastGrace(Files.getLastModifiedTime(p))) candidates.add(m.group(1));
+                        }
+                    }
+                    if (candidates.isEmpty()) continue;
+                    candidates.removeAll(imageFileRepository.findReferenced(candidates));
+                    for (String hash : candidates) {
+                        if (deleteIfUnused(hash, FileStorageService::pastGrace)) deleted++;
+                    }
+                }
+            }
+        }
+        Path tmpDir = root().resolve(TMP_DIR);
+        if (Files.isDirectory(tmpDir)) {
+            try (DirectoryStream<Path> parts = Files.newDirectoryStream(tmpDir, "upload-*.part")) {
+                for (Path p : parts) {
+                    if (pastGrace(Files.getLastModifiedTime(p))) Files.deleteIfExists(p);
+                }
+            }
+        }
+        if (deleted > 0) log.info("🧹 [FILE] Đã xóa {} ảnh không còn sản phẩm nào dùng", deleted);
+        return deleted;
+    }
+
+    // Kiểm tra tham chiếu và xóa dưới khóa exclusive của hash: transaction đang trỏ vào hash (claim) phải commit
+    // xong trước, và sau đó tham chiếu của nó đã nhìn thấy được. canDelete nhận mtime của ảnh gốc.
+    private boolean deleteIfUnused(String hash, Predicate<FileTime> canDelete) {
         try {
-            Path path = Paths.get(filePath);
-            Files.deleteIfExists(path);
-        } catch (IOException e) {
-            log.warn("Không thể xóa file: " + filePath);
+            return Boolean.TRUE.equals(newTransaction.execute(status -> {
+                imageFileRepository.lockExclusive(hash);
+                if (imageFileRepository.isReferenced(hash)) return false;
+                List<Path> files = new ArrayList<>();
+                try (DirectoryStream<Path> siblings = Files.newDirectoryStream(shardDir(hash), hash + "*")) {
+                    for (Path p : siblings) {
+                        Matcher m = FILE_NAME.matcher(p.getFileName().toString());
+                        if (!m.matches()) continue;
+                        // Thumbnail không còn ảnh gốc thì xóa luôn; ảnh gốc theo điều kiện của người gọi
+                        if (m.group(2) == null && !canDelete.test(Files.getLastModifiedTime(p))) return false;
+                        files.add(p);
+                    }
+                    for (Path p : files) Files.deleteIfExists(p);
+                } catch (NoSuchFileException e) {
+                    return false;
+                } catch (IOException e) {
+                    log.warn("Không thể xóa ảnh {}: {}", hash, e.getMessage());
+                    return false;
+                }
+                return !files.isEmpty();
+            }));
+        } catch (RuntimeException e) {
+            log.warn("Không thể xóa ảnh {}: {}", hash, e.getMessage());
+            return false;
         }
     }
 
+    private static boolean pastGrace(FileTime modified) {
+        return modified.toInstant().isBefore(Instant.now().minus(DELETE_GRACE));
+    }
+
+    private Path shardDir(String hash) {
+        return root().resolve(IMAGE_DIR).resolve(hash.substring(0, 2));
+    }
+
+    private Path root() {
+        return Paths.get(uploadDir).toAbsolutePath().normalize();
+    }
+
+    private static String detectExtension(byte[] h) {
+        if (h.length >= 3 && (h[0] & 0xFF) == 0xFF && (h[1] & 0xFF) == 0xD8 && (h[2] & 0xFF) == 0xFF) return "jpg";
+        if (h.length >= 4 && (h[0] & 0xFF) == 0x89 && h[1] == 'P' && h[2] == 'N' && h[3] == 'G') return "png";
+        if (h.length >= 3 && h[0] == 'G' && h[1] == 'I' && h[2] == 'F') return "gif";
+        if (h.length >= 12 && h[0] == 'R' && h[1] == 'I' && h[2] == 'F' && h[3] == 'F'
+                && h[8] == 'W' && h[9] == 'E' && h[10] == 'B' && h[11] == 'P') return "webp";
+        throw new BadRequestException("Định dạng ảnh không được hỗ trợ (chỉ JPEG, PNG, GIF, WEBP)");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -0,0 +1,189 @@
+package com.catshop.catshop.service;
+
+import com.catshop.catshop.repository.jdbc.IdempotencyJdbcRepository;
+import com.catshop.catshop.repository.jdbc.IdempotencyJdbcRepository.StoredResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lưu trạng thái của Idempotency-Key: đang xử lý (kèm fingerprint của request) hoặc đã xong (kèm response).
+ * Dùng Redis; khi Redis mất kết nối thì chuyển sang bảng idempotency_keys.
+ *
+ * Khóa IN_PROGRESS là lease lock-seconds được node đang chạy request gia hạn mỗi renew-interval-ms tới khi
+ * complete / abandon, nên request chạy lâu hơn lock-seconds không bị request retry chạy lại lần nữa.
+ * lock-seconds chỉ còn là thời gian chờ khi node chết giữa chừng.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IdempotencyService {
+
+    public static final String IN_PROGRESS = "IN_PROGRESS";
+    public static final String COMPLETED = "COMPLETED";
+
+    private static final String KEY_PREFIX = "idem:";
+    private static final int MAX_BEGIN_ATTEMPTS = 3;
+
+    // Chỉ xóa nếu key vẫn là bản IN_PROGRESS của chính request này
+    private static final DefaultRedisScript<Long> DELETE_IF_SAME = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end
+            return 0
+            """, Long.class);
+
+    // Gia hạn nếu key vẫn là bản IN_PROGRESS của chính request này
+    private static final DefaultRedisScript<Long> EXTEND_IF_SAME = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final IdempotencyJdbcRepository idempotencyJdbcRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    // Request đầu tiên giữ key tối đa bao lâu (phòng node chết giữa chừng)
+    @Value("${idempotency.lock-seconds:60}")
+    private long lockSeconds;
+
+    // Key đang được request trên node này xử lý, để gia hạn định kỳ
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+    public enum Outcome { ACQUIRED, IN_PROGRESS, REPLAY, MISMATCH }
+
+    public record Decision(Outcome outcome, StoredResponse response) {
+    }
+
+    // inDb: khóa được giành trong bảng idempotency_keys (Redis lỗi lúc begin)
+    private record Lease(String fingerprint, boolean inDb) {
+    }
+
+    // Giành quyền xử lý key, hoặc cho biết request trước đang chạy / đã có kết quả / khác nội dung
+    public Decision begin(String scopeKey, String fingerprint) {
+        for (int attempt = 0; attempt < MAX_BEGIN_ATTEMPTS; attempt++) {
+            Optional<Decision> decision;
+            try {
+                decision = beginInRedis(scopeKey, fingerprint);
+            } catch (RedisConnectionFailureException e) {
+                log.warn("⚠️ [IDEMPOTENCY] Redis không khả dụng, dùng DB: {}", e.getMessage());
+                decision = beginInDb(scopeKey, fingerprint);
+            }
+            // Rỗng: key vừa hết hạn giữa hai bước, thử lại
+            if (decision.isPresent()) return decision.get();
+        }
+        return new Decision(Outcome.IN_PROGRESS, null);
+    }
+
+    public void complete(String scopeKey, String fingerprint, int status, String contentType, String body) {
+        leases.remove(scopeKey);
+        StoredResponse response = new StoredResponse(COMPLETED, fingerprint, status, contentType, body);
+        try {
+            redisTemplate.opsForValue().set(KEY_PREFIX + scopeKey, write(response), Duration.ofHours(ttlHours));
+        } catch (RedisConnectionFailureException e) {
+            log.warn("⚠️ [IDEMPOTENCY] Redis không khả dụng, lưu kết quả vào DB: {}", e.getMessage());
+            idempotencyJdbcRepository.complete(scopeKey, response, LocalDateTime.now().plusHours(ttlHours));
+        }
+    }
+
+    // Request lỗi (5xx / exception): bỏ khóa để client thử lại với cùng key
+    public void abandon(String scopeKey, String fingerprint) {
+        leases.remove(scopeKey);
+        try {
+            redisTemplate.execute(DELETE_IF_SAME, List.of(KEY_PREFIX + scopeKey), write(inProgress(fingerprint)));
+        } catch (RedisConnectionFailureException e) {
+            idempotencyJdbcRepository.delete(scopeKey, fingerprint);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.renew-interval-ms:20000}")
+    public void renewLeases() {
+        Duration lock = Duration.ofSeconds(lockSeconds);
+        leases.forEach((scopeKey, lease) -> {
+            try {
+                boolean held = lease.inDb()
+                        ? idempotencyJdbcRepository.extend(scopeKey, lease.fingerprint(), LocalDateTime.now().plus(lock))
+                        : Long.valueOf(1).equals(redisTemplate.execute(EXTEND_IF_SAME, List.of(KEY_PREFIX + scopeKey),
+                                write(inProgress(lease.fingerprint())), String.valueOf(lock.toMillis())));
+                // complete / abandon có thể vừa chạy xong: chỉ cảnh báo nếu request vẫn đang giữ lease
+                if (!held && leases.remove(scopeKey, lease)) {
+                    log.warn("⚠️ [IDEMPOTENCY] Mất khóa của {} khi request còn đang chạy", scopeKey);
+                }
+            } catch (Exception e) {
+                log.warn("⚠️ [IDEMPOTENCY] Không gia hạn được khóa {}: {}", scopeKey, e.getMessage());
+            }
+        });
+    }
+
+    @Scheduled(fixedDelay = 3_600_000, initialDelay = 60_000)
+    public void purgeExpired() {
+        try {
+            int deleted = idempotencyJdbcRepository.purgeExpired();
+            if (deleted > 0) log.info("🧹 [IDEMPOTENCY] Đã xóa {} key hết hạn trong DB", deleted);
+        } catch (Exception e) {
+            log.warn("⚠️ [IDEMPOTENCY] Không xóa được key hết hạn: {}", e.getMessage());
+        }
+    }
+
+    private Optional<Decision> beginInRedis(String scopeKey, String fingerprint) {
+        String redisKey = KEY_PREFIX + scopeKey;
+        Boolean acquired = redisTemplate.opsForValue()
+                .setIfAbsent(redisKey, write(inProgress(fingerprint)), Duration.ofSeconds(lockSeconds));
+        if (Boolean.TRUE.equals(acquired)) {
+            leases.put(scopeKey, new Lease(fingerprint, false));
+            return Optional.of(new Decision(Outcome.ACQUIRED, null));
+        }
+        String raw = redisTemplate.opsForValue().get(redisKey);
+        if (raw == null) return Optional.empty();
+        return Optional.of(decide(read(raw), fingerprint));
+    }
+
+    private Optional<Decision> beginInDb(String scopeKey, String fingerprint) {
+        if (idempotencyJdbcRepository.acquire(scopeKey, fingerprint, LocalDateTime.now().plusSeconds(lockSeconds))) {
+            leases.put(scopeKey, new Lease(fingerprint, true));
+            return Optional.of(new Decision(Outcome.ACQUIRED, null));
+        }
+        return idempotencyJdbcRepository.find(scopeKey).map(existing -> decide(existing, fingerprint));
+    }
+
+    private static Decision decide(StoredResponse existing, String fingerprint) {
+        if (!existing.fingerprint().equals(fingerprint)) return new Decision(Outcome.MISMATCH, null);
+        if (COMPLETED.equals(existing.state())) return new Decision(Outcome.REPLAY, existing);
+        return new Decision(Outcome.IN_PROGRESS, null);
+    }
+
+    private static StoredResponse inProgress(String fingerprint) {
+        return new StoredResponse(IN_PROGRESS, fingerprint, 0, null, null);
+    }
+
+    private String write(StoredResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private StoredResponse read(String raw) {
+        try {
+            return objectMapper.readValue(raw, StoredResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Dữ liệu idempotency hỏng: " + e.getMessage(), e);
+        }
+    }
+}
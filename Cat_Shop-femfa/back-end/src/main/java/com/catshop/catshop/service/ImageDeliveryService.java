@@ -0,0 +1,257 @@
+package com.catshop.catshop.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Trả file ảnh sản phẩm (ảnh gốc + thumbnail) lưu theo nội dung.
+ *
+ * - Tên file chứa hash nên nội dung không bao giờ đổi: ETag mạnh = tên file, cache immutable 1 năm.
+ * - Hỗ trợ If-None-Match (304) và Range một khoảng (206 / 416).
+ * - Ghi body bằng sendfile của Tomcat nếu connector hỗ trợ, nếu không thì FileChannel.transferTo:
+ *   dữ liệu không đi qua heap. Riêng thumbnail nhỏ hay dùng được giữ trong một LRU nhỏ.
+ */
+@Slf4j
+@Service
+public class ImageDeliveryService {
+
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final Pattern RANGE = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+    private static final Pattern THUMBNAIL = Pattern.compile("^([0-9a-f]{64})_w(\\d+)\\.jpg$");
+    // Attribute của Tomcat NIO connector cho sendfile
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final FileStorageService fileStorageService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ThumbnailCache thumbnailCache;
+
+    public ImageDeliveryService(FileStorageService fileStorageService,
+                                ImageDerivativeService imageDerivativeService,
+                                @Value("${image.serve.thumbnail-cache-bytes:8388608}") long cacheBytes,
+                                @Value("${image.serve.thumbnail-max-bytes:65536}") int maxEntryBytes) {
+        this.fileStorageService = fileStorageService;
+        this.imageDerivativeService = imageDerivativeService;
+        this.thumbnailCache = new ThumbnailCache(cacheBytes, maxEntryBytes);
+    }
+
+    public void serve(String fileName, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<Path> resolved = fileStorageService.resolvePublicName(fileName);
+        if (resolved.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Path path = resolved.get();
+        String etag = "\"" + fileName.substring(0, fileName.lastIndexOf('.')) + "\"";
+
+        // ETag chỉ phụ thuộc tên file nên trả 304 được mà không cần chạm đĩa
+        if (matchesEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            writeCacheHeaders(response, etag);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] cached = thumbnailCache.get(fileName);
+        long length;
+        if (cached != null) {
+            length = cached.length;
+        } else if (Files.isRegularFile(path)) {
+            length = Files.size(path);
+        } else {
+            handleMissing(fileName, response);
+            return;
+        }
+
+        writeCacheHeaders(response, etag);
+        response.setContentType(contentType(fileName));
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] bounds = parseRange(range, length);
+            if (bounds == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod())) return;
+
+        if (cached != null) {
+            response.getOutputStream().write(cached, (int) start, (int) count);
+            return;
+        }
+        if (cacheable(fileName, length)) {
+            byte[] bytes = Files.readAllBytes(path);
+            thumbnailCache.put(fileName, bytes);
+            response.getOutputStream().write(bytes, (int) start, (int) count);
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat tự gửi file bằng sendfile sau khi request kết thúc
+            request.setAttribute(SENDFILE_FILENAME, path.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) break;
+                position += sent;
+                remaining -= sent;
+            }
+            out.flush();
+        }
+    }
+
+    // Thumbnail chưa sinh xong: chuyển tạm sang ảnh gốc (không cache) và xếp hàng sinh thumbnail
+    private void handleMissing(String fileName, HttpServletResponse response) throws IOException {
+        Matcher m = THUMBNAIL.matcher(fileName);
+        if (m.matches()) {
+            String hash = m.group(1);
+            Optional<Path> original = findOriginal(hash);
+            if (original.isPresent()) {
+                String name = original.get().getFileName().toString();
+                imageDerivativeService.generateAsync(hash, name.substring(name.lastIndexOf('.') + 1));
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+                response.sendRedirect(FileStorageService.PUBLIC_PREFIX + name);
+                return;
+            }
+        }
+        response.sendError(HttpServletResponse.SC_NOT_FOUND);
+    }
+
+    private Optional<Path> findOriginal(String hash) throws IOException {
+        Path dir = fileStorageService.originalPath(hash, "jpg").getParent();
+        if (!Files.isDirectory(dir)) return Optional.empty();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, hash + ".*")) {
+            for (Path p : files) return Optional.of(p);
+        }
+        return Optional.empty();
+    }
+
+    private boolean cacheable(String fileName, long length) {
+        return THUMBNAIL.matcher(fileName).matches() && thumbnailCache.accepts(length);
+    }
+
+    private static void writeCacheHeaders(HttpServletResponse response, String etag) {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+    }
+
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.startsWith("W/")) c = c.substring(2);
+            if (c.equals("*") || c.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    // {start, end} cho một khoảng hợp lệ, {} nếu header không dùng được (bỏ qua, trả cả file), null nếu 416
+    private static long[] parseRange(String header, long length) {
+        Matcher m = RANGE.matcher(header.trim());
+        if (!m.matches()) return new long[0];
+        String first = m.group(1);
+        String last = m.group(2);
+        try {
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                if (last.isEmpty()) return new long[0];
+                long suffix = Long.parseLong(last);
+                if (suffix == 0) return null;
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+            if (start >= length || start > end) return null;
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    private static String contentType(String fileName) {
+        String ext = fileName.substring(fileName.lastIndexOf('.') + 1);
+        return switch (ext) {
+            case "png" -> "image/png";
+            case "gif" -> "image/gif";
+            case "webp" -> "image/webp";
+            default -> "image/jpeg";
+        };
+    }
+
+    // LRU theo tổng số byte cho các thumbnail nhỏ
+    private static final class ThumbnailCache {
+        private final long capacityBytes;
+        private final int maxEntryBytes;
+        private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(64, 0.75f, true);
+        private long sizeBytes = 0;
+
+        ThumbnailCache(long capacityBytes, int maxEntryBytes) {
+            this.capacityBytes = capacityBytes;
+            this.maxEntryBytes = maxEntryBytes;
+        }
+
+        boolean accepts(long length) {
+            return capacityBytes > 0 && length <= maxEntryBytes;
+        }
+
+        synchronized byte[] get(String key) {
+            return entries.get(key);
+        }
+
+        synchronized void put(String key, byte[] value) {
+            byte[] old = entries.put(key, value);
+            sizeBytes += value.length - (old != null ? old.length : 0);
+            var it = entries.entrySet().iterator();
+            while (sizeBytes > capacityBytes && it.hasNext()) {
+                Map.Entry<String, byte[]> eldest = it.next();
+                sizeBytes -= eldest.getValue().length;
+                it.remove();
+            }
+        }
+    }
+}
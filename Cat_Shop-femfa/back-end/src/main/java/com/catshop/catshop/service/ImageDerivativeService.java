@@ -0,0 +1,148 @@
+package com.catshop.catshop.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sinh thumbnail cho ảnh sản phẩm trên một pool thread có giới hạn, ngoài luồng request.
+ *
+ * Thumbnail được đặt tên theo hash ảnh gốc nên sinh lại là idempotent; hàng đợi đầy thì bỏ qua
+ * (ảnh gốc vẫn dùng được, lần upload/rebuild sau sẽ sinh lại).
+ * JDK ImageIO không ghi được WebP nên thumbnail được xuất dạng JPEG.
+ */
+@Slf4j
+@Service
+public class ImageDerivativeService {
+
+    public static final String THUMBNAIL_EXTENSION = "jpg";
+    // Bỏ qua ảnh quá lớn để tránh "decompression bomb" chiếm hết heap
+    private static final long MAX_PIXELS = 40_000_000L;
+
+    private final FileStorageService fileStorageService;
+    private final List<Integer> widths;
+    private final ThreadPoolExecutor executor;
+
+    public ImageDerivativeService(FileStorageService fileStorageService,
+                                  @Value("${image.thumbnail.widths:200,600}") String widths,
+                                  @Value("${image.thumbnail.threads:2}") int threads,
+                                  @Value("${image.thumbnail.queue-capacity:100}") int queueCapacity) {
+        this.fileStorageService = fileStorageService;
+        this.widths = Arrays.stream(widths.split(",")).map(String::trim).map(Integer::parseInt).sorted().toList();
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "image-thumb-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                (r, pool) -> log.warn("⚠️ [THUMBNAIL] Hàng đợi đầy, bỏ qua một ảnh"));
+        ImageIO.setUseCache(false);
+    }
+
+    public List<Integer> getWidths() {
+        return widths;
+    }
+
+    public void generateAsync(String hash, String extension) {
+        executor.execute(() -> generate(hash, extension));
+    }
+
+    public void generate(String hash, String extension) {
+        Path original = fileStorageService.originalPath(hash, extension);
+        try {
+            if (widths.stream().allMatch(w -> Files.exists(fileStorageService.thumbnailPath(hash, w, THUMBNAIL_EXTENSION)))) {
+                return;
+            }
+            BufferedImage source = read(original);
+            if (source == null) {
+                log.debug("[THUMBNAIL] Không đọc được {} bằng ImageIO, bỏ qua", original.getFileName());
+                return;
+            }
+            for (int width : widths) {
+                Path target = fileStorageService.thumbnailPath(hash, width, THUMBNAIL_EXTENSION);
+                if (Files.exists(target)) continue;
+                BufferedImage resized = resize(source, Math.min(width, source.getWidth()));
+                Path tmp = Files.createTempFile(target.getParent(), "thumb-", ".part");
+                try {
+                    ImageIO.write(resized, "jpg", tmp.toFile());
+                    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+            }
+            log.debug("[THUMBNAIL] Đã sinh thumbnail cho {}", original.getFileName());
+        } catch (Exception e) {
+            log.warn("⚠️ [THUMBNAIL] Lỗi sinh thumbnail cho {}: {}", original.getFileName(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static BufferedImage read(Path path) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            if (in == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) {
+                    log.warn("⚠️ [THUMBNAIL] Ảnh {} quá lớn, bỏ qua", path.getFileName());
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Thu nhỏ từng bước một nửa rồi mới về kích thước đích: nhanh hơn bicubic một lần mà vẫn mịn
+    private static BufferedImage resize(BufferedImage source, int targetWidth) {
+        int targetHeight = Math.max(1, (int) Math.round((double) source.getHeight() * targetWidth / source.getWidth()));
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        do {
+            w = Math.max(targetWidth, w / 2);
+            h = Math.max(targetHeight, h / 2);
+            BufferedImage step = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = step.createGraphics();
+            try {
+                // Nền trắng cho ảnh PNG/GIF trong suốt vì JPEG không có kênh alpha
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, w, h);
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = step;
+        } while (w != targetWidth || h != targetHeight);
+        return current;
+    }
+}
@@ -0,0 +1,21 @@
+package com.catshop.catshop.service;
+
+import com.catshop.catshop.dto.response.OrderArchiveResponse;
+
+import java.io.OutputStream;
+import java.time.YearMonth;
+import java.util.List;
+
+public interface OrderArchiveService {
+
+    // Chuyển các tháng cũ hơn horizon ra file nén rồi xóa khỏi bảng chính, trả về các tháng đã xử lý
+    List<OrderArchiveResponse> archiveColdMonths();
+
+    List<OrderArchiveResponse> listArchives();
+
+    // Có file archive đọc được cho tháng này không (kiểm tra trước khi bắt đầu stream)
+    boolean hasArchive(YearMonth month);
+
+    // Ghi các đơn trong file archive của tháng ra out (NDJSON, mỗi dòng một đơn), lọc theo orderId / userId nếu có
+    void readArchive(YearMonth month, Long orderId, Long userId, OutputStream out);
+}
@@ -2,6 +2,8 @@ package com.catshop.catshop.service;
 
 import com.catshop.catshop.dto.request.OrderDetailRequest;
 import com.catshop.catshop.dto.response.OrderDetailResponse;
+
+import java.time.LocalDate;
 import java.util.List;
 
 public interface OrderDetailService {
@@ -23,4 +25,10 @@ public interface OrderDetailService {
     Double getOrderTotal(Long orderId);
 
     Double getTotalRevenue(); // Admin thống kê doanh thu
+
+    // {productId, productName, số lượng, doanh thu} trong [from, to), null = không giới hạn
+    List<Object[]> getRevenueByProduct(LocalDate from, LocalDate to);
+
+    // {categoryId, categoryName, số lượng, doanh thu} trong [from, to), null = không giới hạn
+    List<Object[]> getRevenueByCategory(LocalDate from, LocalDate to);
 }
@@ -0,0 +1,13 @@
+package com.catshop.catshop.service;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+public interface OrderExportService {
+
+    String FORMAT_CSV = "csv";
+    String FORMAT_NDJSON = "ndjson";
+
+    // Ghi toàn bộ đơn hàng khớp điều kiện ra out theo từng dòng (csv | ndjson)
+    void export(String format, LocalDateTime from, LocalDateTime to, String status, OutputStream out);
+}
@@ -1,7 +1,12 @@
 package com.catshop.catshop.service;
 
+import com.catshop.catshop.dto.request.BulkOrderStatusRequest;
+import com.catshop.catshop.dto.request.CheckoutRequest;
 import com.catshop.catshop.dto.request.OrderRequest;
+import com.catshop.catshop.dto.response.BulkOrderStatusResponse;
+import com.catshop.catshop.dto.response.CheckoutResponse;
 import com.catshop.catshop.dto.response.OrderResponse;
+import com.catshop.catshop.dto.response.ReservationResponse;
 import java.util.List;
 
 public interface OrderService {
@@ -22,4 +27,15 @@ public interface OrderService {
     OrderResponse updateOrder(Long orderId, OrderRequest orderRequest);
     void deleteOrder(Long orderId);
 
+    // Chuyển trạng thái nhiều đơn (và tạo shipment) trong một transaction, kết quả theo từng đơn
+    BulkOrderStatusResponse bulkUpdateStatus(BulkOrderStatusRequest request);
+
+    // Checkout cả giỏ hàng: tạo order + order_details và trừ kho trong một transaction
+    CheckoutResponse checkout(Long userId, CheckoutRequest request);
+
+    // Giữ hàng trên Redis (đợt mở bán), xác nhận thành đơn hoặc trả lại
+    ReservationResponse reserve(Long userId, CheckoutRequest request);
+    CheckoutResponse confirmReservation(Long userId, String reservationId);
+    void releaseReservation(Long userId, String reservationId);
+
 }
@@ -0,0 +1,153 @@
+package com.catshop.catshop.service;
+
+import com.catshop.catshop.dto.response.TrackingEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Đẩy thay đổi trạng thái đơn hàng / shipment tới user qua Server-Sent Events, thay cho việc
+ * client gọi lại /api/orders/user/... và /api/shipments/user/... liên tục.
+ * Kết nối SSE giữ bằng async servlet (không chiếm thread khi chờ). Mỗi node chỉ giữ kết nối của
+ * client nối vào nó, nên sự kiện được phát qua Redis pub/sub để node nào đang giữ kết nối của user
+ * cũng nhận được. Redis lỗi thì chỉ giao được cho client trên node phát sự kiện.
+ */
+@Slf4j
+@Service
+public class OrderTrackingService {
+
+    public static final String CHANNEL = "tracking:status";
+    private static final String EVENT_NAME = "status";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper objectMapper;
+    private final long timeoutMs;
+    private final int maxPerUser;
+    // userId -> các kết nối SSE đang mở trên node này
+    private final Map<Long, Set<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+    public OrderTrackingService(StringRedisTemplate redisTemplate,
+                                RedisMessageListenerContainer listenerContainer,
+                                ObjectMapper objectMapper,
+                                @Value("${tracking.sse.timeout-ms:1800000}") long timeoutMs,
+                                @Value("${tracking.sse.max-per-user:5}") int maxPerUser) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.objectMapper = objectMapper;
+        this.timeoutMs = timeoutMs;
+        this.maxPerUser = maxPerUser;
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CHANNEL));
+    }
+
+    // ====================== KẾT NỐI ======================
+
+    public SseEmitter connect(Long userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        List<SseEmitter> evicted = new ArrayList<>();
+        emitters.compute(userId, (id, set) -> {
+            if (set == null) set = new CopyOnWriteArraySet<>();
+            // Quá số tab / thiết bị cho phép thì đóng kết nối cũ nhất
+            while (set.size() >= maxPerUser) {
+                SseEmitter oldest = set.iterator().next();
+                set.remove(oldest);
+                evicted.add(oldest);
+            }
+            set.add(emitter);
+            return set;
+        });
+        evicted.forEach(SseEmitter::complete);
+
+        Runnable remove = () -> remove(userId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        try {
+            emitter.send(SseEmitter.event().comment("connected").reconnectTime(5000));
+        } catch (Exception e) {
+            remove.run();
+        }
+        return emitter;
+    }
+
+    private void remove(Long userId, SseEmitter emitter) {
+        emitters.computeIfPresent(userId, (id, set) -> {
+            set.remove(emitter);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    // Comment định kỳ để proxy không cắt kết nối rảnh và phát hiện client đã đi
+    @Scheduled(fixedDelayString = "${tracking.sse.heartbeat-ms:25000}")
+    public void heartbeat() {
+        emitters.forEach((userId, set) -> set.forEach(emitter -> send(userId, emitter, SseEmitter.event().comment("ping"))));
+    }
+
+    // ====================== PHÁT SỰ KIỆN ======================
+
+    public void publish(TrackingEvent event) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(event);
+        } catch (Exception e) {
+            log.error("❌ [TRACKING] Không serialize được sự kiện: {}", e.getMessage());
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(CHANNEL, json);
+        } catch (Exception e) {
+            log.warn("⚠️ [TRACKING] Không phát được qua Redis, chỉ giao trên node này: {}", e.getMessage());
+            deliver(event.getUserId(), json);
+        }
+    }
+
+    private void onMessage(String json) {
+        try {
+            TrackingEvent event = objectMapper.readValue(json, TrackingEvent.class);
+            deliver(event.getUserId(), json);
+        } catch (Exception e) {
+            log.warn("⚠️ [TRACKING] Bỏ qua message không hợp lệ: {}", e.getMessage());
+        }
+    }
+
+    private void deliver(Long userId, String json) {
+        if (userId == null) return;
+        Set<SseEmitter> userEmitters = emitters.get(userId);
+        if (userEmitters == null) return;
+        userEmitters.forEach(emitter ->
+                send(userId, emitter, SseEmitter.event().name(EVENT_NAME).data(json, MediaType.APPLICATION_JSON)));
+    }
+
+    private void send(Long userId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (Exception e) {
+            // Client đã ngắt: bỏ kết nối, completeWithError để container giải phóng request async
+            remove(userId, emitter);
+            emitter.completeWithError(e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.catshop.catshop.service;
+
+import com.catshop.catshop.event.OutboxMessage;
+import com.catshop.catshop.repository.jdbc.OutboxJdbcRepository;
+import com.catshop.catshop.repository.jdbc.OutboxJdbcRepository.ClaimedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Giao sự kiện outbox tới các @EventListener nhận OutboxMessage, ngoài luồng request.
+ * Mỗi lượt poll nhận một lô sự kiện đầu hàng đợi của các aggregate khác nhau (SKIP LOCKED),
+ * giao song song trên pool outbox.workers luồng rồi ghi kết quả; nhiều node chạy cùng lúc chỉ chia nhau lô.
+ * Lỗi được thử lại với backoff lũy thừa, quá outbox.max-attempts thì chuyển DEAD.
+ */
+@Slf4j
+@Service
+public class OutboxDispatcher {
+
+    private static final long RETENTION_HOURS = 72;
+    private static final long MAX_RETRY_DELAY_SECONDS = 600;
+    private static final int MAX_ROUNDS_PER_RUN = 20;
+    // Chừa thời gian ghi kết quả trước khi hết hạn thuê
+    private static final long LEASE_MARGIN_MS = 2000;
+
+    private final OutboxJdbcRepository outboxJdbcRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService workers;
+    private final int batchSize;
+    private final int leaseSeconds;
+    private final int maxAttempts;
+
+    public OutboxDispatcher(OutboxJdbcRepository outboxJdbcRepository,
+                            ApplicationEventPublisher eventPublisher,
+                            ObjectMapper objectMapper,
+                            @Value("${outbox.workers:4}") int workerCount,
+                            @Value("${outbox.batch-size:100}") int batchSize,
+                            @Value("${outbox.lease-seconds:60}") int leaseSeconds,
+                            @Value("${outbox.max-attempts:10}") int maxAttempts) {
+        this.outboxJdbcRepository = outboxJdbcRepository;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.workers = Executors.newFixedThreadPool(workerCount,
+                Thread.ofPlatform().name("outbox-worker-", 0).daemon().factory());
+        this.batchSize = batchSize;
+        this.leaseSeconds = leaseSeconds;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.poll-interval-ms:500}")
+    public void dispatch() {
+        for (int round = 0; round < MAX_ROUNDS_PER_RUN; round++) {
+            List<ClaimedEvent> batch;
+            try {
+                // Câu claim tự commit: khóa dòng chỉ giữ trong câu lệnh, locked_until giữ "quyền" trong lúc giao
+                batch = outboxJdbcRepository.claim(batchSize, leaseSeconds);
+            } catch (Exception e) {
+                log.warn("⚠️ [OUTBOX] Không lấy được sự kiện, thử lại lần sau: {}", e.getMessage());
+                return;
+            }
+            if (batch.isEmpty()) return;
+
+            deliverAll(batch, System.nanoTime());
+            if (batch.size() < batchSize) return;
+        }
+    }
+
+    private void deliverAll(List<ClaimedEvent> batch, long claimedAt) {
+        List<Future<?>> futures = new ArrayList<>(batch.size());
+        for (ClaimedEvent event : batch) {
+            futures.add(workers.submit(() -> {
+                deliver(event);
+                return null;
+            }));
+        }
+
+        // Một hạn chung cho cả lô, tính từ lúc claim: quá hạn thuê thì node khác có thể đã nhận lại sự kiện
+        long deadline = claimedAt + TimeUnit.SECONDS.toNanos(leaseSeconds) - TimeUnit.MILLISECONDS.toNanos(LEASE_MARGIN_MS);
+        List<Long> done = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            ClaimedEvent event = batch.get(i);
+            try {
+                futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                done.add(event.id());
+            } catch (ExecutionException e) {
+                fail(event, e.getCause());
+            } catch (TimeoutException e) {
+                futures.get(i).cancel(true);
+                fail(event, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        try {
+            outboxJdbcRepository.markDone(done);
+        } catch (Exception e) {
+            // Hết hạn thuê các sự kiện này sẽ được giao lại, listener idempotent nên chấp nhận được
+            log.warn("⚠️ [OUTBOX] Không đánh dấu được {} sự kiện đã giao: {}", done.size(), e.getMessage());
+        }
+    }
+
+    private void deliver(ClaimedEvent event) throws Exception {
+        OutboxMessage message = new OutboxMessage(event.id(), event.aggregateType(), event.aggregateId(),
+                event.eventType(), objectMapper.readTree(event.payload()), event.createdAt(), event.attempts());
+        eventPublisher.publishEvent(message);
+    }
+
+    private void fail(ClaimedEvent event, Throwable cause) {
+        long delay = Math.min(MAX_RETRY_DELAY_SECONDS, 1L << Math.min(event.attempts(), 20));
+        String error = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+        if (event.attempts() >= maxAttempts) {
+            log.error("❌ [OUTBOX] Bỏ sự kiện #{} {} {}#{} sau {} lần thử: {}", event.id(), event.eventType(),
+                    event.aggregateType(), event.aggregateId(), event.attempts(), error);
+        } else {
+            log.warn("⚠️ [OUTBOX] Giao sự kiện #{} {} thất bại (lần {}), thử lại sau {}s: {}",
+                    event.id(), event.eventType(), event.attempts(), delay, error);
+        }
+        try {
+            outboxJdbcRepository.markFailed(event.id(), error, maxAttempts, delay);
+        } catch (Exception e) {
+            // Không ghi được thì hết hạn thuê sự kiện sẽ tự được nhận lại
+            log.warn("⚠️ [OUTBOX] Không ghi được lỗi cho sự kiện #{}: {}", event.id(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelay = 3_600_000, initialDelay = 60_000)
+    public void purgeDone() {
+        int removed = outboxJdbcRepository.purgeDone(LocalDateTime.now().minusHours(RETENTION_HOURS));
+        if (removed > 0) log.info("🧹 [OUTBOX] Đã xóa {} sự kiện đã giao", removed);
+    }
+}
@@ -0,0 +1,55 @@
+package com.catshop.catshop.service;
+
+import com.catshop.catshop.event.OrderEvents;
+import com.catshop.catshop.repository.jdbc.OutboxJdbcRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Ghi sự kiện vào outbox trong transaction của thay đổi: commit thì sự kiện chắc chắn được giao, rollback thì mất cùng.
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxJdbcRepository outboxJdbcRepository;
+
+    public record OrderEvent(long orderId, String eventType, Map<String, ?> payload) {
+    }
+
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(String aggregateType, long aggregateId, String eventType, Map<String, ?> payload) {
+        try {
+            outboxJdbcRepository.insert(aggregateType, aggregateId, eventType, objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không serialize được sự kiện " + eventType, e);
+        }
+    }
+
+    public void publishOrderEvent(long orderId, String eventType, Map<String, ?> payload) {
+        publish(OrderEvents.AGGREGATE_ORDER, orderId, eventType, payload);
+    }
+
+    // Thao tác hàng loạt: ghi cả lô bằng một batch thay vì mỗi sự kiện một câu INSERT
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publishOrderEvents(List<OrderEvent> events) {
+        List<Object[]> args = new ArrayList<>(events.size());
+        for (OrderEvent event : events) {
+            try {
+                args.add(new Object[]{OrderEvents.AGGREGATE_ORDER, event.orderId(), event.eventType(),
+                        objectMapper.writeValueAsString(event.payload())});
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Không serialize được sự kiện " + event.eventType(), e);
+            }
+        }
+        outboxJdbcRepository.insertBatch(args);
+    }
+}
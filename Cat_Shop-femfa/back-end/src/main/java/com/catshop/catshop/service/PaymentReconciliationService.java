@@ -0,0 +1,18 @@
+package com.catshop.catshop.service;
+
+import com.catshop.catshop.dto.response.CursorPageResponse;
+import com.catshop.catshop.dto.response.PaymentDiscrepancyResponse;
+import com.catshop.catshop.dto.response.ReconciliationRunResponse;
+
+import java.util.List;
+
+public interface PaymentReconciliationService {
+
+    // Bắt đầu lần đối soát mới (hoặc chạy tiếp lần đang dở) ở nền, trả về ngay
+    ReconciliationRunResponse start();
+
+    List<ReconciliationRunResponse> listRuns();
+
+    // Các đơn lệch của một lần chạy, phân trang keyset
+    CursorPageResponse<PaymentDiscrepancyResponse> getDiscrepancies(Long runId, String cursor, int size);
+}
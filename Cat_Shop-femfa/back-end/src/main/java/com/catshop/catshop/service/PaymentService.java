@@ -1,6 +1,8 @@
 package com.catshop.catshop.service;
 
+import com.catshop.catshop.dto.request.PaymentPageRequest;
 import com.catshop.catshop.dto.request.PaymentRequest;
+import com.catshop.catshop.dto.response.CursorPageResponse;
 import com.catshop.catshop.dto.response.PaymentResponse;
 
 import java.math.BigDecimal;
@@ -22,6 +24,9 @@ public interface PaymentService {
     List<PaymentResponse> getPaymentsByDateRange(LocalDateTime start, LocalDateTime end);
     List<PaymentResponse> getPaymentsByMinAmount(BigDecimal minAmount);
 
+    // Phân trang keyset (mới nhất trước) với các bộ lọc kết hợp
+    CursorPageResponse<PaymentResponse> getPaymentsPage(PaymentPageRequest request);
+
     // STATISTICS (Admin)
     BigDecimal getTotalAmount();
     BigDecimal getTotalAmountByUser(Long userId);
@@ -0,0 +1,14 @@
+package com.catshop.catshop.service;
+
+public interface PaymentWebhookService {
+
+    String RESULT_ACCEPTED = "ACCEPTED";
+    String RESULT_DUPLICATE = "DUPLICATE";
+    String RESULT_IGNORED = "IGNORED";
+
+    // Xác thực chữ ký rồi đưa sự kiện vào Redis Stream, không ghi DB; trả về ACCEPTED | DUPLICATE | IGNORED
+    String receive(byte[] body, String timestamp, String signature);
+
+    // Admin: đưa tối đa limit sự kiện cũ nhất từ payments:webhook:dead trở lại hàng đợi; trả về số sự kiện đã chuyển
+    int replayDeadLetters(int limit);
+}
@@ -0,0 +1,402 @@
+package com.catshop.catshop.service;
+
+import com.catshop.catshop.dto.request.PaymentWebhookRequest;
+import com.catshop.catshop.entity.OrderStatus;
+import com.catshop.catshop.event.OrderEvents;
+import com.catshop.catshop.repository.jdbc.PaymentWebhookJdbcRepository;
+import com.catshop.catshop.repository.jdbc.PaymentWebhookJdbcRepository.PersistedPayment;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.stream.*;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lưu sự kiện webhook thanh toán từ Redis Stream payments:webhook (consumer group, mỗi node payment.webhook.workers luồng).
+ *
+ * Mỗi lần đọc tối đa batch-size sự kiện và lưu cả lô trong một transaction (một câu SQL + outbox theo batch),
+ * commit xong mới XACK. Lô lỗi thì lưu lại từng sự kiện một để một sự kiện hỏng không kéo cả lô: sự kiện có dữ liệu
+ * sai (vi phạm ràng buộc DB, không đọc được) chuyển ngay sang payments:webhook:dead, sự kiện lỗi khác không ack,
+ * nằm trong pending list và được nhận lại (XCLAIM) sau claim-idle-ms, kể cả khi node đang giữ nó đã chết.
+ * Chống trùng cuối cùng là khóa chính của payment_webhook_events, nên xử lý lại không tạo payment trùng.
+ * Sự kiện bị giao quá max-deliveries lần cũng được chuyển sang dead letter để xem tay (và phát lại qua
+ * PaymentWebhookService.replayDeadLetters). Khi mất kết nối DB, worker ngừng đọc và ngừng XCLAIM cho đến khi DB
+ * trả lời lại: lỗi đó không phải của sự kiện nên không được làm tăng số lần giao (nếu không, vài phút mất DB
+ * sẽ đẩy mọi sự kiện pending vào dead letter, còn cổng thanh toán gửi lại thì bị coi là trùng).
+ *
+ * Stream chỉ được cắt tới message pending cũ nhất (XTRIM MINID), không bao giờ mất sự kiện chưa ack.
+ * Consumer của node đã tắt (tên theo instanceId ngẫu nhiên) được xóa khi không còn pending.
+ */
+@Slf4j
+@Service
+public class PaymentWebhookWorker {
+
+    public static final String STREAM_KEY = "payments:webhook";
+    public static final String DEAD_LETTER_KEY = "payments:webhook:dead";
+    public static final String GROUP = "payment-webhook-workers";
+    public static final String FIELD_EVENT = "event";
+    public static final String FIELD_ERROR = "error";
+
+    private static final long ERROR_BACKOFF_MS = 1000;
+
+    // KEYS: stream. ARGV: group, idle tối thiểu (ms), tiền tố tên consumer ("" = mọi consumer).
+    // Chỉ xóa consumer không còn pending (XGROUP DELCONSUMER bỏ luôn pending của nó); chạy trong script nên không
+    // có XREADGROUP nào chen vào giữa lúc kiểm tra và lúc xóa
+    private static final DefaultRedisScript<Long> PRUNE_CONSUMERS = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end
+            local ok, consumers = pcall(redis.call, 'XINFO', 'CONSUMERS', KEYS[1], ARGV[1])
+            if not ok then return 0 end
+            local minIdle = tonumber(ARGV[2])
+            local removed = 0
+            for _, c in ipairs(consumers) do
+              local info = {}
+              for i = 1, #c, 2 do info[c[i]] = c[i + 1] end
+              if info['pending'] == 0 and info['idle'] >= minIdle
+                  and string.sub(info['name'], 1, #ARGV[3]) == ARGV[3] then
+                redis.call('XGROUP', 'DELCONSUMER', KEYS[1], ARGV[1], info['name'])
+                removed = removed + 1
+              end
+            end
+            return removed
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final PaymentWebhookJdbcRepository webhookRepository;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int workerCount;
+    private final int batchSize;
+    private final long blockMs;
+    private final long claimIdleMs;
+    private final long maxDeliveries;
+    private final long consumerIdleMs;
+    private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
+    private final ExecutorService workers;
+    private volatile boolean stopping;
+    // Lần lưu gần nhất hỏng vì DB không kết nối được; xóa khi DB trả lời lại
+    private volatile boolean databaseDown;
+
+    public PaymentWebhookWorker(StringRedisTemplate redisTemplate,
+                                PaymentWebhookJdbcRepository webhookRepository,
+                                OutboxService outboxService,
+                                TransactionTemplate transactionTemplate,
+                                ObjectMapper objectMapper,
+                                @Value("${payment.webhook.workers:2}") int workerCount,
+                                @Value("${payment.webhook.batch-size:200}") int batchSize,
+                                @Value("${payment.webhook.block-ms:2000}") long blockMs,
+                                @Value("${payment.webhook.claim-idle-ms:60000}") long claimIdleMs,
+                                @Value("${payment.webhook.max-deliveries:10}") long maxDeliveries,
+                                @Value("${payment.webhook.consumer-idle-ms:3600000}") long consumerIdleMs) {
+        this.redisTemplate = redisTemplate;
+        this.webhookRepository = webhookRepository;
+        this.outboxService = outboxService;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.workerCount = workerCount;
+        this.batchSize = batchSize;
+        this.blockMs = blockMs;
+        this.claimIdleMs = claimIdleMs;
+        this.maxDeliveries = maxDeliveries;
+        this.consumerIdleMs = consumerIdleMs;
+        this.workers = Executors.newFixedThreadPool(workerCount,
+                Thread.ofPlatform().name("payment-webhook-", 0).daemon().factory());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (int i = 0; i < workerCount; i++) {
+            String consumer = instanceId + "-" + i;
+            workers.execute(() -> run(consumer));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        workers.shutdownNow();
+        try {
+            // XREADGROUP đang block tối đa block-ms
+            workers.awaitTermination(blockMs + ERROR_BACKOFF_MS, TimeUnit.MILLISECONDS);
+            Long removed = redisTemplate.execute(PRUNE_CONSUMERS, List.of(STREAM_KEY), GROUP, "0", instanceId + "-");
+            log.info("🧹 [WEBHOOK] Xóa {} consumer của node {} khỏi group", removed, instanceId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Consumer còn lại sẽ được node khác dọn khi quá consumer-idle-ms
+            log.warn("⚠️ [WEBHOOK] Không xóa được consumer của node {}: {}", instanceId, e.getMessage());
+        }
+    }
+
+    private void run(String consumer) {
+        StreamOperations<String, Object, Object> stream = redisTemplate.opsForStream();
+        boolean groupReady = false;
+        long nextClaimAt = 0;
+        while (!stopping) {
+            try {
+                if (!groupReady) {
+                    ensureGroup();
+                    groupReady = true;
+                }
+                if (databaseDown && !databaseRecovered()) {
+                    Thread.sleep(ERROR_BACKOFF_MS);
+                    continue;
+                }
+                if (System.currentTimeMillis() >= nextClaimAt) {
+                    reclaimIdle(stream, consumer);
+                    trimAcknowledged(stream);
+                    redisTemplate.execute(PRUNE_CONSUMERS, List.of(STREAM_KEY), GROUP, String.valueOf(consumerIdleMs), "");
+                    nextClaimAt = System.currentTimeMillis() + claimIdleMs;
+                }
+                if (databaseDown) continue;
+                List<MapRecord<String, Object, Object>> records = stream.read(
+                        Consumer.from(GROUP, consumer),
+                        StreamReadOptions.empty().count(batchSize).block(Duration.ofMillis(blockMs)),
+                        StreamOffset.create(STREAM_KEY, ReadOffset.lastConsumed()));
+                if (records != null && !records.isEmpty()) process(stream, records);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                if (stopping) return;
+                // Stream / group có thể đã bị xóa: tạo lại ở vòng sau
+                groupReady = false;
+                log.warn("⚠️ [WEBHOOK] Worker {} lỗi, thử lại sau: {}", consumer, e.getMessage());
+                try {
+                    Thread.sleep(ERROR_BACKOFF_MS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Chỉ một luồng cần thấy DB sống lại là mọi luồng chạy tiếp
+    private boolean databaseRecovered() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> webhookRepository.ping());
+        } catch (RuntimeException e) {
+            if (!isDatabaseOutage(e)) throw e;
+            return false;
+        }
+        if (databaseDown) {
+            databaseDown = false;
+            log.info("✅ [WEBHOOK] DB đã kết nối lại, tiếp tục xử lý sự kiện webhook");
+        }
+        return true;
+    }
+
+    private void databaseOutage(RuntimeException e) {
+        if (!databaseDown) {
+            databaseDown = true;
+            log.warn("⚠️ [WEBHOOK] Mất kết nối DB, tạm dừng đọc / nhận lại sự kiện: {}", e.getMessage());
+        }
+    }
+
+    private static boolean isDatabaseOutage(Throwable e) {
+        return e instanceof CannotCreateTransactionException || e instanceof DataAccessResourceFailureException;
+    }
+
+    private void ensureGroup() {
+        try {
+            redisTemplate.execute((RedisCallback<Object>) connection -> {
+                createGroup(connection);
+                return null;
+            });
+        } catch (Exception e) {
+            if (!isBusyGroup(e)) throw e;
+        }
+    }
+
+    // MKSTREAM: tạo group được cả khi chưa có sự kiện nào
+    private void createGroup(RedisConnection connection) {
+        connection.streamCommands().xGroupCreate(
+                STREAM_KEY.getBytes(StandardCharsets.UTF_8), GROUP, ReadOffset.from("0"), true);
+    }
+
+    private static boolean isBusyGroup(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t.getMessage() != null && t.getMessage().contains("BUSYGROUP")) return true;
+        }
+        return false;
+    }
+
+    // Nhận lại sự kiện đã giao cho consumer khác (hoặc chính nó) mà chưa ack quá claim-idle-ms
+    private void reclaimIdle(StreamOperations<String, Object, Object> stream, String consumer) {
+        PendingMessages pending = stream.pending(STREAM_KEY, GROUP, Range.unbounded(), batchSize);
+        List<RecordId> retry = new ArrayList<>();
+        List<RecordId> dead = new ArrayList<>();
+        for (PendingMessage message : pending) {
+            if (message.getElapsedTimeSinceLastDelivery().toMillis() < claimIdleMs) continue;
+            (message.getTotalDeliveryCount() >= maxDeliveries ? dead : retry).add(message.getId());
+        }
+        Duration minIdle = Duration.ofMillis(claimIdleMs);
+        if (!dead.isEmpty()) {
+            List<MapRecord<String, Object, Object>> records =
+                    stream.claim(STREAM_KEY, GROUP, consumer, minIdle, dead.toArray(RecordId[]::new));
+            for (MapRecord<String, Object, Object> record : records) {
+                deadLetter(stream, record, "Thất bại quá " + maxDeliveries + " lần");
+            }
+        }
+        if (!retry.isEmpty()) {
+            List<MapRecord<String, Object, Object>> records =
+                    stream.claim(STREAM_KEY, GROUP, consumer, minIdle, retry.toArray(RecordId[]::new));
+            if (!records.isEmpty()) {
+                log.info("🔁 [WEBHOOK] Nhận lại {} sự kiện chưa xử lý xong", records.size());
+                process(stream, records);
+            }
+        }
+    }
+
+    private void process(StreamOperations<String, Object, Object> stream, List<MapRecord<String, Object, Object>> records) {
+        // Cùng eventId trong một lô (dedup trên Redis đã hết hạn...) chỉ lưu lần đầu, ack mọi message mang nó
+        Map<String, PaymentWebhookRequest> events = new LinkedHashMap<>();
+        Map<String, List<MapRecord<String, Object, Object>>> recordsByEvent = new HashMap<>();
+        for (MapRecord<String, Object, Object> record : records) {
+            Object json = record.getValue().get(FIELD_EVENT);
+            try {
+                PaymentWebhookRequest event = objectMapper.readValue(String.valueOf(json), PaymentWebhookRequest.class);
+                events.putIfAbsent(event.getEventId(), event);
+                recordsByEvent.computeIfAbsent(event.getEventId(), k -> new ArrayList<>()).add(record);
+            } catch (Exception e) {
+                // Đã qua kiểm tra ở endpoint nên hiếm khi xảy ra; đọc lại cũng không được nên không giữ trong pending
+                deadLetter(stream, record, "Không đọc được: " + e.getMessage());
+            }
+        }
+        if (events.isEmpty()) return;
+
+        try {
+            int created = persist(new ArrayList<>(events.values()));
+            log.info("💳 [WEBHOOK] Lưu {} payment từ {} sự kiện webhook", created, events.size());
+        } catch (RuntimeException e) {
+            if (isDatabaseOutage(e)) {
+                // Cả lô vẫn trong pending; không XCLAIM cho đến khi DB trả lời lại
+                databaseOutage(e);
+                return;
+            }
+            log.warn("⚠️ [WEBHOOK] Lưu lô {} sự kiện thất bại, lưu lại từng sự kiện: {}", events.size(), e.getMessage());
+            persistEach(stream, events, recordsByEvent);
+            return;
+        }
+        acknowledge(stream, recordsByEvent.values());
+    }
+
+    // Mỗi sự kiện một transaction: sự kiện tốt được ack, chỉ sự kiện hỏng bị giữ lại hoặc vào dead letter
+    private void persistEach(StreamOperations<String, Object, Object> stream,
+                             Map<String, PaymentWebhookRequest> events,
+                             Map<String, List<MapRecord<String, Object, Object>>> recordsByEvent) {
+        int created = 0;
+        int failed = 0;
+        for (PaymentWebhookRequest event : events.values()) {
+            List<MapRecord<String, Object, Object>> eventRecords = recordsByEvent.get(event.getEventId());
+            try {
+                created += persist(List.of(event));
+            } catch (DataIntegrityViolationException e) {
+                // Dữ liệu của chính sự kiện này không lưu được (quá dài, tràn số...): thử lại cũng vô ích
+                for (MapRecord<String, Object, Object> record : eventRecords) {
+                    deadLetter(stream, record, "Vi phạm ràng buộc DB: " + e.getMostSpecificCause().getMessage());
+                }
+                continue;
+            } catch (RuntimeException e) {
+                if (isDatabaseOutage(e)) {
+                    // Mất kết nối DB: sự kiện còn lại vẫn trong pending, chờ DB trả lời lại rồi mới nhận lại
+                    databaseOutage(e);
+                    break;
+                }
+                failed++;
+                log.warn("⚠️ [WEBHOOK] Sự kiện {} lưu thất bại, để nhận lại sau: {}", event.getEventId(), e.getMessage());
+                continue;
+            }
+            acknowledge(stream, List.of(eventRecords));
+        }
+        log.info("💳 [WEBHOOK] Lưu từng sự kiện: {} payment, {} sự kiện chờ thử lại", created, failed);
+    }
+
+    private int persist(List<PaymentWebhookRequest> events) {
+        List<PersistedPayment> saved = transactionTemplate.execute(status -> {
+            List<PersistedPayment> persisted = webhookRepository.persist(events, LocalDateTime.now());
+            publishEvents(persisted);
+            return persisted;
+        });
+        return saved != null ? saved.size() : 0;
+    }
+
+    private static void acknowledge(StreamOperations<String, Object, Object> stream,
+                                    Collection<List<MapRecord<String, Object, Object>>> records) {
+        RecordId[] ids = records.stream().flatMap(List::stream).map(MapRecord::getId).toArray(RecordId[]::new);
+        if (ids.length > 0) stream.acknowledge(STREAM_KEY, GROUP, ids);
+    }
+
+    private void deadLetter(StreamOperations<String, Object, Object> stream, MapRecord<String, Object, Object> record, String reason) {
+        Map<Object, Object> value = new LinkedHashMap<>(record.getValue());
+        value.put(FIELD_ERROR, reason);
+        stream.add(StreamRecords.mapBacked(value).withStreamKey(DEAD_LETTER_KEY));
+        stream.acknowledge(STREAM_KEY, GROUP, record.getId());
+        log.error("❌ [WEBHOOK] Sự kiện {} chuyển sang {}: {}", record.getId(), DEAD_LETTER_KEY, reason);
+    }
+
+    // XTRIM MINID: bỏ các message trước message pending cũ nhất, hoặc trước message cuối đã giao nếu không còn pending.
+    // last-delivered-id phải đọc trước XPENDING: message giao sau lần đọc đó có id lớn hơn nên không bị cắt.
+    // (MAXLEN thì có thể cắt cả sự kiện chưa ack / chưa giao cho consumer nào.)
+    private void trimAcknowledged(StreamOperations<String, Object, Object> stream) {
+        String lastDelivered = null;
+        for (StreamInfo.XInfoGroup group : stream.groups(STREAM_KEY)) {
+            if (GROUP.equals(group.groupName())) lastDelivered = group.lastDeliveredId();
+        }
+        if (lastDelivered == null || "0-0".equals(lastDelivered)) return;
+        PendingMessagesSummary pending = stream.pending(STREAM_KEY, GROUP);
+        String minId = pending != null && pending.getTotalPendingMessages() > 0 ? pending.minMessageId() : lastDelivered;
+        redisTemplate.execute((RedisCallback<Object>) connection -> connection.execute("XTRIM",
+                STREAM_KEY.getBytes(StandardCharsets.UTF_8), "MINID".getBytes(StandardCharsets.UTF_8),
+                "~".getBytes(StandardCharsets.UTF_8), minId.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Cùng sự kiện như PaymentServiceImpl.createPayment / OrderServiceImpl.updateOrder, ghi bằng một batch
+    private void publishEvents(List<PersistedPayment> persisted) {
+        List<OutboxService.OrderEvent> events = new ArrayList<>();
+        for (PersistedPayment p : persisted) {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("paymentId", p.paymentId());
+            payload.put("orderId", p.orderId());
+            payload.put("previousOrderId", null);
+            payload.put("method", p.method());
+            payload.put("amount", p.amount());
+            payload.put("paymentDate", p.paymentDate());
+            payload.put("gatewayEventId", p.eventId());
+            events.add(new OutboxService.OrderEvent(p.orderId(), OrderEvents.PAYMENT_CREATED, payload));
+        }
+        Set<Long> confirmed = new HashSet<>();
+        for (PersistedPayment p : persisted) {
+            if (!p.confirmed() || !confirmed.add(p.orderId())) continue;
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("orderId", p.orderId());
+            payload.put("userId", p.userId());
+            payload.put("status", OrderStatus.CONFIRMED);
+            payload.put("previousStatus", OrderStatus.PENDING);
+            payload.put("totalAmount", p.totalAmount());
+            payload.put("orderDate", p.orderDate());
+            events.add(new OutboxService.OrderEvent(p.orderId(), OrderEvents.ORDER_UPDATED, payload));
+        }
+        outboxService.publishOrderEvents(events);
+    }
+}
@@ -0,0 +1,354 @@
+package com.catshop.catshop.service;
+
+import com.catshop.catshop.dto.response.AutocompleteResponse;
+import com.catshop.catshop.dto.response.ProductResponse;
+import com.catshop.catshop.entity.CatDetails;
+import com.catshop.catshop.entity.Product;
+import com.catshop.catshop.repository.CatDetailRepository;
+import com.catshop.catshop.repository.ProductRepository;
+import com.catshop.catshop.util.AfterCommit;
+import com.catshop.catshop.util.TextNormalizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index gợi ý (autocomplete) trong bộ nhớ cho tên sản phẩm còn hàng và giống mèo.
+ *
+ * - Từ điển các từ đã bỏ dấu nằm trong TreeMap: match tiền tố chỉ là một lần subMap.
+ * - Cho phép gõ sai nhẹ: ứng viên lấy từ index bigram của từ điển, sau đó kiểm tra
+ *   khoảng cách chỉnh sửa (Damerau-Levenshtein) giữa từ gõ và tiền tố của từ trong từ điển.
+ * - Cập nhật từng sản phẩm sau khi transaction ghi commit; rebuild định kỳ để bắt
+ *   thay đổi tồn kho từ đơn hàng và từ các node khác. Truy vấn không chạm DB.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductAutocompleteIndex {
+
+    public static final String TYPE_PRODUCT = "PRODUCT";
+    public static final String TYPE_BREED = "BREED";
+
+    // Từ gõ ngắn hơn thì chỉ match tiền tố chính xác, dài hơn thì cho sai 1 hoặc 2 ký tự
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final int TWO_EDITS_LENGTH = 8;
+    private static final int MAX_PREFIX_TERMS = 200;
+    private static final float EXACT_SCORE = 1.0f;
+    private static final float EDIT_PENALTY = 0.35f;
+
+    private final ProductRepository productRepository;
+    private final CatDetailRepository catDetailRepository;
+
+    // key gợi ý ("p:<id>" hoặc "b:<giống đã bỏ dấu>") -> gợi ý
+    private final Map<String, Entry> entries = new HashMap<>();
+    // term -> key các gợi ý chứa term
+    private final TreeMap<String, Set<String>> postings = new TreeMap<>();
+    // bigram -> term, dùng để tìm ứng viên khi gõ sai
+    private final Map<String, Set<String>> bigrams = new HashMap<>();
+    // giống mèo (đã bỏ dấu) -> các sản phẩm còn hàng thuộc giống đó
+    private final Map<String, Set<Long>> breedProducts = new HashMap<>();
+    // productId -> giống (đã bỏ dấu) đang được tính
+    private final Map<Long, String> productBreed = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // ====================== BUILD ======================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${search.autocomplete.refresh-ms:300000}",
+            initialDelayString = "${search.autocomplete.refresh-ms:300000}")
+    public void rebuild() {
+        try {
+            long start = System.currentTimeMillis();
+            List<ProductResponse> products = productRepository.findAllAvailableProducts();
+            Map<Long, String> breeds = new HashMap<>();
+            for (Object[] row : catDetailRepository.findAllBreeds()) {
+                breeds.put((Long) row[0], (String) row[1]);
+            }
+
+            lock.writeLock().lock();
+            try {
+                entries.clear();
+                postings.clear();
+                bigrams.clear();
+                breedProducts.clear();
+                productBreed.clear();
+                for (ProductResponse p : products) {
+                    addProduct(p.getProductId(), p.getProductName(), breeds.get(p.getProductId()));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            ready = true;
+            log.info("🔤 [AUTOCOMPLETE] Rebuilt {} suggestions, {} terms in {} ms",
+                    entries.size(), postings.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("⚠️ [AUTOCOMPLETE] Không build được index: {}", e.getMessage());
+        }
+    }
+
+    public void refreshAfterCommit(Long productId) {
+        AfterCommit.run(() -> refresh(productId));
+    }
+
+    public void removeAfterCommit(Long productId) {
+        AfterCommit.run(() -> remove(productId));
+    }
+
+    // Nạp lại một sản phẩm: hết hàng hoặc đã xóa thì gỡ khỏi index
+    public void refresh(Long productId) {
+        try {
+            Optional<Product> product = productRepository.findById(productId);
+            if (product.isEmpty() || product.get().getStockQuantity() == null || product.get().getStockQuantity() <= 0) {
+                remove(productId);
+                return;
+            }
+            String name = product.get().getProductName();
+            String breed = catDetailRepository.findById(productId).map(CatDetails::getBreed).orElse(null);
+
+            lock.writeLock().lock();
+            try {
+                removeProduct(productId);
+                addProduct(productId, name, breed);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ [AUTOCOMPLETE] Không cập nhật được product {}: {}", productId, e.getMessage());
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeProduct(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ====================== QUERY ======================
+
+    // Mọi từ đều phải khớp; từ cuối khớp theo tiền tố (đang gõ dở), các từ trước khớp trọn từ
+    public List<AutocompleteResponse> suggest(String query, int limit) {
+        List<String> tokens = TextNormalizer.tokenize(query);
+        if (tokens.isEmpty()) return List.of();
+
+        lock.readLock().lock();
+        try {
+            Map<String, Float> scores = null;
+            for (int i = 0; i < tokens.size(); i++) {
+                boolean last = i == tokens.size() - 1;
+                Map<String, Float> tokenScores = scoreToken(tokens.get(i), last);
+                scores = scores == null ? tokenScores : intersect(scores, tokenScores);
+                if (scores.isEmpty()) return List.of();
+            }
+
+            return scores.entrySet().stream()
+                    .map(e -> Map.entry(entries.get(e.getKey()), e.getValue()))
+                    .sorted(Comparator.<Map.Entry<Entry, Float>>comparingDouble(Map.Entry::getValue).reversed()
+                            .thenComparingInt(e -> e.getKey().text().length())
+                            .thenComparing(e -> e.getKey().text()))
+                    .limit(limit)
+                    .map(e -> new AutocompleteResponse(e.getKey().text(), e.getKey().type(), e.getKey().productId()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // key gợi ý -> điểm tốt nhất của token này
+    private Map<String, Float> scoreToken(String token, boolean prefix) {
+        Map<String, Float> termScores = new HashMap<>();
+
+        if (prefix) {
+            int count = 0;
+            for (String term : postings.subMap(token, true, token + Character.MAX_VALUE, false).keySet()) {
+                if (++count > MAX_PREFIX_TERMS) break;
+                termScores.put(term, EXACT_SCORE);
+            }
+        } else if (postings.containsKey(token)) {
+            termScores.put(token, EXACT_SCORE);
+        }
+
+        int maxEdits = token.length() < MIN_FUZZY_LENGTH ? 0 : token.length() < TWO_EDITS_LENGTH ? 1 : 2;
+        if (maxEdits > 0) {
+            for (String term : fuzzyCandidates(token)) {
+                if (termScores.containsKey(term)) continue;
+                int distance = prefix ? prefixDistance(token, term, maxEdits) : distance(token, term, maxEdits);
+                if (distance <= maxEdits) {
+                    termScores.put(term, EXACT_SCORE - EDIT_PENALTY * distance);
+                }
+            }
+        }
+
+        Map<String, Float> result = new HashMap<>();
+        termScores.forEach((term, score) -> {
+            for (String key : postings.getOrDefault(term, Set.of())) {
+                result.merge(key, score, Math::max);
+            }
+        });
+        return result;
+    }
+
+    // Các term có chung ít nhất một bigram với token
+    private Set<String> fuzzyCandidates(String token) {
+        Set<String> candidates = new HashSet<>();
+        for (String gram : bigramsOf(token)) {
+            Set<String> terms = bigrams.get(gram);
+            if (terms != null) candidates.addAll(terms);
+        }
+        return candidates;
+    }
+
+    private static Map<String, Float> intersect(Map<String, Float> a, Map<String, Float> b) {
+        Map<String, Float> result = new HashMap<>();
+        a.forEach((key, score) -> {
+            Float other = b.get(key);
+            if (other != null) result.put(key, score + other);
+        });
+        return result;
+    }
+
+    // ====================== INTERNAL ======================
+
+    // Gọi khi đang giữ write lock
+    private void addProduct(Long productId, String name, String breed) {
+        addEntry(new Entry("p:" + productId, name, TYPE_PRODUCT, productId, new HashSet<>(TextNormalizer.tokenize(name))));
+
+        String folded = breed != null ? TextNormalizer.fold(breed).trim() : "";
+        if (folded.isEmpty()) return;
+        productBreed.put(productId, folded);
+        Set<Long> owners = breedProducts.computeIfAbsent(folded, k -> new HashSet<>());
+        if (owners.isEmpty()) {
+            addEntry(new Entry("b:" + folded, breed.trim(), TYPE_BREED, null, new HashSet<>(TextNormalizer.tokenize(breed))));
+        }
+        owners.add(productId);
+    }
+
+    // Gọi khi đang giữ write lock
+    private void removeProduct(Long productId) {
+        removeEntry("p:" + productId);
+
+        String folded = productBreed.remove(productId);
+        if (folded == null) return;
+        Set<Long> owners = breedProducts.get(folded);
+        if (owners == null) return;
+        owners.remove(productId);
+        if (owners.isEmpty()) {
+            breedProducts.remove(folded);
+            removeEntry("b:" + folded);
+        }
+    }
+
+    private void addEntry(Entry entry) {
+        if (entry.terms().isEmpty()) return;
+        entries.put(entry.key(), entry);
+        for (String term : entry.terms()) {
+            Set<String> keys = postings.get(term);
+            if (keys == null) {
+                keys = new HashSet<>();
+                postings.put(term, keys);
+                for (String gram : bigramsOf(term)) {
+                    bigrams.computeIfAbsent(gram, k -> new HashSet<>()).add(term);
+                }
+            }
+            keys.add(entry.key());
+        }
+    }
+
+    private void removeEntry(String key) {
+        Entry old = entries.remove(key);
+        if (old == null) return;
+        for (String term : old.terms()) {
+            Set<String> keys = postings.get(term);
+            if (keys == null) continue;
+            keys.remove(key);
+            if (!keys.isEmpty()) continue;
+            postings.remove(term);
+            for (String gram : bigramsOf(term)) {
+                Set<String> terms = bigrams.get(gram);
+                if (terms == null) continue;
+                terms.remove(term);
+                if (terms.isEmpty()) bigrams.remove(gram);
+            }
+        }
+    }
+
+    // Bigram có đánh dấu đầu từ ("^a"). Dùng bigram thay vì trigram vì từ ngắn gõ đảo ký tự
+    // (vd. "nagn" / "ngan") không còn chung trigram nào
+    private static Set<String> bigramsOf(String term) {
+        String padded = "^" + term;
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 2 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 2));
+        }
+        return grams;
+    }
+
+    // Levenshtein giữa token và toàn bộ term; dừng sớm khi vượt maxEdits
+    private static int distance(String token, String term, int maxEdits) {
+        if (Math.abs(token.length() - term.length()) > maxEdits) return maxEdits + 1;
+        int[] row = levenshteinLastRow(token, term, maxEdits);
+        return row == null ? maxEdits + 1 : row[term.length()];
+    }
+
+    // Khoảng cách nhỏ nhất giữa token và một tiền tố bất kỳ của term
+    private static int prefixDistance(String token, String term, int maxEdits) {
+        int[] row = levenshteinLastRow(token, term, maxEdits);
+        if (row == null) return maxEdits + 1;
+        int best = Integer.MAX_VALUE;
+        for (int d : row) best = Math.min(best, d);
+        return best;
+    }
+
+    // Hàng cuối của bảng quy hoạch động (token theo hàng, term theo cột), null nếu mọi ô đều vượt maxEdits.
+    // Dùng biến thể Damerau (optimal string alignment): gõ đảo hai ký tự liền nhau chỉ tính 1 lỗi.
+    private static int[] levenshteinLastRow(String token, String term, int maxEdits) {
+        int n = term.length();
+        int[] prevPrev = new int[n + 1];
+        int[] prev = new int[n + 1];
+        int[] curr = new int[n + 1];
+        for (int j = 0; j <= n; j++) prev[j] = j;
+
+        for (int i = 1; i <= token.length(); i++) {
+            curr[0] = i;
+            int rowMin = curr[0];
+            char c = token.charAt(i - 1);
+            for (int j = 1; j <= n; j++) {
+                char t = term.charAt(j - 1);
+                int cost = c == t ? 0 : 1;
+                int value = Math.min(Math.min(curr[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && c == term.charAt(j - 2) && token.charAt(i - 2) == t) {
+                    value = Math.min(value, prevPrev[j - 2] + 1);
+                }
+                curr[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxEdits) return null;
+            int[] tmp = prevPrev;
+            prevPrev = prev;
+            prev = curr;
+            curr = tmp;
+        }
+        return prev;
+    }
+
+    private record Entry(String key, String text, String type, Long productId, Set<String> terms) {
+    }
+}
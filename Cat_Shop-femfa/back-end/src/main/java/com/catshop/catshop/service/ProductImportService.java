@@ -0,0 +1,10 @@
+package com.catshop.catshop.service;
+
+import com.catshop.catshop.dto.response.ProductImportResponse;
+import org.springframework.web.multipart.MultipartFile;
+
+public interface ProductImportService {
+
+    // ADMIN - import hàng loạt sản phẩm + chi tiết từ CSV hoặc NDJSON, trả về báo cáo lỗi theo dòng
+    ProductImportResponse importProducts(MultipartFile file, String format);
+}
@@ -0,0 +1,244 @@
+package com.catshop.catshop.service;
+
+import com.catshop.catshop.entity.CatDetails;
+import com.catshop.catshop.entity.CleaningDetail;
+import com.catshop.catshop.entity.FoodDetail;
+import com.catshop.catshop.entity.Product;
+import com.catshop.catshop.repository.CatDetailRepository;
+import com.catshop.catshop.repository.CleaningDetailRepository;
+import com.catshop.catshop.repository.FoodDetailRepository;
+import com.catshop.catshop.repository.ProductRepository;
+import com.catshop.catshop.util.AfterCommit;
+import com.catshop.catshop.util.TextNormalizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Inverted index trong bộ nhớ cho tìm kiếm sản phẩm.
+ *
+ * Index tên, mô tả sản phẩm và các trường chi tiết (CatDetails.breed, FoodDetail.ingredients,
+ * CleaningDetail.usage) sau khi bỏ dấu tiếng Việt. Điểm = tổng (trọng số trường x tf x idf).
+ * Index được cập nhật từng sản phẩm sau khi transaction ghi commit, và rebuild định kỳ
+ * để đồng bộ thay đổi từ các node khác.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float BREED_WEIGHT = 2.0f;
+    private static final float DETAIL_WEIGHT = 1.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    // Từ cuối của câu truy vấn được match theo tiền tố (gõ dở), điểm thấp hơn match trọn từ
+    private static final float PREFIX_FACTOR = 0.5f;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+
+    private final ProductRepository productRepository;
+    private final CatDetailRepository catDetailRepository;
+    private final FoodDetailRepository foodDetailRepository;
+    private final CleaningDetailRepository cleaningDetailRepository;
+
+    // term -> (productId -> trọng số)
+    private final ConcurrentSkipListMap<String, Map<Long, Float>> postings = new ConcurrentSkipListMap<>();
+    // productId -> (term -> trọng số), dùng để gỡ posting cũ khi cập nhật
+    private final Map<Long, Map<String, Float>> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // ====================== BUILD ======================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${search.index.refresh-ms:600000}",
+            initialDelayString = "${search.index.refresh-ms:600000}")
+    public void rebuild() {
+        try {
+            long start = System.currentTimeMillis();
+            Map<Long, String> breeds = catDetailRepository.findAll().stream()
+                    .filter(c -> c.getBreed() != null)
+                    .collect(Collectors.toMap(CatDetails::getCatId, CatDetails::getBreed));
+            Map<Long, String> ingredients = foodDetailRepository.findAll().stream()
+                    .filter(f -> f.getIngredients() != null)
+                    .collect(Collectors.toMap(FoodDetail::getFoodId, FoodDetail::getIngredients));
+            Map<Long, String> usages = cleaningDetailRepository.findAll().stream()
+                    .filter(c -> c.getUsage() != null)
+                    .collect(Collectors.toMap(CleaningDetail::getCleaningId, CleaningDetail::getUsage));
+
+            Map<Long, Map<String, Float>> fresh = new HashMap<>();
+            for (Product p : productRepository.findAll()) {
+                Long id = p.getProductId();
+                fresh.put(id, buildTerms(p, breeds.get(id), ingredients.get(id), usages.get(id)));
+            }
+
+            lock.writeLock().lock();
+            try {
+                postings.clear();
+                documents.clear();
+                fresh.forEach(this::addDocument);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            ready = true;
+            log.info("🔎 [SEARCH-INDEX] Rebuilt {} products, {} terms in {} ms",
+                    fresh.size(), postings.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("⚠️ [SEARCH-INDEX] Không build được index, tìm kiếm sẽ dùng DB: {}", e.getMessage());
+        }
+    }
+
+    // Index lại một sản phẩm sau khi transaction ghi commit
+    public void reindexAfterCommit(Long productId) {
+        AfterCommit.run(() -> reindex(productId));
+    }
+
+    public void removeAfterCommit(Long productId) {
+        AfterCommit.run(() -> remove(productId));
+    }
+
+    public void reindex(Long productId) {
+        try {
+            Optional<Product> product = productRepository.findById(productId);
+            if (product.isEmpty()) {
+                remove(productId);
+                return;
+            }
+            String breed = catDetailRepository.findById(productId).map(CatDetails::getBreed).orElse(null);
+            String ingredients = foodDetailRepository.findById(productId).map(FoodDetail::getIngredients).orElse(null);
+            String usage = cleaningDetailRepository.findById(productId).map(CleaningDetail::getUsage).orElse(null);
+            Map<String, Float> terms = buildTerms(product.get(), breed, ingredients, usage);
+
+            lock.writeLock().lock();
+            try {
+                removeDocument(productId);
+                addDocument(productId, terms);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ [SEARCH-INDEX] Không index lại được product {}: {}", productId, e.getMessage());
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ====================== QUERY ======================
+
+    // Trả về productId theo thứ tự điểm giảm dần; mọi từ trong truy vấn đều phải khớp
+    public List<Long> search(String query, int limit) {
+        List<String> tokens = TextNormalizer.tokenize(query);
+        if (tokens.isEmpty()) return List.of();
+
+        lock.readLock().lock();
+        try {
+            int totalDocs = Math.max(documents.size(), 1);
+            Map<Long, Float> scores = null;
+            for (int i = 0; i < tokens.size(); i++) {
+                boolean last = i == tokens.size() - 1;
+                Map<Long, Float> tokenScores = scoreToken(tokens.get(i), last, totalDocs);
+                scores = scores == null ? tokenScores : intersect(scores, tokenScores);
+                if (scores.isEmpty()) return List.of();
+            }
+
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Float>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(limit)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Float> scoreToken(String token, boolean allowPrefix, int totalDocs) {
+        Map<Long, Float> result = new HashMap<>();
+        accumulate(result, postings.get(token), 1.0f, totalDocs);
+
+        if (allowPrefix) {
+            int expanded = 0;
+            for (Map.Entry<String, Map<Long, Float>> entry
+                    : postings.subMap(token, false, token + Character.MAX_VALUE, false).entrySet()) {
+                if (++expanded > MAX_PREFIX_EXPANSIONS) break;
+                accumulate(result, entry.getValue(), PREFIX_FACTOR, totalDocs);
+            }
+        }
+        return result;
+    }
+
+    private static void accumulate(Map<Long, Float> result, Map<Long, Float> posting, float factor, int totalDocs) {
+        if (posting == null || posting.isEmpty()) return;
+        float idf = (float) Math.log(1.0 + (double) totalDocs / posting.size());
+        posting.forEach((id, weight) -> result.merge(id, weight * idf * factor, Float::sum));
+    }
+
+    private static Map<Long, Float> intersect(Map<Long, Float> a, Map<Long, Float> b) {
+        Map<Long, Float> result = new HashMap<>();
+        a.forEach((id, score) -> {
+            Float other = b.get(id);
+            if (other != null) result.put(id, score + other);
+        });
+        return result;
+    }
+
+    // ====================== INTERNAL ======================
+
+    private static Map<String, Float> buildTerms(Product p, String breed, String ingredients, String usage) {
+        Map<String, Float> terms = new HashMap<>();
+        addField(terms, p.getProductName(), NAME_WEIGHT);
+        addField(terms, breed, BREED_WEIGHT);
+        addField(terms, ingredients, DETAIL_WEIGHT);
+        addField(terms, usage, DETAIL_WEIGHT);
+        addField(terms, p.getDescription(), DESCRIPTION_WEIGHT);
+        return terms;
+    }
+
+    private static void addField(Map<String, Float> terms, String text, float weight) {
+        for (String token : TextNormalizer.tokenize(text)) {
+            terms.merge(token, weight, Float::sum);
+        }
+    }
+
+    // Gọi khi đang giữ write lock
+    private void addDocument(Long productId, Map<String, Float> terms) {
+        documents.put(productId, terms);
+        terms.forEach((term, weight) ->
+                postings.computeIfAbsent(term, k -> new HashMap<>()).put(productId, weight));
+    }
+
+    // Gọi khi đang giữ write lock
+    private void removeDocument(Long productId) {
+        Map<String, Float> old = documents.remove(productId);
+        if (old == null) return;
+        for (String term : old.keySet()) {
+            Map<Long, Float> posting = postings.get(term);
+            if (posting == null) continue;
+            posting.remove(productId);
+            if (posting.isEmpty()) postings.remove(term);
+        }
+    }
+}
@@ -1,6 +1,14 @@
 package com.catshop.catshop.service;
 
+import com.catshop.catshop.dto.request.ProductFacetRequest;
+import com.catshop.catshop.dto.request.ProductPageRequest;
 import com.catshop.catshop.dto.request.ProductRequest;
+import com.catshop.catshop.dto.request.BulkStockRequest;
+import com.catshop.catshop.dto.response.AutocompleteResponse;
+import com.catshop.catshop.dto.response.BulkStockResponse;
+import com.catshop.catshop.dto.response.CursorPageResponse;
+import com.catshop.catshop.dto.response.ProductDetailResponse;
+import com.catshop.catshop.dto.response.ProductFacetResponse;
 import com.catshop.catshop.dto.response.ProductResponse;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -12,12 +20,21 @@ public interface ProductService {
     ProductResponse createProductWithFile(ProductRequest request, MultipartFile file);
     ProductResponse updateProduct(Long id, ProductRequest request, MultipartFile file);
     void deleteProduct(Long id);
+    BulkStockResponse adjustStock(BulkStockRequest request);
 
     // CUSTOMER & ADMIN
     List<ProductResponse> getAllProducts();
     ProductResponse getProductById(Long id);
+    ProductDetailResponse getProductDetail(Long id);
     List<ProductResponse> getProductsByType(Long typeId);
     List<ProductResponse> getProductsByCategory(Long categoryId);
-    List<ProductResponse> searchProductsByName(String keyword);
+    List<ProductResponse> searchProductsByName(String keyword, int limit);
+    List<AutocompleteResponse> autocomplete(String query, int limit);
     List<ProductResponse> getProductsInPriceRange(double min, double max);
+
+    // CUSTOMER - phân trang keyset (cursor) có sắp xếp và lọc
+    CursorPageResponse<ProductResponse> getProductsPage(ProductPageRequest request);
+
+    // CUSTOMER - tìm kiếm theo facet, trả về sản phẩm + số lượng theo từng giá trị facet
+    ProductFacetResponse searchWithFacets(ProductFacetRequest request);
 }
@@ -0,0 +1,59 @@
+package com.catshop.catshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ghi nhớ user vừa ghi dữ liệu (đặt hàng, thanh toán...) để các request đọc của họ trong
+ * datasource.replica.pin-seconds giây sau đó đọc từ primary, không thấy dữ liệu cũ trên replica.
+ * Lưu trên Redis để áp dụng cho mọi node; Redis lỗi thì vẫn còn bản ghi trong bộ nhớ của node này.
+ */
+@Slf4j
+@Service
+public class ReadYourWritesService {
+
+    private static final String KEY_PREFIX = "rw:pin:";
+    private static final int MAX_LOCAL_PINS = 10_000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final long pinSeconds;
+    // userId -> hết hạn (epoch millis)
+    private final Map<Long, Long> localPins = new ConcurrentHashMap<>();
+
+    public ReadYourWritesService(StringRedisTemplate redisTemplate,
+                                 @Value("${datasource.replica.pin-seconds:5}") long pinSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.pinSeconds = pinSeconds;
+    }
+
+    public void pin(Long userId) {
+        if (pinSeconds <= 0) return;
+        long now = System.currentTimeMillis();
+        if (localPins.size() >= MAX_LOCAL_PINS) localPins.values().removeIf(until -> until < now);
+        localPins.put(userId, now + pinSeconds * 1000);
+        try {
+            redisTemplate.opsForValue().set(KEY_PREFIX + userId, "1", Duration.ofSeconds(pinSeconds));
+        } catch (Exception e) {
+            log.debug("⚠️ [DB] Không ghi được pin read-your-writes lên Redis: {}", e.getMessage());
+        }
+    }
+
+    public boolean isPinned(Long userId) {
+        Long until = localPins.get(userId);
+        if (until != null) {
+            if (until >= System.currentTimeMillis()) return true;
+            localPins.remove(userId, until);
+        }
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(KEY_PREFIX + userId));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.catshop.catshop.service;
+
+import com.catshop.catshop.entity.SalesRollup;
+import com.catshop.catshop.repository.jdbc.SalesRollupJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Bảng tổng hợp doanh thu / thanh toán theo ngày (sales_rollup_daily).
+ * Không dùng trigger trên orders/payments: trong đợt mở bán mọi đơn sẽ cùng cập nhật vài dòng
+ * rollup của hôm nay và khóa lẫn nhau. Thay vào đó job định kỳ tính lại nguyên ngày bị ảnh hưởng:
+ * - dòng mới: theo watermark id của từng bảng nguồn
+ * - sửa / xóa qua service: sự kiện outbox đánh dấu ngày trong sales_rollup_dirty
+ * - hôm nay + hôm qua luôn được tính lại, bù cho transaction commit trễ hơn watermark
+ * Rebuild toàn bộ mỗi đêm để sửa các thay đổi đi ngoài service (SQL tay, import...).
+ * Các tháng đã archive không bao giờ được tính lại: rollup là nơi duy nhất còn giữ số liệu của chúng.
+ * Đơn / payment không có ngày (order_date, payment_date NULL) không được gộp vào ngày nào; rebuild cảnh báo số lượng.
+ */
+@Slf4j
+@Service
+public class SalesRollupService {
+
+    private static final LocalDate EPOCH = LocalDate.of(1970, 1, 1);
+    private static final LocalDate END_OF_TIME = LocalDate.of(9999, 1, 1);
+    private static final List<String> SOURCES = List.of(
+            SalesRollupJdbcRepository.SOURCE_ORDERS,
+            SalesRollupJdbcRepository.SOURCE_ORDER_DETAILS,
+            SalesRollupJdbcRepository.SOURCE_PAYMENTS);
+
+    private final SalesRollupJdbcRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public SalesRollupService(SalesRollupJdbcRepository rollupRepository, TransactionTemplate transactionTemplate) {
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // Gọi từ SalesRollupEventListener sau khi thay đổi đã commit
+    public void markDirty(LocalDateTime... dates) {
+        Set<LocalDate> days = new HashSet<>();
+        for (LocalDateTime date : dates) {
+            if (date != null) days.add(date.toLocalDate());
+        }
+        rollupRepository.markDirty(days);
+    }
+
+    // ====================== CẬP NHẬT ======================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${sales.rollup.refresh-ms:60000}",
+            initialDelayString = "${sales.rollup.refresh-ms:60000}")
+    public void refresh() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!rollupRepository.tryLock()) return;
+                Map<String, Long> watermarks = rollupRepository.loadWatermarks();
+                if (!watermarks.keySet().containsAll(SOURCES)) {
+                    rebuildLocked();
+                    return;
+                }
+                refreshLocked(watermarks);
+            });
+        } catch (Exception e) {
+            log.warn("⚠️ [ROLLUP] Cập nhật rollup thất bại, thử lại lần sau: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${sales.rollup.rebuild-cron:0 30 3 * * *}")
+    public void rebuildAll() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (rollupRepository.tryLock()) rebuildLocked();
+            });
+        } catch (Exception e) {
+            log.error("❌ [ROLLUP] Rebuild rollup thất bại: {}", e.getMessage());
+        }
+    }
+
+    private void refreshLocked(Map<String, Long> watermarks) {
+        LocalDate today = LocalDate.now();
+        SortedSet<LocalDate> days = new TreeSet<>(rollupRepository.takeDirty());
+        days.add(today);
+        days.add(today.minusDays(1));
+
+        LocalDate floor = rollupRepository.archivedThrough();
+        if (floor != null) days.headSet(floor).clear();
+
+        Map<String, Long> next = new HashMap<>();
+        for (String source : SOURCES) {
+            long from = watermarks.get(source);
+            long upTo = rollupRepository.maxId(source);
+            days.addAll(rollupRepository.newDays(source, from, upTo));
+            next.put(source, Math.max(from, upTo));
+        }
+
+        // Gộp các ngày liên tiếp thành một khoảng để giảm số câu tính lại
+        LocalDate start = null;
+        LocalDate end = null;
+        for (LocalDate day : days) {
+            if (start != null && day.equals(end)) {
+                end = day.plusDays(1);
+                continue;
+            }
+            if (start != null) rollupRepository.recompute(start, end);
+            start = day;
+            end = day.plusDays(1);
+        }
+        if (start != null) rollupRepository.recompute(start, end);
+
+        next.forEach(rollupRepository::saveWatermark);
+        log.debug("🔄 [ROLLUP] Đã tính lại {} ngày", days.size());
+    }
+
+    private void rebuildLocked() {
+        long start = System.currentTimeMillis();
+        // Lấy watermark trước khi tính để dòng chèn trong lúc rebuild vẫn được lần refresh sau bắt
+        Map<String, Long> maxIds = new HashMap<>();
+        for (String source : SOURCES) maxIds.put(source, rollupRepository.maxId(source));
+
+        rollupRepository.takeDirty();
+        LocalDate floor = rollupRepository.archivedThrough();
+        rollupRepository.recompute(floor != null ? floor : EPOCH, END_OF_TIME);
+        maxIds.forEach(rollupRepository::saveWatermark);
+        long[] undated = rollupRepository.countUndated();
+        if (undated[0] > 0 || undated[1] > 0) {
+            log.warn("⚠️ [ROLLUP] Bỏ qua {} đơn không có order_date và {} payment không có payment_date",
+                    undated[0], undated[1]);
+        }
+        log.info("✅ [ROLLUP] Rebuild rollup doanh thu trong {} ms", System.currentTimeMillis() - start);
+    }
+
+    // ====================== ĐỌC ======================
+
+    // {tháng (timestamp), tổng total_amount}
+    public List<Object[]> monthlyRevenue() {
+        return rollupRepository.monthlyAmount(SalesRollup.DIM_ORDERS, "");
+    }
+
+    public List<Object[]> monthlySpending(Long userId) {
+        return rollupRepository.monthlyAmount(SalesRollup.DIM_USER, String.valueOf(userId));
+    }
+
+    // Tổng quantity * price của mọi chi tiết đơn
+    public BigDecimal totalLineRevenue() {
+        return rollupRepository.totalAmount(SalesRollup.DIM_LINES);
+    }
+
+    public BigDecimal totalPayments() {
+        return rollupRepository.totalAmount(SalesRollup.DIM_PAYMENT_METHOD);
+    }
+
+    // {method, số payment, tổng tiền}
+    public List<Object[]> paymentsByMethod() {
+        return rollupRepository.countAndSumByKey(SalesRollup.DIM_PAYMENT_METHOD);
+    }
+
+    public List<Object[]> revenueByProduct(LocalDate from, LocalDate to) {
+        return rollupRepository.revenueByProduct(from != null ? from : EPOCH, to != null ? to : END_OF_TIME);
+    }
+
+    public List<Object[]> revenueByCategory(LocalDate from, LocalDate to) {
+        return rollupRepository.revenueByCategory(from != null ? from : EPOCH, to != null ? to : END_OF_TIME);
+    }
+}
@@ -0,0 +1,130 @@
+package com.catshop.catshop.service;
+
+import com.catshop.catshop.entity.Shipment;
+import com.catshop.catshop.entity.ShipmentStatusCounter;
+import com.catshop.catshop.repository.jdbc.ShipmentCounterJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bộ đếm shipment theo trạng thái (shipment_status_counters) cho dashboard admin.
+ * Khác với sales rollup, shipment chỉ do admin tạo / sửa nên lượng ghi nhỏ: cộng / trừ ngay trong
+ * transaction của ShipmentServiceImpl / OrderServiceImpl.deleteOrder để số liệu luôn khớp. Thay đổi đi ngoài service (archive, SQL tay)
+ * được sửa bởi lần đối soát định kỳ.
+ */
+@Slf4j
+@Service
+public class ShipmentCounterService {
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final ShipmentCounterJdbcRepository counterRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public ShipmentCounterService(ShipmentCounterJdbcRepository counterRepository, TransactionTemplate transactionTemplate) {
+        this.counterRepository = counterRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // ====================== CẬP NHẬT ======================
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(LocalDateTime shippedDate, String status) {
+        recordCreated(shippedDate, status, 1);
+    }
+
+    // Nhiều shipment cùng ngày giao và trạng thái (tạo hàng loạt)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(LocalDateTime shippedDate, String status, int count) {
+        if (count <= 0) return;
+        Map<String, Map<String, Long>> deltas = new HashMap<>();
+        add(deltas, shippedDate, status, count);
+        counterRepository.apply(deltas);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordStatusChanged(LocalDateTime shippedDate, String previousStatus, String status) {
+        if (Objects.equals(previousStatus, status)) return;
+        Map<String, Map<String, Long>> deltas = new HashMap<>();
+        add(deltas, shippedDate, previousStatus, -1);
+        add(deltas, shippedDate, status, 1);
+        counterRepository.apply(deltas);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(LocalDateTime shippedDate, String status) {
+        Map<String, Map<String, Long>> deltas = new HashMap<>();
+        add(deltas, shippedDate, status, -1);
+        counterRepository.apply(deltas);
+    }
+
+    // Shipment bị xóa theo đơn (cascade khi xóa order)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(Collection<Shipment> shipments) {
+        if (shipments.isEmpty()) return;
+        Map<String, Map<String, Long>> deltas = new HashMap<>();
+        for (Shipment s : shipments) add(deltas, s.getShippedDate(), s.getStatus(), -1);
+        counterRepository.apply(deltas);
+    }
+
+    private void add(Map<String, Map<String, Long>> deltas, LocalDateTime shippedDate, String status, long delta) {
+        String key = status != null ? status : "";
+        deltas.computeIfAbsent(ShipmentStatusCounter.BUCKET_ALL, b -> new HashMap<>()).merge(key, delta, Long::sum);
+        if (shippedDate == null) return;
+        deltas.computeIfAbsent(shippedDate.format(MONTH), b -> new HashMap<>()).merge(key, delta, Long::sum);
+        deltas.computeIfAbsent(shippedDate.format(DAY), b -> new HashMap<>()).merge(key, delta, Long::sum);
+    }
+
+    // Lần chạy đầu (bảng bộ đếm còn trống) cũng đi qua đây
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        reconcile();
+    }
+
+    @Scheduled(cron = "${shipment.counters.reconcile-cron:0 15 * * * *}")
+    public void reconcile() {
+        try {
+            Integer fixed = transactionTemplate.execute(status -> counterRepository.reconcile());
+            if (fixed != null && fixed > 0) {
+                log.warn("⚠️ [SHIPMENT] Đối soát bộ đếm shipment: sửa {} dòng lệch", fixed);
+            }
+        } catch (Exception e) {
+            log.error("❌ [SHIPMENT] Đối soát bộ đếm shipment thất bại: {}", e.getMessage());
+        }
+    }
+
+    // ====================== ĐỌC ======================
+
+    public List<Object[]> countByStatus() {
+        return counterRepository.countByStatus(ShipmentStatusCounter.BUCKET_ALL);
+    }
+
+    public List<Object[]> countByStatus(YearMonth month) {
+        return counterRepository.countByStatus(month.format(MONTH));
+    }
+
+    public List<Object[]> countByStatus(LocalDate day) {
+        return counterRepository.countByStatus(day.format(DAY));
+    }
+
+    public long countInMonth(YearMonth month) {
+        return counterRepository.total(month.format(MONTH));
+    }
+}
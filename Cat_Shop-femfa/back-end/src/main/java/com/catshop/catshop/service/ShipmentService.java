@@ -3,7 +3,9 @@ package com.catshop.catshop.service;
 import com.catshop.catshop.dto.request.ShipmentRequest;
 import com.catshop.catshop.dto.response.ShipmentResponse;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
 
 public interface ShipmentService {
@@ -16,6 +18,8 @@ public interface ShipmentService {
     List<ShipmentResponse> searchByAddress(String address);
     List<ShipmentResponse> findByShippedDateBetween(LocalDateTime startDate, LocalDateTime endDate);
     List<Object[]> countShipmentsByStatus();
+    List<Object[]> countShipmentsByStatus(YearMonth month);
+    List<Object[]> countShipmentsByStatus(LocalDate day);
     List<ShipmentResponse> findByOrderId(Long orderId);
     List<ShipmentResponse> findAllByUserId(Long userId);
     Long countShipmentsInCurrentMonth();
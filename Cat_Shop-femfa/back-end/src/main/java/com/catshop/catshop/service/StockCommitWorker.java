@@ -0,0 +1,101 @@
+package com.catshop.catshop.service;
+
+import com.catshop.catshop.repository.jdbc.StockCommitJdbcRepository;
+import com.catshop.catshop.repository.jdbc.StockCommitJdbcRepository.AppliedStock;
+import com.catshop.catshop.repository.jdbc.StockCommitJdbcRepository.ApplyResult;
+import com.catshop.catshop.repository.jdbc.StockCommitJdbcRepository.RejectedCommit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trừ products.stock_quantity cho các đơn tạo từ lượt giữ hàng (bảng stock_commits).
+ * Mỗi lần chạy gom tối đa batchSize dòng thành một câu UPDATE, nên đợt mở bán hàng trăm đơn
+ * chỉ tạo vài lần khóa dòng sản phẩm thay vì một lần mỗi đơn.
+ */
+@Slf4j
+@Service
+public class StockCommitWorker {
+
+    // Dòng đã áp dụng được giữ lại một ngày cho việc khôi phục lượt giữ rồi xóa
+    private static final long RETENTION_HOURS = 24;
+    private static final int MAX_ROUNDS_PER_RUN = 20;
+
+    private final StockCommitJdbcRepository stockCommitJdbcRepository;
+    private final StockReservationService stockReservationService;
+    private final CatalogCacheService catalogCacheService;
+    private final ProductAutocompleteIndex productAutocompleteIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public StockCommitWorker(StockCommitJdbcRepository stockCommitJdbcRepository,
+                             StockReservationService stockReservationService,
+                             CatalogCacheService catalogCacheService,
+                             ProductAutocompleteIndex productAutocompleteIndex,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${stock.reservation.apply-batch-size:500}") int batchSize) {
+        this.stockCommitJdbcRepository = stockCommitJdbcRepository;
+        this.stockReservationService = stockReservationService;
+        this.catalogCacheService = catalogCacheService;
+        this.productAutocompleteIndex = productAutocompleteIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${stock.reservation.apply-interval-ms:1000}")
+    public void applyPending() {
+        // Mỗi vòng là một lô; dừng khi hết việc để không chiếm scheduler quá lâu
+        for (int round = 0; round < MAX_ROUNDS_PER_RUN; round++) {
+            ApplyResult result;
+            try {
+                result = transactionTemplate.execute(status -> stockCommitJdbcRepository.applyPending(batchSize));
+            } catch (Exception e) {
+                log.warn("⚠️ [STOCK] Trừ kho bất đồng bộ thất bại, thử lại lần sau: {}", e.getMessage());
+                return;
+            }
+            if (result == null || result.isEmpty()) return;
+
+            // Dòng bị từ chối cũng rời khỏi pending; counter của sản phẩm đó đã sai nên xóa để nạp lại từ DB
+            Map<Long, Integer> quantities = new HashMap<>();
+            for (AppliedStock a : result.applied()) {
+                quantities.merge(a.productId(), a.quantity(), Integer::sum);
+                // Vừa hết hàng: gợi ý tìm kiếm chỉ hiển thị sản phẩm còn hàng
+                if (a.newStock() <= 0 && a.newStock() + a.quantity() > 0) {
+                    productAutocompleteIndex.refreshAfterCommit(a.productId());
+                }
+            }
+            Set<Long> oversold = new HashSet<>();
+            for (RejectedCommit r : result.rejected()) {
+                quantities.merge(r.productId(), r.quantity(), Integer::sum);
+                oversold.add(r.productId());
+                log.error("❌ [STOCK] Đơn #{} không trừ được {} sản phẩm #{}: tồn kho không đủ (bán vượt), cần xử lý tay",
+                        r.orderId(), r.quantity(), r.productId());
+            }
+            try {
+                stockReservationService.markApplied(quantities);
+            } catch (Exception e) {
+                log.warn("⚠️ [STOCK] Không cập nhật được stock:pending trên Redis: {}", e.getMessage());
+            }
+            stockReservationService.invalidate(oversold);
+            catalogCacheService.evict(CatalogCacheService.REGION_PRODUCTS, CatalogCacheService.REGION_CATEGORIES);
+        }
+    }
+
+    @Scheduled(fixedDelay = 3_600_000, initialDelay = 60_000)
+    public void purgeApplied() {
+        try {
+            int deleted = stockCommitJdbcRepository.purgeApplied(LocalDateTime.now().minusHours(RETENTION_HOURS));
+            if (deleted > 0) log.info("🧹 [STOCK] Đã xóa {} dòng stock_commits cũ", deleted);
+        } catch (Exception e) {
+            log.warn("⚠️ [STOCK] Không xóa được stock_commits cũ: {}", e.getMessage());
+        }
+    }
+}
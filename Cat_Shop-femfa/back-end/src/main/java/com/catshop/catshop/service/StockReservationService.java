@@ -0,0 +1,519 @@
+package com.catshop.catshop.service;
+
+import com.catshop.catshop.dto.response.CheckoutLineResponse;
+import com.catshop.catshop.dto.response.ReservationResponse;
+import com.catshop.catshop.exception.ConflictException;
+import com.catshop.catshop.exception.ResourceNotFoundException;
+import com.catshop.catshop.repository.jdbc.CheckoutJdbcRepository;
+import com.catshop.catshop.repository.jdbc.StockCommitJdbcRepository;
+import com.catshop.catshop.repository.jdbc.StockCommitJdbcRepository.StockLevel;
+import com.catshop.catshop.util.AfterCommit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Giữ hàng (reservation) trên Redis cho các đợt mở bán "nóng".
+ *
+ * - stock:avail:{id} là số lượng còn giữ được. Mỗi lượt giữ trừ tất cả sản phẩm trong giỏ bằng MỘT script Lua
+ *   (đủ hết mới trừ), nên tranh chấp dồn vào Redis thay vì khóa dòng products trong PostgreSQL.
+ * - Lượt giữ hết hạn theo TTL: sweeper trả số lượng về stock:avail.
+ * - Khi khách xác nhận, đơn hàng được ghi kèm stock_commits trong cùng transaction; StockCommitWorker trừ
+ *   products.stock_quantity bất đồng bộ. Trong lúc chờ, số lượng nằm trong stock:pending.
+ * - Bất biến: avail = stock_quantity(DB) - held - pending. Thay đổi kho từ nơi khác (admin, import) xóa counter
+ *   sau commit để lượt giữ kế tiếp nạp lại từ DB; counter chỉ được nạp khi chưa có (chống đua bằng stock:gen).
+ *   Mọi script chạy SAU một commit DB (xóa counter, hoàn tất lượt giữ, worker đã trừ) đều tăng stock:gen, nên lần nạp
+ *   nào đọc DB trước thời điểm đó sẽ bị từ chối.
+ * - Job đối soát định kỳ so counter với DB và xóa counter lệch (Redis lỗi lúc checkout, script sau commit thất bại...).
+ *
+ * Script tự ghép tên key theo productId, nên cần Redis standalone (không chạy được trên cluster).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockReservationService {
+
+    private static final String AVAIL_PREFIX = "stock:avail:";
+    private static final String GEN_PREFIX = "stock:gen:";
+    private static final String HOLD_PREFIX = "stock:hold:";
+    private static final String HELD_KEY = "stock:held";
+    private static final String PENDING_KEY = "stock:pending";
+    private static final String HOLDS_KEY = "stock:holds";
+    // Key của lượt giữ sống lâu hơn hạn giữ để sweeper luôn còn thấy nội dung khi trả hàng
+    private static final long HOLD_KEY_GRACE_SECONDS = 86_400;
+    private static final int MAX_SEED_ATTEMPTS = 5;
+    private static final int SWEEP_BATCH = 200;
+    private static final int RECONCILE_BATCH = 500;
+
+    private static final String STATE_HELD = "held";
+    private static final String STATE_CONFIRMING = "confirming";
+
+    // KEYS: hold, held, holds. ARGV: rid, user, state, deadline, ttl, rồi từng cặp productId, qty
+    // Trả {1} nếu giữ được, {-1, i} nếu counter thứ i chưa nạp, {-2, i, còn lại} nếu không đủ hàng
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> RESERVE = new DefaultRedisScript<>("""
+            local n = (#ARGV - 5) / 2
+            for i = 1, n do
+              local v = redis.call('GET', 'stock:avail:' .. ARGV[4 + 2 * i])
+              if not v then return {-1, i} end
+              if tonumber(v) < tonumber(ARGV[5 + 2 * i]) then return {-2, i, tonumber(v)} end
+            end
+            for i = 1, n do
+              local pid = ARGV[4 + 2 * i]
+              local q = tonumber(ARGV[5 + 2 * i])
+              redis.call('DECRBY', 'stock:avail:' .. pid, q)
+              redis.call('HINCRBY', KEYS[2], pid, q)
+              redis.call('HSET', KEYS[1], 'p:' .. pid, q)
+            end
+            redis.call('HSET', KEYS[1], 'user', ARGV[2], 'state', ARGV[3])
+            redis.call('EXPIRE', KEYS[1], ARGV[5])
+            redis.call('ZADD', KEYS[3], ARGV[4], ARGV[1])
+            return {1}
+            """, List.class);
+
+    // KEYS: hold, holds. ARGV: rid, user, now, deadline mới
+    // Trả {1, productId, qty, ...}; {-1} nếu không tồn tại / hết hạn / không phải của user; {-2} nếu đang xác nhận
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> CLAIM = new DefaultRedisScript<>("""
+            local state = redis.call('HGET', KEYS[1], 'state')
+            if not state or redis.call('HGET', KEYS[1], 'user') ~= ARGV[2] then return {-1} end
+            if state ~= 'held' then return {-2} end
+            local deadline = redis.call('ZSCORE', KEYS[2], ARGV[1])
+            if not deadline or tonumber(deadline) <= tonumber(ARGV[3]) then return {-1} end
+            redis.call('HSET', KEYS[1], 'state', 'confirming')
+            redis.call('ZADD', KEYS[2], ARGV[4], ARGV[1])
+            local out = {1}
+            local fields = redis.call('HGETALL', KEYS[1])
+            for i = 1, #fields, 2 do
+              if string.sub(fields[i], 1, 2) == 'p:' then
+                table.insert(out, tonumber(string.sub(fields[i], 3)))
+                table.insert(out, tonumber(fields[i + 1]))
+              end
+            end
+            return out
+            """, List.class);
+
+    // KEYS: hold, held, holds. ARGV: rid, mode (user | expire | abort), user hoặc now
+    // Trả 1 nếu đã trả hàng, 0 nếu không còn lượt giữ, -1 nếu không được phép, -2 nếu hết hạn khi đang xác nhận
+    private static final DefaultRedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+            local state = redis.call('HGET', KEYS[1], 'state')
+            if not state then
+              redis.call('ZREM', KEYS[3], ARGV[1])
+              return 0
+            end
+            if ARGV[2] == 'user' then
+              if state ~= 'held' or redis.call('HGET', KEYS[1], 'user') ~= ARGV[3] then return -1 end
+            elseif ARGV[2] == 'expire' then
+              local deadline = redis.call('ZSCORE', KEYS[3], ARGV[1])
+              if deadline and tonumber(deadline) > tonumber(ARGV[3]) then return -1 end
+              if state ~= 'held' then return -2 end
+            elseif state ~= 'confirming' then
+              return -1
+            end
+            local fields = redis.call('HGETALL', KEYS[1])
+            for i = 1, #fields, 2 do
+              if string.sub(fields[i], 1, 2) == 'p:' then
+                local pid = string.sub(fields[i], 3)
+                local q = tonumber(fields[i + 1])
+                if redis.call('EXISTS', 'stock:avail:' .. pid) == 1 then
+                  redis.call('INCRBY', 'stock:avail:' .. pid, q)
+                end
+                if redis.call('HINCRBY', KEYS[2], pid, -q) <= 0 then redis.call('HDEL', KEYS[2], pid) end
+              end
+            end
+            redis.call('DEL', KEYS[1])
+            redis.call('ZREM', KEYS[3], ARGV[1])
+            return 1
+            """, Long.class);
+
+    // KEYS: hold, held, pending, holds. ARGV: rid, '1' nếu DB chưa trừ kho (chuyển sang pending)
+    // Chạy sau commit: tăng gen để lần nạp đã đọc DB trong lúc transaction commit bị từ chối
+    private static final DefaultRedisScript<Long> COMPLETE = new DefaultRedisScript<>("""
+            local fields = redis.call('HGETALL', KEYS[1])
+            if #fields == 0 then return 0 end
+            for i = 1, #fields, 2 do
+              if string.sub(fields[i], 1, 2) == 'p:' then
+                local pid = string.sub(fields[i], 3)
+                local q = tonumber(fields[i + 1])
+                if redis.call('HINCRBY', KEYS[2], pid, -q) <= 0 then redis.call('HDEL', KEYS[2], pid) end
+                if ARGV[2] == '1' then redis.call('HINCRBY', KEYS[3], pid, q) end
+                redis.call('INCR', 'stock:gen:' .. pid)
+              end
+            end
+            redis.call('DEL', KEYS[1])
+            redis.call('ZREM', KEYS[4], ARGV[1])
+            return 1
+            """, Long.class);
+
+    // KEYS: avail, gen, held, pending. ARGV: productId, gen đã đọc trước khi đọc DB, tồn kho trong DB
+    private static final DefaultRedisScript<Long> SEED = new DefaultRedisScript<>("""
+            if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[2] then return -1 end
+            if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end
+            local held = tonumber(redis.call('HGET', KEYS[3], ARGV[1]) or '0')
+            local pending = tonumber(redis.call('HGET', KEYS[4], ARGV[1]) or '0')
+            redis.call('SET', KEYS[1], tonumber(ARGV[3]) - held - pending)
+            return 1
+            """, Long.class);
+
+    // ARGV: productId. Kho trong DB đã đổi: xóa counter (lượt giữ sau nạp lại) và tăng gen để hủy lần nạp đang chạy.
+    // Không áp chênh lệch vào counter: lần nạp đọc DB sau commit nhưng trước script này sẽ bị tính trùng.
+    private static final DefaultRedisScript<Long> INVALIDATE = new DefaultRedisScript<>("""
+            for i = 1, #ARGV do
+              redis.call('INCR', 'stock:gen:' .. ARGV[i])
+              redis.call('DEL', 'stock:avail:' .. ARGV[i])
+            end
+            return #ARGV
+            """, Long.class);
+
+    // KEYS: held, pending. ARGV: productId. Trả 5 số cho mỗi sản phẩm: gen, có counter (0/1), avail, held, pending
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> SNAPSHOT = new DefaultRedisScript<>("""
+            local out = {}
+            for i = 1, #ARGV do
+              local avail = redis.call('GET', 'stock:avail:' .. ARGV[i])
+              table.insert(out, tonumber(redis.call('GET', 'stock:gen:' .. ARGV[i]) or '0'))
+              table.insert(out, avail and 1 or 0)
+              table.insert(out, tonumber(avail or '0'))
+              table.insert(out, tonumber(redis.call('HGET', KEYS[1], ARGV[i]) or '0'))
+              table.insert(out, tonumber(redis.call('HGET', KEYS[2], ARGV[i]) or '0'))
+            end
+            return out
+            """, List.class);
+
+    // KEYS: pending. ARGV: từng bộ productId, gen lúc đối soát, pending theo DB.
+    // Gen không đổi: đặt lại pending, xóa counter và tăng gen. Trả số sản phẩm đã sửa.
+    private static final DefaultRedisScript<Long> DROP = new DefaultRedisScript<>("""
+            local dropped = 0
+            for i = 1, #ARGV, 3 do
+              local pid = ARGV[i]
+              if (redis.call('GET', 'stock:gen:' .. pid) or '0') == ARGV[i + 1] then
+                if tonumber(ARGV[i + 2]) > 0 then
+                  redis.call('HSET', KEYS[1], pid, ARGV[i + 2])
+                else
+                  redis.call('HDEL', KEYS[1], pid)
+                end
+                redis.call('DEL', 'stock:avail:' .. pid)
+                redis.call('INCR', 'stock:gen:' .. pid)
+                dropped = dropped + 1
+              end
+            end
+            return dropped
+            """, Long.class);
+
+    // KEYS: pending. ARGV: từng cặp productId, qty đã trừ vào DB (hoặc bị từ chối). Chạy sau commit nên tăng gen.
+    private static final DefaultRedisScript<Long> APPLIED = new DefaultRedisScript<>("""
+            for i = 1, #ARGV, 2 do
+              if redis.call('HINCRBY', KEYS[1], ARGV[i], -tonumber(ARGV[i + 1])) <= 0 then
+                redis.call('HDEL', KEYS[1], ARGV[i])
+              end
+              redis.call('INCR', 'stock:gen:' .. ARGV[i])
+            end
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final CheckoutJdbcRepository checkoutJdbcRepository;
+    private final StockCommitJdbcRepository stockCommitJdbcRepository;
+
+    @Value("${stock.reservation.hold-seconds:600}")
+    private long holdSeconds;
+
+    @Value("${stock.reservation.confirm-seconds:120}")
+    private long confirmSeconds;
+
+    // Sản phẩm cần xóa counter nhưng Redis đang lỗi; job đối soát thử lại
+    private final Set<Long> staleProducts = ConcurrentHashMap.newKeySet();
+
+    // Lệch phát hiện ở lần đối soát trước; chỉ sửa khi lần sau thấy y nguyên (loại trừ thao tác đang dở giữa DB và Redis)
+    private final Map<Long, Drift> suspectedDrift = new ConcurrentHashMap<>();
+
+    private record Drift(long gen, long availDiff, long pendingDiff) {
+    }
+
+    // Giữ hàng cho khách trong holdSeconds; hết hạn mà chưa xác nhận thì tự trả lại
+    public ReservationResponse reserve(Long userId, SortedMap<Long, Integer> quantities) {
+        String reservationId = UUID.randomUUID().toString();
+        long deadline = System.currentTimeMillis() + holdSeconds * 1000;
+        hold(reservationId, userId, quantities, STATE_HELD, deadline, holdSeconds);
+        return ReservationResponse.builder()
+                .reservationId(reservationId)
+                .expiresAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(deadline), ZoneId.systemDefault()))
+                .items(quantities.entrySet().stream()
+                        .map(e -> CheckoutLineResponse.builder().productId(e.getKey()).quantity(e.getValue()).build())
+                        .toList())
+                .build();
+    }
+
+    /**
+     * Giữ hàng cho checkout trừ kho đồng bộ (đã ở trạng thái đang xác nhận). Gọi trong transaction checkout:
+     * commit thì lượt giữ được xóa (DB đã trừ kho), rollback thì trả lại.
+     * Trả null nếu Redis không khả dụng: checkout vẫn chạy, chỉ còn điều kiện tồn kho trong DB; counter của các
+     * sản phẩm này không còn đúng nên bị xóa sau commit (hoặc khi Redis sống lại) để nạp lại từ DB.
+     */
+    public String holdForCheckout(Long userId, SortedMap<Long, Integer> quantities) {
+        String reservationId = UUID.randomUUID().toString();
+        try {
+            hold(reservationId, userId, quantities, STATE_CONFIRMING,
+                    System.currentTimeMillis() + confirmSeconds * 1000, confirmSeconds);
+        } catch (DataAccessException e) {
+            // Mọi lỗi Redis (mất kết nối, timeout, lỗi script...) đều đi đường chỉ dùng DB
+            log.warn("⚠️ [STOCK] Redis không khả dụng, checkout bỏ qua bước giữ hàng: {}", e.getMessage());
+            stockChangedAfterCommit(quantities.keySet());
+            return null;
+        }
+        AfterCommit.runOrRollback(() -> complete(reservationId, false), () -> abort(reservationId));
+        return reservationId;
+    }
+
+    /**
+     * Chuyển lượt giữ sang trạng thái đang xác nhận và trả về các dòng đã giữ. Gọi trong transaction tạo đơn:
+     * commit thì số lượng chuyển sang pending chờ worker trừ DB, rollback thì trả lại hàng.
+     */
+    public SortedMap<Long, Integer> claim(Long userId, String reservationId) {
+        long now = System.currentTimeMillis();
+        List<?> result = redisTemplate.execute(CLAIM, List.of(HOLD_PREFIX + reservationId, HOLDS_KEY),
+                reservationId, String.valueOf(userId), String.valueOf(now),
+                String.valueOf(now + confirmSeconds * 1000));
+        long code = ((Number) result.get(0)).longValue();
+        if (code == -1) {
+            throw new ResourceNotFoundException("Lượt giữ hàng không tồn tại hoặc đã hết hạn: " + reservationId);
+        }
+        if (code == -2) {
+            throw new ConflictException("Lượt giữ hàng đang được xác nhận: " + reservationId);
+        }
+        SortedMap<Long, Integer> items = new TreeMap<>();
+        for (int i = 1; i < result.size(); i += 2) {
+            items.put(((Number) result.get(i)).longValue(), ((Number) result.get(i + 1)).intValue());
+        }
+        AfterCommit.runOrRollback(() -> complete(reservationId, true), () -> abort(reservationId));
+        return items;
+    }
+
+    public void release(Long userId, String reservationId) {
+        Long result = redisTemplate.execute(RELEASE, holdKeys(reservationId), reservationId, "user", String.valueOf(userId));
+        if (result == null || result != 1) {
+            throw new ResourceNotFoundException("Lượt giữ hàng không tồn tại hoặc đã hết hạn: " + reservationId);
+        }
+    }
+
+    // Trả hàng của các lượt giữ quá hạn. Script kiểm tra lại hạn nên nhiều node chạy cùng lúc vẫn an toàn.
+    @Scheduled(fixedDelayString = "${stock.reservation.sweep-interval-ms:5000}")
+    public void sweepExpired() {
+        long now = System.currentTimeMillis();
+        Set<String> due;
+        try {
+            due = redisTemplate.opsForZSet().rangeByScore(HOLDS_KEY, 0, now, 0, SWEEP_BATCH);
+        } catch (Exception e) {
+            log.debug("[STOCK] Bỏ qua sweep, Redis lỗi: {}", e.getMessage());
+            return;
+        }
+        if (due == null || due.isEmpty()) return;
+
+        int released = 0;
+        for (String reservationId : due) {
+            try {
+                Long result = redisTemplate.execute(RELEASE, holdKeys(reservationId), reservationId, "expire", String.valueOf(now));
+                if (result != null && result == 1) {
+                    released++;
+                } else if (result != null && result == -2) {
+                    recoverConfirming(reservationId);
+                }
+            } catch (Exception e) {
+                log.warn("⚠️ [STOCK] Không xử lý được lượt giữ hết hạn {}: {}", reservationId, e.getMessage());
+            }
+        }
+        if (released > 0) log.info("📦 [STOCK] Đã trả hàng cho {} lượt giữ hết hạn", released);
+    }
+
+    // Tồn kho trong DB đổi ngoài luồng giữ hàng (admin, import): xóa counter sau commit
+    public void stockChangedAfterCommit(Collection<Long> productIds) {
+        if (!productIds.isEmpty()) {
+            List<Long> ids = List.copyOf(productIds);
+            AfterCommit.run(() -> invalidate(ids));
+        }
+    }
+
+    // Xóa counter ngay; Redis lỗi thì để job đối soát thử lại
+    public void invalidate(Collection<Long> productIds) {
+        if (productIds.isEmpty()) return;
+        try {
+            redisTemplate.execute(INVALIDATE, List.of(), productIds.stream().map(String::valueOf).toArray());
+        } catch (Exception e) {
+            staleProducts.addAll(productIds);
+            log.warn("⚠️ [STOCK] Không xóa được counter tồn kho trên Redis cho {}, thử lại sau: {}", productIds, e.getMessage());
+        }
+    }
+
+    /**
+     * Đối soát counter với DB. Với mỗi sản phẩm có counter / pending trên Redis:
+     * - lệch avail = avail + held - stock + pending(DB), phải bằng 0
+     * - lệch pending = pending(Redis) - pending(DB), phải bằng 0
+     * Thao tác đang dở (DB đã commit, script sau commit chưa chạy) cũng tạo lệch tạm thời, nhưng script đó luôn tăng gen.
+     * Vì vậy chỉ sửa khi hai lần đối soát liên tiếp thấy cùng gen và cùng độ lệch; sửa = đặt lại pending, xóa counter.
+     */
+    @Scheduled(fixedDelayString = "${stock.reservation.reconcile-interval-ms:60000}",
+            initialDelayString = "${stock.reservation.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        try {
+            if (!staleProducts.isEmpty()) {
+                List<Long> stale = List.copyOf(staleProducts);
+                redisTemplate.execute(INVALIDATE, List.of(), stale.stream().map(String::valueOf).toArray());
+                staleProducts.removeAll(stale);
+                log.info("🔄 [STOCK] Đã xóa counter tồn kho của {} sản phẩm sau khi Redis khả dụng lại", stale.size());
+            }
+
+            Set<Long> productIds = new TreeSet<>();
+            try (Cursor<String> keys = redisTemplate.scan(
+                    ScanOptions.scanOptions().match(AVAIL_PREFIX + "*").count(1000).build())) {
+                keys.forEachRemaining(key -> productIds.add(Long.parseLong(key.substring(AVAIL_PREFIX.length()))));
+            }
+            redisTemplate.<String, String>opsForHash().keys(PENDING_KEY).forEach(id -> productIds.add(Long.parseLong(id)));
+
+            suspectedDrift.keySet().retainAll(productIds);
+            List<Long> ids = new ArrayList<>(productIds);
+            int dropped = 0;
+            for (int from = 0; from < ids.size(); from += RECONCILE_BATCH) {
+                dropped += reconcileBatch(ids.subList(from, Math.min(ids.size(), from + RECONCILE_BATCH)));
+            }
+            if (dropped > 0) log.warn("⚠️ [STOCK] Đối soát: đã xóa {} counter tồn kho lệch với DB", dropped);
+        } catch (Exception e) {
+            log.warn("⚠️ [STOCK] Đối soát tồn kho Redis thất bại, thử lại lần sau: {}", e.getMessage());
+        }
+    }
+
+    private int reconcileBatch(List<Long> productIds) {
+        Object[] args = productIds.stream().map(String::valueOf).toArray();
+        List<?> snapshot = redisTemplate.execute(SNAPSHOT, List.of(HELD_KEY, PENDING_KEY), args);
+        Map<Long, StockLevel> levels = stockCommitJdbcRepository.findStockLevels(productIds);
+
+        List<String> drop = new ArrayList<>();
+        for (int i = 0; i < productIds.size(); i++) {
+            long productId = productIds.get(i);
+            long gen = ((Number) snapshot.get(i * 5)).longValue();
+            boolean hasCounter = ((Number) snapshot.get(i * 5 + 1)).longValue() == 1;
+            long avail = ((Number) snapshot.get(i * 5 + 2)).longValue();
+            long held = ((Number) snapshot.get(i * 5 + 3)).longValue();
+            long pending = ((Number) snapshot.get(i * 5 + 4)).longValue();
+
+            // Sản phẩm đã bị xóa: bỏ counter, lượt giữ sau sẽ báo không tìm thấy
+            StockLevel level = levels.getOrDefault(productId, new StockLevel(0, 0));
+            Drift drift = new Drift(gen,
+                    hasCounter ? avail + held + level.pending() - level.stock() : 0,
+                    pending - level.pending());
+            if (drift.availDiff() == 0 && drift.pendingDiff() == 0) {
+                suspectedDrift.remove(productId);
+            } else if (drift.equals(suspectedDrift.put(productId, drift))) {
+                suspectedDrift.remove(productId);
+                log.warn("⚠️ [STOCK] Counter sản phẩm #{} lệch DB (avail {}, pending {})",
+                        productId, drift.availDiff(), drift.pendingDiff());
+                drop.add(String.valueOf(productId));
+                drop.add(String.valueOf(gen));
+                drop.add(String.valueOf(level.pending()));
+            }
+        }
+        if (drop.isEmpty()) return 0;
+        Long dropped = redisTemplate.execute(DROP, List.of(PENDING_KEY), drop.toArray());
+        return dropped != null ? dropped.intValue() : 0;
+    }
+
+    // Worker đã trừ các số lượng này vào DB
+    public void markApplied(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) return;
+        redisTemplate.execute(APPLIED, List.of(PENDING_KEY), (Object[]) pairs(quantities));
+    }
+
+    private void hold(String reservationId, Long userId, SortedMap<Long, Integer> quantities,
+                      String state, long deadline, long ttlSeconds) {
+        List<String> args = new ArrayList<>(5 + quantities.size() * 2);
+        args.add(reservationId);
+        args.add(String.valueOf(userId));
+        args.add(state);
+        args.add(String.valueOf(deadline));
+        args.add(String.valueOf(ttlSeconds + HOLD_KEY_GRACE_SECONDS));
+        args.addAll(Arrays.asList(pairs(quantities)));
+        List<Long> productIds = new ArrayList<>(quantities.keySet());
+
+        for (int attempt = 0; ; attempt++) {
+            List<?> result = redisTemplate.execute(RESERVE, holdKeys(reservationId), args.toArray());
+            long code = ((Number) result.get(0)).longValue();
+            if (code == 1) return;
+
+            long productId = productIds.get(((Number) result.get(1)).intValue() - 1);
+            if (code == -2) {
+                throw new ConflictException("Sản phẩm #" + productId + " không đủ hàng (còn "
+                        + Math.max(0, ((Number) result.get(2)).longValue()) + ", cần " + quantities.get(productId) + ")");
+            }
+            if (attempt >= MAX_SEED_ATTEMPTS * productIds.size()) {
+                throw new IllegalStateException("Không nạp được tồn kho lên Redis cho sản phẩm #" + productId);
+            }
+            seed(productId);
+        }
+    }
+
+    // Nạp counter từ DB. gen được đọc TRƯỚC khi đọc DB: thay đổi nào commit sau lúc đó sẽ làm script từ chối.
+    private void seed(long productId) {
+        String gen = Optional.ofNullable(redisTemplate.opsForValue().get(GEN_PREFIX + productId)).orElse("0");
+        Integer stock = checkoutJdbcRepository.findStock(List.of(productId)).get(productId);
+        if (stock == null) {
+            throw new ResourceNotFoundException("Không tìm thấy sản phẩm: " + productId);
+        }
+        redisTemplate.execute(SEED,
+                List.of(AVAIL_PREFIX + productId, GEN_PREFIX + productId, HELD_KEY, PENDING_KEY),
+                String.valueOf(productId), gen, String.valueOf(stock));
+    }
+
+    // Lượt giữ quá hạn khi đang xác nhận (node chết giữa chừng): DB quyết định đơn đã được tạo hay chưa
+    private void recoverConfirming(String reservationId) {
+        Boolean pending = stockCommitJdbcRepository.findPendingState(reservationId);
+        if (pending == null) {
+            abort(reservationId);
+        } else {
+            complete(reservationId, pending);
+        }
+    }
+
+    private void complete(String reservationId, boolean stockPending) {
+        try {
+            redisTemplate.execute(COMPLETE, List.of(HOLD_PREFIX + reservationId, HELD_KEY, PENDING_KEY, HOLDS_KEY),
+                    reservationId, stockPending ? "1" : "0");
+        } catch (Exception e) {
+            // Lượt giữ còn trong stock:holds, sweeper sẽ hoàn tất dựa trên stock_commits
+            log.warn("⚠️ [STOCK] Không hoàn tất được lượt giữ {}: {}", reservationId, e.getMessage());
+        }
+    }
+
+    private void abort(String reservationId) {
+        try {
+            redisTemplate.execute(RELEASE, holdKeys(reservationId), reservationId, "abort", "");
+        } catch (Exception e) {
+            log.warn("⚠️ [STOCK] Không trả được hàng cho lượt giữ {}: {}", reservationId, e.getMessage());
+        }
+    }
+
+    private static List<String> holdKeys(String reservationId) {
+        return List.of(HOLD_PREFIX + reservationId, HELD_KEY, HOLDS_KEY);
+    }
+
+    private static String[] pairs(Map<Long, Integer> values) {
+        String[] out = new String[values.size() * 2];
+        int i = 0;
+        for (Map.Entry<Long, Integer> e : values.entrySet()) {
+            out[i++] = String.valueOf(e.getKey());
+            out[i++] = String.valueOf(e.getValue());
+        }
+        return out;
+    }
+}
@@ -89,6 +89,7 @@ public class CageDetailServiceImpl implements CageDetailService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public CageDetailResponse getByIdAdmin(Long cageId) {
         CageDetail cd = cageDetailRepository.findById(cageId)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy CageDetail với id: " + cageId));
@@ -96,11 +97,13 @@ public class CageDetailServiceImpl implements CageDetailService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<CageDetailResponse> getAllAdmin(Pageable pageable) {
         return cageDetailRepository.findAllForAdmin(pageable).map(cageDetailMapper::toResponse);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public CageDetailResponse getByIdCustomer(Long cageId) {
         // For customer, we allow only if stockQuantity > 0
         CageDetail cd = cageDetailRepository.findById(cageId)
@@ -113,6 +116,7 @@ public class CageDetailServiceImpl implements CageDetailService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<CageDetailResponse> getAllCustomer(Pageable pageable) {
         return cageDetailRepository.findAllForCustomer(pageable).map(cageDetailMapper::toResponse);
     }
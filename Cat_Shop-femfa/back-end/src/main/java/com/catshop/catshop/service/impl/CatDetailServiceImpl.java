@@ -9,6 +9,8 @@ import com.catshop.catshop.mapper.CatDetailMapper;
 import com.catshop.catshop.repository.CatDetailRepository;
 import com.catshop.catshop.repository.ProductRepository;
 import com.catshop.catshop.service.CatDetailService;
+import com.catshop.catshop.service.ProductAutocompleteIndex;
+import com.catshop.catshop.service.ProductSearchIndex;
 import lombok.AllArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -25,6 +27,8 @@ public class CatDetailServiceImpl implements CatDetailService {
     private final CatDetailRepository catDetailRepository;
     private final ProductRepository productRepository;
     private final CatDetailMapper catDetailMapper;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductAutocompleteIndex productAutocompleteIndex;
 
     @Override
     @Transactional
@@ -51,6 +55,8 @@ public class CatDetailServiceImpl implements CatDetailService {
                 .build();
 
         CatDetails saved = catDetailRepository.save(catDetails);
+        productSearchIndex.reindexAfterCommit(saved.getProduct().getProductId());
+        productAutocompleteIndex.refreshAfterCommit(saved.getProduct().getProductId());
         return catDetailMapper.toCatDetailResponse(saved);
     }
 
@@ -71,6 +77,8 @@ public class CatDetailServiceImpl implements CatDetailService {
         exist.setVaccinated(catDetailRequest.getVaccinated());
 
         CatDetails updated = catDetailRepository.save(exist);
+        productSearchIndex.reindexAfterCommit(catId);
+        productAutocompleteIndex.refreshAfterCommit(catId);
         return catDetailMapper.toCatDetailResponse(updated);
     }
 
@@ -81,6 +89,8 @@ public class CatDetailServiceImpl implements CatDetailService {
             throw new BadRequestException("Không tìm thấy CatDetails với id: " + catId);
         }
         catDetailRepository.deleteById(catId);
+        productSearchIndex.reindexAfterCommit(catId);
+        productAutocompleteIndex.refreshAfterCommit(catId);
     }
 
     @Override
@@ -9,7 +9,9 @@ import com.catshop.catshop.exception.ResourceNotFoundException;
 import com.catshop.catshop.mapper.CategoryMapper;
 import com.catshop.catshop.repository.CategoryRepository;
 import com.catshop.catshop.repository.ProductTypeRepository;
+import com.catshop.catshop.service.CatalogCacheService;
 import com.catshop.catshop.service.CategoryService;
+import com.fasterxml.jackson.core.type.TypeReference;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import java.util.List;
@@ -18,9 +20,12 @@ import java.util.List;
 @RequiredArgsConstructor
 public class CategoryServiceImpl implements CategoryService {
 
+    private static final TypeReference<List<CategoryResponse>> CATEGORY_LIST_TYPE = new TypeReference<>() {};
+
     private final CategoryRepository categoryRepository;
     private final ProductTypeRepository productTypeRepository;
     private final CategoryMapper categoryMapper;
+    private final CatalogCacheService catalogCacheService;
 
     @Override
     public CategoryResponse createCategory(CategoryRequest request) {
@@ -38,6 +43,7 @@ public class CategoryServiceImpl implements CategoryService {
                 .build();
 
         categoryRepository.save(category);
+        evictCatalogCache();
         return categoryMapper.toResponse(category);
     }
 
@@ -58,6 +64,7 @@ public class CategoryServiceImpl implements CategoryService {
         category.setProductType(productType);
 
         categoryRepository.save(category);
+        evictCatalogCache();
         return categoryMapper.toResponse(category);
     }
 
@@ -66,6 +73,7 @@ public class CategoryServiceImpl implements CategoryService {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found with ID: " + id));
         categoryRepository.delete(category);
+        evictCatalogCache();
     }
 
     @Override
@@ -75,7 +83,8 @@ public class CategoryServiceImpl implements CategoryService {
 
     @Override
     public List<CategoryResponse> getAvailableCategoriesForCustomer() {
-        return categoryMapper.toResponseList(categoryRepository.findAllAvailableCategories());
+        return catalogCacheService.getOrLoad(CatalogCacheService.REGION_CATEGORIES, "available", CATEGORY_LIST_TYPE,
+                () -> categoryMapper.toResponseList(categoryRepository.findAllAvailableCategories()));
     }
 
     @Override
@@ -84,4 +93,9 @@ public class CategoryServiceImpl implements CategoryService {
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found with ID: " + id));
         return categoryMapper.toResponse(category);
     }
+
+    // ProductResponse chứa categoryName nên đổi danh mục phải xóa cả cache sản phẩm
+    private void evictCatalogCache() {
+        catalogCacheService.evictAfterCommit(CatalogCacheService.REGION_CATEGORIES, CatalogCacheService.REGION_PRODUCTS);
+    }
 }
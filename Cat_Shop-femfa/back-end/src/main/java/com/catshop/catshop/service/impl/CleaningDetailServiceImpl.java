@@ -9,6 +9,7 @@ import com.catshop.catshop.mapper.CleaningDetailMapper;
 import com.catshop.catshop.repository.CleaningDetailRepository;
 import com.catshop.catshop.repository.ProductRepository;
 import com.catshop.catshop.service.CleaningDetailService;
+import com.catshop.catshop.service.ProductSearchIndex;
 import lombok.AllArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -25,6 +26,7 @@ public class CleaningDetailServiceImpl implements CleaningDetailService {
     private final CleaningDetailRepository cleaningDetailRepository;
     private final ProductRepository productRepository;
     private final CleaningDetailMapper cleaningDetailMapper;
+    private final ProductSearchIndex productSearchIndex;
 
     private static final int CLEANING_PRODUCT_TYPE_ID = 4;
 
@@ -51,6 +53,7 @@ public class CleaningDetailServiceImpl implements CleaningDetailService {
                 .build();
 
         CleaningDetail saved = cleaningDetailRepository.save(cleaningDetail);
+        productSearchIndex.reindexAfterCommit(saved.getProduct().getProductId());
         return cleaningDetailMapper.toResponse(saved);
     }
 
@@ -72,6 +75,7 @@ public class CleaningDetailServiceImpl implements CleaningDetailService {
         exist.setUsage(request.getUsage());
 
         CleaningDetail updated = cleaningDetailRepository.save(exist);
+        productSearchIndex.reindexAfterCommit(cleaningId);
         return cleaningDetailMapper.toResponse(updated);
     }
 
@@ -82,9 +86,11 @@ public class CleaningDetailServiceImpl implements CleaningDetailService {
             throw new BadRequestException("Không tìm thấy CleaningDetail với id: " + cleaningId);
         }
         cleaningDetailRepository.deleteById(cleaningId);
+        productSearchIndex.reindexAfterCommit(cleaningId);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public CleaningDetailResponse getByIdAdmin(Long cleaningId) {
         CleaningDetail detail = cleaningDetailRepository.findById(cleaningId)
                 .orElseThrow(() -> new BadRequestException("Không tìm thấy CleaningDetail với id: " + cleaningId));
@@ -92,22 +98,26 @@ public class CleaningDetailServiceImpl implements CleaningDetailService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<CleaningDetailResponse> getAllAdmin(Pageable pageable) {
         return cleaningDetailRepository.findAll(pageable)
                 .map(cleaningDetailMapper::toResponse);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public CleaningDetailResponse getByIdCustomer(Long cleaningId) {
         return getByIdAdmin(cleaningId);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<CleaningDetailResponse> getAllCustomer(Pageable pageable) {
         return getAllAdmin(pageable);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<CleaningDetailResponse> searchByUsage(String usage) {
         return cleaningDetailRepository.findByUsageContainingIgnoreCase(usage)
                 .stream().map(cleaningDetailMapper::toResponse).collect(Collectors.toList());
@@ -9,6 +9,7 @@ import com.catshop.catshop.mapper.FoodDetailMapper;
 import com.catshop.catshop.repository.FoodDetailRepository;
 import com.catshop.catshop.repository.ProductRepository;
 import com.catshop.catshop.service.FoodDetailService;
+import com.catshop.catshop.service.ProductSearchIndex;
 import lombok.AllArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -26,6 +27,7 @@ public class FoodDetailServiceImpl implements FoodDetailService {
     private final FoodDetailRepository foodDetailRepository;
     private final ProductRepository productRepository;
     private final FoodDetailMapper foodDetailMapper;
+    private final ProductSearchIndex productSearchIndex;
 
     private static final int FOOD_PRODUCT_TYPE_ID = 2;
 
@@ -57,6 +59,7 @@ public class FoodDetailServiceImpl implements FoodDetailService {
                 .build();
 
         FoodDetail saved = foodDetailRepository.save(fd);
+        productSearchIndex.reindexAfterCommit(saved.getProduct().getProductId());
         return foodDetailMapper.toResponse(saved);
     }
 
@@ -79,6 +82,7 @@ public class FoodDetailServiceImpl implements FoodDetailService {
         exist.setExpiryDate(request.getExpiryDate());
 
         FoodDetail updated = foodDetailRepository.save(exist);
+        productSearchIndex.reindexAfterCommit(foodId);
         return foodDetailMapper.toResponse(updated);
     }
 
@@ -89,6 +93,7 @@ public class FoodDetailServiceImpl implements FoodDetailService {
             throw new BadRequestException("Không tìm thấy FoodDetail với id: " + foodId);
         }
         foodDetailRepository.deleteById(foodId);
+        productSearchIndex.reindexAfterCommit(foodId);
     }
 
     @Override
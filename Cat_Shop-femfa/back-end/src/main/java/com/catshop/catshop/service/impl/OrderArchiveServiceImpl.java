@@ -0,0 +1,331 @@
+package com.catshop.catshop.service.impl;
+
+import com.catshop.catshop.dto.response.OrderArchiveResponse;
+import com.catshop.catshop.entity.OrderArchive;
+import com.catshop.catshop.exception.ResourceNotFoundException;
+import com.catshop.catshop.repository.jdbc.OrderArchiveJdbcRepository;
+import com.catshop.catshop.service.OrderArchiveService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archive đơn hàng cũ theo tháng.
+ *
+ * Mỗi tháng cũ hơn archive.horizon-months được ghi ra archive/orders-yyyy-MM.ndjson.gz
+ * (mỗi dòng một đơn kèm lines / payments / shipments), ghi xong mới đổi tên từ .part và lưu vào order_archives,
+ * sau đó xóa khỏi bảng chính theo từng lô nhỏ để mỗi transaction và lượng dead tuple cho vacuum luôn giới hạn.
+ * Trước khi xóa, mỗi lô được khóa (FOR UPDATE) rồi đọc lại và so với dòng trong file: đơn nào đã đổi sau khi ghi
+ * (thêm payment, đổi trạng thái...) được giữ lại trong bảng chính thay vì mất thay đổi.
+ * Node chết giữa chừng: tháng ở trạng thái WRITTEN được xóa tiếp ở lần chạy sau, không ghi lại file.
+ * Job định kỳ chạy trên luồng riêng, không chiếm scheduler dùng chung.
+ */
+@Slf4j
+@Service
+public class OrderArchiveServiceImpl implements OrderArchiveService {
+
+    private static final String[] CHILD_TABLES = {"order_details", "payments", "shipments"};
+    private static final String[] CHILD_FIELDS = {"lines", "payments", "shipments"};
+
+    private final OrderArchiveJdbcRepository archiveRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Path archiveDir;
+    private final int horizonMonths;
+    private final int batchSize;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("order-archive").daemon().factory());
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public OrderArchiveServiceImpl(OrderArchiveJdbcRepository archiveRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   ObjectMapper objectMapper,
+                                   @Value("${archive.dir:archive}") String archiveDir,
+                                   @Value("${archive.horizon-months:24}") int horizonMonths,
+                                   @Value("${archive.batch-size:500}") int batchSize) {
+        this.archiveRepository = archiveRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.archiveDir = Paths.get(archiveDir).toAbsolutePath().normalize();
+        this.horizonMonths = horizonMonths;
+        this.batchSize = batchSize;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    @Scheduled(cron = "${archive.cron:0 0 4 * * *}")
+    public void scheduledArchive() {
+        if (!running.compareAndSet(false, true)) return;
+        worker.execute(() -> {
+            try {
+                archiveColdMonths();
+            } catch (Exception e) {
+                log.error("❌ [ARCHIVE] Archive đơn hàng cũ thất bại: {}", e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    @Override
+    public List<OrderArchiveResponse> archiveColdMonths() {
+        List<OrderArchiveResponse> processed = new ArrayList<>();
+        boolean ran = archiveRepository.runExclusive(() -> {
+            LocalDateTime horizon = YearMonth.now().minusMonths(horizonMonths).atDay(1).atStartOfDay();
+            // Tháng chưa xóa xong từ lần trước
+            for (OrderArchive archive : archiveRepository.findAll()) {
+                if (OrderArchive.STATUS_WRITTEN.equals(archive.getStatus())) {
+                    purge(archive);
+                    processed.add(toResponse(archiveRepository.find(archive.getMonth()).orElseThrow()));
+                }
+            }
+            LocalDate oldest = archiveRepository.findOldestOrderMonth(horizon).orElse(null);
+            if (oldest == null) return;
+            for (YearMonth month = YearMonth.from(oldest); month.isBefore(YearMonth.from(horizon)); month = month.plusMonths(1)) {
+                OrderArchive archive = write(month);
+                if (archive == null) continue;
+                purge(archive);
+                processed.add(toResponse(archiveRepository.find(archive.getMonth()).orElseThrow()));
+            }
+        });
+        if (!ran) log.info("⏭️ [ARCHIVE] Node khác đang chạy archive, bỏ qua");
+        return processed;
+    }
+
+    @Override
+    public List<OrderArchiveResponse> listArchives() {
+        return archiveRepository.findAll().stream().map(this::toResponse).toList();
+    }
+
+    @Override
+    public boolean hasArchive(YearMonth month) {
+        return archiveRepository.find(month.atDay(1))
+                .map(archive -> Files.exists(archiveDir.resolve(archive.getFileName())))
+                .orElse(false);
+    }
+
+    @Override
+    public void readArchive(YearMonth month, Long orderId, Long userId, OutputStream out) {
+        OrderArchive archive = archiveRepository.find(month.atDay(1))
+                .orElseThrow(() -> new ResourceNotFoundException("Không có archive cho tháng " + month));
+        Path file = archiveDir.resolve(archive.getFileName());
+        if (!Files.exists(file)) {
+            throw new ResourceNotFoundException("Không tìm thấy file archive: " + archive.getFileName());
+        }
+
+        boolean filtered = orderId != null || userId != null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file), 64 * 1024), StandardCharsets.UTF_8))) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (filtered && !matches(objectMapper.readTree(line), orderId, userId)) continue;
+                writer.write(line);
+                writer.write('\n');
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ====================== GHI FILE ======================
+
+    // null nếu tháng không có đơn nào hoặc đã có archive
+    private OrderArchive write(YearMonth month) {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        String fileName = "orders-" + month + ".ndjson.gz";
+        long start = System.currentTimeMillis();
+
+        try {
+            Files.createDirectories(archiveDir);
+            Path target = archiveDir.resolve(fileName);
+            Path part = archiveDir.resolve(fileName + ".part");
+
+            long maxId = archiveRepository.maxOrderId(from, to);
+            if (maxId == 0) return null;
+            if (archiveRepository.find(month.atDay(1)).isPresent()) {
+                // Không ghi đè file đã có; đơn lọt vào tháng sau khi archive vẫn nằm trong bảng chính
+                log.warn("⚠️ [ARCHIVE] Tháng {} đã archive nhưng còn đơn trong bảng chính, bỏ qua", month);
+                return null;
+            }
+            long count = 0;
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(part), 64 * 1024), StandardCharsets.UTF_8))) {
+                long afterId = 0;
+                List<Long> ids;
+                while (!(ids = archiveRepository.findOrderIds(from, to, afterId, maxId, batchSize)).isEmpty()) {
+                    writeBatch(writer, ids);
+                    count += ids.size();
+                    afterId = ids.get(ids.size() - 1);
+                }
+            }
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            archiveRepository.saveWritten(month.atDay(1), fileName, count, maxId, Files.size(target));
+            log.info("📦 [ARCHIVE] Đã ghi {} đơn tháng {} ra {} trong {} ms", count, month, fileName,
+                    System.currentTimeMillis() - start);
+            return archiveRepository.find(month.atDay(1)).orElseThrow();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Không ghi được file archive " + fileName, e);
+        }
+    }
+
+    private void writeBatch(Writer writer, List<Long> ids) throws IOException {
+        for (String line : serialize(ids).values()) {
+            writer.write(line);
+            writer.write('\n');
+        }
+    }
+
+    // order_id -> một dòng NDJSON (đơn kèm lines / payments / shipments), theo thứ tự order_id
+    private Map<Long, String> serialize(List<Long> ids) throws IOException {
+        List<Map<String, Object>> orders = archiveRepository.findOrders(ids);
+        List<Map<Long, List<Map<String, Object>>>> children = new ArrayList<>();
+        for (String table : CHILD_TABLES) children.add(archiveRepository.findChildren(table, ids));
+
+        Map<Long, String> lines = new LinkedHashMap<>();
+        for (Map<String, Object> order : orders) {
+            long orderId = ((Number) order.get("order_id")).longValue();
+            StringWriter line = new StringWriter();
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(line)) {
+                json.writeStartObject();
+                for (Map.Entry<String, Object> column : order.entrySet()) {
+                    json.writeObjectField(column.getKey(), column.getValue());
+                }
+                for (int i = 0; i < CHILD_FIELDS.length; i++) {
+                    json.writeObjectField(CHILD_FIELDS[i], children.get(i).getOrDefault(orderId, List.of()));
+                }
+                json.writeEndObject();
+            }
+            lines.put(orderId, line.toString());
+        }
+        return lines;
+    }
+
+    // ====================== XÓA KHỎI BẢNG CHÍNH ======================
+
+    private void purge(OrderArchive archive) {
+        YearMonth month = YearMonth.from(archive.getMonth());
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        long deleted = 0;
+        long kept = 0;
+
+        // File và bảng chính cùng đi theo order_id tăng dần
+        try (ArchivedLines archived = new ArchivedLines(archiveDir.resolve(archive.getFileName()))) {
+            long afterId = 0;
+            while (true) {
+                long fromId = afterId;
+                // Mỗi lô một transaction ngắn: không khóa cả tháng, vacuum dọn dần theo lô
+                PurgedBatch batch = transactionTemplate.execute(status -> purgeBatch(archived, from, to, fromId, archive.getMaxOrderId()));
+                if (batch == null) break;
+                deleted += batch.deleted();
+                kept += batch.kept();
+                afterId = batch.lastId();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Không đọc được file archive " + archive.getFileName(), e);
+        }
+        archiveRepository.markPurged(archive.getMonth());
+        if (kept > 0) {
+            log.warn("⚠️ [ARCHIVE] Tháng {}: {} đơn đã thay đổi sau khi ghi file, giữ lại trong bảng chính", month, kept);
+        }
+        log.info("🧹 [ARCHIVE] Đã xóa {} đơn tháng {} khỏi bảng chính", deleted, month);
+    }
+
+    private record PurgedBatch(long lastId, int deleted, int kept) {
+    }
+
+    // null khi hết đơn. Chỉ xóa đơn mà dữ liệu hiện tại (đã khóa) trùng khớp với dòng trong file
+    private PurgedBatch purgeBatch(ArchivedLines archived, LocalDateTime from, LocalDateTime to, long afterId, long maxId) {
+        List<Long> ids = archiveRepository.findOrderIds(from, to, afterId, maxId, batchSize);
+        if (ids.isEmpty()) return null;
+        archiveRepository.lockOrders(ids);
+        try {
+            List<Long> unchanged = new ArrayList<>();
+            for (Map.Entry<Long, String> current : serialize(ids).entrySet()) {
+                if (current.getValue().equals(archived.lineFor(current.getKey()))) unchanged.add(current.getKey());
+            }
+            if (!unchanged.isEmpty()) archiveRepository.deleteOrders(unchanged);
+            return new PurgedBatch(ids.get(ids.size() - 1), unchanged.size(), ids.size() - unchanged.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Đọc tuần tự file archive theo order_id tăng dần
+    private class ArchivedLines implements Closeable {
+
+        private final BufferedReader reader;
+        private String line;
+        private long lineId = -1;
+
+        ArchivedLines(Path file) throws IOException {
+            this.reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(file), 64 * 1024), StandardCharsets.UTF_8));
+        }
+
+        // Dòng của đơn orderId trong file, null nếu file không có đơn đó
+        String lineFor(long orderId) throws IOException {
+            while (line == null || lineId < orderId) {
+                line = reader.readLine();
+                if (line == null) return null;
+                line = line.strip();
+                lineId = objectMapper.readTree(line).path("order_id").asLong();
+            }
+            return lineId == orderId ? line : null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static boolean matches(JsonNode order, Long orderId, Long userId) {
+        if (orderId != null && order.path("order_id").asLong() != orderId) return false;
+        return userId == null || order.path("user_id").asLong() == userId;
+    }
+
+    private OrderArchiveResponse toResponse(OrderArchive archive) {
+        return OrderArchiveResponse.builder()
+                .month(YearMonth.from(archive.getMonth()).toString())
+                .fileName(archive.getFileName())
+                .status(archive.getStatus())
+                .orderCount(archive.getOrderCount())
+                .sizeBytes(archive.getSizeBytes())
+                .createdAt(archive.getCreatedAt())
+                .purgedAt(archive.getPurgedAt())
+                .build();
+    }
+}
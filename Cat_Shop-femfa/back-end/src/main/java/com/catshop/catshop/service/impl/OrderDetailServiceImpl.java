@@ -3,15 +3,22 @@ package com.catshop.catshop.service.impl;
 import com.catshop.catshop.dto.request.OrderDetailRequest;
 import com.catshop.catshop.dto.response.OrderDetailResponse;
 import com.catshop.catshop.entity.*;
+import com.catshop.catshop.event.OrderEvents;
 import com.catshop.catshop.exception.BadRequestException;
 import com.catshop.catshop.exception.ResourceNotFoundException;
 import com.catshop.catshop.mapper.OrderDetailMapper;
 import com.catshop.catshop.repository.*;
 import com.catshop.catshop.service.OrderDetailService;
+import com.catshop.catshop.service.OutboxService;
+import com.catshop.catshop.service.SalesRollupService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -22,6 +29,8 @@ public class OrderDetailServiceImpl implements OrderDetailService {
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
     private final OrderDetailMapper orderDetailMapper;
+    private final SalesRollupService salesRollupService;
+    private final OutboxService outboxService;
 
     @Override
     public OrderDetailResponse createOrderDetail(OrderDetailRequest request) {
@@ -38,8 +47,10 @@ public class OrderDetailServiceImpl implements OrderDetailService {
         OrderDetail orderDetail = orderDetailMapper.toEntity(request);
         orderDetail.setOrder(order);
         orderDetail.setProduct(product);
+        orderDetail.setProductName(product.getProductName());
 
         OrderDetail saved = orderDetailRepository.save(orderDetail);
+        publishLinesChanged(saved);
         return orderDetailMapper.toResponse(saved);
     }
 
@@ -56,6 +67,7 @@ public class OrderDetailServiceImpl implements OrderDetailService {
         existing.setPrice(request.getPrice());
 
         OrderDetail updated = orderDetailRepository.save(existing);
+        publishLinesChanged(updated);
         return orderDetailMapper.toResponse(updated);
     }
 
@@ -64,6 +76,16 @@ public class OrderDetailServiceImpl implements OrderDetailService {
         OrderDetail existing = orderDetailRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy chi tiết đơn hàng ID: " + id));
         orderDetailRepository.delete(existing);
+        publishLinesChanged(existing);
+    }
+
+    private void publishLinesChanged(OrderDetail detail) {
+        Order order = detail.getOrder();
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("orderId", order.getOrderId());
+        payload.put("orderDetailId", detail.getOrderDetailId());
+        payload.put("orderDate", order.getOrderDate());
+        outboxService.publishOrderEvent(order.getOrderId(), OrderEvents.ORDER_LINES_CHANGED, payload);
     }
 
     @Override
@@ -97,8 +119,20 @@ public class OrderDetailServiceImpl implements OrderDetailService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Double getTotalRevenue() {
-        Double revenue = orderDetailRepository.getTotalRevenue();
-        return revenue != null ? revenue : 0.0;
+        return salesRollupService.totalLineRevenue().doubleValue();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getRevenueByProduct(LocalDate from, LocalDate to) {
+        return salesRollupService.revenueByProduct(from, to);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getRevenueByCategory(LocalDate from, LocalDate to) {
+        return salesRollupService.revenueByCategory(from, to);
     }
 }
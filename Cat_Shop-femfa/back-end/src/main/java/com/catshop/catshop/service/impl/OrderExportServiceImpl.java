@@ -0,0 +1,115 @@
+package com.catshop.catshop.service.impl;
+
+import com.catshop.catshop.repository.jdbc.OrderExportJdbcRepository;
+import com.catshop.catshop.service.OrderExportService;
+import com.catshop.catshop.util.CsvWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Export đơn hàng cho admin: đọc bằng cursor và ghi ngay từng dòng ra response,
+ * nên bộ nhớ dùng không phụ thuộc số lượng đơn.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderExportServiceImpl implements OrderExportService {
+
+    private static final int FLUSH_EVERY = 1000;
+    private static final String[] CSV_HEADER = {
+            "order_id", "order_date", "status", "total_amount", "user_id", "username", "email", "item_count", "line_total"
+    };
+
+    private final OrderExportJdbcRepository orderExportJdbcRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void export(String format, LocalDateTime from, LocalDateTime to, String status,
+                       OutputStream out) {
+        long start = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        try {
+            long rows;
+            if (FORMAT_NDJSON.equals(format)) {
+                try (JsonGenerator json = objectMapper.getFactory().createGenerator(writer)) {
+                    json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    rows = run(readOnly, from, to, status, writer, rs -> {
+                        json.writeStartObject();
+                        json.writeNumberField("orderId", rs.getLong(1));
+                        Timestamp orderDate = rs.getTimestamp(2);
+                        json.writeStringField("orderDate", orderDate != null ? orderDate.toLocalDateTime().toString() : null);
+                        json.writeStringField("status", rs.getString(3));
+                        json.writeNumberField("totalAmount", rs.getBigDecimal(4));
+                        json.writeNumberField("userId", rs.getLong(5));
+                        json.writeStringField("username", rs.getString(6));
+                        json.writeStringField("email", rs.getString(7));
+                        json.writeNumberField("itemCount", rs.getLong(8));
+                        json.writeNumberField("lineTotal", rs.getBigDecimal(9));
+                        json.writeEndObject();
+                        json.writeRaw('\n');
+                    }, json::flush);
+                }
+            } else {
+                CsvWriter csv = new CsvWriter(writer);
+                csv.writeRow((Object[]) CSV_HEADER);
+                rows = run(readOnly, from, to, status, writer, rs -> {
+                    Timestamp orderDate = rs.getTimestamp(2);
+                    csv.writeRow(rs.getLong(1), orderDate != null ? orderDate.toLocalDateTime() : null,
+                            rs.getString(3), rs.getBigDecimal(4), rs.getLong(5), rs.getString(6),
+                            rs.getString(7), rs.getLong(8), rs.getBigDecimal(9));
+                }, () -> { });
+            }
+            writer.flush();
+            log.info("📤 [ORDER-EXPORT] Đã export {} đơn hàng ({}) trong {} ms", rows, format,
+                    System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long run(TransactionTemplate tx, LocalDateTime from, LocalDateTime to, String status,
+                     Writer writer, RowWriter rowWriter, IoAction beforeFlush) {
+        long[] count = {0};
+        tx.executeWithoutResult(s -> orderExportJdbcRepository.stream(from, to, status, (RowCallbackHandler) rs -> {
+            try {
+                rowWriter.write(rs);
+                // Đẩy dữ liệu xuống client định kỳ thay vì giữ trong buffer
+                if (++count[0] % FLUSH_EVERY == 0) {
+                    beforeFlush.run();
+                    writer.flush();
+                }
+            } catch (IOException e) {
+                // Client ngắt kết nối: dừng đọc, transaction (và cursor) được đóng
+                throw new UncheckedIOException(e);
+            }
+        }));
+        return count[0];
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+    }
+
+    @FunctionalInterface
+    private interface IoAction {
+        void run() throws IOException;
+    }
+}
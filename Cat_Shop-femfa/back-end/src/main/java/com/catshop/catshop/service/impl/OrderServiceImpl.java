@@ -1,19 +1,48 @@
 package com.catshop.catshop.service.impl;
 
+import com.catshop.catshop.dto.request.BulkOrderStatusItem;
+import com.catshop.catshop.dto.request.BulkOrderStatusRequest;
+import com.catshop.catshop.dto.request.CheckoutItemRequest;
+import com.catshop.catshop.dto.request.CheckoutRequest;
 import com.catshop.catshop.dto.request.OrderRequest;
+import com.catshop.catshop.dto.response.BulkOrderStatusResponse;
+import com.catshop.catshop.dto.response.CheckoutLineResponse;
+import com.catshop.catshop.dto.response.CheckoutResponse;
 import com.catshop.catshop.dto.response.OrderResponse;
+import com.catshop.catshop.dto.response.OrderStatusResult;
+import com.catshop.catshop.dto.response.ReservationResponse;
 import com.catshop.catshop.entity.Order;
+import com.catshop.catshop.entity.OrderStatus;
+import com.catshop.catshop.entity.Payment;
 import com.catshop.catshop.entity.User;
+import com.catshop.catshop.exception.BadRequestException;
+import com.catshop.catshop.exception.ConflictException;
+import com.catshop.catshop.event.OrderEvents;
 import com.catshop.catshop.exception.ResourceNotFoundException;
 import com.catshop.catshop.mapper.OrderMapper;
 import com.catshop.catshop.repository.OrderRepository;
+import com.catshop.catshop.repository.ShipmentRepository;
 import com.catshop.catshop.repository.UserRepository;
+import com.catshop.catshop.repository.jdbc.CheckoutJdbcRepository;
+import com.catshop.catshop.repository.jdbc.CheckoutJdbcRepository.ReservedLine;
+import com.catshop.catshop.repository.jdbc.OrderBulkJdbcRepository;
+import com.catshop.catshop.repository.jdbc.OrderBulkJdbcRepository.StatusChange;
+import com.catshop.catshop.repository.jdbc.StockCommitJdbcRepository;
+import com.catshop.catshop.service.CatalogCacheService;
 import com.catshop.catshop.service.OrderService;
-import jakarta.transaction.Transactional;
+import com.catshop.catshop.service.OutboxService;
+import com.catshop.catshop.service.ProductAutocompleteIndex;
+import com.catshop.catshop.service.SalesRollupService;
+import com.catshop.catshop.service.ShipmentCounterService;
+import com.catshop.catshop.service.StockReservationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -23,10 +52,21 @@ public class OrderServiceImpl implements OrderService {
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final OrderMapper orderMapper;
+    private final CheckoutJdbcRepository checkoutJdbcRepository;
+    private final CatalogCacheService catalogCacheService;
+    private final ProductAutocompleteIndex productAutocompleteIndex;
+    private final StockCommitJdbcRepository stockCommitJdbcRepository;
+    private final StockReservationService stockReservationService;
+    private final SalesRollupService salesRollupService;
+    private final OutboxService outboxService;
+    private final OrderBulkJdbcRepository orderBulkJdbcRepository;
+    private final ShipmentCounterService shipmentCounterService;
+    private final ShipmentRepository shipmentRepository;
 
     // Customer
     // checked
     @Override
+    @Transactional(readOnly = true)
     public List<OrderResponse> findAllByUserId(Long userId) {
         List<Order> orders = orderRepository.findAllByUserId(userId);
         if (orders.isEmpty()) throw new ResourceNotFoundException("Không có đơn hàng nào cho userId: " + userId);
@@ -35,6 +75,7 @@ public class OrderServiceImpl implements OrderService {
 
     //checked
     @Override
+    @Transactional(readOnly = true)
     public List<OrderResponse> findByUserAndStatus(Long userId, String status) {
         List<Order> orders = orderRepository.findByUserAndStatus(userId, status);
         if (orders.isEmpty()) throw new ResourceNotFoundException("Không có đơn hàng nào có status: " + status);
@@ -43,12 +84,14 @@ public class OrderServiceImpl implements OrderService {
 
     // checked
     @Override
+    @Transactional(readOnly = true)
     public List<Object[]> getMonthlySpending(Long userId) {
-        return orderRepository.getMonthlySpending(userId);
+        return salesRollupService.monthlySpending(userId);
     }
 
     //checked
     @Override
+    @Transactional(readOnly = true)
     public List<OrderResponse> findOrdersByUserEmail(String email) {
         List<Order> orders = orderRepository.findOrdersByUserEmail(email);
         if (orders.isEmpty()) throw new ResourceNotFoundException("Không có đơn hàng nào cho email: " + email);
@@ -58,6 +101,7 @@ public class OrderServiceImpl implements OrderService {
     // Admin
     // checked
     @Override
+    @Transactional(readOnly = true)
     public List<OrderResponse> findAllOrdersForAdmin() {
         List<Order> orders = orderRepository.findAllOrdersForAdmin();
         return orderMapper.toOrderResponseList(orders);
@@ -65,14 +109,16 @@ public class OrderServiceImpl implements OrderService {
 
     //checked
     @Override
+    @Transactional(readOnly = true)
     public List<Object[]> countOrdersByStatus() {
         return orderRepository.countOrdersByStatus();
     }
 
     //checked
     @Override
+    @Transactional(readOnly = true)
     public List<Object[]> getMonthlyRevenue() {
-        return orderRepository.getMonthlyRevenue();
+        return salesRollupService.monthlyRevenue();
     }
 
     //checked
@@ -89,6 +135,7 @@ public class OrderServiceImpl implements OrderService {
                 .build();
 
         Order savedOrder = orderRepository.save(order);
+        outboxService.publishOrderEvent(savedOrder.getOrderId(), OrderEvents.ORDER_CREATED, orderPayload(savedOrder, null));
         return orderMapper.toOrderResponse(savedOrder);
     }
 
@@ -99,10 +146,12 @@ public class OrderServiceImpl implements OrderService {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy order với id: " + orderId));
 
+        String previousStatus = order.getStatus();
         if (orderRequest.getStatus() != null) order.setStatus(orderRequest.getStatus());
         if (orderRequest.getTotalAmount() != null) order.setTotalAmount(orderRequest.getTotalAmount());
 
         Order updatedOrder = orderRepository.save(order);
+        outboxService.publishOrderEvent(orderId, OrderEvents.ORDER_UPDATED, orderPayload(updatedOrder, previousStatus));
         return orderMapper.toOrderResponse(updatedOrder);
     }
 
@@ -110,9 +159,209 @@ public class OrderServiceImpl implements OrderService {
     @Override
     @Transactional
     public void deleteOrder(Long orderId) {
-        if (!orderRepository.existsById(orderId)) {
-            throw new ResourceNotFoundException("Không tìm thấy order với id: " + orderId);
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy order với id: " + orderId));
+
+        // Xóa đơn kéo theo chi tiết và payment (cascade) nên sự kiện mang cả ngày thanh toán
+        Map<String, Object> payload = orderPayload(order, null);
+        payload.put("paymentDates", order.getPayments().stream().map(Payment::getPaymentDate).toList());
+        // Shipment cũng bị xóa theo cascade: khóa trước khi đọc trạng thái để trừ đúng bộ đếm
+        shipmentCounterService.recordDeleted(shipmentRepository.findByOrderIdForUpdate(orderId));
+        orderRepository.delete(order);
+        outboxService.publishOrderEvent(orderId, OrderEvents.ORDER_DELETED, payload);
+    }
+
+    // Ví dụ cuối ngày: confirmed -> shipping cho cả lô đơn bàn giao cho đơn vị vận chuyển, kèm tạo shipment.
+    // Một câu lệnh cho cả lô; sự kiện outbox ghi bằng một batch, giống updateOrder / createShipment từng đơn.
+    @Override
+    @Transactional
+    public BulkOrderStatusResponse bulkUpdateStatus(BulkOrderStatusRequest request) {
+        boolean createShipments = request.getShipmentStatus() != null && !request.getShipmentStatus().isBlank();
+        Set<Long> seen = new HashSet<>();
+        for (BulkOrderStatusItem item : request.getItems()) {
+            if (!seen.add(item.getOrderId())) {
+                throw new BadRequestException("orderId bị lặp trong danh sách: " + item.getOrderId());
+            }
+            if (createShipments && (item.getShippingAddress() == null || item.getShippingAddress().isBlank())) {
+                throw new BadRequestException("Thiếu địa chỉ giao hàng cho orderId=" + item.getOrderId());
+            }
+        }
+
+        String shipmentStatus = createShipments ? request.getShipmentStatus() : null;
+        LocalDateTime shippedAt = LocalDateTime.now();
+        List<StatusChange> changes = orderBulkJdbcRepository.updateStatus(
+                request.getItems(), request.getStatus(), request.getFromStatus(), shipmentStatus, shippedAt);
+
+        List<OrderStatusResult> results = new ArrayList<>(changes.size());
+        List<OutboxService.OrderEvent> events = new ArrayList<>();
+        int updated = 0;
+        int unchanged = 0;
+        int shipped = 0;
+        for (StatusChange change : changes) {
+            OrderStatusResult result = change.result();
+            results.add(result);
+            if (OrderStatusResult.UNCHANGED.equals(result.getStatus())) unchanged++;
+            if (!OrderStatusResult.UPDATED.equals(result.getStatus())) continue;
+            updated++;
+
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("orderId", result.getOrderId());
+            payload.put("userId", change.userId());
+            payload.put("status", result.getNewStatus());
+            payload.put("previousStatus", result.getPreviousStatus());
+            payload.put("totalAmount", change.totalAmount());
+            payload.put("orderDate", change.orderDate());
+            events.add(new OutboxService.OrderEvent(result.getOrderId(), OrderEvents.ORDER_UPDATED, payload));
+
+            if (result.getShipmentId() != null) {
+                shipped++;
+                Map<String, Object> shipmentPayload = new HashMap<>();
+                shipmentPayload.put("shipmentId", result.getShipmentId());
+                shipmentPayload.put("orderId", result.getOrderId());
+                shipmentPayload.put("userId", change.userId());
+                shipmentPayload.put("status", shipmentStatus);
+                shipmentPayload.put("previousStatus", null);
+                shipmentPayload.put("shippedDate", shippedAt);
+                events.add(new OutboxService.OrderEvent(result.getOrderId(), OrderEvents.SHIPMENT_CREATED, shipmentPayload));
+            }
+        }
+        outboxService.publishOrderEvents(events);
+        shipmentCounterService.recordCreated(shippedAt, shipmentStatus, shipped);
+
+        return BulkOrderStatusResponse.builder()
+                .updated(updated)
+                .unchanged(unchanged)
+                .failed(results.size() - updated - unchanged)
+                .results(results)
+                .build();
+    }
+
+    // Giá lấy từ DB tại thời điểm trừ kho, không tin giá/tổng tiền từ client.
+    // Toàn bộ giỏ hàng thành công hoặc rollback cùng nhau.
+    @Override
+    @Transactional
+    public CheckoutResponse checkout(Long userId, CheckoutRequest request) {
+        requireUser(userId);
+        SortedMap<Long, Integer> quantities = mergeItems(request);
+
+        // Giữ hàng trên Redis trước để không bán trùng số lượng đang được giữ cho đợt mở bán
+        String holdId = stockReservationService.holdForCheckout(userId, quantities);
+
+        List<ReservedLine> lines = checkoutJdbcRepository.decrementStock(quantities);
+        if (lines.size() < quantities.size()) {
+            Set<Long> reserved = lines.stream().map(ReservedLine::productId).collect(Collectors.toSet());
+            List<Long> failed = quantities.keySet().stream().filter(id -> !reserved.contains(id)).toList();
+            throw checkoutFailure(failed, quantities);
+        }
+
+        CheckoutResponse response = placeOrder(userId, lines);
+        if (holdId != null) {
+            // Kho đã trừ đồng bộ; dòng này chỉ để sweeper biết đơn đã tạo nếu node chết trước khi xóa lượt giữ
+            stockCommitJdbcRepository.insert(holdId, response.getOrderId(), lines, true);
+        }
+
+        catalogCacheService.evictAfterCommit(CatalogCacheService.REGION_PRODUCTS, CatalogCacheService.REGION_CATEGORIES);
+        lines.stream()
+                .filter(l -> l.remainingStock() == 0)
+                .forEach(l -> productAutocompleteIndex.refreshAfterCommit(l.productId()));
+        return response;
+    }
+
+    @Override
+    public ReservationResponse reserve(Long userId, CheckoutRequest request) {
+        requireUser(userId);
+        return stockReservationService.reserve(userId, mergeItems(request));
+    }
+
+    // Tạo đơn từ lượt giữ hàng: không khóa dòng products, kho được StockCommitWorker trừ sau
+    @Override
+    @Transactional
+    public CheckoutResponse confirmReservation(Long userId, String reservationId) {
+        SortedMap<Long, Integer> quantities = stockReservationService.claim(userId, reservationId);
+
+        List<ReservedLine> lines = checkoutJdbcRepository.priceLines(quantities);
+        if (lines.size() < quantities.size()) {
+            Set<Long> found = lines.stream().map(ReservedLine::productId).collect(Collectors.toSet());
+            throw new ResourceNotFoundException("Không tìm thấy sản phẩm: "
+                    + quantities.keySet().stream().filter(id -> !found.contains(id)).toList());
+        }
+
+        CheckoutResponse response = placeOrder(userId, lines);
+        stockCommitJdbcRepository.insert(reservationId, response.getOrderId(), lines, false);
+        return response;
+    }
+
+    @Override
+    public void releaseReservation(Long userId, String reservationId) {
+        stockReservationService.release(userId, reservationId);
+    }
+
+    private void requireUser(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("Không tìm thấy user với id: " + userId);
+        }
+    }
+
+    // Gộp các dòng trùng sản phẩm; TreeMap giữ thứ tự product_id cho câu trừ kho / script giữ hàng
+    private static SortedMap<Long, Integer> mergeItems(CheckoutRequest request) {
+        SortedMap<Long, Integer> quantities = new TreeMap<>();
+        for (CheckoutItemRequest item : request.getItems()) {
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    private CheckoutResponse placeOrder(Long userId, List<ReservedLine> lines) {
+        BigDecimal total = lines.stream()
+                .map(l -> l.price().multiply(BigDecimal.valueOf(l.quantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        LocalDateTime orderDate = LocalDateTime.now();
+        long orderId = checkoutJdbcRepository.insertOrder(userId, orderDate, OrderStatus.PENDING, total);
+        checkoutJdbcRepository.insertOrderLines(orderId, lines);
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("orderId", orderId);
+        payload.put("userId", userId);
+        payload.put("status", OrderStatus.PENDING);
+        payload.put("totalAmount", total);
+        payload.put("orderDate", orderDate);
+        outboxService.publishOrderEvent(orderId, OrderEvents.ORDER_CREATED, payload);
+
+        return CheckoutResponse.builder()
+                .orderId(orderId)
+                .status(OrderStatus.PENDING)
+                .orderDate(orderDate)
+                .totalAmount(total)
+                .items(lines.stream().map(l -> CheckoutLineResponse.builder()
+                        .productId(l.productId())
+                        .productName(l.productName())
+                        .quantity(l.quantity())
+                        .unitPrice(l.price())
+                        .lineTotal(l.price().multiply(BigDecimal.valueOf(l.quantity())))
+                        .build()).toList())
+                .build();
+    }
+
+    private static Map<String, Object> orderPayload(Order order, String previousStatus) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("orderId", order.getOrderId());
+        payload.put("userId", order.getUser() != null ? order.getUser().getUserId() : null);
+        payload.put("status", order.getStatus());
+        payload.put("previousStatus", previousStatus);
+        payload.put("totalAmount", order.getTotalAmount());
+        payload.put("orderDate", order.getOrderDate());
+        return payload;
+    }
+
+    private RuntimeException checkoutFailure(List<Long> failed, Map<Long, Integer> requested) {
+        Map<Long, Integer> stock = checkoutJdbcRepository.findStock(failed);
+        List<Long> missing = failed.stream().filter(id -> !stock.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            return new ResourceNotFoundException("Không tìm thấy sản phẩm: " + missing);
         }
-        orderRepository.deleteById(orderId);
+        String detail = failed.stream()
+                .map(id -> "#" + id + " (còn " + stock.get(id) + ", cần " + requested.get(id) + ")")
+                .collect(Collectors.joining(", "));
+        return new ConflictException("Sản phẩm không đủ hàng: " + detail);
     }
 }
@@ -0,0 +1,205 @@
+package com.catshop.catshop.service.impl;
+
+import com.catshop.catshop.dto.response.CursorPageResponse;
+import com.catshop.catshop.dto.response.PaymentDiscrepancyResponse;
+import com.catshop.catshop.dto.response.ReconciliationRunResponse;
+import com.catshop.catshop.entity.PaymentDiscrepancy;
+import com.catshop.catshop.entity.ReconciliationRun;
+import com.catshop.catshop.exception.BadRequestException;
+import com.catshop.catshop.exception.ResourceNotFoundException;
+import com.catshop.catshop.repository.jdbc.PaymentReconciliationJdbcRepository;
+import com.catshop.catshop.repository.jdbc.PaymentReconciliationJdbcRepository.Chunk;
+import com.catshop.catshop.service.PaymentReconciliationService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Đối soát orders.total_amount với tổng chi tiết đơn (quantity * price) và tổng payment.
+ *
+ * Duyệt đơn theo keyset order_id, mỗi lô reconciliation.batch-size đơn là một transaction ngắn:
+ * một câu SQL tính tổng cho cả lô, ghi đơn lệch vào payment_discrepancies và lưu checkpoint
+ * (last_order_id) cùng commit. Bị ngắt (deploy, lỗi DB) thì lần sau chạy tiếp từ checkpoint.
+ * Chạy trên một luồng riêng (không chiếm scheduler) và nghỉ reconciliation.pause-ms giữa các lô
+ * để không giành connection / IO với request của người dùng.
+ */
+@Slf4j
+@Service
+public class PaymentReconciliationServiceImpl implements PaymentReconciliationService {
+
+    private static final int RECENT_RUNS = 20;
+
+    private final PaymentReconciliationJdbcRepository reconciliationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long pauseMs;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("payment-reconciliation").daemon().factory());
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopping;
+
+    public PaymentReconciliationServiceImpl(PaymentReconciliationJdbcRepository reconciliationRepository,
+                                            TransactionTemplate transactionTemplate,
+                                            @Value("${reconciliation.batch-size:500}") int batchSize,
+                                            @Value("${reconciliation.pause-ms:200}") long pauseMs) {
+        this.reconciliationRepository = reconciliationRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        worker.shutdownNow();
+    }
+
+    // Lần chạy bị ngắt bởi lần tắt ứng dụng trước được chạy tiếp ngay
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            reconciliationRepository.findUnfinished().ifPresent(run -> submit(run.getId()));
+        } catch (Exception e) {
+            log.warn("⚠️ [RECONCILE] Không kiểm tra được lần đối soát dở: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${reconciliation.cron:0 0 2 * * *}")
+    public void scheduledRun() {
+        try {
+            start();
+        } catch (Exception e) {
+            log.error("❌ [RECONCILE] Không bắt đầu được đối soát payment: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public ReconciliationRunResponse start() {
+        ReconciliationRun run = transactionTemplate.execute(status -> {
+            reconciliationRepository.lockForCreate();
+            return reconciliationRepository.findUnfinished().orElseGet(() ->
+                    reconciliationRepository.createRun(reconciliationRepository.maxOrderId(), LocalDateTime.now()));
+        });
+        submit(run.getId());
+        return toResponse(run);
+    }
+
+    private void submit(long runId) {
+        if (stopping || !running.compareAndSet(false, true)) return;
+        worker.execute(() -> {
+            try {
+                runChunks(runId);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    private void runChunks(long runId) {
+        log.info("🔎 [RECONCILE] Bắt đầu / chạy tiếp đối soát payment #{}", runId);
+        try {
+            while (!stopping) {
+                Boolean more = transactionTemplate.execute(status -> processNextChunk(runId));
+                if (!Boolean.TRUE.equals(more)) return;
+                Thread.sleep(pauseMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Giữ RUNNING: lần chạy sau đi tiếp từ checkpoint
+            log.error("❌ [RECONCILE] Đối soát payment #{} dừng giữa chừng: {}", runId, e.getMessage());
+            try {
+                reconciliationRepository.recordError(runId, truncate(e.getMessage()), LocalDateTime.now());
+            } catch (Exception ignored) {
+                // DB lỗi thì cũng không ghi được lỗi
+            }
+        }
+    }
+
+    private boolean processNextChunk(long runId) {
+        ReconciliationRun run = reconciliationRepository.lock(runId).orElse(null);
+        if (run == null || !ReconciliationRun.STATUS_RUNNING.equals(run.getStatus())) return false;
+
+        LocalDateTime now = LocalDateTime.now();
+        Chunk chunk = reconciliationRepository.processChunk(runId, run.getLastOrderId(), run.getMaxOrderId(), batchSize, now);
+        if (chunk.orders() == 0) {
+            reconciliationRepository.complete(runId, now);
+            log.info("✅ [RECONCILE] Đối soát payment #{} xong: {} đơn, {} chỗ lệch",
+                    runId, run.getOrdersChecked(), run.getDiscrepancyCount());
+            return false;
+        }
+        reconciliationRepository.checkpoint(runId, chunk.lastOrderId(), chunk.orders(), chunk.discrepancies(), now);
+        return true;
+    }
+
+    @Override
+    public List<ReconciliationRunResponse> listRuns() {
+        return reconciliationRepository.findRecent(RECENT_RUNS).stream().map(this::toResponse).toList();
+    }
+
+    @Override
+    public CursorPageResponse<PaymentDiscrepancyResponse> getDiscrepancies(Long runId, String cursor, int size) {
+        reconciliationRepository.find(runId)
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy lần đối soát ID: " + runId));
+        if (size < 1 || size > 100) throw new BadRequestException("size phải từ 1 đến 100");
+        long afterId;
+        try {
+            afterId = cursor == null || cursor.isBlank() ? 0L : Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("cursor không hợp lệ");
+        }
+
+        // Lấy dư 1 dòng để biết còn trang sau hay không
+        List<PaymentDiscrepancy> rows = reconciliationRepository.findDiscrepancies(runId, afterId, size + 1);
+        boolean hasMore = rows.size() > size;
+        List<PaymentDiscrepancy> page = hasMore ? rows.subList(0, size) : rows;
+        return CursorPageResponse.<PaymentDiscrepancyResponse>builder()
+                .items(page.stream().map(this::toResponse).toList())
+                .nextCursor(hasMore ? String.valueOf(page.get(page.size() - 1).getId()) : null)
+                .hasMore(hasMore)
+                .size(page.size())
+                .build();
+    }
+
+    private static String truncate(String message) {
+        if (message == null) return null;
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+
+    private ReconciliationRunResponse toResponse(ReconciliationRun run) {
+        return ReconciliationRunResponse.builder()
+                .id(run.getId())
+                .status(run.getStatus())
+                .maxOrderId(run.getMaxOrderId())
+                .lastOrderId(run.getLastOrderId())
+                .ordersChecked(run.getOrdersChecked())
+                .discrepancyCount(run.getDiscrepancyCount())
+                .startedAt(run.getStartedAt())
+                .updatedAt(run.getUpdatedAt())
+                .finishedAt(run.getFinishedAt())
+                .lastError(run.getLastError())
+                .build();
+    }
+
+    private PaymentDiscrepancyResponse toResponse(PaymentDiscrepancy discrepancy) {
+        return PaymentDiscrepancyResponse.builder()
+                .orderId(discrepancy.getOrderId())
+                .kind(discrepancy.getKind())
+                .orderTotal(discrepancy.getOrderTotal())
+                .lineTotal(discrepancy.getLineTotal())
+                .paymentTotal(discrepancy.getPaymentTotal())
+                .detectedAt(discrepancy.getDetectedAt())
+                .build();
+    }
+}
@@ -1,20 +1,30 @@
 package com.catshop.catshop.service.impl;
 
+import com.catshop.catshop.dto.request.PaymentPageRequest;
 import com.catshop.catshop.dto.request.PaymentRequest;
+import com.catshop.catshop.dto.response.CursorPageResponse;
 import com.catshop.catshop.dto.response.PaymentResponse;
 import com.catshop.catshop.entity.Order;
 import com.catshop.catshop.entity.Payment;
+import com.catshop.catshop.event.OrderEvents;
 import com.catshop.catshop.exception.ResourceNotFoundException;
 import com.catshop.catshop.mapper.PaymentMapper;
 import com.catshop.catshop.repository.OrderRepository;
 import com.catshop.catshop.repository.PaymentRepository;
+import com.catshop.catshop.repository.specification.PaymentSpecification;
+import com.catshop.catshop.service.OutboxService;
 import com.catshop.catshop.service.PaymentService;
+import com.catshop.catshop.service.SalesRollupService;
+import com.catshop.catshop.util.PaymentCursor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -23,9 +33,12 @@ public class PaymentServiceImpl implements PaymentService {
     private final PaymentRepository paymentRepository;
     private final OrderRepository orderRepository;
     private final PaymentMapper paymentMapper;
+    private final SalesRollupService salesRollupService;
+    private final OutboxService outboxService;
 
     // CRUD ==============================
     @Override
+    @Transactional(readOnly = true)
     public List<PaymentResponse> getAllPayments() {
         return paymentRepository.findAllOrderByDateDesc().stream()
                 .map(paymentMapper::toPaymentResponse)
@@ -33,6 +46,7 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     @Override
+    @Transactional
     public PaymentResponse createPayment(PaymentRequest request) {
         Order order = orderRepository.findById(request.getOrderId())
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy đơn hàng ID = " + request.getOrderId()));
@@ -44,15 +58,18 @@ public class PaymentServiceImpl implements PaymentService {
                 .build();
 
         paymentRepository.save(payment);
+        publish(payment, OrderEvents.PAYMENT_CREATED, null);
         return paymentMapper.toPaymentResponse(payment);
     }
 
     @Override
+    @Transactional
     public PaymentResponse updatePayment(Long id, PaymentRequest request) {
         Payment payment = paymentRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy payment ID = " + id));
 
-        if (!payment.getOrder().getOrderId().equals(request.getOrderId())) {
+        Long previousOrderId = payment.getOrder().getOrderId();
+        if (!previousOrderId.equals(request.getOrderId())) {
             Order newOrder = orderRepository.findById(request.getOrderId())
                     .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy đơn hàng ID = " + request.getOrderId()));
             payment.setOrder(newOrder);
@@ -61,18 +78,34 @@ public class PaymentServiceImpl implements PaymentService {
         payment.setMethod(request.getMethod());
         payment.setAmount(request.getAmount());
         paymentRepository.save(payment);
+        publish(payment, OrderEvents.PAYMENT_UPDATED, previousOrderId);
         return paymentMapper.toPaymentResponse(payment);
     }
 
     @Override
+    @Transactional
     public void deletePayment(Long id) {
         Payment payment = paymentRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy payment ID = " + id));
         paymentRepository.delete(payment);
+        publish(payment, OrderEvents.PAYMENT_DELETED, null);
+    }
+
+    private void publish(Payment payment, String eventType, Long previousOrderId) {
+        Long orderId = payment.getOrder().getOrderId();
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("paymentId", payment.getPaymentId());
+        payload.put("orderId", orderId);
+        payload.put("previousOrderId", previousOrderId);
+        payload.put("method", payment.getMethod());
+        payload.put("amount", payment.getAmount());
+        payload.put("paymentDate", payment.getPaymentDate());
+        outboxService.publishOrderEvent(orderId, eventType, payload);
     }
 
     // FILTERS ============================
     @Override
+    @Transactional(readOnly = true)
     public List<PaymentResponse> getPaymentsByOrderId(Long orderId) {
         return paymentRepository.findByOrderId(orderId).stream()
                 .map(paymentMapper::toPaymentResponse)
@@ -80,6 +113,7 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<PaymentResponse> getPaymentsByUserId(Long userId) {
         return paymentRepository.findByUserId(userId).stream()
                 .map(paymentMapper::toPaymentResponse)
@@ -87,6 +121,7 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<PaymentResponse> getPaymentsByMethod(String method) {
         return paymentRepository.findByMethodIgnoreCase(method).stream()
                 .map(paymentMapper::toPaymentResponse)
@@ -94,6 +129,7 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<PaymentResponse> getPaymentsByDateRange(LocalDateTime start, LocalDateTime end) {
         return paymentRepository.findByPaymentDateBetween(start, end).stream()
                 .map(paymentMapper::toPaymentResponse)
@@ -101,46 +137,76 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<PaymentResponse> getPaymentsByMinAmount(BigDecimal minAmount) {
         return paymentRepository.findByMinAmount(minAmount).stream()
                 .map(paymentMapper::toPaymentResponse)
                 .toList();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponse<PaymentResponse> getPaymentsPage(PaymentPageRequest request) {
+        int size = request.getSize() != null ? request.getSize() : 20;
+        PaymentCursor cursor = (request.getCursor() == null || request.getCursor().isBlank())
+                ? null
+                : PaymentCursor.decode(request.getCursor());
+
+        // Lấy dư 1 dòng để biết còn trang sau hay không, không cần COUNT(*)
+        List<Payment> rows = paymentRepository.findBy(
+                PaymentSpecification.withFilters(request).and(PaymentSpecification.after(cursor)),
+                q -> q.sortBy(PaymentSpecification.NEWEST).limit(size + 1).all());
+
+        boolean hasMore = rows.size() > size;
+        List<Payment> page = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = hasMore ? PaymentCursor.after(page.get(page.size() - 1)).encode() : null;
+
+        return CursorPageResponse.<PaymentResponse>builder()
+                .items(page.stream().map(paymentMapper::toPaymentResponse).toList())
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .size(page.size())
+                .build();
+    }
+
     // STATISTICS =========================
     @Override
+    @Transactional(readOnly = true)
     public BigDecimal getTotalAmount() {
-        return paymentRepository.getTotalPaymentAmount();
+        return salesRollupService.totalPayments();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public BigDecimal getTotalAmountByUser(Long userId) {
         return paymentRepository.getTotalPaymentAmountByUser(userId);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Object[]> getCountAndSumByMethod() {
-        return paymentRepository.countAndSumByMethod();
+        return salesRollupService.paymentsByMethod();
     }
 
     // USER SECTION =======================
     @Override
+    @Transactional(readOnly = true)
     public List<PaymentResponse> getUserPayments(Long userId) {
         return getPaymentsByUserId(userId);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<PaymentResponse> getUserPaymentsByMethod(Long userId, String method) {
-        return paymentRepository.findByUserId(userId).stream()
-                .filter(p -> p.getMethod().equalsIgnoreCase(method))
+        return paymentRepository.findByUserIdAndMethod(userId, method).stream()
                 .map(paymentMapper::toPaymentResponse)
                 .toList();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<PaymentResponse> getUserPaymentsByDateRange(Long userId, LocalDateTime start, LocalDateTime end) {
-        return paymentRepository.findByUserId(userId).stream()
-                .filter(p -> !p.getPaymentDate().isBefore(start) && !p.getPaymentDate().isAfter(end))
+        return paymentRepository.findByUserIdAndPaymentDateBetween(userId, start, end).stream()
                 .map(paymentMapper::toPaymentResponse)
                 .toList();
     }
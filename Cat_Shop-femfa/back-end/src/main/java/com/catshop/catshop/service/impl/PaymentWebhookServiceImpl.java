@@ -0,0 +1,164 @@
+package com.catshop.catshop.service.impl;
+
+import com.catshop.catshop.dto.request.PaymentWebhookRequest;
+import com.catshop.catshop.exception.BadRequestException;
+import com.catshop.catshop.exception.UnauthorizedException;
+import com.catshop.catshop.service.PaymentWebhookService;
+import com.catshop.catshop.service.PaymentWebhookWorker;
+import com.catshop.catshop.util.WebhookSignature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Nhận webhook từ cổng thanh toán. Chỉ kiểm tra chữ ký, chống trùng nhanh theo eventId trên Redis
+ * và XADD vào stream payments:webhook rồi trả lời ngay; PaymentWebhookWorker lưu payment theo lô.
+ * Redis lỗi thì trả 5xx để cổng thanh toán gửi lại, không bao giờ trả 2xx cho sự kiện chưa vào hàng đợi.
+ */
+@Slf4j
+@Service
+public class PaymentWebhookServiceImpl implements PaymentWebhookService {
+
+    private static final String DEDUP_KEY_PREFIX = "webhook:payment:";
+    // Khớp cột DB (payment_webhook_events.event_id, payments.method, payments.amount numeric(38,2)): sự kiện không
+    // lưu được phải bị từ chối ở đây, nếu không nó chỉ hỏng khi worker lưu
+    private static final int MAX_EVENT_ID_LENGTH = 100;
+    private static final int MAX_METHOD_LENGTH = 255;
+    private static final int AMOUNT_SCALE = 2;
+    private static final int AMOUNT_PRECISION = 38;
+    private static final int MAX_REPLAY = 1000;
+
+    // KEYS: dead letter, stream. ARGV: số sự kiện tối đa, tên field lỗi.
+    // Chuyển nguyên trạng (bỏ field lỗi) rồi XDEL trong cùng script: không mất cũng không nhân đôi sự kiện
+    private static final DefaultRedisScript<Long> REPLAY_DEAD_LETTERS = new DefaultRedisScript<>("""
+            local entries = redis.call('XRANGE', KEYS[1], '-', '+', 'COUNT', ARGV[1])
+            for _, entry in ipairs(entries) do
+              local fields = {}
+              local values = entry[2]
+              for i = 1, #values, 2 do
+                if values[i] ~= ARGV[2] then
+                  fields[#fields + 1] = values[i]
+                  fields[#fields + 1] = values[i + 1]
+                end
+              end
+              if #fields > 0 then redis.call('XADD', KEYS[2], '*', unpack(fields)) end
+              redis.call('XDEL', KEYS[1], entry[1])
+            end
+            return #entries
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String secret;
+    private final long toleranceSeconds;
+    private final Duration dedupTtl;
+
+    public PaymentWebhookServiceImpl(StringRedisTemplate redisTemplate,
+                                     ObjectMapper objectMapper,
+                                     @Value("${payment.webhook.secret:}") String secret,
+                                     @Value("${payment.webhook.tolerance-seconds:300}") long toleranceSeconds,
+                                     @Value("${payment.webhook.dedup-ttl-hours:72}") long dedupTtlHours) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.secret = secret;
+        this.toleranceSeconds = toleranceSeconds;
+        this.dedupTtl = Duration.ofHours(dedupTtlHours);
+    }
+
+    @Override
+    public String receive(byte[] body, String timestamp, String signature) {
+        verify(body, timestamp, signature);
+
+        PaymentWebhookRequest event;
+        try {
+            event = objectMapper.readValue(body, PaymentWebhookRequest.class);
+        } catch (Exception e) {
+            throw new BadRequestException("Body webhook không hợp lệ");
+        }
+        if (!PaymentWebhookRequest.TYPE_SUCCEEDED.equals(event.getType())) return RESULT_IGNORED;
+        validate(event);
+
+        String dedupKey = DEDUP_KEY_PREFIX + event.getEventId();
+        try {
+            if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(dedupKey, "1", dedupTtl))) {
+                return RESULT_DUPLICATE;
+            }
+            try {
+                redisTemplate.opsForStream().add(StreamRecords.string(
+                                Map.of(PaymentWebhookWorker.FIELD_EVENT, objectMapper.writeValueAsString(event)))
+                        .withStreamKey(PaymentWebhookWorker.STREAM_KEY));
+            } catch (Exception e) {
+                // Chưa vào hàng đợi: bỏ đánh dấu để lần gửi lại của cổng thanh toán không bị coi là trùng
+                redisTemplate.delete(dedupKey);
+                throw e;
+            }
+        } catch (Exception e) {
+            log.error("❌ [WEBHOOK] Không đưa được sự kiện {} vào hàng đợi: {}", event.getEventId(), e.getMessage());
+            throw new IllegalStateException("Redis không khả dụng, vui lòng gửi lại webhook sau");
+        }
+        return RESULT_ACCEPTED;
+    }
+
+    // Phát lại sau khi đã sửa nguyên nhân (DB, dữ liệu đơn...): worker lưu lại như sự kiện mới, khóa chính
+    // payment_webhook_events vẫn chặn payment trùng. Sự kiện hỏng do chính dữ liệu của nó sẽ lại vào dead letter.
+    @Override
+    public int replayDeadLetters(int limit) {
+        if (limit < 1 || limit > MAX_REPLAY) {
+            throw new BadRequestException("limit phải từ 1 đến " + MAX_REPLAY);
+        }
+        Long replayed = redisTemplate.execute(REPLAY_DEAD_LETTERS,
+                List.of(PaymentWebhookWorker.DEAD_LETTER_KEY, PaymentWebhookWorker.STREAM_KEY),
+                String.valueOf(limit), PaymentWebhookWorker.FIELD_ERROR);
+        int count = replayed != null ? replayed.intValue() : 0;
+        log.info("🔁 [WEBHOOK] Phát lại {} sự kiện từ {}", count, PaymentWebhookWorker.DEAD_LETTER_KEY);
+        return count;
+    }
+
+    private void verify(byte[] body, String timestamp, String signature) {
+        if (secret == null || secret.isBlank()) {
+            log.error("❌ [WEBHOOK] Chưa cấu hình payment.webhook.secret, từ chối mọi webhook");
+            throw new UnauthorizedException("Webhook thanh toán chưa được cấu hình");
+        }
+        long sentAt;
+        try {
+            sentAt = Long.parseLong(timestamp);
+        } catch (NumberFormatException e) {
+            throw new UnauthorizedException("Thiếu hoặc sai header " + WebhookSignature.HEADER_TIMESTAMP);
+        }
+        if (Math.abs(System.currentTimeMillis() / 1000 - sentAt) > toleranceSeconds) {
+            throw new UnauthorizedException("Webhook đã quá hạn");
+        }
+        if (!WebhookSignature.verify(secret, timestamp, body, signature)) {
+            throw new UnauthorizedException("Chữ ký webhook không hợp lệ");
+        }
+    }
+
+    private void validate(PaymentWebhookRequest event) {
+        if (event.getEventId() == null || event.getEventId().isBlank() || event.getEventId().length() > MAX_EVENT_ID_LENGTH) {
+            throw new BadRequestException("eventId phải có từ 1 đến " + MAX_EVENT_ID_LENGTH + " ký tự");
+        }
+        if (event.getOrderId() == null) {
+            throw new BadRequestException("orderId không được để trống");
+        }
+        if (event.getAmount() == null || event.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new BadRequestException("amount phải lớn hơn 0");
+        }
+        BigDecimal amount = event.getAmount().stripTrailingZeros();
+        if (amount.scale() > AMOUNT_SCALE || amount.precision() - amount.scale() > AMOUNT_PRECISION - AMOUNT_SCALE) {
+            throw new BadRequestException("amount tối đa " + (AMOUNT_PRECISION - AMOUNT_SCALE) + " chữ số phần nguyên và "
+                    + AMOUNT_SCALE + " chữ số thập phân");
+        }
+        if (event.getMethod() != null && event.getMethod().length() > MAX_METHOD_LENGTH) {
+            throw new BadRequestException("method tối đa " + MAX_METHOD_LENGTH + " ký tự");
+        }
+    }
+}
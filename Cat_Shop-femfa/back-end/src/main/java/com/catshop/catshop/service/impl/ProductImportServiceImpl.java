@@ -0,0 +1,480 @@
+package com.catshop.catshop.service.impl;
+
+import com.catshop.catshop.dto.request.ProductImportRow;
+import com.catshop.catshop.dto.response.ImportRowError;
+import com.catshop.catshop.dto.response.ProductImportResponse;
+import com.catshop.catshop.exception.BadRequestException;
+import com.catshop.catshop.service.CatalogCacheService;
+import com.catshop.catshop.service.FileStorageService;
+import com.catshop.catshop.service.ProductAutocompleteIndex;
+import com.catshop.catshop.service.ProductImportService;
+import com.catshop.catshop.service.ProductSearchIndex;
+import com.catshop.catshop.service.StockReservationService;
+import com.catshop.catshop.util.CsvReader;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Import sản phẩm hàng loạt.
+ *
+ * - Đọc file theo luồng từng dòng (CSV hoặc NDJSON), không nạp cả file vào bộ nhớ.
+ * - ProductType / Category được tra bằng tên trong map nạp sẵn một lần.
+ * - Ghi theo chunk bằng JDBC batch: UPDATE cho tên đã có, INSERT (lấy id sinh ra) cho tên mới,
+ *   bảng chi tiết dùng INSERT ... ON CONFLICT DO UPDATE. Mỗi chunk một transaction.
+ * - Chunk lỗi được ghi lại từng dòng để chỉ ra đúng dòng hỏng; các dòng khác vẫn được import.
+ * - File hỏng giữa chừng (CSV thiếu nháy đóng) thì bản ghi hỏng được báo lỗi và import dừng ở đó,
+ *   trả về báo cáo cho phần đã ghi thay vì lỗi 400 khi các chunk trước đã commit.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductImportServiceImpl implements ProductImportService {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    // Khớp với type id mà các service chi tiết (Cat/Food/Cage/Cleaning) kiểm tra
+    private static final long CAT_TYPE_ID = 1;
+    private static final long FOOD_TYPE_ID = 2;
+    private static final long CAGE_TYPE_ID = 3;
+    private static final long CLEANING_TYPE_ID = 4;
+
+    private static final String FIND_EXISTING_SQL = """
+            SELECT product_name, MAX(product_id) FROM products
+            WHERE product_name = ANY(?) GROUP BY product_name
+            """;
+    private static final String INSERT_PRODUCT_SQL = """
+            INSERT INTO products (product_name, type_id, category_id, price, stock_quantity, description, image_url)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final String UPDATE_PRODUCT_SQL = """
+            UPDATE products SET type_id = ?, category_id = ?, price = ?, stock_quantity = ?,
+                   description = ?, image_url = COALESCE(?, image_url)
+            WHERE product_id = ?
+            """;
+    private static final String UPSERT_CAT_SQL = """
+            INSERT INTO catdetails (cat_id, breed, age, gender, vaccinated) VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (cat_id) DO UPDATE SET breed = EXCLUDED.breed, age = EXCLUDED.age,
+                gender = EXCLUDED.gender, vaccinated = EXCLUDED.vaccinated
+            """;
+    private static final String UPSERT_FOOD_SQL = """
+            INSERT INTO food_details (food_id, weight_kg, ingredients, expiry_date) VALUES (?, ?, ?, ?)
+            ON CONFLICT (food_id) DO UPDATE SET weight_kg = EXCLUDED.weight_kg,
+                ingredients = EXCLUDED.ingredients, expiry_date = EXCLUDED.expiry_date
+            """;
+    private static final String UPSERT_CAGE_SQL = """
+            INSERT INTO cage_details (cage_id, material, dimensions) VALUES (?, ?, ?)
+            ON CONFLICT (cage_id) DO UPDATE SET material = EXCLUDED.material, dimensions = EXCLUDED.dimensions
+            """;
+    private static final String UPSERT_CLEANING_SQL = """
+            INSERT INTO cleaning_details (cleaning_id, volume_ml, usage) VALUES (?, ?, ?)
+            ON CONFLICT (cleaning_id) DO UPDATE SET volume_ml = EXCLUDED.volume_ml, usage = EXCLUDED.usage
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final CatalogCacheService catalogCacheService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductAutocompleteIndex productAutocompleteIndex;
+    private final StockReservationService stockReservationService;
+    private final FileStorageService fileStorageService;
+
+    @Override
+    public ProductImportResponse importProducts(MultipartFile file, String format) {
+        if (file == null || file.isEmpty()) {
+            throw new BadRequestException("File import không được để trống");
+        }
+        boolean ndjson = isNdjson(file, format);
+        long start = System.currentTimeMillis();
+
+        Lookup lookup = loadLookup();
+        Report report = new Report();
+        Set<String> seenNames = new HashSet<>();
+        List<ValidRow> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            RowSource source = ndjson ? ndjsonSource(reader) : csvSource(reader);
+            SourceRow raw;
+            while ((raw = source.next()) != null) {
+                report.totalRows++;
+                ValidRow row = validate(raw, lookup, seenNames, report);
+                if (raw.fatal()) {
+                    report.stopped = true;
+                    break;
+                }
+                if (row == null) continue;
+                chunk.add(row);
+                if (chunk.size() >= CHUNK_SIZE) {
+                    flush(chunk, report);
+                    chunk.clear();
+                }
+            }
+            flush(chunk, report);
+        } catch (IOException e) {
+            throw new BadRequestException("Không đọc được file import: " + e.getMessage());
+        } finally {
+            if (report.inserted + report.updated > 0) {
+                // Import ghi thẳng bằng JDBC nên phải tự làm mới cache và index
+                catalogCacheService.evict(CatalogCacheService.REGION_PRODUCTS, CatalogCacheService.REGION_CATEGORIES);
+                productSearchIndex.rebuild();
+                productAutocompleteIndex.rebuild();
+            }
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("📦 [IMPORT] {} dòng: {} thêm mới, {} cập nhật, {} lỗi trong {} ms",
+                report.totalRows, report.inserted, report.updated, report.failed, elapsed);
+        return ProductImportResponse.builder()
+                .totalRows(report.totalRows)
+                .inserted(report.inserted)
+                .updated(report.updated)
+                .failed(report.failed)
+                .errors(report.errors)
+                .errorsTruncated(report.failed > report.errors.size())
+                .stopped(report.stopped)
+                .elapsedMillis(elapsed)
+                .build();
+    }
+
+    // ====================== ĐỌC FILE ======================
+
+    private static boolean isNdjson(MultipartFile file, String format) {
+        if (format != null && !format.isBlank()) {
+            return switch (format.trim().toLowerCase()) {
+                case "csv" -> false;
+                case "ndjson", "jsonl" -> true;
+                default -> throw new BadRequestException("Định dạng import không hỗ trợ: " + format + " (csv | ndjson)");
+            };
+        }
+        String name = Optional.ofNullable(file.getOriginalFilename()).orElse("").toLowerCase();
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl");
+    }
+
+    private RowSource csvSource(BufferedReader reader) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.next();
+        if (header == null) throw new BadRequestException("File CSV không có dòng tiêu đề");
+        List<String> columns = header.stream().map(String::trim).toList();
+
+        return () -> {
+            List<String> values;
+            try {
+                values = csv.next();
+            } catch (CsvReader.MalformedCsvException e) {
+                return SourceRow.fatal(csv.getRecordLine(), "Dừng import: " + e.getMessage());
+            }
+            if (values == null) return null;
+            int line = csv.getRecordLine();
+            if (values.size() > columns.size()) {
+                return SourceRow.error(line, "Số cột (" + values.size() + ") nhiều hơn tiêu đề (" + columns.size() + ")");
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < values.size(); i++) {
+                String value = values.get(i).trim();
+                if (!value.isEmpty()) fields.put(columns.get(i), value);
+            }
+            try {
+                return SourceRow.ok(line, objectMapper.convertValue(fields, ProductImportRow.class));
+            } catch (IllegalArgumentException e) {
+                return SourceRow.error(line, "Giá trị không hợp lệ: " + rootMessage(e));
+            }
+        };
+    }
+
+    private RowSource ndjsonSource(BufferedReader reader) {
+        int[] lineNo = {0};
+        return () -> {
+            String line;
+            do {
+                line = reader.readLine();
+                lineNo[0]++;
+                if (line == null) return null;
+            } while (line.isBlank());
+            try {
+                return SourceRow.ok(lineNo[0], objectMapper.readValue(line, ProductImportRow.class));
+            } catch (JsonProcessingException e) {
+                return SourceRow.error(lineNo[0], "JSON không hợp lệ: " + e.getOriginalMessage());
+            }
+        };
+    }
+
+    // ====================== KIỂM TRA ======================
+
+    private Lookup loadLookup() {
+        Map<String, Long> types = new HashMap<>();
+        jdbcTemplate.query("SELECT type_id, type_name FROM product_types",
+                rs -> { types.put(key(rs.getString(2)), rs.getLong(1)); });
+        Map<String, Map<Long, Long>> categories = new HashMap<>();
+        jdbcTemplate.query("SELECT category_id, category_name, type_id FROM categories",
+                rs -> {
+                    categories.computeIfAbsent(key(rs.getString(2)), k -> new HashMap<>()).put(rs.getLong(3), rs.getLong(1));
+                });
+        return new Lookup(types, categories);
+    }
+
+    private static ValidRow validate(SourceRow raw, Lookup lookup, Set<String> seenNames, Report report) {
+        if (raw.error() != null) {
+            report.fail(raw.line(), null, raw.error());
+            return null;
+        }
+        ProductImportRow row = raw.row();
+        String name = row.getProductName() != null ? row.getProductName().trim() : "";
+        List<String> problems = new ArrayList<>();
+
+        if (name.isEmpty()) problems.add("productName trống");
+        else if (name.length() > 100) problems.add("productName dài quá 100 ký tự");
+
+        Long typeId = row.getTypeName() != null ? lookup.types().get(key(row.getTypeName())) : null;
+        if (typeId == null) problems.add("typeName không tồn tại: " + row.getTypeName());
+
+        Long categoryId = null;
+        if (row.getCategoryName() != null) {
+            Map<Long, Long> byType = lookup.categories().get(key(row.getCategoryName()));
+            if (byType == null) problems.add("categoryName không tồn tại: " + row.getCategoryName());
+            else if (typeId != null && !byType.containsKey(typeId)) problems.add("categoryName không thuộc loại " + row.getTypeName());
+            else if (typeId != null) categoryId = byType.get(typeId);
+        }
+
+        if (row.getPrice() == null || row.getPrice().compareTo(BigDecimal.ZERO) <= 0) problems.add("price phải lớn hơn 0");
+        if (row.getStockQuantity() != null && row.getStockQuantity() < 0) problems.add("stockQuantity không được âm");
+        if (row.getImageUrl() != null && row.getImageUrl().length() > 255) problems.add("imageUrl dài quá 255 ký tự");
+
+        if (!name.isEmpty() && !seenNames.add(name)) problems.add("productName bị lặp trong file");
+
+        if (!problems.isEmpty()) {
+            report.fail(raw.line(), name.isEmpty() ? null : name, String.join("; ", problems));
+            return null;
+        }
+        row.setProductName(name);
+        if (row.getStockQuantity() == null) row.setStockQuantity(0);
+        return new ValidRow(raw.line(), row, typeId, categoryId);
+    }
+
+    private static String key(String name) {
+        return name == null ? "" : name.trim().toLowerCase();
+    }
+
+    // ====================== GHI DB ======================
+
+    private void flush(List<ValidRow> chunk, Report report) {
+        if (chunk.isEmpty()) return;
+        try {
+            int[] counts = transactionTemplate.execute(status -> writeChunk(chunk));
+            report.inserted += counts[0];
+            report.updated += counts[1];
+        } catch (RuntimeException e) {
+            // Chunk hỏng: ghi lại từng dòng để tìm đúng dòng lỗi, các dòng còn lại vẫn vào DB
+            log.debug("[IMPORT] Chunk lỗi, ghi lại từng dòng: {}", e.getMessage());
+            for (ValidRow row : chunk) {
+                try {
+                    int[] counts = transactionTemplate.execute(status -> writeChunk(List.of(row)));
+                    report.inserted += counts[0];
+                    report.updated += counts[1];
+                } catch (RuntimeException rowError) {
+                    report.fail(row.line(), row.row().getProductName(), rootMessage(rowError));
+                }
+            }
+        }
+    }
+
+    // {số dòng thêm mới, số dòng cập nhật}
+    private int[] writeChunk(List<ValidRow> rows) {
+        // Ảnh đã upload được trỏ tới không bị dọn trước khi chunk commit
+        fileStorageService.claimUrls(rows.stream().map(r -> r.row().getImageUrl()).filter(Objects::nonNull).toList());
+
+        Map<String, Long> existing = new HashMap<>();
+        jdbcTemplate.query(FIND_EXISTING_SQL,
+                rs -> { existing.put(rs.getString(1), rs.getLong(2)); },
+                (Object) rows.stream().map(r -> r.row().getProductName()).toArray(String[]::new));
+
+        List<ValidRow> toUpdate = new ArrayList<>();
+        List<ValidRow> toInsert = new ArrayList<>();
+        Map<ValidRow, Long> ids = new IdentityHashMap<>();
+        for (ValidRow row : rows) {
+            Long id = existing.get(row.row().getProductName());
+            if (id != null) {
+                toUpdate.add(row);
+                ids.put(row, id);
+            } else {
+                toInsert.add(row);
+            }
+        }
+
+        if (!toUpdate.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_PRODUCT_SQL, toUpdate, toUpdate.size(), (ps, r) -> {
+                ProductImportRow p = r.row();
+                ps.setLong(1, r.typeId());
+                set(ps, 2, r.categoryId(), Types.BIGINT);
+                ps.setBigDecimal(3, p.getPrice());
+                ps.setInt(4, p.getStockQuantity());
+                set(ps, 5, p.getDescription(), Types.VARCHAR);
+                set(ps, 6, p.getImageUrl(), Types.VARCHAR);
+                ps.setLong(7, ids.get(r));
+            });
+            // Tồn kho được đặt tuyệt đối: counter giữ hàng trên Redis bị xóa sau khi chunk commit để nạp lại từ DB
+            stockReservationService.stockChangedAfterCommit(toUpdate.stream().map(ids::get).toList());
+        }
+
+        if (!toInsert.isEmpty()) {
+            GeneratedKeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(
+                    con -> con.prepareStatement(INSERT_PRODUCT_SQL, new String[]{"product_id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ValidRow r = toInsert.get(i);
+                            ProductImportRow p = r.row();
+                            ps.setString(1, p.getProductName());
+                            ps.setLong(2, r.typeId());
+                            set(ps, 3, r.categoryId(), Types.BIGINT);
+                            ps.setBigDecimal(4, p.getPrice());
+                            ps.setInt(5, p.getStockQuantity());
+                            set(ps, 6, p.getDescription(), Types.VARCHAR);
+                            set(ps, 7, p.getImageUrl(), Types.VARCHAR);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return toInsert.size();
+                        }
+                    },
+                    keys);
+            List<Map<String, Object>> generated = keys.getKeyList();
+            for (int i = 0; i < toInsert.size(); i++) {
+                ids.put(toInsert.get(i), ((Number) generated.get(i).get("product_id")).longValue());
+            }
+        }
+
+        upsertDetails(rows, ids);
+        return new int[]{toInsert.size(), toUpdate.size()};
+    }
+
+    private void upsertDetails(List<ValidRow> rows, Map<ValidRow, Long> ids) {
+        upsert(rows, CAT_TYPE_ID, UPSERT_CAT_SQL,
+                p -> p.getBreed() != null || p.getAge() != null || p.getGender() != null || p.getVaccinated() != null,
+                (ps, r) -> {
+                    ProductImportRow p = r.row();
+                    ps.setLong(1, ids.get(r));
+                    set(ps, 2, p.getBreed(), Types.VARCHAR);
+                    set(ps, 3, p.getAge(), Types.INTEGER);
+                    set(ps, 4, p.getGender(), Types.VARCHAR);
+                    set(ps, 5, p.getVaccinated(), Types.BOOLEAN);
+                });
+        upsert(rows, FOOD_TYPE_ID, UPSERT_FOOD_SQL,
+                p -> p.getWeightKg() != null || p.getIngredients() != null || p.getExpiryDate() != null,
+                (ps, r) -> {
+                    ProductImportRow p = r.row();
+                    ps.setLong(1, ids.get(r));
+                    set(ps, 2, p.getWeightKg(), Types.NUMERIC);
+                    set(ps, 3, p.getIngredients(), Types.VARCHAR);
+                    set(ps, 4, p.getExpiryDate() != null ? Date.valueOf(p.getExpiryDate()) : null, Types.DATE);
+                });
+        upsert(rows, CAGE_TYPE_ID, UPSERT_CAGE_SQL,
+                p -> p.getMaterial() != null || p.getDimensions() != null,
+                (ps, r) -> {
+                    ProductImportRow p = r.row();
+                    ps.setLong(1, ids.get(r));
+                    set(ps, 2, p.getMaterial(), Types.VARCHAR);
+                    set(ps, 3, p.getDimensions(), Types.VARCHAR);
+                });
+        upsert(rows, CLEANING_TYPE_ID, UPSERT_CLEANING_SQL,
+                p -> p.getVolumeMl() != null || p.getUsage() != null,
+                (ps, r) -> {
+                    ProductImportRow p = r.row();
+                    ps.setLong(1, ids.get(r));
+                    set(ps, 2, p.getVolumeMl(), Types.INTEGER);
+                    set(ps, 3, p.getUsage(), Types.VARCHAR);
+                });
+    }
+
+    private void upsert(List<ValidRow> rows, long typeId, String sql,
+                        Function<ProductImportRow, Boolean> hasDetail,
+                        ParameterizedPreparedStatementSetter<ValidRow> setter) {
+        List<ValidRow> matching = rows.stream()
+                .filter(r -> r.typeId() == typeId && hasDetail.apply(r.row()))
+                .toList();
+        if (!matching.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, matching, matching.size(), setter);
+        }
+    }
+
+    // Dòng đầu của thông báo lỗi gốc (bỏ phần vị trí nguồn / chi tiết nhiều dòng)
+    private static String rootMessage(Throwable e) {
+        String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+        return message == null ? e.getClass().getSimpleName() : message.lines().findFirst().orElse(message);
+    }
+
+    private static void set(PreparedStatement ps, int index, Object value, int sqlType) throws SQLException {
+        if (value == null) ps.setNull(index, sqlType);
+        else ps.setObject(index, value, sqlType);
+    }
+
+    // ====================== KIỂU NỘI BỘ ======================
+
+    @FunctionalInterface
+    private interface RowSource {
+        SourceRow next() throws IOException;
+    }
+
+    // fatal: không đọc tiếp được file sau dòng này
+    private record SourceRow(int line, ProductImportRow row, String error, boolean fatal) {
+        static SourceRow ok(int line, ProductImportRow row) {
+            return new SourceRow(line, row, null, false);
+        }
+
+        static SourceRow error(int line, String error) {
+            return new SourceRow(line, null, error, false);
+        }
+
+        static SourceRow fatal(int line, String error) {
+            return new SourceRow(line, null, error, true);
+        }
+    }
+
+    private record ValidRow(int line, ProductImportRow row, long typeId, Long categoryId) {
+    }
+
+    // types: tên loại -> typeId; categories: tên danh mục -> (typeId -> categoryId), tên có thể trùng giữa các loại
+    private record Lookup(Map<String, Long> types, Map<String, Map<Long, Long>> categories) {
+    }
+
+    private static final class Report {
+        int totalRows;
+        int inserted;
+        int updated;
+        int failed;
+        boolean stopped;
+        final List<ImportRowError> errors = new ArrayList<>();
+
+        void fail(int line, String productName, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportRowError(line, productName, message));
+            }
+        }
+    }
+}
@@ -1,22 +1,50 @@
 package com.catshop.catshop.service.impl;
 
+import com.catshop.catshop.dto.request.BulkStockRequest;
+import com.catshop.catshop.dto.request.ProductFacetRequest;
+import com.catshop.catshop.dto.request.ProductPageRequest;
 import com.catshop.catshop.dto.request.ProductRequest;
-import com.catshop.catshop.dto.response.ProductResponse;
+import com.catshop.catshop.dto.request.ProductSortKey;
+import com.catshop.catshop.dto.request.StockAdjustmentItem;
+import com.catshop.catshop.dto.request.StockAdjustmentMode;
+import com.catshop.catshop.dto.response.*;
 import com.catshop.catshop.entity.*;
 import com.catshop.catshop.exception.BadRequestException;
 import com.catshop.catshop.exception.ResourceNotFoundException;
 import com.catshop.catshop.mapper.ProductMapper;
 import com.catshop.catshop.repository.*;
+import com.catshop.catshop.repository.jdbc.OrderDetailJdbcRepository;
+import com.catshop.catshop.repository.jdbc.ProductStockJdbcRepository;
+import com.catshop.catshop.repository.projection.ProductDetailView;
+import com.catshop.catshop.repository.specification.ProductSpecification;
+import com.catshop.catshop.service.CatalogCacheService;
+import com.catshop.catshop.service.ProductAutocompleteIndex;
 import com.catshop.catshop.service.FileStorageService;
+import com.catshop.catshop.service.FileStorageService.StoredImage;
+import com.catshop.catshop.service.ImageDerivativeService;
+import com.catshop.catshop.service.ProductSearchIndex;
 import com.catshop.catshop.service.ProductService;
+import com.catshop.catshop.service.StockReservationService;
+import com.catshop.catshop.util.AfterCommit;
+import com.catshop.catshop.util.ProductCursor;
+import com.fasterxml.jackson.core.type.TypeReference;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,75 +52,118 @@ import java.util.stream.Collectors;
 @Transactional
 public class ProductServiceImpl implements ProductService {
 
+    // Khớp với type id mà các service chi tiết (Cat/Food/Cage/Cleaning) kiểm tra
+    private static final long CAT_TYPE_ID = 1;
+    private static final long FOOD_TYPE_ID = 2;
+    private static final long CAGE_TYPE_ID = 3;
+    private static final long CLEANING_TYPE_ID = 4;
+
+    private static final TypeReference<ProductResponse> PRODUCT_TYPE = new TypeReference<>() {};
+    private static final TypeReference<List<ProductResponse>> PRODUCT_LIST_TYPE = new TypeReference<>() {};
+
     private final ProductRepository productRepository;
+    private final ProductStockJdbcRepository productStockJdbcRepository;
+    private final OrderDetailJdbcRepository orderDetailJdbcRepository;
     private final ProductTypeRepository productTypeRepository;
     private final CategoryRepository categoryRepository;
     private final ProductMapper productMapper;
     private final FileStorageService fileStorageService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final TransactionTemplate transactionTemplate;
+    private final CatalogCacheService catalogCacheService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductAutocompleteIndex productAutocompleteIndex;
+    private final StockReservationService stockReservationService;
 
     // ====================== ADMIN ======================
 
+    // Ghi file ảnh trước, ngoài transaction: I/O đĩa không giữ connection DB.
+    // Nếu phần ghi DB lỗi thì bỏ file vừa ghi.
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ProductResponse createProductWithFile(ProductRequest request, MultipartFile file) {
-        ProductType type = productTypeRepository.findById(request.getTypeId())
-                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy loại sản phẩm"));
+        StoredImage image = storeImage(file);
+        try {
+            return transactionTemplate.execute(status -> {
+                ProductType type = productTypeRepository.findById(request.getTypeId())
+                        .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy loại sản phẩm"));
 
-        Category category = null;
-        if (request.getCategoryId() != null) {
-            category = categoryRepository.findById(request.getCategoryId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy danh mục"));
-        }
+                Category category = null;
+                if (request.getCategoryId() != null) {
+                    category = categoryRepository.findById(request.getCategoryId())
+                            .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy danh mục"));
+                }
 
-        Product product = productMapper.toEntity(request);
-        product.setProductType(type);
-        product.setCategory(category);
+                Product product = productMapper.toEntity(request);
+                product.setProductType(type);
+                product.setCategory(category);
+                fileStorageService.claim(image);
+                product.setImageUrl(image != null ? image.url() : null);
 
-        try {
-            String imageUrl = fileStorageService.saveFile(file,product.getProductName());
-            product.setImageUrl(imageUrl);
-        } catch (IOException e) {
-            throw new BadRequestException("Lưu file thất bại: " + e.getMessage());
+                Product saved = productRepository.save(product);
+                ProductResponse response = productMapper.toDto(saved);
+                evictCatalogCache();
+                generateThumbnailsAfterCommit(image);
+                productSearchIndex.reindexAfterCommit(saved.getProductId());
+                productAutocompleteIndex.refreshAfterCommit(saved.getProductId());
+                return response;
+            });
+        } catch (RuntimeException e) {
+            fileStorageService.discard(image);
+            throw e;
         }
-
-        return productMapper.toDto(productRepository.save(product));
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ProductResponse updateProduct(Long id, ProductRequest request, MultipartFile file) {
-        Product existing = productRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy sản phẩm (id=" + id + ")"));
+        StoredImage image = storeImage(file);
+        try {
+            return transactionTemplate.execute(status -> {
+                Product existing = productRepository.findById(id)
+                        .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy sản phẩm (id=" + id + ")"));
 
-        ProductType type = productTypeRepository.findById(request.getTypeId())
-                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy loại sản phẩm"));
+                ProductType type = productTypeRepository.findById(request.getTypeId())
+                        .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy loại sản phẩm"));
 
-        Category category = null;
-        if (request.getCategoryId() != null) {
-            category = categoryRepository.findById(request.getCategoryId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy danh mục"));
-        }
+                Category category = null;
+                if (request.getCategoryId() != null) {
+                    category = categoryRepository.findById(request.getCategoryId())
+                            .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy danh mục"));
+                }
 
-        existing.setProductName(request.getProductName());
-        existing.setProductType(type);
-        existing.setCategory(category);
-        existing.setPrice(request.getPrice());
-        existing.setStockQuantity(request.getStockQuantity());
-        existing.setDescription(request.getDescription());
+                existing.setProductName(request.getProductName());
+                existing.setProductType(type);
+                existing.setCategory(category);
+                existing.setPrice(request.getPrice());
+                Integer previousStock = existing.getStockQuantity();
+                existing.setStockQuantity(request.getStockQuantity());
+                existing.setDescription(request.getDescription());
 
-        if (file != null && !file.isEmpty()) {
-            try {
-                // Xóa file cũ nếu có
-                if (existing.getImageUrl() != null) {
-                    fileStorageService.deleteFile(existing.getImageUrl());
+                if (image != null) {
+                    fileStorageService.claim(image);
+                    String oldImageUrl = existing.getImageUrl();
+                    existing.setImageUrl(image.url());
+                    // Ảnh cũ chỉ bị xóa sau khi commit và khi không còn sản phẩm nào dùng chung
+                    if (oldImageUrl != null && !oldImageUrl.equals(image.url())) {
+                        deleteImageAfterCommit(oldImageUrl);
+                    }
+                    generateThumbnailsAfterCommit(image);
                 }
-                // Lưu file mới
-                String imageUrl = fileStorageService.saveFile(file,existing.getProductName());
-                existing.setImageUrl(imageUrl);
-            } catch (IOException e) {
-                throw new BadRequestException("Lưu file thất bại: " + e.getMessage());
-            }
-        }
 
-        return productMapper.toDto(productRepository.save(existing));
+                ProductResponse response = productMapper.toDto(productRepository.save(existing));
+                if (!Objects.equals(previousStock, request.getStockQuantity()) && request.getStockQuantity() != null) {
+                    stockReservationService.stockChangedAfterCommit(List.of(id));
+                }
+                evictCatalogCache();
+                productSearchIndex.reindexAfterCommit(id);
+                productAutocompleteIndex.refreshAfterCommit(id);
+                return response;
+            });
+        } catch (RuntimeException e) {
+            fileStorageService.discard(image);
+            throw e;
+        }
     }
 
     @Override
@@ -100,56 +171,264 @@ public class ProductServiceImpl implements ProductService {
         Product existing = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy sản phẩm (id=" + id + ")"));
 
-        // Xóa file ảnh khỏi local
+        // Xóa file ảnh khỏi local sau khi commit (nếu không còn sản phẩm khác dùng chung)
         if (existing.getImageUrl() != null) {
-            fileStorageService.deleteFile(existing.getImageUrl());
+            deleteImageAfterCommit(existing.getImageUrl());
         }
 
+        // Giữ lịch sử đơn hàng: dòng hàng chỉ mất liên kết, tên / danh mục được chụp lại để rollup
+        // (kể cả lần rebuild toàn bộ) vẫn tính doanh thu cũ cho sản phẩm này
+        orderDetailJdbcRepository.detachProduct(id);
         productRepository.delete(existing);
+        evictCatalogCache();
+        productSearchIndex.removeAfterCommit(id);
+        productAutocompleteIndex.removeAfterCommit(id);
+    }
+
+    @Override
+    public BulkStockResponse adjustStock(BulkStockRequest request) {
+        Set<Long> seen = new HashSet<>();
+        for (StockAdjustmentItem item : request.getItems()) {
+            if (!seen.add(item.getProductId())) {
+                throw new BadRequestException("productId bị lặp trong danh sách: " + item.getProductId());
+            }
+            if (item.getMode() == StockAdjustmentMode.SET && item.getQuantity() < 0) {
+                throw new BadRequestException("Tồn kho tuyệt đối không được âm (productId=" + item.getProductId() + ")");
+            }
+        }
+
+        List<StockAdjustmentResult> results = productStockJdbcRepository.adjust(request.getItems());
+
+        List<Long> changed = new ArrayList<>();
+        for (StockAdjustmentResult r : results) {
+            if (!StockAdjustmentResult.UPDATED.equals(r.getStatus())) continue;
+            changed.add(r.getProductId());
+            // Chỉ sản phẩm chuyển giữa còn hàng / hết hàng mới làm thay đổi gợi ý tìm kiếm
+            if ((r.getPreviousStock() > 0) != (r.getNewStock() > 0)) {
+                productAutocompleteIndex.refreshAfterCommit(r.getProductId());
+            }
+        }
+        if (!changed.isEmpty()) {
+            stockReservationService.stockChangedAfterCommit(changed);
+            evictCatalogCache();
+        }
+        return BulkStockResponse.builder()
+                .updated(changed.size())
+                .failed(results.size() - changed.size())
+                .results(results)
+                .build();
+    }
+
+    private StoredImage storeImage(MultipartFile file) {
+        try {
+            return fileStorageService.storeImage(file);
+        } catch (IOException e) {
+            throw new BadRequestException("Lưu file thất bại: " + e.getMessage());
+        }
+    }
+
+    private void generateThumbnailsAfterCommit(StoredImage image) {
+        if (image == null) return;
+        AfterCommit.run(() -> imageDerivativeService.generateAsync(image.hash(), image.extension()));
+    }
+
+    // Ảnh lưu theo nội dung nên nhiều sản phẩm có thể trỏ cùng một file: deleteFile tự kiểm tra tham chiếu dưới khóa
+    private void deleteImageAfterCommit(String imageUrl) {
+        AfterCommit.run(() -> fileStorageService.deleteFile(imageUrl));
+    }
+
+    // Danh sách danh mục cho customer phụ thuộc tồn kho sản phẩm nên xóa cả hai region
+    private void evictCatalogCache() {
+        catalogCacheService.evictAfterCommit(CatalogCacheService.REGION_PRODUCTS, CatalogCacheService.REGION_CATEGORIES);
     }
 
     // ====================== CUSTOMER ======================
 
+    // Các hàm đọc có cache dùng SUPPORTS để cache hit không phải mở transaction / lấy connection
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<ProductResponse> getAllProducts() {
-        try {
-            List<Product> products = productRepository.findAllAvailableProducts();
-            // Filter out products with null productType to avoid mapping errors
-            products = products.stream()
-                    .filter(p -> p.getProductType() != null)
-                    .collect(Collectors.toList());
-            return productMapper.toDtoList(products);
-        } catch (Exception e) {
-            throw new RuntimeException("Lỗi khi lấy danh sách sản phẩm: " + e.getMessage(), e);
-        }
+        return catalogCacheService.getOrLoad(CatalogCacheService.REGION_PRODUCTS, "all", PRODUCT_LIST_TYPE, () -> {
+            try {
+                // Projection đã INNER JOIN productType nên không còn sản phẩm thiếu loại
+                return productRepository.findAllAvailableProducts();
+            } catch (Exception e) {
+                throw new RuntimeException("Lỗi khi lấy danh sách sản phẩm: " + e.getMessage(), e);
+            }
+        });
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public ProductResponse getProductById(Long id) {
-        Product product = productRepository.findById(id)
+        return catalogCacheService.getOrLoad(CatalogCacheService.REGION_PRODUCTS, "id:" + id, PRODUCT_TYPE, () -> {
+            return productRepository.findResponseById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy sản phẩm (id=" + id + ")"));
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ProductDetailResponse getProductDetail(Long id) {
+        ProductDetailView v = productRepository.findDetailViewById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy sản phẩm (id=" + id + ")"));
-        return productMapper.toDto(product);
+
+        ProductResponse product = new ProductResponse(v.getProductId(), v.getProductName(), v.getPrice(),
+                v.getStockQuantity(), v.getDescription(), v.getImageUrl(),
+                v.getTypeId(), v.getTypeName(), v.getCategoryId(), v.getCategoryName());
+
+        ProductDetailResponse.ProductDetailResponseBuilder builder = ProductDetailResponse.builder()
+                .product(product)
+                .averageRating(v.getAverageRating() != null ? v.getAverageRating() : 0.0)
+                .reviewCount(v.getReviewCount() != null ? v.getReviewCount() : 0L);
+
+        // Chọn phần chi tiết theo ProductType; sản phẩm chưa có dòng chi tiết thì bỏ trống
+        long typeId = v.getTypeId();
+        Double price = v.getPrice() != null ? v.getPrice().doubleValue() : null;
+        if (typeId == CAT_TYPE_ID && v.getCatId() != null) {
+            builder.catDetail(CatDetailResponse.builder()
+                    .productId(v.getProductId()).productName(v.getProductName()).price(price)
+                    .stockQuantity(v.getStockQuantity()).imageUrl(v.getImageUrl()).description(v.getDescription())
+                    .breed(v.getBreed()).age(v.getAge()).gender(v.getGender()).vaccinated(v.getVaccinated())
+                    .build());
+        } else if (typeId == FOOD_TYPE_ID && v.getFoodId() != null) {
+            builder.foodDetail(FoodDetailResponse.builder()
+                    .productId(v.getProductId()).productName(v.getProductName()).price(v.getPrice())
+                    .stockQuantity(v.getStockQuantity()).imageUrl(v.getImageUrl()).description(v.getDescription())
+                    .weightKg(v.getWeightKg()).ingredients(v.getIngredients()).expiryDate(v.getExpiryDate())
+                    .build());
+        } else if (typeId == CAGE_TYPE_ID && v.getCageId() != null) {
+            builder.cageDetail(CageDetailResponse.builder()
+                    .productId(v.getProductId()).productName(v.getProductName()).price(price)
+                    .stockQuantity(v.getStockQuantity()).imageUrl(v.getImageUrl()).description(v.getDescription())
+                    .material(v.getMaterial()).dimensions(v.getDimensions())
+                    .build());
+        } else if (typeId == CLEANING_TYPE_ID && v.getCleaningId() != null) {
+            builder.cleaningDetail(CleaningDetailResponse.builder()
+                    .productId(v.getProductId()).productName(v.getProductName()).price(v.getPrice())
+                    .stockQuantity(v.getStockQuantity()).imageUrl(v.getImageUrl()).description(v.getDescription())
+                    .volumeMl(v.getVolumeMl()).usage(v.getUsage())
+                    .build());
+        }
+        return builder.build();
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<ProductResponse> getProductsByType(Long typeId) {
-        return productMapper.toDtoList(productRepository.findAvailableProductsByTypeId(typeId));
+        return catalogCacheService.getOrLoad(CatalogCacheService.REGION_PRODUCTS, "type:" + typeId, PRODUCT_LIST_TYPE,
+                () -> productRepository.findAvailableProductsByTypeId(typeId));
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<ProductResponse> getProductsByCategory(Long categoryId) {
-        return productMapper.toDtoList(productRepository.findAvailableProductsByCategoryId(categoryId));
+        return catalogCacheService.getOrLoad(CatalogCacheService.REGION_PRODUCTS, "category:" + categoryId, PRODUCT_LIST_TYPE,
+                () -> productRepository.findAvailableProductsByCategoryId(categoryId));
     }
 
+    // Chỉ đọc index trong bộ nhớ: NOT_SUPPORTED để không mượn connection DB cho mỗi lần gõ phím
     @Override
-    public List<ProductResponse> searchProductsByName(String keyword) {
-        return productMapper.toDtoList(productRepository.searchAvailableProductsByKeyword(keyword));
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<AutocompleteResponse> autocomplete(String query, int limit) {
+        return productAutocompleteIndex.suggest(query, limit);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<ProductResponse> searchProductsByName(String keyword, int limit) {
+        // Index chưa sẵn sàng (vd. DB lỗi lúc khởi động) thì quay về LIKE trên DB
+        if (!productSearchIndex.isReady()) {
+            return productRepository.searchAvailableProductsByKeyword(keyword);
+        }
+
+        // Lấy dư ứng viên vì sản phẩm hết hàng bị loại sau khi đọc từ DB
+        List<Long> rankedIds = productSearchIndex.search(keyword, limit * 2);
+        return loadInOrder(rankedIds).stream()
+                .filter(p -> p.getStockQuantity() != null && p.getStockQuantity() > 0)
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<ProductResponse> getProductsInPriceRange(double min, double max) {
         BigDecimal minPrice = BigDecimal.valueOf(min);
         BigDecimal maxPrice = BigDecimal.valueOf(max);
-        return productMapper.toDtoList(productRepository.findByPriceBetween(minPrice, maxPrice));
+        return productRepository.findResponsesByPriceBetween(minPrice, maxPrice);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponse<ProductResponse> getProductsPage(ProductPageRequest request) {
+        ProductSortKey sort = request.getSort() != null ? request.getSort() : ProductSortKey.NEWEST;
+        int size = request.getSize() != null ? request.getSize() : 20;
+        ProductCursor cursor = (request.getCursor() == null || request.getCursor().isBlank())
+                ? null
+                : ProductCursor.decode(request.getCursor(), sort);
+
+        // Lấy dư 1 dòng để biết còn trang sau hay không, không cần COUNT(*)
+        List<Product> rows = productRepository.findBy(
+                ProductSpecification.availableWithFilters(request).and(ProductSpecification.after(cursor)),
+                // project(...) áp dụng fetch graph: productType/category được JOIN trong cùng câu SQL
+                q -> q.sortBy(ProductSpecification.sortOf(sort))
+                        .project("productType", "category")
+                        .limit(size + 1)
+                        .all());
+
+        boolean hasMore = rows.size() > size;
+        List<Product> page = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = hasMore ? ProductCursor.after(sort, page.get(page.size() - 1)).encode() : null;
+
+        return CursorPageResponse.<ProductResponse>builder()
+                .items(productMapper.toDtoList(page))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .size(page.size())
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ProductFacetResponse searchWithFacets(ProductFacetRequest r) {
+        int page = r.getPage() != null ? r.getPage() : 0;
+        int size = r.getSize() != null ? r.getSize() : 20;
+
+        List<Long> ids = productRepository.findIdsByFacets(r.getTypeId(), r.getCategoryId(), r.getBreed(),
+                r.getGender(), r.getVaccinated(), r.getMinPrice(), r.getMaxPrice(), r.getInStock(), size, page * size);
+        List<ProductResponse> products = loadInOrder(ids);
+        List<Object[]> rows = productRepository.countFacets(r.getTypeId(), r.getCategoryId(), r.getBreed(),
+                r.getGender(), r.getVaccinated(), r.getMinPrice(), r.getMaxPrice(), r.getInStock());
+
+        long total = 0;
+        Map<String, List<FacetCountResponse>> facets = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            String facet = (String) row[0];
+            long count = ((Number) row[2]).longValue();
+            if ("total".equals(facet)) {
+                total = count;
+                continue;
+            }
+            // Bỏ nhóm NULL (vd. breed của sản phẩm không phải mèo)
+            if (row[1] == null) continue;
+            facets.computeIfAbsent(facet, k -> new ArrayList<>())
+                    .add(new FacetCountResponse((String) row[1], count));
+        }
+
+        return ProductFacetResponse.builder()
+                .items(products)
+                .total(total)
+                .page(page)
+                .size(products.size())
+                .facets(facets)
+                .build();
+    }
+
+    // Nạp ProductResponse theo danh sách id bằng 1 câu projection, giữ nguyên thứ tự đầu vào
+    private List<ProductResponse> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+        Map<Long, ProductResponse> byId = productRepository.findResponsesByIdIn(ids).stream()
+                .collect(Collectors.toMap(ProductResponse::getProductId, Function.identity()));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
     }
 }
@@ -4,16 +4,25 @@ import com.catshop.catshop.dto.request.ShipmentRequest;
 import com.catshop.catshop.dto.response.ShipmentResponse;
 import com.catshop.catshop.entity.Order;
 import com.catshop.catshop.entity.Shipment;
+import com.catshop.catshop.event.OrderEvents;
+import com.catshop.catshop.exception.BadRequestException;
 import com.catshop.catshop.exception.ResourceNotFoundException;
 import com.catshop.catshop.mapper.ShipmentMapper;
 import com.catshop.catshop.repository.OrderRepository;
 import com.catshop.catshop.repository.ShipmentRepository;
+import com.catshop.catshop.service.OutboxService;
+import com.catshop.catshop.service.ShipmentCounterService;
 import com.catshop.catshop.service.ShipmentService;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @AllArgsConstructor
@@ -22,24 +31,29 @@ public class ShipmentServiceImpl implements ShipmentService {
     private final ShipmentRepository shipmentRepository;
     private final OrderRepository orderRepository;
     private final ShipmentMapper shipmentMapper;
+    private final OutboxService outboxService;
+    private final ShipmentCounterService shipmentCounterService;
 
     // ===============================
     // 👑 ADMIN SECTION
     // ===============================
 
     @Override
+    @Transactional(readOnly = true)
     public List<ShipmentResponse> findAllOrderByDateDesc() {
         List<Shipment> shipments = shipmentRepository.findAllOrderByDateDesc();
         return shipmentMapper.toShipmentResponseList(shipments);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<ShipmentResponse> findByStatus(String status) {
         List<Shipment> shipments = shipmentRepository.findByStatus(status);
         return shipmentMapper.toShipmentResponseList(shipments);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<ShipmentResponse> searchByAddress(String address) {
         List<Shipment> shipments = shipmentRepository.searchByAddress(address);
         if (shipments.isEmpty())
@@ -48,7 +62,9 @@ public class ShipmentServiceImpl implements ShipmentService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<ShipmentResponse> findByShippedDateBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        requireRange(startDate, endDate);
         List<Shipment> shipments = shipmentRepository.findByShippedDateBetween(startDate, endDate);
         if(shipments.isEmpty()){
             throw  new ResourceNotFoundException("Không có đơn ship nào trong khoảng thời gian đó ");
@@ -57,13 +73,27 @@ public class ShipmentServiceImpl implements ShipmentService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Object[]> countShipmentsByStatus() {
-        List<Object[]> list = shipmentRepository.countShipmentsByStatus();
+        List<Object[]> list = shipmentCounterService.countByStatus();
         if (list.isEmpty()) throw new ResourceNotFoundException("Không có đơn nào cả");
         return list;
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> countShipmentsByStatus(YearMonth month) {
+        return shipmentCounterService.countByStatus(month);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> countShipmentsByStatus(LocalDate day) {
+        return shipmentCounterService.countByStatus(day);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<ShipmentResponse> findByOrderId(Long orderId) {
         List<Shipment> shipments = shipmentRepository.findByOrderId(orderId);
         if (shipments.isEmpty())
@@ -72,6 +102,7 @@ public class ShipmentServiceImpl implements ShipmentService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<ShipmentResponse> findAllByUserId(Long userId) {
         List<Shipment> shipments = shipmentRepository.findAllByUserId(userId);
         if (shipments.isEmpty())
@@ -80,8 +111,9 @@ public class ShipmentServiceImpl implements ShipmentService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Long countShipmentsInCurrentMonth() {
-        return shipmentRepository.countShipmentsInCurrentMonth();
+        return shipmentCounterService.countInMonth(YearMonth.now());
     }
 
     // ===============================
@@ -89,6 +121,7 @@ public class ShipmentServiceImpl implements ShipmentService {
     // ===============================
 
     @Override
+    @Transactional
     public ShipmentResponse createShipment(ShipmentRequest request) {
         Order order = orderRepository.findById(request.getOrderId())
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy đơn hàng có ID = " + request.getOrderId()));
@@ -100,14 +133,18 @@ public class ShipmentServiceImpl implements ShipmentService {
                 .build();
 
         shipmentRepository.save(shipment);
+        shipmentCounterService.recordCreated(shipment.getShippedDate(), shipment.getStatus());
+        publish(shipment, OrderEvents.SHIPMENT_CREATED, null);
         return shipmentMapper.toShipmentResponse(shipment);
     }
 
     @Override
+    @Transactional
     public ShipmentResponse updateShipment(Long id, ShipmentRequest request) {
-        Shipment shipment = shipmentRepository.findById(id)
+        Shipment shipment = shipmentRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy shipment với ID = " + id));
 
+        String previousStatus = shipment.getStatus();
         if (!shipment.getOrder().getOrderId().equals(request.getOrderId())) {
             Order newOrder = orderRepository.findById(request.getOrderId())
                     .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy đơn hàng có ID = " + request.getOrderId()));
@@ -117,15 +154,38 @@ public class ShipmentServiceImpl implements ShipmentService {
         shipment.setShippingAddress(request.getShippingAddress());
         shipment.setStatus(request.getStatus());
         shipmentRepository.save(shipment);
+        shipmentCounterService.recordStatusChanged(shipment.getShippedDate(), previousStatus, shipment.getStatus());
+        publish(shipment, OrderEvents.SHIPMENT_UPDATED, previousStatus);
 
         return shipmentMapper.toShipmentResponse(shipment);
     }
 
     @Override
+    @Transactional
     public void deleteShipment(Long id) {
-        Shipment shipment = shipmentRepository.findById(id)
+        Shipment shipment = shipmentRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy shipment với ID = " + id));
         shipmentRepository.delete(shipment);
+        shipmentCounterService.recordDeleted(shipment.getShippedDate(), shipment.getStatus());
+        publish(shipment, OrderEvents.SHIPMENT_DELETED, null);
+    }
+
+    private void requireRange(LocalDateTime startDate, LocalDateTime endDate) {
+        if (!endDate.isAfter(startDate)) {
+            throw new BadRequestException("endDate phải sau startDate");
+        }
+    }
+
+    private void publish(Shipment shipment, String eventType, String previousStatus) {
+        Long orderId = shipment.getOrder().getOrderId();
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("shipmentId", shipment.getShipmentId());
+        payload.put("orderId", orderId);
+        payload.put("userId", shipment.getOrder().getUser() != null ? shipment.getOrder().getUser().getUserId() : null);
+        payload.put("status", shipment.getStatus());
+        payload.put("previousStatus", previousStatus);
+        payload.put("shippedDate", shipment.getShippedDate());
+        outboxService.publishOrderEvent(orderId, eventType, payload);
     }
 
     // ===============================
@@ -133,6 +193,7 @@ public class ShipmentServiceImpl implements ShipmentService {
     // ===============================
 
     @Override
+    @Transactional(readOnly = true)
     public List<ShipmentResponse> findUserShipments(Long userId) {
         List<Shipment> shipments = shipmentRepository.findUserShipments(userId);
         if (shipments.isEmpty())
@@ -141,6 +202,7 @@ public class ShipmentServiceImpl implements ShipmentService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<ShipmentResponse> findUserShipmentsByStatus(Long userId, String status) {
         List<Shipment> shipments = shipmentRepository.findUserShipmentsByStatus(userId, status);
         if (shipments.isEmpty())
@@ -149,7 +211,9 @@ public class ShipmentServiceImpl implements ShipmentService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<ShipmentResponse> findUserShipmentsByDateRange(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
+        requireRange(startDate, endDate);
         List<Shipment> shipments = shipmentRepository.findUserShipmentsByDateRange(userId, startDate, endDate);
         if (shipments.isEmpty())
             throw new ResourceNotFoundException("Không có shipment nào trong khoảng thời gian này.");
@@ -157,6 +221,7 @@ public class ShipmentServiceImpl implements ShipmentService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public ShipmentResponse findUserShipmentDetail(Long shipmentId, Long userId) {
         Shipment shipment = shipmentRepository.findUserShipmentDetail(shipmentId, userId);
         if (shipment == null)
@@ -0,0 +1,43 @@
+package com.catshop.catshop.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Chạy một tác vụ sau khi transaction hiện tại commit (hoặc chạy ngay nếu không có transaction).
+// Dùng cho các side effect ngoài DB (cache, index...) để không phản ánh dữ liệu bị rollback.
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable task) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+
+    // Như run(), nhưng chạy onRollback nếu transaction bị rollback (dùng để trả lại tài nguyên đã giữ ngoài DB)
+    public static void runOrRollback(Runnable onCommit, Runnable onRollback) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        onCommit.run();
+                    } else {
+                        onRollback.run();
+                    }
+                }
+            });
+        } else {
+            onCommit.run();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.catshop.catshop.util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Đọc CSV (RFC 4180) từng bản ghi một, không nạp cả file vào bộ nhớ.
+// Hỗ trợ field trong dấu nháy kép có dấu phẩy, xuống dòng và "" (nháy kép escape).
+public final class CsvReader implements Closeable {
+
+    // Nháy kép không đóng sẽ nuốt hết phần còn lại của file vào một field: chặn sớm thay vì đọc cả file vào bộ nhớ
+    public static final int MAX_RECORD_CHARS = 1_000_000;
+
+    private final BufferedReader in;
+    private int line = 1;
+    private int recordLine = 0;
+    private boolean first = true;
+
+    public CsvReader(Reader reader) {
+        this.in = reader instanceof BufferedReader br ? br : new BufferedReader(reader);
+    }
+
+    // Dòng bắt đầu của bản ghi vừa đọc (đánh số từ 1)
+    public int getRecordLine() {
+        return recordLine;
+    }
+
+    // null khi hết file
+    public List<String> next() throws IOException {
+        int c = in.read();
+        if (first) {
+            first = false;
+            // Bỏ BOM UTF-8 do Excel thêm vào
+            if (c == '\uFEFF') c = in.read();
+        }
+        // Bỏ qua dòng trống
+        while (c == '\r' || c == '\n') {
+            if (c == '\n') line++;
+            c = in.read();
+        }
+        if (c == -1) return null;
+
+        recordLine = line;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int chars = 0;
+
+        while (true) {
+            if (++chars > MAX_RECORD_CHARS) {
+                throw new MalformedCsvException("Bản ghi dài quá " + MAX_RECORD_CHARS
+                        + " ký tự, có thể thiếu dấu nháy đóng (bản ghi bắt đầu ở dòng " + recordLine + ")");
+            }
+            if (quoted) {
+                if (c == -1) throw new MalformedCsvException("Thiếu dấu nháy đóng (bản ghi bắt đầu ở dòng " + recordLine + ")");
+                if (c == '"') {
+                    int peek = in.read();
+                    if (peek == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = peek;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') line++;
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == -1) {
+                if (c == '\n') line++;
+                fields.add(field.toString());
+                return fields;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = in.read();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // File hỏng từ bản ghi getRecordLine() trở đi, không đọc tiếp được các bản ghi sau
+    public static final class MalformedCsvException extends IOException {
+        public MalformedCsvException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.catshop.catshop.util;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+// Ghi CSV (RFC 4180) từng bản ghi một. Field có dấu phẩy, nháy kép hoặc xuống dòng được đặt trong nháy kép.
+public final class CsvWriter implements Flushable {
+
+    private final Writer out;
+
+    public CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    // null được ghi thành field rỗng
+    public void writeRow(Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) out.write(',');
+            if (values[i] != null) writeField(values[i].toString());
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void writeField(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
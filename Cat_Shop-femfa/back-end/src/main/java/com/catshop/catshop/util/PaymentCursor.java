@@ -0,0 +1,42 @@
+package com.catshop.catshop.util;
+
+import com.catshop.catshop.entity.Payment;
+import com.catshop.catshop.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Vị trí keyset của trang payment (sắp xếp payment_date giảm dần, payment_id giảm dần): ngày + id của dòng cuối.
+// Được mã hóa Base64 URL-safe để client chỉ coi như một chuỗi opaque.
+@Getter
+@AllArgsConstructor
+public class PaymentCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime lastDate;
+    private final Long lastId;
+
+    public static PaymentCursor after(Payment last) {
+        return new PaymentCursor(last.getPaymentDate(), last.getPaymentId());
+    }
+
+    public String encode() {
+        String raw = lastDate + SEPARATOR + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PaymentCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, 2);
+            return new PaymentCursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+            throw new BadRequestException("Cursor không hợp lệ");
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.catshop.catshop.util;
+
+import com.catshop.catshop.dto.request.ProductSortKey;
+import com.catshop.catshop.entity.Product;
+import com.catshop.catshop.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Vị trí keyset của một trang: khóa sắp xếp + giá trị cột sắp xếp + product_id của dòng cuối.
+// Được mã hóa Base64 URL-safe để client chỉ coi như một chuỗi opaque.
+@Getter
+@AllArgsConstructor
+public class ProductCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final ProductSortKey sort;
+    private final Long lastId;
+    private final String lastValue;
+
+    public static ProductCursor after(ProductSortKey sort, Product last) {
+        String value = switch (sort) {
+            case PRICE_ASC, PRICE_DESC -> last.getPrice().toPlainString();
+            case NAME_ASC -> last.getProductName();
+            case STOCK_DESC -> String.valueOf(last.getStockQuantity());
+            case NEWEST -> "";
+        };
+        return new ProductCursor(sort, last.getProductId(), value);
+    }
+
+    public String encode() {
+        String raw = sort.name() + SEPARATOR + lastId + SEPARATOR + lastValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token, ProductSortKey expectedSort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // Giới hạn 3 phần vì tên sản phẩm có thể chứa ký tự phân cách
+            String[] parts = raw.split("\\" + SEPARATOR, 3);
+            ProductSortKey sort = ProductSortKey.valueOf(parts[0]);
+            if (sort != expectedSort) {
+                throw new BadRequestException("Cursor không khớp với kiểu sắp xếp " + expectedSort);
+            }
+            String value = parts.length > 2 ? parts[2] : "";
+            // Kiểm tra giá trị ngay khi giải mã để lỗi cursor trả về 400 thay vì lỗi khi build query
+            switch (sort) {
+                case PRICE_ASC, PRICE_DESC -> new BigDecimal(value);
+                case STOCK_DESC -> Integer.parseInt(value);
+                default -> { }
+            }
+            return new ProductCursor(sort, Long.parseLong(parts[1]), value);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new BadRequestException("Cursor không hợp lệ");
+        }
+    }
+}
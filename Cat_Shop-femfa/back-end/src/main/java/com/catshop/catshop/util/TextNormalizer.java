@@ -0,0 +1,31 @@
+package com.catshop.catshop.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// Chuẩn hóa văn bản tiếng Việt cho tìm kiếm: chữ thường, bỏ dấu ("Mèo Anh lông ngắn" -> "meo anh long ngan").
+public final class TextNormalizer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALNUM = Pattern.compile("[^a-z0-9]+");
+
+    private TextNormalizer() {
+    }
+
+    public static String fold(String text) {
+        if (text == null) return "";
+        // "đ" không tách được bằng NFD nên phải thay riêng
+        String lower = text.toLowerCase().replace('đ', 'd');
+        return DIACRITICS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_ALNUM.split(fold(text))) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+}
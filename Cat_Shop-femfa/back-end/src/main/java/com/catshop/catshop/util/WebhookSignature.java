@@ -0,0 +1,40 @@
+package com.catshop.catshop.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+// Chữ ký webhook cổng thanh toán: hex(HMAC-SHA256(secret, timestamp + "." + body)).
+// Đưa timestamp vào chữ ký để không phát lại được request cũ với timestamp mới.
+public final class WebhookSignature {
+
+    public static final String HEADER_TIMESTAMP = "X-Webhook-Timestamp";
+    public static final String HEADER_SIGNATURE = "X-Webhook-Signature";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private WebhookSignature() {
+    }
+
+    public static String sign(String secret, String timestamp, byte[] body) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            mac.update(timestamp.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) '.');
+            return HexFormat.of().formatHex(mac.doFinal(body));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Không tạo được chữ ký webhook", e);
+        }
+    }
+
+    // So sánh thời gian hằng để không lộ chữ ký qua thời gian phản hồi
+    public static boolean verify(String secret, String timestamp, byte[] body, String signature) {
+        if (signature == null) return false;
+        byte[] expected = sign(secret, timestamp, body).getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(expected, signature.trim().toLowerCase().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,108 @@
+package com.catshop.catshop.service;
+
+import com.catshop.catshop.dto.request.ProductPageRequest;
+import com.catshop.catshop.dto.response.ProductResponse;
+import com.catshop.catshop.entity.Category;
+import com.catshop.catshop.entity.Product;
+import com.catshop.catshop.entity.ProductType;
+import com.catshop.catshop.repository.CategoryRepository;
+import com.catshop.catshop.repository.ProductRepository;
+import com.catshop.catshop.repository.ProductTypeRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// Đảm bảo các API đọc sản phẩm của customer chỉ chạy đúng 1 câu SQL, không bị N+1 khi map DTO
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "catalog.cache.enabled=false"
+})
+@Transactional
+class ProductQueryCountTests {
+
+    private static final int PRODUCT_COUNT = 5;
+
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProductTypeRepository productTypeRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private ProductType type;
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        type = productTypeRepository.save(ProductType.builder()
+                .typeName("query-count-" + System.nanoTime())
+                .build());
+        category = categoryRepository.save(Category.builder()
+                .categoryName("query-count-category")
+                .productType(type)
+                .build());
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            productRepository.save(Product.builder()
+                    .productName("query-count-product-" + i)
+                    .productType(type)
+                    .category(category)
+                    .price(BigDecimal.valueOf(100 + i))
+                    .stockQuantity(10)
+                    .build());
+        }
+        // Xóa persistence context để lần đọc sau phải đi xuống DB như một request thật
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void productsByTypeUseSingleStatement() {
+        List<ProductResponse> result = productService.getProductsByType(type.getTypeId());
+
+        assertEquals(PRODUCT_COUNT, result.size());
+        assertNotNull(result.get(0).getTypeName());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void productsByCategoryUseSingleStatement() {
+        List<ProductResponse> result = productService.getProductsByCategory(category.getCategoryId());
+
+        assertEquals(PRODUCT_COUNT, result.size());
+        assertNotNull(result.get(0).getCategoryName());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void keysetPageUsesSingleStatement() {
+        ProductPageRequest request = ProductPageRequest.builder()
+                .typeId(type.getTypeId())
+                .size(PRODUCT_COUNT)
+                .build();
+
+        assertEquals(PRODUCT_COUNT, productService.getProductsPage(request).getItems().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
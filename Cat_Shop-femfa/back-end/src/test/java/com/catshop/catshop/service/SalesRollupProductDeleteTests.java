@@ -0,0 +1,134 @@
+package com.catshop.catshop.service;
+
+import com.catshop.catshop.entity.*;
+import com.catshop.catshop.repository.*;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Xóa sản phẩm không được làm mất doanh thu cũ của nó, kể cả sau khi rebuild toàn bộ rollup
+@SpringBootTest(properties = "catalog.cache.enabled=false")
+@Transactional
+class SalesRollupProductDeleteTests {
+
+    // Ngày riêng cho test để không lẫn với dữ liệu khác trong DB
+    private static final LocalDate DAY = LocalDate.of(2001, 2, 3);
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProductTypeRepository productTypeRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderDetailRepository orderDetailRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    private String productName;
+    private Long productId;
+    private Long categoryId;
+    private Long orderDetailId;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = String.valueOf(System.nanoTime());
+        ProductType type = productTypeRepository.save(ProductType.builder().typeName("rollup-" + suffix).build());
+        Category category = categoryRepository.save(Category.builder()
+                .categoryName("rollup-category-" + suffix)
+                .productType(type)
+                .build());
+        productName = "rollup-product-" + suffix;
+        Product product = productRepository.save(Product.builder()
+                .productName(productName)
+                .productType(type)
+                .category(category)
+                .price(new BigDecimal("150000.00"))
+                .stockQuantity(10)
+                .build());
+        Role role = roleRepository.save(Role.builder().roleName("rollup-role-" + suffix).build());
+        User user = userRepository.save(User.builder()
+                .username("rollup-user")
+                .email("rollup-" + suffix + "@example.com")
+                .role(role)
+                .build());
+        Order order = orderRepository.save(Order.builder()
+                .user(user)
+                .orderDate(DAY.atTime(10, 0))
+                .status("Completed")
+                .totalAmount(new BigDecimal("300000.00"))
+                .build());
+        orderDetailId = orderDetailRepository.save(OrderDetail.builder()
+                .order(order)
+                .product(product)
+                .productName(productName)
+                .quantity(2)
+                .price(new BigDecimal("150000.00"))
+                .build()).getOrderDetailId();
+        productId = product.getProductId();
+        categoryId = category.getCategoryId();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void deletedProductKeepsRevenueAfterRebuild() {
+        salesRollupService.rebuildAll();
+        Object[] before = productRow();
+        Object[] categoryBefore = categoryRow();
+        assertEquals(0, new BigDecimal("300000.00").compareTo((BigDecimal) before[3]));
+
+        productService.deleteProduct(productId);
+        entityManager.flush();
+        entityManager.clear();
+        salesRollupService.rebuildAll();
+
+        OrderDetail line = orderDetailRepository.findById(orderDetailId).orElseThrow();
+        assertNull(line.getProduct());
+        assertEquals(productName, line.getProductName());
+
+        Object[] after = productRow();
+        assertNull(after[0]);
+        assertEquals(productName, after[1]);
+        assertEquals(((Number) before[2]).longValue(), ((Number) after[2]).longValue());
+        assertEquals(0, ((BigDecimal) before[3]).compareTo((BigDecimal) after[3]));
+
+        Object[] categoryAfter = categoryRow();
+        assertEquals(0, ((BigDecimal) categoryBefore[3]).compareTo((BigDecimal) categoryAfter[3]));
+    }
+
+    private Object[] productRow() {
+        List<Object[]> rows = salesRollupService.revenueByProduct(DAY, DAY.plusDays(1)).stream()
+                .filter(row -> productName.equals(row[1]))
+                .toList();
+        assertEquals(1, rows.size());
+        return rows.get(0);
+    }
+
+    private Object[] categoryRow() {
+        return salesRollupService.revenueByCategory(DAY, DAY.plusDays(1)).stream()
+                .filter(row -> row[0] != null && categoryId.equals(((Number) row[0]).longValue()))
+                .findFirst()
+                .orElseThrow();
+    }
+}
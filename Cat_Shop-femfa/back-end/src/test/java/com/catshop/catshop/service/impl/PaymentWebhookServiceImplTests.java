@@ -0,0 +1,152 @@
+package com.catshop.catshop.service.impl;
+
+import com.catshop.catshop.exception.BadRequestException;
+import com.catshop.catshop.exception.UnauthorizedException;
+import com.catshop.catshop.service.PaymentWebhookService;
+import com.catshop.catshop.service.PaymentWebhookWorker;
+import com.catshop.catshop.util.WebhookSignature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Endpoint webhook: chỉ đưa vào hàng đợi sự kiện có chữ ký đúng, còn hạn và lưu được; không cần DB
+class PaymentWebhookServiceImplTests {
+
+    private static final String SECRET = "whsec_test";
+    private static final long TOLERANCE_SECONDS = 300;
+
+    private StringRedisTemplate redisTemplate;
+    private ValueOperations<String, String> valueOps;
+    private StreamOperations<String, Object, Object> streamOps;
+    private PaymentWebhookServiceImpl service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        valueOps = mock(ValueOperations.class);
+        streamOps = mock(StreamOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(redisTemplate.opsForStream()).thenReturn(streamOps);
+        when(valueOps.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+        service = new PaymentWebhookServiceImpl(redisTemplate, new ObjectMapper().findAndRegisterModules(),
+                SECRET, TOLERANCE_SECONDS, 72);
+    }
+
+    @Test
+    void acceptsValidSignatureAndEnqueues() {
+        byte[] body = event("evt_1", "100000");
+        String timestamp = now();
+
+        assertEquals(PaymentWebhookService.RESULT_ACCEPTED,
+                service.receive(body, timestamp, WebhookSignature.sign(SECRET, timestamp, body)));
+        verify(streamOps).add(any(MapRecord.class));
+    }
+
+    @Test
+    void duplicateEventIsNotEnqueuedTwice() {
+        when(valueOps.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+        byte[] body = event("evt_1", "100000");
+        String timestamp = now();
+
+        assertEquals(PaymentWebhookService.RESULT_DUPLICATE,
+                service.receive(body, timestamp, WebhookSignature.sign(SECRET, timestamp, body)));
+        verify(streamOps, never()).add(any(MapRecord.class));
+    }
+
+    @Test
+    void rejectsTamperedBody() {
+        String timestamp = now();
+        String signature = WebhookSignature.sign(SECRET, timestamp, event("evt_1", "100000"));
+
+        assertThrows(UnauthorizedException.class, () -> service.receive(event("evt_1", "999999"), timestamp, signature));
+        verifyNoInteractions(valueOps, streamOps);
+    }
+
+    @Test
+    void rejectsExpiredTimestampEvenWithValidSignature() {
+        byte[] body = event("evt_1", "100000");
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000 - TOLERANCE_SECONDS - 60);
+
+        assertThrows(UnauthorizedException.class,
+                () -> service.receive(body, timestamp, WebhookSignature.sign(SECRET, timestamp, body)));
+        verifyNoInteractions(valueOps, streamOps);
+    }
+
+    @Test
+    void rejectsTimestampFromTheFuture() {
+        byte[] body = event("evt_1", "100000");
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000 + TOLERANCE_SECONDS + 60);
+
+        assertThrows(UnauthorizedException.class,
+                () -> service.receive(body, timestamp, WebhookSignature.sign(SECRET, timestamp, body)));
+    }
+
+    @Test
+    void rejectsMissingTimestamp() {
+        byte[] body = event("evt_1", "100000");
+        assertThrows(UnauthorizedException.class, () -> service.receive(body, null, WebhookSignature.sign(SECRET, "", body)));
+    }
+
+    @Test
+    void rejectsFieldsTheDatabaseCannotStore() {
+        assertThrows(BadRequestException.class, () -> receiveSigned(event("e".repeat(101), "100000")));
+        assertThrows(BadRequestException.class, () -> receiveSigned(event("evt_1", "100000.001")));
+        assertThrows(BadRequestException.class, () -> receiveSigned(event("evt_1", "1" + "0".repeat(36))));
+        assertThrows(BadRequestException.class, () -> receiveSigned(
+                ("{\"eventId\":\"evt_1\",\"type\":\"payment.succeeded\",\"orderId\":1,\"amount\":1,\"method\":\""
+                        + "m".repeat(256) + "\"}").getBytes(StandardCharsets.UTF_8)));
+        verifyNoInteractions(valueOps, streamOps);
+    }
+
+    @Test
+    void ignoresOtherEventTypes() {
+        byte[] body = "{\"eventId\":\"evt_1\",\"type\":\"payment.failed\"}".getBytes(StandardCharsets.UTF_8);
+        assertEquals(PaymentWebhookService.RESULT_IGNORED, receiveSigned(body));
+        verifyNoInteractions(valueOps, streamOps);
+    }
+
+    @Test
+    void replaysDeadLettersBackToStreamWithoutErrorField() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(3L);
+
+        assertEquals(3, service.replayDeadLetters(100));
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of(PaymentWebhookWorker.DEAD_LETTER_KEY, PaymentWebhookWorker.STREAM_KEY)),
+                eq("100"), eq(PaymentWebhookWorker.FIELD_ERROR));
+    }
+
+    @Test
+    void rejectsReplayLimitOutOfRange() {
+        assertThrows(BadRequestException.class, () -> service.replayDeadLetters(0));
+        assertThrows(BadRequestException.class, () -> service.replayDeadLetters(1001));
+        verifyNoInteractions(streamOps);
+    }
+
+    private String receiveSigned(byte[] body) {
+        String timestamp = now();
+        return service.receive(body, timestamp, WebhookSignature.sign(SECRET, timestamp, body));
+    }
+
+    private static byte[] event(String eventId, String amount) {
+        return ("{\"eventId\":\"" + eventId + "\",\"type\":\"payment.succeeded\",\"orderId\":1,\"amount\":" + amount
+                + ",\"method\":\"CARD\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String now() {
+        return String.valueOf(System.currentTimeMillis() / 1000);
+    }
+}
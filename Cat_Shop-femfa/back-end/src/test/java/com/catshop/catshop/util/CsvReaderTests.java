@@ -0,0 +1,104 @@
+package com.catshop.catshop.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Đọc CSV theo RFC 4180: nháy kép, escape "", xuống dòng trong field, CRLF, BOM và số dòng báo lỗi
+class CsvReaderTests {
+
+    @Test
+    void readsPlainFields() throws IOException {
+        assertEquals(List.of(List.of("a", "b", "c"), List.of("1", "2", "3")), readAll("a,b,c\n1,2,3\n"));
+    }
+
+    @Test
+    void keepsEmptyFields() throws IOException {
+        assertEquals(List.of(List.of("", "x", "", "")), readAll(",x,,\n"));
+    }
+
+    @Test
+    void quotedFieldMayContainCommaAndNewline() throws IOException {
+        List<List<String>> rows = readAll("name,description\n\"Cát, vệ sinh\",\"dòng 1\ndòng 2\"\n");
+        assertEquals(List.of("Cát, vệ sinh", "dòng 1\ndòng 2"), rows.get(1));
+    }
+
+    @Test
+    void doubledQuoteIsEscapedQuote() throws IOException {
+        assertEquals(List.of(List.of("say \"hi\"", "\"")), readAll("\"say \"\"hi\"\"\",\"\"\"\"\n"));
+    }
+
+    @Test
+    void emptyQuotedFieldIsEmptyString() throws IOException {
+        assertEquals(List.of(List.of("", "b")), readAll("\"\",b\n"));
+    }
+
+    @Test
+    void quoteInsideUnquotedFieldIsLiteral() throws IOException {
+        assertEquals(List.of(List.of("5\" cage", "x")), readAll("5\" cage,x\n"));
+    }
+
+    @Test
+    void handlesCrlfBomAndMissingFinalNewline() throws IOException {
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d")), readAll("\uFEFFa,b\r\nc,d"));
+    }
+
+    @Test
+    void skipsBlankLinesAndReportsRecordStartLine() throws IOException {
+        try (CsvReader reader = new CsvReader(new StringReader("h1,h2\n\n\"multi\nline\",x\nlast,y\n"))) {
+            reader.next();
+            assertEquals(1, reader.getRecordLine());
+            assertEquals(List.of("multi\nline", "x"), reader.next());
+            assertEquals(3, reader.getRecordLine());
+            reader.next();
+            assertEquals(5, reader.getRecordLine());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void unterminatedQuoteFails() {
+        IOException e = assertThrows(IOException.class, () -> readAll("ok,1\n\"never closed,2\n"));
+        assertTrue(e.getMessage().contains("dòng 2"));
+    }
+
+    @Test
+    void badQuoteMidwayKeepsEarlierRecordsAndReportsItsLine() throws IOException {
+        try (CsvReader reader = new CsvReader(new StringReader("name,price\nok,1\n\"broken,2\nlater,3\n"))) {
+            reader.next();
+            assertEquals(List.of("ok", "1"), reader.next());
+            assertThrows(CsvReader.MalformedCsvException.class, reader::next);
+            assertEquals(3, reader.getRecordLine());
+        }
+    }
+
+    @Test
+    void oversizedRecordFailsBeforeReadingWholeFile() {
+        String csv = "ok,1\n\"" + "x".repeat(CsvReader.MAX_RECORD_CHARS) + "\n";
+        assertThrows(CsvReader.MalformedCsvException.class, () -> readAll(csv));
+    }
+
+    @Test
+    void readsBackWhatCsvWriterWrites() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvWriter writer = new CsvWriter(out);
+        writer.writeRow("plain", "a,b", "quote \"x\"", "line\nbreak", null);
+        writer.flush();
+        assertEquals(List.of(List.of("plain", "a,b", "quote \"x\"", "line\nbreak", "")), readAll(out.toString()));
+    }
+
+    private static List<List<String>> readAll(String csv) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(new StringReader(csv))) {
+            List<String> row;
+            while ((row = reader.next()) != null) rows.add(row);
+        }
+        return rows;
+    }
+}
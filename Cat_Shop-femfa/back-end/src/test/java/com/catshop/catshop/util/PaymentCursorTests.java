@@ -0,0 +1,58 @@
+package com.catshop.catshop.util;
+
+import com.catshop.catshop.entity.Payment;
+import com.catshop.catshop.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Cursor payment: giải mã lại đúng vị trí đã mã hóa, token bị sửa / rác trả 400 thay vì lỗi 500
+class PaymentCursorTests {
+
+    @Test
+    void roundTrip() {
+        LocalDateTime date = LocalDateTime.of(2025, 3, 14, 9, 26, 53, 589_000_000);
+        Payment last = Payment.builder().paymentId(42L).paymentDate(date).build();
+
+        String token = PaymentCursor.after(last).encode();
+        PaymentCursor decoded = PaymentCursor.decode(token);
+
+        assertEquals(date, decoded.getLastDate());
+        assertEquals(42L, decoded.getLastId());
+    }
+
+    @Test
+    void tokenIsUrlSafe() {
+        String token = new PaymentCursor(LocalDateTime.of(2025, 1, 1, 0, 0), Long.MAX_VALUE).encode();
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+    }
+
+    @Test
+    void rejectsInvalidBase64() {
+        assertThrows(BadRequestException.class, () -> PaymentCursor.decode("not base64!"));
+    }
+
+    @Test
+    void rejectsMissingId() {
+        assertThrows(BadRequestException.class, () -> PaymentCursor.decode(encode("2025-01-01T00:00")));
+    }
+
+    @Test
+    void rejectsTamperedDate() {
+        assertThrows(BadRequestException.class, () -> PaymentCursor.decode(encode("2025-13-01T00:00|5")));
+    }
+
+    @Test
+    void rejectsTamperedId() {
+        assertThrows(BadRequestException.class, () -> PaymentCursor.decode(encode("2025-01-01T00:00|5 OR 1=1")));
+        assertThrows(BadRequestException.class, () -> PaymentCursor.decode(encode("2025-01-01T00:00|")));
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
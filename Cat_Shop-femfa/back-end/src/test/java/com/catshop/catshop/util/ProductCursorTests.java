@@ -0,0 +1,72 @@
+package com.catshop.catshop.util;
+
+import com.catshop.catshop.dto.request.ProductSortKey;
+import com.catshop.catshop.entity.Product;
+import com.catshop.catshop.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Cursor sản phẩm: giải mã lại đúng khóa sắp xếp / giá trị / id, token bị sửa hoặc dùng sai kiểu sắp xếp trả 400
+class ProductCursorTests {
+
+    @Test
+    void roundTripForEverySortKey() {
+        Product last = Product.builder()
+                .productId(7L)
+                .productName("Pate | cá hồi")
+                .price(new BigDecimal("125000.50"))
+                .stockQuantity(3)
+                .build();
+        for (ProductSortKey sort : ProductSortKey.values()) {
+            ProductCursor cursor = ProductCursor.after(sort, last);
+            ProductCursor decoded = ProductCursor.decode(cursor.encode(), sort);
+            assertEquals(sort, decoded.getSort());
+            assertEquals(7L, decoded.getLastId());
+            assertEquals(cursor.getLastValue(), decoded.getLastValue(), sort.name());
+        }
+    }
+
+    @Test
+    void nameWithSeparatorSurvives() {
+        Product last = Product.builder().productId(1L).productName("a|b|c").build();
+        ProductCursor decoded = ProductCursor.decode(ProductCursor.after(ProductSortKey.NAME_ASC, last).encode(), ProductSortKey.NAME_ASC);
+        assertEquals("a|b|c", decoded.getLastValue());
+    }
+
+    @Test
+    void rejectsCursorFromAnotherSort() {
+        String token = new ProductCursor(ProductSortKey.PRICE_ASC, 1L, "10").encode();
+        assertThrows(BadRequestException.class, () -> ProductCursor.decode(token, ProductSortKey.PRICE_DESC));
+    }
+
+    @Test
+    void rejectsInvalidBase64() {
+        assertThrows(BadRequestException.class, () -> ProductCursor.decode("%%%", ProductSortKey.NEWEST));
+    }
+
+    @Test
+    void rejectsUnknownSortKey() {
+        assertThrows(BadRequestException.class, () -> ProductCursor.decode(encode("RANDOM|1|"), ProductSortKey.NEWEST));
+    }
+
+    @Test
+    void rejectsTamperedId() {
+        assertThrows(BadRequestException.class, () -> ProductCursor.decode(encode("NEWEST|x|"), ProductSortKey.NEWEST));
+        assertThrows(BadRequestException.class, () -> ProductCursor.decode(encode("NEWEST"), ProductSortKey.NEWEST));
+    }
+
+    @Test
+    void rejectsTamperedSortValue() {
+        assertThrows(BadRequestException.class, () -> ProductCursor.decode(encode("PRICE_ASC|1|0 OR 1=1"), ProductSortKey.PRICE_ASC));
+        assertThrows(BadRequestException.class, () -> ProductCursor.decode(encode("STOCK_DESC|1|many"), ProductSortKey.STOCK_DESC));
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,55 @@
+package com.catshop.catshop.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Chữ ký HMAC của webhook thanh toán: chỉ đúng với cùng secret, timestamp và body từng byte
+class WebhookSignatureTests {
+
+    private static final String SECRET = "whsec_test";
+    private static final String TIMESTAMP = "1760000000";
+    private static final byte[] BODY = "{\"eventId\":\"evt_1\",\"amount\":100000}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void acceptsValidSignature() {
+        String signature = WebhookSignature.sign(SECRET, TIMESTAMP, BODY);
+        assertTrue(signature.matches("[0-9a-f]{64}"), signature);
+        assertTrue(WebhookSignature.verify(SECRET, TIMESTAMP, BODY, signature));
+    }
+
+    @Test
+    void acceptsUppercaseAndSurroundingWhitespace() {
+        String signature = WebhookSignature.sign(SECRET, TIMESTAMP, BODY);
+        assertTrue(WebhookSignature.verify(SECRET, TIMESTAMP, BODY, " " + signature.toUpperCase() + "\n"));
+    }
+
+    @Test
+    void rejectsTamperedBody() {
+        String signature = WebhookSignature.sign(SECRET, TIMESTAMP, BODY);
+        byte[] tampered = "{\"eventId\":\"evt_1\",\"amount\":900000}".getBytes(StandardCharsets.UTF_8);
+        assertFalse(WebhookSignature.verify(SECRET, TIMESTAMP, tampered, signature));
+    }
+
+    @Test
+    void rejectsReplayWithNewTimestamp() {
+        String signature = WebhookSignature.sign(SECRET, TIMESTAMP, BODY);
+        assertFalse(WebhookSignature.verify(SECRET, "1760000300", BODY, signature));
+    }
+
+    @Test
+    void rejectsOtherSecret() {
+        String signature = WebhookSignature.sign("whsec_other", TIMESTAMP, BODY);
+        assertFalse(WebhookSignature.verify(SECRET, TIMESTAMP, BODY, signature));
+    }
+
+    @Test
+    void rejectsMissingOrTruncatedSignature() {
+        String signature = WebhookSignature.sign(SECRET, TIMESTAMP, BODY);
+        assertFalse(WebhookSignature.verify(SECRET, TIMESTAMP, BODY, null));
+        assertFalse(WebhookSignature.verify(SECRET, TIMESTAMP, BODY, ""));
+        assertFalse(WebhookSignature.verify(SECRET, TIMESTAMP, BODY, signature.substring(0, 63)));
+    }
+}